@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap;
+
+/**
+ * The top-level fields of an alert that say who sent it, when, and how it
+ * should be handled, as read by {@link CapXmlParser#parseEnvelope}
+ * without reading its {@code <info>} blocks.
+ *
+ * <p>The alert is not validated, so any field may be missing; each getter
+ * returns the field's default if its {@code has} method returns false.
+ *
+ * @author agent@local (agent)
+ */
+public final class AlertEnvelope {
+  private final Alert alert;
+
+  AlertEnvelope(Alert alert) {
+    this.alert = alert;
+  }
+
+  /**
+   * @return the XML namespace of the alert, which determines its CAP
+   * version
+   */
+  public String getXmlns() {
+    return alert.getXmlns();
+  }
+
+  public boolean hasIdentifier() {
+    return alert.hasIdentifier();
+  }
+
+  public String getIdentifier() {
+    return alert.getIdentifier();
+  }
+
+  public boolean hasSender() {
+    return alert.hasSender();
+  }
+
+  public String getSender() {
+    return alert.getSender();
+  }
+
+  public boolean hasSent() {
+    return alert.hasSent();
+  }
+
+  /**
+   * @return the time the alert was sent, in the CAP dateTime format
+   */
+  public String getSent() {
+    return alert.getSent();
+  }
+
+  public boolean hasStatus() {
+    return alert.hasStatus();
+  }
+
+  public Alert.Status getStatus() {
+    return alert.getStatus();
+  }
+
+  public boolean hasMsgType() {
+    return alert.hasMsgType();
+  }
+
+  public Alert.MsgType getMsgType() {
+    return alert.getMsgType();
+  }
+
+  public boolean hasScope() {
+    return alert.hasScope();
+  }
+
+  public Alert.Scope getScope() {
+    return alert.getScope();
+  }
+
+  public boolean hasReferences() {
+    return alert.hasReferences();
+  }
+
+  /**
+   * @return the references to earlier alerts, each in the form
+   * {@code sender,identifier,sent}
+   */
+  public Group getReferences() {
+    return alert.getReferences();
+  }
+
+  /**
+   * @return the top-level fields of the alert, as a partial alert with no
+   * infos
+   */
+  public Alert toAlert() {
+    return alert;
+  }
+
+  @Override
+  public String toString() {
+    return "AlertEnvelope[identifier=" + getIdentifier()
+        + ", sender=" + getSender() + ", sent=" + getSent()
+        + ", status=" + getStatus() + ", msgType=" + getMsgType() + "]";
+  }
+}
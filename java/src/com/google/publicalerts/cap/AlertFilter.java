@@ -0,0 +1,312 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * A condition on alerts that {@link CapXmlParser} checks while parsing,
+ * so that alerts a consumer would discard are dropped as soon as they
+ * cannot match, rather than parsed and validated in full. See
+ * {@link CapXmlParser#setAlertFilter}.
+ *
+ * <p>An alert matches if {@link #filterAlert} matches its top-level
+ * fields, and, if {@link #requiresMatchingInfo()}, {@link #filterInfo}
+ * matches at least one of its infos. Infos that do not match are dropped
+ * from the parsed alert.
+ *
+ * <p>Both methods are called repeatedly with a partial alert or info, each
+ * time one of its fields has been read, and return
+ * {@link Result#UNDECIDED} until the fields they need have been. Once
+ * they return {@link Result#NO_MATCH}, the rest of the alert or info is
+ * skipped; once they return {@link Result#MATCH}, they are not called
+ * again for it. They are called one last time with {@code complete} true
+ * once all the fields have been read, when {@code UNDECIDED} counts as
+ * {@code NO_MATCH}.
+ *
+ * <p>{@link #newBuilder()} builds filters for the common conditions. The
+ * default implementations of both methods match everything.
+ *
+ * @author agent@local (agent)
+ */
+public abstract class AlertFilter {
+
+  /** The result of checking a partially read alert or info. */
+  public enum Result {
+    /** Matches, whatever the fields not yet read. */
+    MATCH,
+    /** Cannot match, whatever the fields not yet read. */
+    NO_MATCH,
+    /** Depends on fields not yet read. */
+    UNDECIDED,
+  }
+
+  /**
+   * @param alert the top-level fields of the alert read so far; no infos
+   * @param complete true if all the top-level fields have been read
+   * @return whether the alert matches
+   */
+  public Result filterAlert(AlertOrBuilder alert, boolean complete) {
+    return Result.MATCH;
+  }
+
+  /**
+   * @param info the fields of the info read so far
+   * @param complete true if all the fields of the info have been read
+   * @return whether the info matches
+   */
+  public Result filterInfo(InfoOrBuilder info, boolean complete) {
+    return Result.MATCH;
+  }
+
+  /**
+   * @return true if an alert matches only if one of its infos does, so an
+   * alert with no infos never matches. Defaults to false.
+   */
+  public boolean requiresMatchingInfo() {
+    return false;
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Builder for a filter matching alerts that meet all of the conditions
+   * set. For the info conditions, one info must meet all of them.
+   */
+  public static final class Builder {
+    private Set<Alert.Status> statuses;
+    private Set<Alert.MsgType> msgTypes;
+    private Info.Urgency minUrgency;
+    private Info.Severity minSeverity;
+    private Info.Certainty minCertainty;
+    private double[] boundingBox;
+
+    private Builder() {}
+
+    /** Matches alerts with any of the given statuses. */
+    public Builder setStatuses(Alert.Status... statuses) {
+      this.statuses = ImmutableSet.copyOf(statuses);
+      return this;
+    }
+
+    /** Matches alerts with any of the given message types. */
+    public Builder setMsgTypes(Alert.MsgType... msgTypes) {
+      this.msgTypes = ImmutableSet.copyOf(msgTypes);
+      return this;
+    }
+
+    /**
+     * Matches infos with the given urgency or more urgent. Unknown urgency
+     * is the least urgent.
+     */
+    public Builder setMinUrgency(Info.Urgency minUrgency) {
+      this.minUrgency = Preconditions.checkNotNull(minUrgency);
+      return this;
+    }
+
+    /**
+     * Matches infos with the given severity or more severe. Unknown
+     * severity is the least severe.
+     */
+    public Builder setMinSeverity(Info.Severity minSeverity) {
+      this.minSeverity = Preconditions.checkNotNull(minSeverity);
+      return this;
+    }
+
+    /**
+     * Matches infos with the given certainty or more certain. Unknown
+     * certainty is the least certain.
+     */
+    public Builder setMinCertainty(Info.Certainty minCertainty) {
+      this.minCertainty = Preconditions.checkNotNull(minCertainty);
+      return this;
+    }
+
+    /**
+     * Matches infos with an area whose polygons or circles overlap the
+     * given box, which must not cross the antimeridian. Areas described
+     * only by geocodes do not match.
+     */
+    public Builder setBoundingBox(double minLatitude, double minLongitude,
+        double maxLatitude, double maxLongitude) {
+      Preconditions.checkArgument(minLatitude <= maxLatitude,
+          "minLatitude must not exceed maxLatitude");
+      Preconditions.checkArgument(minLongitude <= maxLongitude,
+          "minLongitude must not exceed maxLongitude");
+      this.boundingBox = new double[] {
+          minLatitude, minLongitude, maxLatitude, maxLongitude};
+      return this;
+    }
+
+    public AlertFilter build() {
+      return new ConditionFilter(this);
+    }
+  }
+
+  /** The filter built by {@link Builder}. */
+  private static final class ConditionFilter extends AlertFilter {
+    /** The mean radius of the earth, in km. */
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    private final Set<Alert.Status> statuses;
+    private final Set<Alert.MsgType> msgTypes;
+    private final Info.Urgency minUrgency;
+    private final Info.Severity minSeverity;
+    private final Info.Certainty minCertainty;
+    private final double[] boundingBox;
+
+    ConditionFilter(Builder builder) {
+      this.statuses = builder.statuses;
+      this.msgTypes = builder.msgTypes;
+      this.minUrgency = builder.minUrgency;
+      this.minSeverity = builder.minSeverity;
+      this.minCertainty = builder.minCertainty;
+      this.boundingBox = builder.boundingBox;
+    }
+
+    @Override
+    public Result filterAlert(AlertOrBuilder alert, boolean complete) {
+      Result result = Result.MATCH;
+      if (statuses != null) {
+        result = and(result, alert.hasStatus()
+            ? match(statuses.contains(alert.getStatus())) : undecided(complete));
+      }
+      if (msgTypes != null) {
+        result = and(result, alert.hasMsgType()
+            ? match(msgTypes.contains(alert.getMsgType())) : undecided(complete));
+      }
+      return result;
+    }
+
+    @Override
+    public Result filterInfo(InfoOrBuilder info, boolean complete) {
+      Result result = Result.MATCH;
+      // Enum values are numbered from most to least urgent, severe and certain
+      if (minUrgency != null) {
+        result = and(result, info.hasUrgency()
+            ? match(info.getUrgency().getNumber() <= minUrgency.getNumber())
+            : undecided(complete));
+      }
+      if (minSeverity != null) {
+        result = and(result, info.hasSeverity()
+            ? match(info.getSeverity().getNumber() <= minSeverity.getNumber())
+            : undecided(complete));
+      }
+      if (minCertainty != null) {
+        result = and(result, info.hasCertainty()
+            ? match(getCertaintyRank(info.getCertainty())
+                <= getCertaintyRank(minCertainty))
+            : undecided(complete));
+      }
+      if (boundingBox != null && result != Result.NO_MATCH) {
+        result = and(result, overlapsBoundingBox(info, complete) ? Result.MATCH
+            : undecided(complete));
+      }
+      return result;
+    }
+
+    @Override
+    public boolean requiresMatchingInfo() {
+      return minUrgency != null || minSeverity != null || minCertainty != null
+          || boundingBox != null;
+    }
+
+    /**
+     * VERY_LIKELY, deprecated in CAP 1.1, is numbered between OBSERVED and
+     * LIKELY, but means the same as LIKELY.
+     */
+    private static int getCertaintyRank(Info.Certainty certainty) {
+      return certainty == Info.Certainty.VERY_LIKELY
+          ? Info.Certainty.LIKELY.getNumber() : certainty.getNumber();
+    }
+
+    /**
+     * Until the info is complete, checks only its last area, as the others
+     * were checked as they were read.
+     */
+    private boolean overlapsBoundingBox(InfoOrBuilder info, boolean complete) {
+      int count = info.getAreaCount();
+      for (int i = complete ? 0 : Math.max(0, count - 1); i < count; i++) {
+        AreaOrBuilder area = info.getAreaOrBuilder(i);
+        for (PolygonOrBuilder polygon : area.getPolygonOrBuilderList()) {
+          PolygonView view = PolygonView.of(polygon);
+          if (view.getPointCount() == 0) {
+            continue;
+          }
+          double minLat = Double.MAX_VALUE;
+          double minLng = Double.MAX_VALUE;
+          double maxLat = -Double.MAX_VALUE;
+          double maxLng = -Double.MAX_VALUE;
+          for (int j = 0; j < view.getPointCount(); j++) {
+            minLat = Math.min(minLat, view.getLatitude(j));
+            maxLat = Math.max(maxLat, view.getLatitude(j));
+            minLng = Math.min(minLng, view.getLongitude(j));
+            maxLng = Math.max(maxLng, view.getLongitude(j));
+          }
+          if (overlaps(minLat, minLng, maxLat, maxLng)) {
+            return true;
+          }
+        }
+        for (CircleOrBuilder circle : area.getCircleOrBuilderList()) {
+          double lat = circle.getPoint().getLatitude();
+          double lng = circle.getPoint().getLongitude();
+          double latDelta = Math.toDegrees(circle.getRadius() / EARTH_RADIUS_KM);
+          double cosLat = Math.cos(Math.toRadians(lat));
+          double lngDelta = cosLat < 1e-9 ? 180 : latDelta / cosLat;
+          if (overlaps(lat - latDelta, lng - lngDelta, lat + latDelta, lng + lngDelta)) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    private boolean overlaps(double minLat, double minLng, double maxLat, double maxLng) {
+      return minLat <= boundingBox[2] && maxLat >= boundingBox[0]
+          && minLng <= boundingBox[3] && maxLng >= boundingBox[1];
+    }
+
+    private static Result match(boolean matches) {
+      return matches ? Result.MATCH : Result.NO_MATCH;
+    }
+
+    private static Result undecided(boolean complete) {
+      return complete ? Result.NO_MATCH : Result.UNDECIDED;
+    }
+
+    private static Result and(Result a, Result b) {
+      if (a == Result.NO_MATCH || b == Result.NO_MATCH) {
+        return Result.NO_MATCH;
+      }
+      return a == Result.MATCH ? b : Result.UNDECIDED;
+    }
+
+    @Override
+    public String toString() {
+      return "AlertFilter[statuses=" + statuses + ", msgTypes=" + msgTypes
+          + ", minUrgency=" + minUrgency + ", minSeverity=" + minSeverity
+          + ", minCertainty=" + minCertainty + ", boundingBox="
+          + (boundingBox == null ? null : Arrays.toString(boundingBox)) + "]";
+    }
+  }
+}
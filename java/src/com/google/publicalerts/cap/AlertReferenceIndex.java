@@ -0,0 +1,347 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap;
+
+import com.google.common.collect.Maps;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * An index over the edges formed by {@literal <references>} between alerts.
+ *
+ * <p>Updates and cancels reference earlier messages, so a set of alerts forms
+ * a directed graph from each alert to the alerts it references. This index
+ * assigns each distinct {@code sender,identifier} pair a compact integer ID
+ * and keeps the edges in primitive adjacency lists, so that lineage queries
+ * (ancestors, descendants, latest version) only touch the alerts in the chain
+ * being queried.
+ *
+ * <p>Alerts that are referenced but have not themselves been added are
+ * <em>orphans</em>: they still receive an ID, so that a later
+ * {@link #add(AlertOrBuilder)} of the referenced alert links up with the
+ * alerts already referencing it.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @author agent@local (agent)
+ */
+public class AlertReferenceIndex {
+
+  /** Returned by lookups when no alert matches. */
+  public static final int NO_ID = -1;
+
+  private static final int[] EMPTY = new int[0];
+  private static final int INITIAL_CAPACITY = 16;
+  private static final long UNKNOWN_SENT = Long.MIN_VALUE;
+
+  private final Map<String, Integer> idsByKey = Maps.newHashMap();
+
+  private int size;
+  private String[] senders = new String[INITIAL_CAPACITY];
+  private String[] identifiers = new String[INITIAL_CAPACITY];
+  private long[] sentMillis = new long[INITIAL_CAPACITY];
+  private boolean[] indexed = new boolean[INITIAL_CAPACITY];
+  // addOrder[id] is when id was last added, to break ties between versions;
+  // IDs are also assigned to alerts that are only referenced, so they do
+  // not reflect the order of adds.
+  private int[] addOrder = new int[INITIAL_CAPACITY];
+  private int adds;
+
+  // references[id] holds the IDs of the alerts referenced by id (its parents),
+  // referencedBy[id] the IDs of the alerts referencing id (its children).
+  private int[][] references = new int[INITIAL_CAPACITY][];
+  private int[] referenceCounts = new int[INITIAL_CAPACITY];
+  private int[][] referencedBy = new int[INITIAL_CAPACITY][];
+  private int[] referencedByCounts = new int[INITIAL_CAPACITY];
+
+  // Traversal scratch space; visited[id] == visitEpoch marks id as seen in
+  // the current traversal, which avoids clearing a set on every query.
+  private int[] visited = new int[INITIAL_CAPACITY];
+  private int visitEpoch;
+  private int[] queue = new int[INITIAL_CAPACITY];
+
+  /**
+   * Adds the given alert and the edges to each alert it references.
+   *
+   * <p>Adding the same alert twice is harmless; the edges of both adds are
+   * merged.
+   *
+   * @param alert the alert to add
+   * @return the ID of the alert
+   */
+  public int add(AlertOrBuilder alert) {
+    int id = getOrCreateId(alert.getSender(), alert.getIdentifier());
+    indexed[id] = true;
+    addOrder[id] = adds++;
+    Date sent = CapDateUtil.toJavaDate(alert.getSent());
+    if (sent != null) {
+      sentMillis[id] = sent.getTime();
+    }
+
+    if (!alert.hasReferences()) {
+      return id;
+    }
+
+    int version = CapValidator.CAP10_XMLNS.equals(alert.getXmlns()) ? 10 : 12;
+    for (String reference : alert.getReferences().getValueList()) {
+      String referenceIdentifier = CapUtil.parseReferenceIdentifier(reference, version);
+      String referenceSender = CapUtil.parseReferenceSender(reference, version);
+      if (referenceIdentifier == null || referenceSender == null) {
+        continue;
+      }
+
+      int parent = getOrCreateId(referenceSender, referenceIdentifier);
+      if (parent == id) {
+        // Circular, reported by CapValidator
+        continue;
+      }
+      if (!indexed[parent] && version > 10 && sentMillis[parent] == UNKNOWN_SENT) {
+        Date referenceSent = CapUtil.parseReferenceSent(reference);
+        if (referenceSent != null) {
+          sentMillis[parent] = referenceSent.getTime();
+        }
+      }
+      addEdge(id, parent);
+    }
+    return id;
+  }
+
+  /**
+   * Returns the ID of the alert with the given sender and identifier, or
+   * {@link #NO_ID} if the alert was neither added nor referenced.
+   */
+  public int getId(String sender, String identifier) {
+    Integer id = idsByKey.get(toKey(sender, identifier));
+    return id == null ? NO_ID : id;
+  }
+
+  /**
+   * @return the number of IDs assigned, including orphans
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the sender of the alert with the given ID
+   */
+  public String getSender(int id) {
+    checkId(id);
+    return senders[id];
+  }
+
+  /**
+   * @return the identifier of the alert with the given ID
+   */
+  public String getIdentifier(int id) {
+    checkId(id);
+    return identifiers[id];
+  }
+
+  /**
+   * @return the sent time of the alert with the given ID, in milliseconds,
+   * or {@code null} if unknown. For orphans, this is the sent time given in
+   * the reference, if any.
+   */
+  public Long getSentMillis(int id) {
+    checkId(id);
+    return sentMillis[id] == UNKNOWN_SENT ? null : sentMillis[id];
+  }
+
+  /**
+   * @return true if the alert with the given ID is referenced but was never
+   * added to this index
+   */
+  public boolean isOrphan(int id) {
+    checkId(id);
+    return !indexed[id];
+  }
+
+  /**
+   * @return the IDs of all alerts that are referenced but were never added
+   */
+  public int[] getOrphans() {
+    int count = 0;
+    for (int id = 0; id < size; id++) {
+      if (!indexed[id]) {
+        count++;
+      }
+    }
+    int[] orphans = new int[count];
+    count = 0;
+    for (int id = 0; id < size; id++) {
+      if (!indexed[id]) {
+        orphans[count++] = id;
+      }
+    }
+    return orphans;
+  }
+
+  /**
+   * @return the IDs of the alerts directly referenced by the given alert
+   */
+  public int[] getReferences(int id) {
+    checkId(id);
+    return copy(references[id], referenceCounts[id]);
+  }
+
+  /**
+   * @return the IDs of the alerts that directly reference the given alert
+   */
+  public int[] getReferencedBy(int id) {
+    checkId(id);
+    return copy(referencedBy[id], referencedByCounts[id]);
+  }
+
+  /**
+   * Returns the IDs of all alerts the given alert transitively references,
+   * nearest first. The alert itself is not included.
+   */
+  public int[] getAncestors(int id) {
+    checkId(id);
+    return traverse(id, references, referenceCounts);
+  }
+
+  /**
+   * Returns the IDs of all alerts that transitively reference the given
+   * alert, nearest first. The alert itself is not included.
+   */
+  public int[] getDescendants(int id) {
+    checkId(id);
+    return traverse(id, referencedBy, referencedByCounts);
+  }
+
+  /**
+   * Returns the ID of the most recent version of the given alert: of the
+   * alert itself and all added alerts that transitively reference it, the
+   * one with the latest sent time. Ties go to the alert added last.
+   */
+  public int getLatestVersion(int id) {
+    int latest = id;
+    for (int descendant : getDescendants(id)) {
+      if (!indexed[descendant]) {
+        continue;
+      }
+      if (!indexed[latest] || sentMillis[descendant] > sentMillis[latest]
+          || (sentMillis[descendant] == sentMillis[latest]
+              && addOrder[descendant] > addOrder[latest])) {
+        latest = descendant;
+      }
+    }
+    return latest;
+  }
+
+  private int[] traverse(int start, int[][] edges, int[] edgeCounts) {
+    if (edgeCounts[start] == 0) {
+      return EMPTY;
+    }
+    int epoch = nextVisitEpoch();
+    visited[start] = epoch;
+    int head = 0;
+    int tail = 0;
+    queue[tail++] = start;
+    while (head < tail) {
+      int node = queue[head++];
+      int[] next = edges[node];
+      for (int i = 0; i < edgeCounts[node]; i++) {
+        int n = next[i];
+        if (visited[n] != epoch) {
+          visited[n] = epoch;
+          queue[tail++] = n;
+        }
+      }
+    }
+    return Arrays.copyOfRange(queue, 1, tail);
+  }
+
+  private int nextVisitEpoch() {
+    if (++visitEpoch == Integer.MAX_VALUE) {
+      Arrays.fill(visited, 0);
+      visitEpoch = 1;
+    }
+    return visitEpoch;
+  }
+
+  private void addEdge(int child, int parent) {
+    int[] parents = references[child];
+    for (int i = 0; i < referenceCounts[child]; i++) {
+      if (parents[i] == parent) {
+        return;
+      }
+    }
+    references[child] = append(parents, referenceCounts[child]++, parent);
+    referencedBy[parent] = append(referencedBy[parent], referencedByCounts[parent]++, child);
+  }
+
+  private int getOrCreateId(String sender, String identifier) {
+    String key = toKey(sender, identifier);
+    Integer existing = idsByKey.get(key);
+    if (existing != null) {
+      return existing;
+    }
+    if (size == senders.length) {
+      grow();
+    }
+    int id = size++;
+    senders[id] = sender;
+    identifiers[id] = identifier;
+    sentMillis[id] = UNKNOWN_SENT;
+    idsByKey.put(key, id);
+    return id;
+  }
+
+  private void grow() {
+    int capacity = senders.length * 2;
+    senders = Arrays.copyOf(senders, capacity);
+    identifiers = Arrays.copyOf(identifiers, capacity);
+    sentMillis = Arrays.copyOf(sentMillis, capacity);
+    indexed = Arrays.copyOf(indexed, capacity);
+    addOrder = Arrays.copyOf(addOrder, capacity);
+    references = Arrays.copyOf(references, capacity);
+    referenceCounts = Arrays.copyOf(referenceCounts, capacity);
+    referencedBy = Arrays.copyOf(referencedBy, capacity);
+    referencedByCounts = Arrays.copyOf(referencedByCounts, capacity);
+    visited = Arrays.copyOf(visited, capacity);
+    queue = Arrays.copyOf(queue, capacity);
+  }
+
+  private void checkId(int id) {
+    if (id < 0 || id >= size) {
+      throw new IndexOutOfBoundsException("No alert with ID " + id);
+    }
+  }
+
+  private static int[] append(int[] list, int count, int value) {
+    if (list == null) {
+      list = new int[2];
+    } else if (count == list.length) {
+      list = Arrays.copyOf(list, count * 2);
+    }
+    list[count] = value;
+    return list;
+  }
+
+  private static int[] copy(int[] list, int count) {
+    return count == 0 ? EMPTY : Arrays.copyOf(list, count);
+  }
+
+  private static String toKey(String sender, String identifier) {
+    return sender + ',' + identifier;
+  }
+}
@@ -0,0 +1,1707 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.MessageOrBuilder;
+import com.google.protobuf.UnknownFieldSet;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXParseException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-only {@link AlertOrBuilder} over the CAP XML of an alert, which
+ * decodes each field only when its getter is called.
+ *
+ * <p>{@link #of} makes a single structural pass over the UTF-8 bytes,
+ * checking they are well-formed and recording where each top-level
+ * element of the {@code <alert>}, and each child of an {@code <info>},
+ * starts and ends. The bytes are not copied, so must not be modified
+ * while the view is in use. Text fields, of the alert and of its infos,
+ * are decoded from the bytes each time they are read. The areas,
+ * resources, event codes and parameters of an info are parsed a field at
+ * a time, the first time one of them is read, and then kept. Reading a
+ * few fields of many alerts thus costs little more than holding their
+ * bytes.
+ *
+ * <p>Only elements in the namespace of the {@code <alert>} are fields;
+ * others are ignored.
+ *
+ * <p>Fields are decoded as {@link CapXmlParser} does, but the alert is
+ * neither validated against the schema nor by {@link CapValidator};
+ * pass the view to {@link CapValidator#validateAlert(AlertOrBuilder)}
+ * for that, or parse the alert in full. The reflection methods of
+ * {@link com.google.protobuf.MessageOrBuilder} decode every field they
+ * are asked for.
+ *
+ * <p>Instances are not safe for use by multiple threads.
+ *
+ * @author agent@local (agent)
+ */
+public final class AlertView implements AlertOrBuilder {
+  private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+  private static final byte[] COMMENT_START = ascii("<!--");
+  private static final byte[] COMMENT_END = ascii("-->");
+  private static final byte[] CDATA_START = ascii("<![CDATA[");
+  private static final byte[] CDATA_END = ascii("]]>");
+  private static final byte[] PI_START = ascii("<?");
+  private static final byte[] PI_END = ascii("?>");
+  private static final byte[] DECL_START = ascii("<!");
+  private static final byte[] XMLNS = ascii("xmlns");
+
+  /** The number of ints recorded per element. */
+  private static final int STRIDE = 4;
+
+  /** The fields of {@link Alert}, by number. */
+  private static final FieldDescriptor[] FIELDS = byNumber(Alert.getDescriptor());
+
+  /** The fields of {@link Info}, by number. */
+  private static final FieldDescriptor[] INFO_FIELDS = byNumber(Info.getDescriptor());
+
+  private final byte[] bytes;
+  private final String xmlns;
+
+  /** Where the start tag of the {@code <alert>} starts and ends. */
+  private final int rootStart;
+  private final int rootEnd;
+
+  /** The qualified name of the {@code <alert>}, to close a fragment. */
+  private final String rootName;
+
+  /**
+   * For each top-level element that is a field of {@link Alert}, and
+   * each child of an {@code <info>} that is a field of {@link Info}: its
+   * field number, the start of its start tag, the start of its content,
+   * and the index of its {@code <info>}, or -1 for a top-level element.
+   * Elements are in the order they start, so the children of an
+   * {@code <info>} directly follow it.
+   */
+  private final int[] elements;
+
+  /**
+   * The end of the content and the end of the end tag of each element,
+   * with the same indexes as {@link #elements} divided by
+   * {@link #STRIDE}.
+   */
+  private final int[] elementEnds;
+
+  /** The indexes of the top-level elements of each field, by field number. */
+  private final int[][] fieldElements;
+
+  /** The views of the infos made so far. */
+  private final InfoView[] infoViews;
+
+  /** The infos decoded so far. */
+  private final Info[] infos;
+
+  private final CapXmlParser parser;
+
+  private AlertView(byte[] bytes, Scanner scanner, CapXmlParser parser) {
+    this.bytes = bytes;
+    this.xmlns = scanner.xmlns;
+    this.rootStart = scanner.rootStart;
+    this.rootEnd = scanner.rootEnd;
+    this.rootName = scanner.rootName;
+    this.elements = Arrays.copyOf(scanner.elements, scanner.count * STRIDE);
+    this.elementEnds = Arrays.copyOf(scanner.elementEnds, scanner.count * 2);
+    this.parser = parser;
+    this.fieldElements = indexFields(-1, FIELDS.length);
+    int infoCount = fieldElements[Alert.INFO_FIELD_NUMBER].length;
+    this.infoViews = new InfoView[infoCount];
+    this.infos = new Info[infoCount];
+  }
+
+  private static FieldDescriptor[] byNumber(Descriptor type) {
+    int max = 0;
+    for (FieldDescriptor fd : type.getFields()) {
+      max = Math.max(max, fd.getNumber());
+    }
+    FieldDescriptor[] fields = new FieldDescriptor[max + 1];
+    for (FieldDescriptor fd : type.getFields()) {
+      fields[fd.getNumber()] = fd;
+    }
+    return fields;
+  }
+
+  /**
+   * Returns the indexes of the elements of each field, by field number,
+   * of the top-level elements if {@code parent} is -1, or else of the
+   * children of the {@code <info>} with that index.
+   */
+  private int[][] indexFields(int parent, int numberOfFields) {
+    int from = parent + 1;
+    int to = from;
+    int count = elements.length / STRIDE;
+    while (to < count && (parent < 0 || elements[to * STRIDE + 3] == parent)) {
+      to++;
+    }
+    int[] counts = new int[numberOfFields];
+    for (int i = from; i < to; i++) {
+      if (elements[i * STRIDE + 3] == parent) {
+        counts[elements[i * STRIDE]]++;
+      }
+    }
+    int[][] indexes = new int[numberOfFields][];
+    for (int number = 0; number < numberOfFields; number++) {
+      indexes[number] = new int[counts[number]];
+      counts[number] = 0;
+    }
+    for (int i = from; i < to; i++) {
+      if (elements[i * STRIDE + 3] == parent) {
+        int number = elements[i * STRIDE];
+        indexes[number][counts[number]++] = i;
+      }
+    }
+    return indexes;
+  }
+
+  /**
+   * Returns a view of the given CAP XML.
+   *
+   * @param bytes the CAP XML, encoded as UTF-8
+   * @return the view
+   * @throws NotCapException if the XML is not CAP XML
+   * @throws SAXParseException if the XML is not well-formed, or not UTF-8
+   */
+  public static AlertView of(byte[] bytes) throws NotCapException, SAXParseException {
+    return of(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Returns a view of the CAP XML in the given range of bytes.
+   *
+   * @param bytes the buffer holding the CAP XML, encoded as UTF-8
+   * @param offset the start of the CAP XML in the buffer
+   * @param length the length of the CAP XML
+   * @return the view
+   * @throws NotCapException if the XML is not CAP XML
+   * @throws SAXParseException if the XML is not well-formed, or not UTF-8
+   */
+  public static AlertView of(byte[] bytes, int offset, int length)
+      throws NotCapException, SAXParseException {
+    return of(bytes, offset, length, new CapXmlParser(false));
+  }
+
+  /**
+   * Returns a view of the CAP XML in the given range of bytes, decoding
+   * its infos with the given parser, for its {@link ParseLimits} and
+   * polygon encoding.
+   *
+   * @param bytes the buffer holding the CAP XML, encoded as UTF-8
+   * @param offset the start of the CAP XML in the buffer
+   * @param length the length of the CAP XML
+   * @param parser the parser to decode infos with
+   * @return the view
+   * @throws NotCapException if the XML is not CAP XML
+   * @throws SAXParseException if the XML is not well-formed, or not UTF-8
+   */
+  public static AlertView of(byte[] bytes, int offset, int length,
+      CapXmlParser parser) throws NotCapException, SAXParseException {
+    Preconditions.checkPositionIndexes(offset, offset + length, bytes.length);
+    Scanner scanner = new Scanner(bytes, offset, offset + length);
+    scanner.scan();
+    return new AlertView(bytes, scanner, Preconditions.checkNotNull(parser));
+  }
+
+  /**
+   * @return the alert, with every field decoded
+   */
+  public Alert toAlert() {
+    Alert.Builder alert = Alert.newBuilder();
+    for (Map.Entry<FieldDescriptor, Object> entry : getAllFields().entrySet()) {
+      alert.setField(entry.getKey(), entry.getValue());
+    }
+    return alert.buildPartial();
+  }
+
+  @Override
+  public boolean hasXmlns() {
+    return true;
+  }
+
+  @Override
+  public String getXmlns() {
+    return xmlns;
+  }
+
+  @Override
+  public boolean hasIdentifier() {
+    return has(Alert.IDENTIFIER_FIELD_NUMBER);
+  }
+
+  @Override
+  public String getIdentifier() {
+    return getString(Alert.IDENTIFIER_FIELD_NUMBER);
+  }
+
+  @Override
+  public boolean hasSender() {
+    return has(Alert.SENDER_FIELD_NUMBER);
+  }
+
+  @Override
+  public String getSender() {
+    return getString(Alert.SENDER_FIELD_NUMBER);
+  }
+
+  @Override
+  @Deprecated
+  public boolean hasPassword() {
+    return has(Alert.PASSWORD_FIELD_NUMBER);
+  }
+
+  @Override
+  @Deprecated
+  public String getPassword() {
+    return getString(Alert.PASSWORD_FIELD_NUMBER);
+  }
+
+  @Override
+  public boolean hasSent() {
+    return has(Alert.SENT_FIELD_NUMBER);
+  }
+
+  @Override
+  public String getSent() {
+    return getString(Alert.SENT_FIELD_NUMBER);
+  }
+
+  @Override
+  public boolean hasStatus() {
+    return getEnum(Alert.STATUS_FIELD_NUMBER) != null;
+  }
+
+  @Override
+  public Alert.Status getStatus() {
+    EnumValueDescriptor value = getEnum(Alert.STATUS_FIELD_NUMBER);
+    return value == null ? Alert.Status.ACTUAL : Alert.Status.valueOf(value);
+  }
+
+  @Override
+  public boolean hasMsgType() {
+    return getEnum(Alert.MSG_TYPE_FIELD_NUMBER) != null;
+  }
+
+  @Override
+  public Alert.MsgType getMsgType() {
+    EnumValueDescriptor value = getEnum(Alert.MSG_TYPE_FIELD_NUMBER);
+    return value == null ? Alert.MsgType.ALERT : Alert.MsgType.valueOf(value);
+  }
+
+  @Override
+  public boolean hasSource() {
+    return has(Alert.SOURCE_FIELD_NUMBER);
+  }
+
+  @Override
+  public String getSource() {
+    return getString(Alert.SOURCE_FIELD_NUMBER);
+  }
+
+  @Override
+  public boolean hasScope() {
+    return getEnum(Alert.SCOPE_FIELD_NUMBER) != null;
+  }
+
+  @Override
+  public Alert.Scope getScope() {
+    EnumValueDescriptor value = getEnum(Alert.SCOPE_FIELD_NUMBER);
+    return value == null ? Alert.Scope.PUBLIC : Alert.Scope.valueOf(value);
+  }
+
+  @Override
+  public boolean hasRestriction() {
+    return has(Alert.RESTRICTION_FIELD_NUMBER);
+  }
+
+  @Override
+  public String getRestriction() {
+    return getString(Alert.RESTRICTION_FIELD_NUMBER);
+  }
+
+  @Override
+  public boolean hasAddresses() {
+    return getGroup(Alert.ADDRESSES_FIELD_NUMBER) != null;
+  }
+
+  @Override
+  public Group getAddresses() {
+    return getGroupOrDefault(Alert.ADDRESSES_FIELD_NUMBER);
+  }
+
+  @Override
+  public GroupOrBuilder getAddressesOrBuilder() {
+    return getAddresses();
+  }
+
+  @Override
+  public List<String> getCodeList() {
+    return new AbstractList<String>() {
+      @Override
+      public String get(int index) {
+        return getCode(index);
+      }
+
+      @Override
+      public int size() {
+        return getCodeCount();
+      }
+    };
+  }
+
+  @Override
+  public int getCodeCount() {
+    return fieldElements[Alert.CODE_FIELD_NUMBER].length;
+  }
+
+  @Override
+  public String getCode(int index) {
+    return decodeContent(fieldElements[Alert.CODE_FIELD_NUMBER][index]);
+  }
+
+  @Override
+  public boolean hasNote() {
+    return has(Alert.NOTE_FIELD_NUMBER);
+  }
+
+  @Override
+  public String getNote() {
+    return getString(Alert.NOTE_FIELD_NUMBER);
+  }
+
+  @Override
+  public boolean hasReferences() {
+    return getGroup(Alert.REFERENCES_FIELD_NUMBER) != null;
+  }
+
+  @Override
+  public Group getReferences() {
+    return getGroupOrDefault(Alert.REFERENCES_FIELD_NUMBER);
+  }
+
+  @Override
+  public GroupOrBuilder getReferencesOrBuilder() {
+    return getReferences();
+  }
+
+  @Override
+  public boolean hasIncidents() {
+    return getGroup(Alert.INCIDENTS_FIELD_NUMBER) != null;
+  }
+
+  @Override
+  public Group getIncidents() {
+    return getGroupOrDefault(Alert.INCIDENTS_FIELD_NUMBER);
+  }
+
+  @Override
+  public GroupOrBuilder getIncidentsOrBuilder() {
+    return getIncidents();
+  }
+
+  @Override
+  public List<Info> getInfoList() {
+    return new AbstractList<Info>() {
+      @Override
+      public Info get(int index) {
+        return getInfo(index);
+      }
+
+      @Override
+      public int size() {
+        return getInfoCount();
+      }
+    };
+  }
+
+  @Override
+  public Info getInfo(int index) {
+    Info info = infos[index];
+    if (info == null) {
+      Info.Builder builder = Info.newBuilder();
+      for (Map.Entry<FieldDescriptor, Object> entry
+          : getInfoOrBuilder(index).getAllFields().entrySet()) {
+        builder.setField(entry.getKey(), entry.getValue());
+      }
+      info = builder.buildPartial();
+      infos[index] = info;
+    }
+    return info;
+  }
+
+  @Override
+  public int getInfoCount() {
+    return infos.length;
+  }
+
+  @Override
+  public List<? extends InfoOrBuilder> getInfoOrBuilderList() {
+    return new AbstractList<InfoOrBuilder>() {
+      @Override
+      public InfoOrBuilder get(int index) {
+        return getInfoOrBuilder(index);
+      }
+
+      @Override
+      public int size() {
+        return getInfoCount();
+      }
+    };
+  }
+
+  /**
+   * Returns a view of the info, which decodes each of its fields only
+   * when its getter is called.
+   */
+  @Override
+  public InfoOrBuilder getInfoOrBuilder(int index) {
+    InfoView view = infoViews[index];
+    if (view == null) {
+      view = new InfoView(fieldElements[Alert.INFO_FIELD_NUMBER][index]);
+      infoViews[index] = view;
+    }
+    return view;
+  }
+
+  @Override
+  public Alert getDefaultInstanceForType() {
+    return Alert.getDefaultInstance();
+  }
+
+  @Override
+  public Descriptor getDescriptorForType() {
+    return Alert.getDescriptor();
+  }
+
+  @Override
+  public Map<FieldDescriptor, Object> getAllFields() {
+    return getAllFields(this, FIELDS);
+  }
+
+  @Override
+  public boolean hasField(FieldDescriptor fd) {
+    checkField(fd, Alert.getDescriptor());
+    Preconditions.checkArgument(!fd.isRepeated(),
+        "hasField() called on a repeated field");
+    switch (fd.getNumber()) {
+      case Alert.XMLNS_FIELD_NUMBER:
+        return true;
+      case Alert.STATUS_FIELD_NUMBER:
+      case Alert.MSG_TYPE_FIELD_NUMBER:
+      case Alert.SCOPE_FIELD_NUMBER:
+        return getEnum(fd.getNumber()) != null;
+      case Alert.ADDRESSES_FIELD_NUMBER:
+      case Alert.REFERENCES_FIELD_NUMBER:
+      case Alert.INCIDENTS_FIELD_NUMBER:
+        return getGroup(fd.getNumber()) != null;
+      default:
+        return has(fd.getNumber());
+    }
+  }
+
+  @Override
+  public Object getField(FieldDescriptor fd) {
+    checkField(fd, Alert.getDescriptor());
+    switch (fd.getNumber()) {
+      case Alert.XMLNS_FIELD_NUMBER:
+        return xmlns;
+      case Alert.STATUS_FIELD_NUMBER:
+        return getStatus().getValueDescriptor();
+      case Alert.MSG_TYPE_FIELD_NUMBER:
+        return getMsgType().getValueDescriptor();
+      case Alert.SCOPE_FIELD_NUMBER:
+        return getScope().getValueDescriptor();
+      case Alert.ADDRESSES_FIELD_NUMBER:
+      case Alert.REFERENCES_FIELD_NUMBER:
+      case Alert.INCIDENTS_FIELD_NUMBER:
+        return getGroupOrDefault(fd.getNumber());
+      case Alert.CODE_FIELD_NUMBER:
+        return ImmutableList.copyOf(getCodeList());
+      case Alert.INFO_FIELD_NUMBER:
+        return ImmutableList.copyOf(getInfoList());
+      default:
+        return getString(fd.getNumber());
+    }
+  }
+
+  @Override
+  public int getRepeatedFieldCount(FieldDescriptor fd) {
+    checkField(fd, Alert.getDescriptor());
+    Preconditions.checkArgument(fd.isRepeated(),
+        "getRepeatedFieldCount() called on a non-repeated field");
+    return fieldElements[fd.getNumber()].length;
+  }
+
+  @Override
+  public Object getRepeatedField(FieldDescriptor fd, int index) {
+    checkField(fd, Alert.getDescriptor());
+    Preconditions.checkArgument(fd.isRepeated(),
+        "getRepeatedField() called on a non-repeated field");
+    return fd.getNumber() == Alert.INFO_FIELD_NUMBER ? getInfo(index) : getCode(index);
+  }
+
+  @Override
+  public UnknownFieldSet getUnknownFields() {
+    return UnknownFieldSet.getDefaultInstance();
+  }
+
+  @Override
+  public boolean isInitialized() {
+    for (FieldDescriptor fd : FIELDS) {
+      if (fd != null && fd.isRequired() && !hasField(fd)) {
+        return false;
+      }
+    }
+    for (int i = 0; i < getInfoCount(); i++) {
+      if (!getInfoOrBuilder(i).isInitialized()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "AlertView[identifier=" + getIdentifier() + ", sender=" + getSender()
+        + ", sent=" + getSent() + ", infos=" + getInfoCount() + "]";
+  }
+
+  private static Map<FieldDescriptor, Object> getAllFields(
+      MessageOrBuilder message, FieldDescriptor[] fds) {
+    Map<FieldDescriptor, Object> fields = Maps.newTreeMap();
+    for (FieldDescriptor fd : fds) {
+      if (fd == null) {
+        continue;
+      }
+      if (fd.isRepeated()
+          ? message.getRepeatedFieldCount(fd) > 0 : message.hasField(fd)) {
+        fields.put(fd, message.getField(fd));
+      }
+    }
+    return Collections.unmodifiableMap(fields);
+  }
+
+  private static void checkField(FieldDescriptor fd, Descriptor type) {
+    Preconditions.checkArgument(fd.getContainingType() == type,
+        "FieldDescriptor does not match message type.");
+  }
+
+  private boolean has(int number) {
+    return fieldElements[number].length > 0;
+  }
+
+  private String getString(int number) {
+    return decodeString(FIELDS[number], fieldElements[number]);
+  }
+
+  private EnumValueDescriptor getEnum(int number) {
+    return decodeEnum(FIELDS[number], fieldElements[number]);
+  }
+
+  /**
+   * Returns the text of the first of the elements, which is the one
+   * {@link CapXmlParser} keeps, or the default if there is none.
+   */
+  private String decodeString(FieldDescriptor fd, int[] indexes) {
+    return indexes.length == 0
+        ? (String) fd.getDefaultValue() : decodeContent(indexes[0]);
+  }
+
+  /** Returns the first value of the elements that names a value of the enum. */
+  private EnumValueDescriptor decodeEnum(FieldDescriptor fd, int[] indexes) {
+    for (int index : indexes) {
+      EnumValueDescriptor value = CapXmlParser.CapXmlHandler.toEnumValue(
+          fd.getEnumType(), decodeContent(index));
+      if (value != null) {
+        return value;
+      }
+    }
+    return null;
+  }
+
+  /** Returns each value of the elements that names a value of the enum. */
+  private List<EnumValueDescriptor> decodeEnums(FieldDescriptor fd, int[] indexes) {
+    List<EnumValueDescriptor> values = Lists.newArrayListWithCapacity(indexes.length);
+    for (int index : indexes) {
+      EnumValueDescriptor value = CapXmlParser.CapXmlHandler.toEnumValue(
+          fd.getEnumType(), decodeContent(index));
+      if (value != null) {
+        values.add(value);
+      }
+    }
+    return Collections.unmodifiableList(values);
+  }
+
+  /** Returns the first value of the field with any values in it. */
+  private Group getGroup(int number) {
+    for (int index : fieldElements[number]) {
+      Group group = CapXmlParser.CapXmlHandler.toGroup(decodeContent(index));
+      if (group != null) {
+        return group;
+      }
+    }
+    return null;
+  }
+
+  private Group getGroupOrDefault(int number) {
+    Group group = getGroup(number);
+    return group == null ? Group.getDefaultInstance() : group;
+  }
+
+  /**
+   * Parses the elements, children of the {@code <info>} with the given
+   * index, as the only children of the only info of an alert with the
+   * same start tags as this one, so any namespace prefixes they use are
+   * declared, and returns the values of the field they make.
+   */
+  private List<?> decodeMessages(int info, FieldDescriptor fd, int[] indexes) {
+    if (indexes.length == 0) {
+      return ImmutableList.of();
+    }
+    int infoStart = elements[info * STRIDE + 1];
+    int infoEnd = elements[info * STRIDE + 2];
+    List<InputStream> parts = Lists.newArrayListWithCapacity(indexes.length + 3);
+    parts.add(new ByteArrayInputStream(bytes, rootStart, rootEnd - rootStart));
+    parts.add(new ByteArrayInputStream(bytes, infoStart, infoEnd - infoStart));
+    for (int index : indexes) {
+      int start = elements[index * STRIDE + 1];
+      int end = elementEnds[index * 2 + 1];
+      parts.add(new ByteArrayInputStream(bytes, start, end - start));
+    }
+    String infoName = new String(bytes, infoStart + 1,
+        nameEnd(bytes, infoStart + 1) - infoStart - 1, Charsets.UTF_8);
+    parts.add(new ByteArrayInputStream(("</" + infoName + "></" + rootName + ">")
+        .getBytes(Charsets.UTF_8)));
+    InputSource is = new InputSource(
+        new SequenceInputStream(Collections.enumeration(parts)));
+    is.setEncoding("UTF-8");
+    try {
+      Alert alert = parser.parseUnvalidated(is);
+      return alert.getInfoCount() == 0 ? ImmutableList.of()
+          : ImmutableList.copyOf((List<?>) alert.getInfo(0).getField(fd));
+    } catch (CapException e) {
+      throw new IllegalStateException(e);
+    } catch (SAXParseException e) {
+      // The scan already checked the element is well-formed
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Decodes the text of the element, resolving character references,
+   * CDATA sections and line endings as an XML parser would, and ignoring
+   * comments and any nested elements.
+   */
+  private String decodeContent(int index) {
+    int start = elements[index * STRIDE + 2];
+    int end = elementEnds[index * 2];
+    int plain = start;
+    while (plain < end && bytes[plain] != '<' && bytes[plain] != '&'
+        && bytes[plain] != '\r') {
+      plain++;
+    }
+    if (plain == end) {
+      return new String(bytes, start, end - start, Charsets.UTF_8);
+    }
+    StringBuilder sb = new StringBuilder(end - start);
+    sb.append(new String(bytes, start, plain - start, Charsets.UTF_8));
+    int pos = plain;
+    while (pos < end) {
+      int run = pos;
+      while (run < end && bytes[run] != '<' && bytes[run] != '&'
+          && bytes[run] != '\r') {
+        run++;
+      }
+      sb.append(new String(bytes, pos, run - pos, Charsets.UTF_8));
+      pos = run;
+      if (pos == end) {
+        break;
+      }
+      if (bytes[pos] == '\r') {
+        sb.append('\n');
+        pos++;
+        if (pos < end && bytes[pos] == '\n') {
+          pos++;
+        }
+      } else if (bytes[pos] == '&') {
+        int semi = indexOf(bytes, (byte) ';', pos, end);
+        sb.append(decodeReference(bytes, pos + 1, semi));
+        pos = semi + 1;
+      } else if (startsWith(bytes, pos, end, CDATA_START)) {
+        int cdataEnd = indexOf(bytes, CDATA_END, pos, end);
+        String cdata = new String(bytes, pos + CDATA_START.length,
+            cdataEnd - pos - CDATA_START.length, Charsets.UTF_8);
+        sb.append(cdata.replace("\r\n", "\n").replace('\r', '\n'));
+        pos = cdataEnd + CDATA_END.length;
+      } else if (startsWith(bytes, pos, end, COMMENT_START)) {
+        pos = indexOf(bytes, COMMENT_END, pos, end) + COMMENT_END.length;
+      } else if (startsWith(bytes, pos, end, PI_START)) {
+        pos = indexOf(bytes, PI_END, pos, end) + PI_END.length;
+      } else {
+        pos = indexOf(bytes, (byte) '>', pos, end) + 1;
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Decodes the predefined entity or character reference between the
+   * {@code &} and the {@code ;}, or returns null if it is neither.
+   */
+  private static String decodeReference(byte[] bytes, int start, int end) {
+    String name = new String(bytes, start, end - start, Charsets.US_ASCII);
+    if (name.startsWith("#")) {
+      try {
+        int codePoint = name.startsWith("#x")
+            ? Integer.parseInt(name.substring(2), 16)
+            : Integer.parseInt(name.substring(1));
+        return Character.isValidCodePoint(codePoint)
+            ? new String(Character.toChars(codePoint)) : null;
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+    if ("lt".equals(name)) {
+      return "<";
+    } else if ("gt".equals(name)) {
+      return ">";
+    } else if ("amp".equals(name)) {
+      return "&";
+    } else if ("quot".equals(name)) {
+      return "\"";
+    } else if ("apos".equals(name)) {
+      return "'";
+    }
+    return null;
+  }
+
+  /** Returns the index of the byte, or -1 if it is not in the range. */
+  private static int indexOf(byte[] bytes, byte b, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (bytes[i] == b) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Returns the index of the sequence, or -1 if it is not in the range. */
+  private static int indexOf(byte[] bytes, byte[] seq, int start, int end) {
+    for (int i = start; i <= end - seq.length; i++) {
+      if (startsWith(bytes, i, end, seq)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Returns the end of the name starting at {@code start}. */
+  private static int nameEnd(byte[] bytes, int start) {
+    int i = start;
+    while (i < bytes.length && !Scanner.isWhitespace(bytes[i]) && bytes[i] != '>'
+        && bytes[i] != '/' && bytes[i] != '=' && bytes[i] != '<') {
+      i++;
+    }
+    return i;
+  }
+
+  private static boolean startsWith(byte[] bytes, int pos, int end, byte[] seq) {
+    if (end - pos < seq.length) {
+      return false;
+    }
+    for (int i = 0; i < seq.length; i++) {
+      if (bytes[pos + i] != seq[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static byte[] ascii(String str) {
+    return str.getBytes(Charsets.US_ASCII);
+  }
+
+  /**
+   * A read-only {@link InfoOrBuilder} over an {@code <info>} of the alert,
+   * which decodes each field only when its getter is called. Text fields
+   * are decoded from the bytes each time they are read; the values of
+   * repeated fields are decoded the first time one is read, and then
+   * kept.
+   */
+  private final class InfoView implements InfoOrBuilder {
+    private final int element;
+
+    /** The indexes of the child elements of each field, by field number. */
+    private final int[][] fieldElements;
+
+    /** The values of the repeated fields decoded so far, by field number. */
+    private final List<?>[] repeated = new List<?>[INFO_FIELDS.length];
+
+    InfoView(int element) {
+      this.element = element;
+      this.fieldElements = indexFields(element, INFO_FIELDS.length);
+    }
+
+    @Override
+    public boolean hasLanguage() {
+      return has(Info.LANGUAGE_FIELD_NUMBER);
+    }
+
+    @Override
+    public String getLanguage() {
+      return getString(Info.LANGUAGE_FIELD_NUMBER);
+    }
+
+    @Override
+    public List<Info.Category> getCategoryList() {
+      return new AbstractList<Info.Category>() {
+        @Override
+        public Info.Category get(int index) {
+          return getCategory(index);
+        }
+
+        @Override
+        public int size() {
+          return getCategoryCount();
+        }
+      };
+    }
+
+    @Override
+    public int getCategoryCount() {
+      return getRepeated(Info.CATEGORY_FIELD_NUMBER).size();
+    }
+
+    @Override
+    public Info.Category getCategory(int index) {
+      return Info.Category.valueOf(
+          (EnumValueDescriptor) getRepeated(Info.CATEGORY_FIELD_NUMBER).get(index));
+    }
+
+    @Override
+    public boolean hasEvent() {
+      return has(Info.EVENT_FIELD_NUMBER);
+    }
+
+    @Override
+    public String getEvent() {
+      return getString(Info.EVENT_FIELD_NUMBER);
+    }
+
+    @Override
+    public List<Info.ResponseType> getResponseTypeList() {
+      return new AbstractList<Info.ResponseType>() {
+        @Override
+        public Info.ResponseType get(int index) {
+          return getResponseType(index);
+        }
+
+        @Override
+        public int size() {
+          return getResponseTypeCount();
+        }
+      };
+    }
+
+    @Override
+    public int getResponseTypeCount() {
+      return getRepeated(Info.RESPONSE_TYPE_FIELD_NUMBER).size();
+    }
+
+    @Override
+    public Info.ResponseType getResponseType(int index) {
+      return Info.ResponseType.valueOf(
+          (EnumValueDescriptor) getRepeated(Info.RESPONSE_TYPE_FIELD_NUMBER).get(index));
+    }
+
+    @Override
+    public boolean hasUrgency() {
+      return getEnum(Info.URGENCY_FIELD_NUMBER) != null;
+    }
+
+    @Override
+    public Info.Urgency getUrgency() {
+      return Info.Urgency.valueOf(getEnumOrDefault(Info.URGENCY_FIELD_NUMBER));
+    }
+
+    @Override
+    public boolean hasSeverity() {
+      return getEnum(Info.SEVERITY_FIELD_NUMBER) != null;
+    }
+
+    @Override
+    public Info.Severity getSeverity() {
+      return Info.Severity.valueOf(getEnumOrDefault(Info.SEVERITY_FIELD_NUMBER));
+    }
+
+    @Override
+    public boolean hasCertainty() {
+      return getEnum(Info.CERTAINTY_FIELD_NUMBER) != null;
+    }
+
+    @Override
+    public Info.Certainty getCertainty() {
+      return Info.Certainty.valueOf(getEnumOrDefault(Info.CERTAINTY_FIELD_NUMBER));
+    }
+
+    @Override
+    public boolean hasAudience() {
+      return has(Info.AUDIENCE_FIELD_NUMBER);
+    }
+
+    @Override
+    public String getAudience() {
+      return getString(Info.AUDIENCE_FIELD_NUMBER);
+    }
+
+    @Override
+    public List<ValuePair> getEventCodeList() {
+      return getRepeated(Info.EVENT_CODE_FIELD_NUMBER);
+    }
+
+    @Override
+    public ValuePair getEventCode(int index) {
+      return getEventCodeList().get(index);
+    }
+
+    @Override
+    public int getEventCodeCount() {
+      return getEventCodeList().size();
+    }
+
+    @Override
+    public List<? extends ValuePairOrBuilder> getEventCodeOrBuilderList() {
+      return getEventCodeList();
+    }
+
+    @Override
+    public ValuePairOrBuilder getEventCodeOrBuilder(int index) {
+      return getEventCode(index);
+    }
+
+    @Override
+    public boolean hasEffective() {
+      return has(Info.EFFECTIVE_FIELD_NUMBER);
+    }
+
+    @Override
+    public String getEffective() {
+      return getString(Info.EFFECTIVE_FIELD_NUMBER);
+    }
+
+    @Override
+    public boolean hasOnset() {
+      return has(Info.ONSET_FIELD_NUMBER);
+    }
+
+    @Override
+    public String getOnset() {
+      return getString(Info.ONSET_FIELD_NUMBER);
+    }
+
+    @Override
+    public boolean hasExpires() {
+      return has(Info.EXPIRES_FIELD_NUMBER);
+    }
+
+    @Override
+    public String getExpires() {
+      return getString(Info.EXPIRES_FIELD_NUMBER);
+    }
+
+    @Override
+    public boolean hasSenderName() {
+      return has(Info.SENDER_NAME_FIELD_NUMBER);
+    }
+
+    @Override
+    public String getSenderName() {
+      return getString(Info.SENDER_NAME_FIELD_NUMBER);
+    }
+
+    @Override
+    public boolean hasHeadline() {
+      return has(Info.HEADLINE_FIELD_NUMBER);
+    }
+
+    @Override
+    public String getHeadline() {
+      return getString(Info.HEADLINE_FIELD_NUMBER);
+    }
+
+    @Override
+    public boolean hasDescription() {
+      return has(Info.DESCRIPTION_FIELD_NUMBER);
+    }
+
+    @Override
+    public String getDescription() {
+      return getString(Info.DESCRIPTION_FIELD_NUMBER);
+    }
+
+    @Override
+    public boolean hasInstruction() {
+      return has(Info.INSTRUCTION_FIELD_NUMBER);
+    }
+
+    @Override
+    public String getInstruction() {
+      return getString(Info.INSTRUCTION_FIELD_NUMBER);
+    }
+
+    @Override
+    public boolean hasWeb() {
+      return has(Info.WEB_FIELD_NUMBER);
+    }
+
+    @Override
+    public String getWeb() {
+      return getString(Info.WEB_FIELD_NUMBER);
+    }
+
+    @Override
+    public boolean hasContact() {
+      return has(Info.CONTACT_FIELD_NUMBER);
+    }
+
+    @Override
+    public String getContact() {
+      return getString(Info.CONTACT_FIELD_NUMBER);
+    }
+
+    @Override
+    public List<ValuePair> getParameterList() {
+      return getRepeated(Info.PARAMETER_FIELD_NUMBER);
+    }
+
+    @Override
+    public ValuePair getParameter(int index) {
+      return getParameterList().get(index);
+    }
+
+    @Override
+    public int getParameterCount() {
+      return getParameterList().size();
+    }
+
+    @Override
+    public List<? extends ValuePairOrBuilder> getParameterOrBuilderList() {
+      return getParameterList();
+    }
+
+    @Override
+    public ValuePairOrBuilder getParameterOrBuilder(int index) {
+      return getParameter(index);
+    }
+
+    @Override
+    public List<Resource> getResourceList() {
+      return getRepeated(Info.RESOURCE_FIELD_NUMBER);
+    }
+
+    @Override
+    public Resource getResource(int index) {
+      return getResourceList().get(index);
+    }
+
+    @Override
+    public int getResourceCount() {
+      return getResourceList().size();
+    }
+
+    @Override
+    public List<? extends ResourceOrBuilder> getResourceOrBuilderList() {
+      return getResourceList();
+    }
+
+    @Override
+    public ResourceOrBuilder getResourceOrBuilder(int index) {
+      return getResource(index);
+    }
+
+    @Override
+    public List<Area> getAreaList() {
+      return getRepeated(Info.AREA_FIELD_NUMBER);
+    }
+
+    @Override
+    public Area getArea(int index) {
+      return getAreaList().get(index);
+    }
+
+    @Override
+    public int getAreaCount() {
+      return getAreaList().size();
+    }
+
+    @Override
+    public List<? extends AreaOrBuilder> getAreaOrBuilderList() {
+      return getAreaList();
+    }
+
+    @Override
+    public AreaOrBuilder getAreaOrBuilder(int index) {
+      return getArea(index);
+    }
+
+    @Override
+    public Info getDefaultInstanceForType() {
+      return Info.getDefaultInstance();
+    }
+
+    @Override
+    public Descriptor getDescriptorForType() {
+      return Info.getDescriptor();
+    }
+
+    @Override
+    public Map<FieldDescriptor, Object> getAllFields() {
+      return AlertView.getAllFields(this, INFO_FIELDS);
+    }
+
+    @Override
+    public boolean hasField(FieldDescriptor fd) {
+      checkField(fd, Info.getDescriptor());
+      Preconditions.checkArgument(!fd.isRepeated(),
+          "hasField() called on a repeated field");
+      return fd.getType() == FieldDescriptor.Type.ENUM
+          ? getEnum(fd.getNumber()) != null : has(fd.getNumber());
+    }
+
+    @Override
+    public Object getField(FieldDescriptor fd) {
+      checkField(fd, Info.getDescriptor());
+      if (fd.isRepeated()) {
+        return getRepeated(fd.getNumber());
+      }
+      return fd.getType() == FieldDescriptor.Type.ENUM
+          ? getEnumOrDefault(fd.getNumber()) : getString(fd.getNumber());
+    }
+
+    @Override
+    public int getRepeatedFieldCount(FieldDescriptor fd) {
+      checkField(fd, Info.getDescriptor());
+      Preconditions.checkArgument(fd.isRepeated(),
+          "getRepeatedFieldCount() called on a non-repeated field");
+      return getRepeated(fd.getNumber()).size();
+    }
+
+    @Override
+    public Object getRepeatedField(FieldDescriptor fd, int index) {
+      checkField(fd, Info.getDescriptor());
+      Preconditions.checkArgument(fd.isRepeated(),
+          "getRepeatedField() called on a non-repeated field");
+      return getRepeated(fd.getNumber()).get(index);
+    }
+
+    @Override
+    public UnknownFieldSet getUnknownFields() {
+      return UnknownFieldSet.getDefaultInstance();
+    }
+
+    @Override
+    public boolean isInitialized() {
+      for (FieldDescriptor fd : INFO_FIELDS) {
+        if (fd != null && fd.isRequired() && !hasField(fd)) {
+          return false;
+        }
+      }
+      for (FieldDescriptor fd : INFO_FIELDS) {
+        if (fd != null && fd.getType() == FieldDescriptor.Type.MESSAGE) {
+          for (Object value : getRepeated(fd.getNumber())) {
+            if (!((MessageOrBuilder) value).isInitialized()) {
+              return false;
+            }
+          }
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public String toString() {
+      return "InfoView[event=" + getEvent() + "]";
+    }
+
+    private boolean has(int number) {
+      return fieldElements[number].length > 0;
+    }
+
+    private String getString(int number) {
+      return decodeString(INFO_FIELDS[number], fieldElements[number]);
+    }
+
+    private EnumValueDescriptor getEnum(int number) {
+      return decodeEnum(INFO_FIELDS[number], fieldElements[number]);
+    }
+
+    private EnumValueDescriptor getEnumOrDefault(int number) {
+      EnumValueDescriptor value = getEnum(number);
+      return value == null
+          ? (EnumValueDescriptor) INFO_FIELDS[number].getDefaultValue() : value;
+    }
+
+    /** Returns the values of the repeated field, decoding them if need be. */
+    @SuppressWarnings("unchecked")
+    private <T> List<T> getRepeated(int number) {
+      List<?> values = repeated[number];
+      if (values == null) {
+        FieldDescriptor fd = INFO_FIELDS[number];
+        values = fd.getType() == FieldDescriptor.Type.ENUM
+            ? decodeEnums(fd, fieldElements[number])
+            : decodeMessages(element, fd, fieldElements[number]);
+        repeated[number] = values;
+      }
+      return (List<T>) values;
+    }
+  }
+
+  /**
+   * Makes the structural pass over the XML, recording the top-level
+   * elements of the alert and the children of its infos. Checks that the
+   * bytes are UTF-8, that tags nest and are well-formed, and that
+   * references and CDATA sections are terminated, but not that names and
+   * text contain only valid characters; a full parse checks that.
+   */
+  private static class Scanner {
+    private final byte[] bytes;
+    private final int end;
+    private int pos;
+
+    String xmlns;
+    String rootName;
+    String rootPrefix;
+    int rootStart;
+    int rootEnd;
+    int[] elements = new int[16 * STRIDE];
+    int[] elementEnds = new int[16 * 2];
+    int count;
+
+    /** The start and end of the name of each open element. */
+    private int[] openNames = new int[32];
+    private int depth;
+
+    Scanner(byte[] bytes, int start, int end) {
+      this.bytes = bytes;
+      this.pos = start;
+      this.end = end;
+    }
+
+    void scan() throws NotCapException, SAXParseException {
+      if (startsWith(bytes, pos, end, UTF8_BOM)) {
+        pos += UTF8_BOM.length;
+      }
+      checkUtf8();
+      scanProlog();
+      if (pos >= end) {
+        throw new NotCapException();
+      }
+
+      rootStart = pos;
+      boolean empty = scanStartTag();
+      rootEnd = pos;
+      rootName = new String(bytes, openNames[0], openNames[1] - openNames[0],
+          Charsets.UTF_8);
+      String localName = rootName.substring(rootName.indexOf(':') + 1);
+      rootPrefix = rootName.indexOf(':') < 0
+          ? "" : rootName.substring(0, rootName.indexOf(':'));
+      xmlns = findNamespace(rootStart, rootEnd, rootPrefix);
+      if (!"alert".equals(localName)
+          || !CapValidator.CAP_XML_NAMESPACES.contains(xmlns)) {
+        throw new NotCapException();
+      }
+      if (empty) {
+        depth = 0;
+      }
+
+      // The open top-level element and child of an info being recorded
+      int current = -1;
+      int currentChild = -1;
+      while (depth > 0) {
+        int lt = indexOf(bytes, (byte) '<', pos, end);
+        if (lt < 0) {
+          throw error("Unexpected end of input in an element");
+        }
+        checkReferences(lt);
+        pos = lt;
+        if (startsWith(bytes, pos, end, COMMENT_START)) {
+          skipPast(COMMENT_END);
+        } else if (startsWith(bytes, pos, end, CDATA_START)) {
+          skipPast(CDATA_END);
+        } else if (startsWith(bytes, pos, end, PI_START)) {
+          skipPast(PI_END);
+        } else if (startsWith(bytes, pos, end, DECL_START)) {
+          throw error("Unexpected declaration in an element");
+        } else if (pos + 1 < end && bytes[pos + 1] == '/') {
+          int tagStart = pos;
+          scanEndTag();
+          if (depth == 1 && current >= 0) {
+            recordEnd(current, tagStart, pos);
+            current = -1;
+          } else if (depth == 2 && currentChild >= 0) {
+            recordEnd(currentChild, tagStart, pos);
+            currentChild = -1;
+          }
+        } else {
+          int tagStart = pos;
+          boolean childEmpty = scanStartTag();
+          int recorded = -1;
+          if (depth == 2) {
+            int number = getFieldNumber(Alert.getDescriptor());
+            if (number != 0 && inAlertNamespace(tagStart, pos, -1)) {
+              recorded = recordStart(number, tagStart, pos, -1);
+              current = recorded;
+            }
+          } else if (depth == 3 && current >= 0
+              && elements[current * STRIDE] == Alert.INFO_FIELD_NUMBER) {
+            int number = getFieldNumber(Info.getDescriptor());
+            if (number != 0 && inAlertNamespace(tagStart, pos, current)) {
+              recorded = recordStart(number, tagStart, pos, current);
+              currentChild = recorded;
+            }
+          }
+          if (childEmpty) {
+            depth--;
+            if (recorded >= 0) {
+              recordEnd(recorded, pos, pos);
+              if (depth == 1) {
+                current = -1;
+              } else {
+                currentChild = -1;
+              }
+            }
+          }
+        }
+      }
+      scanMisc();
+      if (pos < end) {
+        throw error("Content after the root element");
+      }
+    }
+
+    /** Checks that the bytes from {@code pos} on are UTF-8. */
+    private void checkUtf8() throws SAXParseException {
+      int nonAscii = pos;
+      while (nonAscii < end && bytes[nonAscii] >= 0) {
+        nonAscii++;
+      }
+      if (nonAscii == end) {
+        return;
+      }
+      CharsetDecoder decoder = Charsets.UTF_8.newDecoder()
+          .onMalformedInput(CodingErrorAction.REPORT)
+          .onUnmappableCharacter(CodingErrorAction.REPORT);
+      ByteBuffer in = ByteBuffer.wrap(bytes, nonAscii, end - nonAscii);
+      CharBuffer out = CharBuffer.allocate(512);
+      while (true) {
+        CoderResult result = decoder.decode(in, out, true);
+        if (result.isError()) {
+          int start = pos;
+          pos = in.position();
+          SAXParseException e = error("Invalid UTF-8");
+          pos = start;
+          throw e;
+        }
+        if (result.isUnderflow()) {
+          return;
+        }
+        out.clear();
+      }
+    }
+
+    /**
+     * Checks that each reference in the text from {@code pos} to
+     * {@code textEnd} is a predefined entity or a character reference.
+     */
+    private void checkReferences(int textEnd) throws SAXParseException {
+      for (int amp = indexOf(bytes, (byte) '&', pos, textEnd); amp >= 0;
+          amp = indexOf(bytes, (byte) '&', amp + 1, textEnd)) {
+        int semi = indexOf(bytes, (byte) ';', amp, textEnd);
+        if (semi < 0 || decodeReference(bytes, amp + 1, semi) == null) {
+          pos = amp;
+          throw error("Undefined or unterminated reference");
+        }
+      }
+    }
+
+    private void scanProlog() throws SAXParseException {
+      boolean first = true;
+      while (true) {
+        skipWhitespace();
+        if (first && startsWith(bytes, pos, end, ascii("<?xml"))) {
+          int declEnd = indexOf(bytes, PI_END, pos, end);
+          if (declEnd < 0) {
+            throw error("Unterminated XML declaration");
+          }
+          String decl = new String(bytes, pos, declEnd - pos, Charsets.US_ASCII);
+          int encoding = decl.indexOf("encoding");
+          if (encoding >= 0) {
+            String rest = decl.substring(encoding).replaceAll("\\s", "");
+            if (!rest.toLowerCase().startsWith("encoding=\"utf-8\"")
+                && !rest.toLowerCase().startsWith("encoding='utf-8'")) {
+              throw error("Only UTF-8 is supported");
+            }
+          }
+          pos = declEnd + PI_END.length;
+        } else if (startsWith(bytes, pos, end, COMMENT_START)) {
+          skipPast(COMMENT_END);
+        } else if (startsWith(bytes, pos, end, PI_START)) {
+          skipPast(PI_END);
+        } else if (startsWith(bytes, pos, end, DECL_START)) {
+          // As in XmlUtil, no DTDs, so no entities but the predefined ones
+          throw error("DOCTYPE is not supported");
+        } else {
+          if (pos < end && bytes[pos] != '<') {
+            throw error("Content is not allowed in prolog");
+          }
+          return;
+        }
+        first = false;
+      }
+    }
+
+    /** Skips the comments, processing instructions and whitespace after the root. */
+    private void scanMisc() throws SAXParseException {
+      while (true) {
+        skipWhitespace();
+        if (startsWith(bytes, pos, end, COMMENT_START)) {
+          skipPast(COMMENT_END);
+        } else if (startsWith(bytes, pos, end, PI_START)) {
+          skipPast(PI_END);
+        } else {
+          return;
+        }
+      }
+    }
+
+    /**
+     * Scans the start tag at {@code pos}, pushing its name, and leaves
+     * {@code pos} after it.
+     *
+     * @return true if the tag is empty, in which case it is still pushed
+     */
+    private boolean scanStartTag() throws SAXParseException {
+      int nameStart = pos + 1;
+      int nameEnd = scanName(nameStart);
+      push(nameStart, nameEnd);
+      pos = nameEnd;
+      while (true) {
+        skipWhitespace();
+        if (pos >= end) {
+          throw error("Unexpected end of input in a start tag");
+        }
+        if (bytes[pos] == '>') {
+          pos++;
+          return false;
+        }
+        if (bytes[pos] == '/' && pos + 1 < end && bytes[pos + 1] == '>') {
+          pos += 2;
+          return true;
+        }
+        int attrEnd = scanName(pos);
+        pos = attrEnd;
+        skipWhitespace();
+        if (pos >= end || bytes[pos] != '=') {
+          throw error("Expected = after an attribute name");
+        }
+        pos++;
+        skipWhitespace();
+        if (pos >= end || (bytes[pos] != '"' && bytes[pos] != '\'')) {
+          throw error("Expected a quoted attribute value");
+        }
+        int close = indexOf(bytes, bytes[pos], pos + 1, end);
+        if (close < 0 || indexOf(bytes, (byte) '<', pos + 1, close) >= 0) {
+          throw error("Malformed attribute value");
+        }
+        pos = close + 1;
+      }
+    }
+
+    /** Scans the end tag at {@code pos}, popping its name. */
+    private void scanEndTag() throws SAXParseException {
+      int nameStart = pos + 2;
+      int nameEnd = scanName(nameStart);
+      int openStart = openNames[(depth - 1) * 2];
+      int openEnd = openNames[(depth - 1) * 2 + 1];
+      if (nameEnd - nameStart != openEnd - openStart
+          || !startsWith(bytes, nameStart, nameEnd,
+              Arrays.copyOfRange(bytes, openStart, openEnd))) {
+        throw error("The end tag does not match the start tag "
+            + new String(bytes, openStart, openEnd - openStart, Charsets.UTF_8));
+      }
+      pos = nameEnd;
+      skipWhitespace();
+      if (pos >= end || bytes[pos] != '>') {
+        throw error("Malformed end tag");
+      }
+      pos++;
+      depth--;
+    }
+
+    /** Returns the end of the name starting at {@code start}. */
+    private int scanName(int start) throws SAXParseException {
+      int i = Math.min(nameEnd(bytes, start), end);
+      if (i == start || i == end) {
+        throw error("Expected a name");
+      }
+      return i;
+    }
+
+    /**
+     * Returns the number of the field of the given type named by the
+     * element just pushed, or 0 if it does not name one.
+     */
+    private int getFieldNumber(Descriptor type) {
+      int nameStart = openNames[(depth - 1) * 2];
+      int nameEnd = openNames[(depth - 1) * 2 + 1];
+      String name = new String(bytes, nameStart, nameEnd - nameStart, Charsets.UTF_8);
+      String localName = name.substring(name.indexOf(':') + 1);
+      if (localName.isEmpty() || "xmlns".equals(localName)) {
+        return 0;
+      }
+      FieldDescriptor fd = type.findFieldByName(
+          CapUtil.underscoreCase(localName).toLowerCase());
+      return fd == null ? 0 : fd.getNumber();
+    }
+
+    /**
+     * Returns whether the element just pushed, whose start tag is between
+     * the given offsets, is in the namespace of the {@code <alert>}. Its
+     * prefix is resolved by the attributes of its own start tag, then
+     * those of its {@code <info>}, if it has the given index, and then
+     * those of the {@code <alert>}.
+     */
+    private boolean inAlertNamespace(int tagStart, int tagEnd, int parent) {
+      int nameStart = openNames[(depth - 1) * 2];
+      int nameEnd = openNames[(depth - 1) * 2 + 1];
+      int colon = indexOf(bytes, (byte) ':', nameStart, nameEnd);
+      String prefix = colon < 0
+          ? "" : new String(bytes, nameStart, colon - nameStart, Charsets.UTF_8);
+      String namespace = findNamespace(tagStart, tagEnd, prefix);
+      if (namespace == null && parent >= 0) {
+        namespace = findNamespace(elements[parent * STRIDE + 1],
+            elements[parent * STRIDE + 2], prefix);
+      }
+      if (namespace == null) {
+        namespace = prefix.equals(rootPrefix)
+            ? xmlns : findNamespace(rootStart, rootEnd, prefix);
+      }
+      return xmlns.equals(namespace);
+    }
+
+    /**
+     * Returns the namespace bound to the prefix by the attributes of the
+     * start tag between the given offsets, or null if it is not bound.
+     */
+    private String findNamespace(int start, int end, String prefix) {
+      if (indexOf(bytes, XMLNS, start, end) < 0) {
+        return null;
+      }
+      String tag = new String(bytes, start, end - start, Charsets.UTF_8);
+      String attr = prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix;
+      int i = 0;
+      while ((i = tag.indexOf(attr, i)) >= 0) {
+        int j = i + attr.length();
+        boolean nameEnds = Character.isWhitespace(tag.charAt(i - 1));
+        while (j < tag.length() && Character.isWhitespace(tag.charAt(j))) {
+          j++;
+        }
+        if (nameEnds && j < tag.length() && tag.charAt(j) == '=') {
+          j++;
+          while (Character.isWhitespace(tag.charAt(j))) {
+            j++;
+          }
+          char quote = tag.charAt(j);
+          return tag.substring(j + 1, tag.indexOf(quote, j + 1));
+        }
+        i = j;
+      }
+      return null;
+    }
+
+    /** Records the start of an element, returning its index. */
+    private int recordStart(int fieldNumber, int tagStart, int contentStart,
+        int parent) {
+      if ((count + 1) * STRIDE > elements.length) {
+        elements = Arrays.copyOf(elements, elements.length * 2);
+        elementEnds = Arrays.copyOf(elementEnds, elementEnds.length * 2);
+      }
+      elements[count * STRIDE] = fieldNumber;
+      elements[count * STRIDE + 1] = tagStart;
+      elements[count * STRIDE + 2] = contentStart;
+      elements[count * STRIDE + 3] = parent;
+      return count++;
+    }
+
+    private void recordEnd(int index, int contentEnd, int tagEnd) {
+      elementEnds[index * 2] = contentEnd;
+      elementEnds[index * 2 + 1] = tagEnd;
+    }
+
+    private void push(int nameStart, int nameEnd) {
+      if ((depth + 1) * 2 > openNames.length) {
+        openNames = Arrays.copyOf(openNames, openNames.length * 2);
+      }
+      openNames[depth * 2] = nameStart;
+      openNames[depth * 2 + 1] = nameEnd;
+      depth++;
+    }
+
+    private void skipPast(byte[] terminator) throws SAXParseException {
+      int i = indexOf(bytes, terminator, pos, end);
+      if (i < 0) {
+        throw error("Expected " + new String(terminator, Charsets.US_ASCII));
+      }
+      pos = i + terminator.length;
+    }
+
+    private void skipWhitespace() {
+      while (pos < end && isWhitespace(bytes[pos])) {
+        pos++;
+      }
+    }
+
+    private static boolean isWhitespace(byte b) {
+      return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    private SAXParseException error(String message) {
+      return new SAXParseException(message + " at byte " + pos, null, null, -1, -1);
+    }
+  }
+}
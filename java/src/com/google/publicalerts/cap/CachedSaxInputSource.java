@@ -47,6 +47,9 @@ public class CachedSaxInputSource extends InputSource {
    */
   static final int CHUNK_SIZE = 8192;
 
+  private long length = -1;
+  private boolean exceedsMaxLength;
+
   /**
    * Creates an InputSource that provides data from the given String.
    * The given String is simply cached as-is, making this the most efficient
@@ -54,6 +57,7 @@ public class CachedSaxInputSource extends InputSource {
    */
   CachedSaxInputSource(String string) {
     super(new CachedCharStream(string));
+    length = string.length();
   }
 
   /**
@@ -64,7 +68,20 @@ public class CachedSaxInputSource extends InputSource {
    * @throws SAXParseException if there is any error consuming reader
    */
   CachedSaxInputSource(Reader reader) throws SAXParseException {
-    super(CachedCharStream.from(reader));
+    this(reader, Long.MAX_VALUE);
+  }
+
+  /**
+   * Creates an InputSource that provides data from the given Reader.
+   * The Reader is consumed up to just past {@code maxLength} characters,
+   * cached, and closed prior to the return of this method.
+   *
+   * @throws SAXParseException if there is any error consuming reader
+   */
+  CachedSaxInputSource(Reader reader, long maxLength) throws SAXParseException {
+    super(CachedCharStream.from(reader, maxLength));
+    length = ((CachedCharStream) getCharacterStream()).length;
+    exceedsMaxLength = length > maxLength;
   }
 
   /**
@@ -76,20 +93,56 @@ public class CachedSaxInputSource extends InputSource {
    *     originalSource's streams
    */
   CachedSaxInputSource(InputSource originalSource) throws SAXParseException {
+    this(originalSource, Long.MAX_VALUE);
+  }
+
+  /**
+   * Wraps the given InputSource to provide a cached view of the data within.
+   * All contained streams are consumed up to just past {@code maxLength}
+   * bytes or characters, cached and closed prior to the return of this
+   * method.
+   *
+   * @throws SAXParseException if there is any error consuming any of
+   *     originalSource's streams
+   */
+  CachedSaxInputSource(InputSource originalSource, long maxLength)
+      throws SAXParseException {
     if (originalSource.getByteStream() != null) {
-      setByteStream(CachedByteStream.from(originalSource.getByteStream()));
+      CachedByteStream byteStream =
+          CachedByteStream.from(originalSource.getByteStream(), maxLength);
+      setByteStream(byteStream);
+      length = byteStream.length;
     }
 
     if (originalSource.getCharacterStream() != null) {
-      setCharacterStream(
-          CachedCharStream.from(originalSource.getCharacterStream()));
+      CachedCharStream charStream =
+          CachedCharStream.from(originalSource.getCharacterStream(), maxLength);
+      setCharacterStream(charStream);
+      length = charStream.length;
     }
+    exceedsMaxLength = length > maxLength;
 
     setPublicId(originalSource.getPublicId());
     setSystemId(originalSource.getSystemId());
     setEncoding(originalSource.getEncoding());
   }
 
+  /**
+   * @return the number of characters, or bytes if the source was given as
+   * a byte stream, in the cached content; -1 if the source has neither
+   */
+  long getLength() {
+    return length;
+  }
+
+  /**
+   * @return true if the source was longer than the maximum length it was
+   * created with, in which case only a prefix of it is cached
+   */
+  boolean exceedsMaxLength() {
+    return exceedsMaxLength;
+  }
+
   /** Resets streams to their initial positions. */
   public void reset() throws IOException {
     if (getCharacterStream() != null) {
@@ -120,16 +173,20 @@ public class CachedSaxInputSource extends InputSource {
   }
 
   private static class CachedByteStream extends ByteArrayInputStream {
+    final int length;
+
     CachedByteStream(byte[] buf, int offset, int length) {
       super(buf, offset, length);
+      this.length = length;
     }
 
-    static CachedByteStream from(InputStream input) throws SAXParseException {
+    static CachedByteStream from(InputStream input, long maxLength)
+        throws SAXParseException {
       try {
         ByteBuffer buffer = new ByteBuffer(CHUNK_SIZE);
         byte[] chunk = new byte[CHUNK_SIZE];
         int bytesRead = -1;
-        while ((bytesRead = input.read(chunk)) > 0) {
+        while (buffer.size() <= maxLength && (bytesRead = input.read(chunk)) > 0) {
           buffer.write(chunk, 0, bytesRead);
         }
         closeQuietly(input);
@@ -148,16 +205,20 @@ public class CachedSaxInputSource extends InputSource {
   }
 
   private static class CachedCharStream extends StringReader {
+    final int length;
+
     CachedCharStream(String string) {
       super(string);
+      this.length = string.length();
     }
 
-    static CachedCharStream from(Reader reader) throws SAXParseException {
+    static CachedCharStream from(Reader reader, long maxLength)
+        throws SAXParseException {
       try {
         char[] chunk = new char[CHUNK_SIZE];
         StringBuilder buffer = new StringBuilder();
         int bytesRead = -1;
-        while ((bytesRead = reader.read(chunk)) > 0) {
+        while (buffer.length() <= maxLength && (bytesRead = reader.read(chunk)) > 0) {
           buffer.append(chunk, 0, bytesRead);
         }
         closeQuietly(reader);
@@ -157,6 +157,15 @@ public class CapException extends Exception {
     OTHER(
         Reason.Level.ERROR,
         "{0}"),
+    PARSE_CANCELLED(
+        Reason.Level.ERROR,
+        "Parsing was cancelled at <{0}>."),
+    PARSE_DEADLINE_EXCEEDED(
+        Reason.Level.ERROR,
+        "Parsing stopped at <{0}>: it took longer than {1}ms."),
+    PARSE_LIMIT_EXCEEDED(
+        Reason.Level.ERROR,
+        "Parsing stopped at <{0}>: {1} exceeds the limit of {2}."),
     PASSWORD_DEPRECATED(
         Reason.Level.ERROR,
         "<password> has been deprecated."),
@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Multiset;
+
+/**
+ * Listener notified as alerts are parsed, validated and signed, for
+ * exporting metrics to a monitoring system.
+ *
+ * <p>{@link CapXmlParser}, {@link CapValidator}, the profiles,
+ * {@link com.google.publicalerts.cap.feed.CapFeedParser}, {@link XmlSigner}
+ * and {@link XmlSignatureValidator} time each {@link Stage} of their work
+ * with a {@link Span} from the listener installed with {@link #set}. When a
+ * span ends, {@link #spanEnded} receives its latency, the bytes it processed
+ * and the reasons it found; implementations typically add these to
+ * per-stage histograms and counters. {@link #alertParsed} receives the size
+ * of each parsed alert.
+ *
+ * <p>The default listener, {@link #NO_OP}, is disabled: its spans are a
+ * shared instance that neither reads the clock nor records anything.
+ *
+ * <p>Implementations must be thread-safe.
+ *
+ * @author agent@local (agent)
+ */
+public abstract class CapMetrics {
+
+  /**
+   * A unit of work that is timed.
+   */
+  public enum Stage {
+    /** {@link CapXmlParser} parsing an alert, including all the stages below. */
+    PARSE,
+    /** Reading the namespace of the alert to choose a schema. */
+    XMLNS_SNIFF,
+    /**
+     * The SAX pass over the alert, validating it against the schema and
+     * building it, including {@link #HANDLER}.
+     */
+    SCHEMA_PARSE,
+    /**
+     * The time the SAX pass spent building the alert. Since the handler is
+     * called back throughout the pass, this span is reported once the pass
+     * ends, with the sum of the time spent in the callbacks.
+     */
+    HANDLER,
+    /** {@link CapValidator#validateAlert}. */
+    SEMANTIC_VALIDATION,
+    /** Validating an alert against one or more profiles. */
+    PROFILE,
+    /** Parsing and validating an ATOM, RSS or EDXL-DE feed. */
+    FEED_PARSE,
+    /** Validating a feed against its schema, part of {@link #FEED_PARSE}. */
+    FEED_SCHEMA,
+    /** Parsing the alert in one entry of a feed. */
+    FEED_ENTRY,
+    /** {@link XmlSigner#sign}. */
+    SIGN,
+    /** {@link XmlSignatureValidator#validate}. */
+    SIGNATURE_VALIDATION,
+  }
+
+  /** A listener that records nothing. */
+  public static final CapMetrics NO_OP = new CapMetrics() {
+    @Override
+    public boolean isEnabled() {
+      return false;
+    }
+  };
+
+  private static volatile CapMetrics instance = NO_OP;
+
+  /**
+   * @return the listener currently installed, {@link #NO_OP} by default
+   */
+  public static CapMetrics get() {
+    return instance;
+  }
+
+  /**
+   * Installs the listener notified by all parsers, validators and signers.
+   *
+   * @param metrics the listener, or {@link #NO_OP} to stop recording
+   */
+  public static void set(CapMetrics metrics) {
+    instance = Preconditions.checkNotNull(metrics);
+  }
+
+  /**
+   * @return true if this listener records anything. Callers skip work only
+   * needed for metrics, such as counting vertices, when this is false.
+   */
+  public boolean isEnabled() {
+    return true;
+  }
+
+  /**
+   * Starts timing the given stage. The caller must call {@link Span#end()}
+   * once the stage is done, typically in a {@code finally} block.
+   *
+   * @param stage the stage being timed
+   * @return the span
+   */
+  public Span startSpan(Stage stage) {
+    return isEnabled() ? new Span(this, stage) : Span.DISABLED;
+  }
+
+  /**
+   * Called when a span ends. The default implementation does nothing.
+   *
+   * @param span the span that ended
+   */
+  public void spanEnded(Span span) {
+  }
+
+  /**
+   * Called once for each alert parsed by {@link CapXmlParser}. The default
+   * implementation does nothing.
+   *
+   * @param infoCount the number of {@code <info>}s in the alert
+   * @param areaCount the total number of {@code <area>}s in the alert
+   * @param vertexCount the total number of points of the polygons of the alert
+   */
+  public void alertParsed(int infoCount, int areaCount, int vertexCount) {
+  }
+
+  /**
+   * Calls {@link #alertParsed(int, int, int)} with the counts of the given
+   * alert, if this listener is enabled.
+   */
+  void alertParsed(AlertOrBuilder alert) {
+    if (!isEnabled() || alert == null) {
+      return;
+    }
+    int areaCount = 0;
+    int vertexCount = 0;
+    for (InfoOrBuilder info : alert.getInfoOrBuilderList()) {
+      areaCount += info.getAreaCount();
+      for (AreaOrBuilder area : info.getAreaOrBuilderList()) {
+        for (PolygonOrBuilder polygon : area.getPolygonOrBuilderList()) {
+          vertexCount += PolygonView.getPointCount(polygon);
+        }
+      }
+    }
+    alertParsed(alert.getInfoCount(), areaCount, vertexCount);
+  }
+
+  /**
+   * A timed run of a {@link Stage}, with optional attributes set by the code
+   * being timed. Not thread-safe; a span belongs to the thread that
+   * started it.
+   */
+  public static class Span {
+    static final Span DISABLED = new Span(null, null);
+
+    private final CapMetrics metrics;
+    private final Stage stage;
+    private final long startNanos;
+    private long durationNanos = -1;
+    private int version;
+    private long bytes = -1;
+    private int entryIndex = -1;
+    private Reasons reasons;
+
+    /**
+     * @param metrics the listener to notify when the span ends
+     * @param stage the stage being timed
+     */
+    protected Span(CapMetrics metrics, Stage stage) {
+      this.metrics = metrics;
+      this.stage = stage;
+      this.startNanos = metrics == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * @param version the CAP version being processed, like 12 for CAP 1.2
+     * @return this span
+     */
+    public Span setVersion(int version) {
+      if (metrics != null) {
+        this.version = version;
+      }
+      return this;
+    }
+
+    /**
+     * @param xmlns the CAP namespace being processed
+     * @return this span
+     */
+    public Span setXmlns(String xmlns) {
+      return setVersion(CapValidator.getCapVersion(xmlns));
+    }
+
+    /**
+     * @param bytes the size of the input being processed
+     * @return this span
+     */
+    public Span setBytes(long bytes) {
+      if (metrics != null) {
+        this.bytes = bytes;
+      }
+      return this;
+    }
+
+    /**
+     * @param entryIndex the 0-based index of the feed entry being processed
+     * @return this span
+     */
+    public Span setEntryIndex(int entryIndex) {
+      if (metrics != null) {
+        this.entryIndex = entryIndex;
+      }
+      return this;
+    }
+
+    /**
+     * @param reasons the reasons found during this span
+     * @return this span
+     */
+    public Span setReasons(Reasons reasons) {
+      if (metrics != null) {
+        this.reasons = reasons;
+      }
+      return this;
+    }
+
+    /**
+     * Ends the span and notifies the listener. Calls after the first are
+     * ignored.
+     */
+    public void end() {
+      if (metrics != null && durationNanos < 0) {
+        end(System.nanoTime() - startNanos);
+      }
+    }
+
+    /**
+     * Ends the span with the given duration, for stages that are not
+     * contiguous in time.
+     */
+    void end(long durationNanos) {
+      if (metrics != null && this.durationNanos < 0) {
+        this.durationNanos = durationNanos;
+        metrics.spanEnded(this);
+      }
+    }
+
+    public Stage getStage() {
+      return stage;
+    }
+
+    /**
+     * @return the value of {@link System#nanoTime()} when the span started
+     */
+    public long getStartNanos() {
+      return startNanos;
+    }
+
+    /**
+     * @return the latency of the stage in nanoseconds, or -1 if the span
+     * has not ended
+     */
+    public long getDurationNanos() {
+      return durationNanos;
+    }
+
+    /**
+     * @return the CAP version, like 12 for CAP 1.2, or 0 if unknown
+     */
+    public int getVersion() {
+      return version;
+    }
+
+    /**
+     * @return the size of the input, in bytes or characters depending on
+     * how it was provided, or -1 if unknown
+     */
+    public long getBytes() {
+      return bytes;
+    }
+
+    /**
+     * @return the 0-based index of the feed entry, or -1 if not applicable
+     */
+    public int getEntryIndex() {
+      return entryIndex;
+    }
+
+    /**
+     * @return the reasons found during the span, or null if not applicable
+     */
+    public Reasons getReasons() {
+      return reasons;
+    }
+
+    /**
+     * @return the number of reasons found during the span with level
+     * {@link Reason.Level#ERROR} or higher
+     */
+    public int getErrorCount() {
+      return reasons == null
+          ? 0 : reasons.getWithLevelOrHigher(Reason.Level.ERROR).size();
+    }
+
+    /**
+     * @return the number of reasons found during the span, by type
+     */
+    public Multiset<Reason.Type> getReasonTypeCounts() {
+      if (reasons == null) {
+        return ImmutableMultiset.of();
+      }
+      Multiset<Reason.Type> counts = HashMultiset.create();
+      for (Reason reason : reasons) {
+        counts.add(reason.getType());
+      }
+      return counts;
+    }
+  }
+}
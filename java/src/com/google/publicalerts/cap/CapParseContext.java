@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap;
+
+import com.google.common.collect.Maps;
+import com.google.publicalerts.cap.CapXmlParser.CapXmlHandler;
+import com.google.publicalerts.cap.CapXmlParser.XmlnsHandler;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.validation.Schema;
+
+/**
+ * The state {@link CapXmlParser} needs to parse a document, kept so that
+ * parsing many documents reuses it rather than allocating it anew for each.
+ *
+ * <p>A context holds the SAX readers for each schema, the handler that
+ * builds the alert, with its buffers and stacks, and the
+ * {@link CapValidator}; each is reset before the next document. Once a
+ * context has parsed a document of each CAP version, parsing another
+ * allocates little more than the alert and its reasons.
+ *
+ * <p>A context may be used with any number of parsers, but by only one
+ * thread at a time, so typically each worker thread owns one:
+ *
+ * <pre>
+ * CapParseContext context = new CapParseContext();
+ * for (String xml : batch) {
+ *   Reasons.Builder reasons = Reasons.newBuilder();
+ *   Alert alert = parser.parseFrom(xml, reasons, context);
+ *   ...
+ * }
+ * </pre>
+ *
+ * @author agent@local (agent)
+ */
+public final class CapParseContext {
+  private final CapXmlHandler handler = new CapXmlHandler();
+  private final XmlnsHandler xmlnsHandler = new XmlnsHandler();
+  private final CapValidator validator = new CapValidator();
+  private final Map<Schema, XMLReader> readers = Maps.newIdentityHashMap();
+  private XMLReader xmlnsReader;
+  private boolean inUse;
+
+  /**
+   * Marks the context in use by a parse, so that a second parse using it
+   * at the same time fails rather than corrupting the first.
+   *
+   * @throws IllegalStateException if the context is already in use
+   */
+  void acquire() {
+    if (inUse) {
+      throw new IllegalStateException(
+          "CapParseContext is already in use by another parse");
+    }
+    inUse = true;
+  }
+
+  void release() {
+    inUse = false;
+  }
+
+  /**
+   * @return the handler, reset to parse a new document
+   */
+  CapXmlHandler getHandler() {
+    handler.reset();
+    return handler;
+  }
+
+  CapValidator getValidator() {
+    return validator;
+  }
+
+  /**
+   * @return a reader that reports the namespace of the root element to
+   * an {@link XmlnsHandler}
+   */
+  XMLReader getXmlnsReader()
+      throws ParserConfigurationException, SAXException {
+    if (xmlnsReader == null) {
+      SAXParserFactory factory = SAXParserFactory.newInstance();
+      factory.setNamespaceAware(true);
+      xmlnsReader = XmlUtil.getXMLReader(factory);
+      xmlnsReader.setContentHandler(xmlnsHandler);
+    }
+    return xmlnsReader;
+  }
+
+  /**
+   * @param schema the schema to validate against
+   * @return a reader validating against the schema, with no handlers set
+   */
+  XMLReader getReader(Schema schema)
+      throws ParserConfigurationException, SAXException {
+    XMLReader reader = readers.get(schema);
+    if (reader == null) {
+      SAXParserFactory factory = SAXParserFactory.newInstance();
+      factory.setNamespaceAware(true);
+      factory.setSchema(schema);
+      reader = XmlUtil.getXMLReader(factory);
+      readers.put(schema, reader);
+    }
+    return reader;
+  }
+}
@@ -249,6 +249,26 @@ public class CapUtil {
     return (parts.length > 1) ? parts[1] : null;
   }
   
+  /**
+   * Parses a CAP sender from a single valid reference in
+   * {@literal <references>}.
+   *
+   * <p>Different parsing rules are applied according to the version of CAP
+   * being employed.
+   *
+   * <p>If the input string is not compliant with the XSD schema, and parsing it
+   * is not possible, {@code null} is returned.
+   */
+  public static String parseReferenceSender(String s, int capVersion) {
+    if (capVersion <= 10) {
+      int separatorIndex = s.indexOf('/');
+      return (separatorIndex > 0) ? s.substring(separatorIndex + 1) : null;
+    }
+
+    String[] parts = s.split(",", 3);
+    return (parts.length > 1) ? parts[0] : null;
+  }
+
   /**
    * Parses the date specified in a single valid reference in
    * {@literal <references>}.
@@ -297,7 +317,9 @@ public class CapUtil {
    * otherwise
    */
   public static boolean containsHtmlEntities(String s) {
-    return !StringEscapeUtils.unescapeHtml4(s).equals(s);
+    // Every entity starts with an ampersand, and unescaping allocates a
+    // substring per candidate entity at each character, so skip it if none
+    return s.indexOf('&') >= 0 && !StringEscapeUtils.unescapeHtml4(s).equals(s);
   }
   
   /**
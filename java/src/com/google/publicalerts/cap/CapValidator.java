@@ -95,6 +95,9 @@ public class CapValidator {
    * the cell value is the primary subtag of the language in which the text was written.
    */
   private Table<FieldDescriptor, String, String> humanReadableText = HashBasedTable.create();
+
+  /** The fields of the alert being validated that were parsed. */
+  private FieldProjection projection = FieldProjection.ALL;
   
   /**
    * Validates a CAP alert.
@@ -103,7 +106,36 @@ public class CapValidator {
    * @return a collection of errors, warnings, recommendations, or infos about the alert
    */
   public Reasons validateAlert(AlertOrBuilder alert) {
+    return validateAlert(alert, FieldProjection.ALL);
+  }
+
+  /**
+   * Validates the fields of a CAP alert kept by the given projection, such
+   * as one parsed by a {@link CapXmlParser} with that projection. Checks
+   * that compare a kept field with a dropped one are skipped.
+   *
+   * @param alert the alert to validate
+   * @param projection the fields of the alert that were kept
+   * @return a collection of errors, warnings, recommendations, or infos about the alert
+   */
+  public Reasons validateAlert(AlertOrBuilder alert, FieldProjection projection) {
+    this.projection = projection;
+    // Languages are compared within an alert, not across the alerts
+    // validated by this validator
+    humanReadableText.clear();
     int version = getValidateVersion(alert.getXmlns());
+    CapMetrics.Span span = CapMetrics.get()
+        .startSpan(CapMetrics.Stage.SEMANTIC_VALIDATION).setVersion(version);
+    try {
+      Reasons result = validateAlertInternal(alert, version);
+      span.setReasons(result);
+      return result;
+    } finally {
+      span.end();
+    }
+  }
+
+  private Reasons validateAlertInternal(AlertOrBuilder alert, int version) {
     Reasons.Builder reasons = Reasons.newBuilder();
     
     XPath xPath = new XPath();
@@ -111,7 +143,7 @@ public class CapValidator {
     
     // Validate restriction
     if (alert.hasRestriction() && !CapUtil.isEmptyOrWhitespace(alert.getRestriction())
-        && alert.getScope() != Alert.Scope.RESTRICTED) {
+        && alert.getScope() != Alert.Scope.RESTRICTED && projection.includes("scope")) {
       xPath.push("restriction");
       reasons.add(xPath.toString(), RESTRICTION_SCOPE_MISMATCH);
       xPath.pop();
@@ -251,7 +283,8 @@ public class CapValidator {
       reasons.addAll(validatePolygon(polygonOrBuilder, xPath));
     }
 
-    if (area.hasCeiling() && !area.hasAltitude()) {
+    if (area.hasCeiling() && !area.hasAltitude()
+        && projection.includes("info.area.altitude")) {
       reasons.add(xPath.toString(), INVALID_AREA);
     }
 
@@ -268,12 +301,13 @@ public class CapValidator {
   private Reasons validatePolygon(PolygonOrBuilder polygon, XPath xPath) {
     Reasons.Builder reasons = Reasons.newBuilder();
     xPath.push("polygon");
-    
-    if (!polygon.getPoint(0).equals(polygon.getPoint(polygon.getPointCount() - 1))) {
+
+    PolygonView view = PolygonView.of(polygon);
+    if (view.getPointCount() == 0 || !view.pointEquals(0, view.getPointCount() - 1)) {
       reasons.add(xPath.toString(), INVALID_POLYGON);
     }
 
-    String intersectionDescription = getIntersectionDescription(polygon);
+    String intersectionDescription = getIntersectionDescription(view);
     if (intersectionDescription != null) {
       reasons.add(xPath.toString(), INVALID_POLYGON_SELF_INTERSECTION, intersectionDescription);
     }
@@ -304,7 +338,8 @@ public class CapValidator {
       
       if (uri == null) {
         reasons.add(xPath.toString(), INVALID_URI, resource.getUri());
-      } else if (!uri.isAbsolute() && !resource.hasDerefUri()) {
+      } else if (!uri.isAbsolute() && !resource.hasDerefUri()
+          && projection.includes("info.resource.deref_uri")) {
         reasons.add(xPath.toString(), RELATIVE_URI_MISSING_DEREF_URI);
       }
           
@@ -336,6 +371,15 @@ public class CapValidator {
   }
   
   int getValidateVersion(String xmlns) {
+    return getCapVersion(xmlns);
+  }
+
+  /**
+   * @param xmlns a CAP namespace
+   * @return the CAP version of the namespace, like 12 for CAP 1.2,
+   * defaulting to the latest version
+   */
+  static int getCapVersion(String xmlns) {
     if (CAP10_XMLNS.equals(xmlns)) {
       return 10;
     } else if (CAP11_XMLNS.equals(xmlns)) {
@@ -429,14 +473,14 @@ public class CapValidator {
   // 3. The last point of the polygon is identical to the first point.
   //
   // Returns null if no intersections were found, returns a description of an intersection else.
-  private String getIntersectionDescription(PolygonOrBuilder polygon) {
+  private String getIntersectionDescription(PolygonView polygon) {
     // Naive O(n^2) algorithm. If performance becomes an issue, consider using Bentley–Ottmann
     // algorithm, which is O(n*logn)
     
     // if the first point is duplicated, skip to the last duplicate.
     int start;
     for(start = 0; start < polygon.getPointCount() - 1; start++) {
-      if (!polygon.getPoint(start).equals(polygon.getPoint(start + 1))) {
+      if (!polygon.pointEquals(start, start + 1)) {
         break;
       }
     }
@@ -444,7 +488,7 @@ public class CapValidator {
     // if the last point is duplicate, skip to the first duplicate
     int lastIndex;
     for (lastIndex = polygon.getPointCount() - 1; lastIndex > 0; lastIndex--) {
-      if (!polygon.getPoint(lastIndex).equals(polygon.getPoint(lastIndex - 1))) {
+      if (!polygon.pointEquals(lastIndex, lastIndex - 1)) {
         break;
       }
     }
@@ -455,41 +499,32 @@ public class CapValidator {
         if (i == start && j == lastIndex - 1) {
           continue;
         }
-        Point p0 = polygon.getPoint(i);
-        Point p1 = polygon.getPoint(i + 1);
-        Point p2 = polygon.getPoint(j);
-        Point p3 = polygon.getPoint(j + 1);
-
         // Duplicate point - ignore the intersection of the two lines from this point.
-        if (p1.equals(p2)) {
+        if (polygon.pointEquals(i + 1, j)) {
           continue;
         }
 
         // Duplicate point - in that case line1 or line2 isn't a line, but a single point.
-        if (p0.equals(p1) || p2.equals(p3)) {
+        if (polygon.pointEquals(i, i + 1) || polygon.pointEquals(j, j + 1)) {
           continue;
         }
 
-        Line2D line1 =
-            new Line2D.Double(
-                p0.getLatitude(),
-                toLegalLongitude(p0.getLongitude()),
-                p1.getLatitude(),
-                toLegalLongitude(p1.getLongitude()));
-        Line2D line2 =
-            new Line2D.Double(
-                p2.getLatitude(),
-                toLegalLongitude(p2.getLongitude()),
-                p3.getLatitude(),
-                toLegalLongitude(p3.getLongitude()));
-
-        if (line2.intersectsLine(line1)) {
+        if (Line2D.linesIntersect(
+            polygon.getLatitude(i),
+            toLegalLongitude(polygon.getLongitude(i)),
+            polygon.getLatitude(i + 1),
+            toLegalLongitude(polygon.getLongitude(i + 1)),
+            polygon.getLatitude(j),
+            toLegalLongitude(polygon.getLongitude(j)),
+            polygon.getLatitude(j + 1),
+            toLegalLongitude(polygon.getLongitude(j + 1)))) {
           return "Detected intersection in the following lines:\n" 
-              + String.format("line1: %s,%s  -->  %s,%s\n", p0.getLatitude(), p0.getLongitude(),
-                  p1.getLatitude(), p1.getLongitude()) 
+              + String.format("line1: %s,%s  -->  %s,%s\n",
+                  polygon.getLatitude(i), polygon.getLongitude(i),
+                  polygon.getLatitude(i + 1), polygon.getLongitude(i + 1)) 
               + String.format("line2: %s,%s  -->  %s,%s",
-                  p2.getLatitude(), p2.getLongitude(),
-                  p3.getLatitude(), p3.getLongitude());
+                  polygon.getLatitude(j), polygon.getLongitude(j),
+                  polygon.getLatitude(j + 1), polygon.getLongitude(j + 1));
         }
       }
     }
@@ -497,7 +532,7 @@ public class CapValidator {
   }
 
   // returns longitude in the range of [-180, 180]
-  private Double toLegalLongitude(Double longitude) {
+  private double toLegalLongitude(double longitude) {
     if (longitude > 180) {
       return longitude - 360;
     }
@@ -188,12 +188,14 @@ public class CapXmlBuilder {
   }
 
   private String polygonToString(PolygonOrBuilder polygon) {
+    PolygonView view = PolygonView.of(polygon);
     StringBuilder sb = new StringBuilder();
-    for (PointOrBuilder point : polygon.getPointOrBuilderList()) {
-      appendPoint(sb, point);
-      sb.append(" ");
+    for (int i = 0; i < view.getPointCount(); i++) {
+      if (i > 0) {
+        sb.append(" ");
+      }
+      sb.append(view.getLatitude(i)).append(',').append(view.getLongitude(i));
     }
-    sb.setLength(sb.length() - 1);
     return sb.toString();
   }
 
@@ -16,25 +16,40 @@
 
 package com.google.publicalerts.cap;
 
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.Descriptors;
+import com.google.protobuf.Descriptors.Descriptor;
 import com.google.protobuf.Descriptors.FieldDescriptor;
 import com.google.protobuf.Message.Builder;
 import com.google.protobuf.MessageOrBuilder;
 import com.google.publicalerts.cap.CapException.ReasonType;
 
 import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
 import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
 
+import java.io.FilterInputStream;
+import java.io.FilterReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
-import java.util.Stack;
+import java.util.concurrent.TimeUnit;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.ParserConfigurationException;
@@ -43,6 +58,7 @@ import javax.xml.transform.Source;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.ValidatorHandler;
 
 /**
  * Parses CAP XML, optionally validating.
@@ -57,34 +73,84 @@ import javax.xml.validation.SchemaFactory;
  * @author shakusa@google.com (Steve Hakusa)
  */
 public class CapXmlParser {
-  private static final Map<String, Schema> EXTENDED_SCHEMA_MAP = initSchemaMap(
-      new String[] {"cap10_extended.xsd", "cap11_extended.xsd",
+  // Each schema is compiled on first use of its namespace, since compiling
+  // all of them up front noticeably slows down startup
+  private static final Map<String, Supplier<Schema>> EXTENDED_SCHEMA_MAP =
+      initSchemaMap(new String[] {"cap10_extended.xsd", "cap11_extended.xsd",
           "cap12_extended.xsd"});
 
-  private static final Map<String, Schema> STRICT_SCHEMA_MAP = initSchemaMap(
-      new String[] {"cap10.xsd", "cap11.xsd", "cap12.xsd"});
+  private static final Map<String, Supplier<Schema>> STRICT_SCHEMA_MAP =
+      initSchemaMap(new String[] {"cap10.xsd", "cap11.xsd", "cap12.xsd"});
 
-  private static Map<String, Schema> initSchemaMap(String[] xsds) {
-    SchemaFactory schemaFactory = SchemaFactory.newInstance(
-        XMLConstants.W3C_XML_SCHEMA_NS_URI);
+  // The readers for parsing without a schema, one per thread since readers
+  // are not thread-safe, so that views decoding a field at a time do not
+  // each create a SAXParserFactory
+  private static final ThreadLocal<XMLReader> UNVALIDATED_READER =
+      new ThreadLocal<XMLReader>();
+  private static final DefaultHandler NO_OP_HANDLER = new DefaultHandler();
+
+  private static Map<String, Supplier<Schema>> initSchemaMap(String[] xsds) {
     String[] xmlns = new String[] {CapValidator.CAP10_XMLNS,
         CapValidator.CAP11_XMLNS, CapValidator.CAP12_XMLNS};
 
-    ImmutableMap.Builder<String, Schema> schemas = ImmutableMap.builder();
+    ImmutableMap.Builder<String, Supplier<Schema>> schemas = ImmutableMap.builder();
     for (int i = 0; i < xsds.length; i++) {
-      StreamSource cap = new StreamSource(CapXmlParser.class
-          .getResourceAsStream("schema/" + xsds[i]));
-      try {
-        schemas.put(xmlns[i], schemaFactory.newSchema(new Source[] { cap }));
-      } catch (SAXException e) {
-        throw new RuntimeException(e);
-      }
+      final String xsd = xsds[i];
+      schemas.put(xmlns[i], Suppliers.memoize(new Supplier<Schema>() {
+        @Override
+        public Schema get() {
+          return loadSchema(xsd);
+        }
+      }));
     }
     return schemas.build();
   }
 
+  private static Schema loadSchema(String xsd) {
+    SchemaFactory schemaFactory = SchemaFactory.newInstance(
+        XMLConstants.W3C_XML_SCHEMA_NS_URI);
+    StreamSource cap = new StreamSource(CapXmlParser.class
+        .getResourceAsStream("schema/" + xsd));
+    try {
+      return schemaFactory.newSchema(new Source[] { cap });
+    } catch (SAXException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Compiles the schemas for the given CAP namespaces now, rather than the
+   * first time an alert with that namespace is parsed. Useful to move the
+   * cost of compiling schemas to startup, or to a background thread.
+   *
+   * @param strictXsdValidation true to load the strict schemas, false to
+   * load the extended schemas used by default
+   * @param xmlns the CAP namespaces whose schemas to load; if empty, load
+   * all of them
+   * @throws IllegalArgumentException if a namespace is not a CAP namespace
+   */
+  public static void preloadSchemas(boolean strictXsdValidation, String... xmlns) {
+    Map<String, Supplier<Schema>> schemaMap = strictXsdValidation
+        ? STRICT_SCHEMA_MAP : EXTENDED_SCHEMA_MAP;
+    Iterable<String> namespaces = xmlns.length == 0
+        ? schemaMap.keySet() : Arrays.asList(xmlns);
+    for (String namespace : namespaces) {
+      Supplier<Schema> schema = schemaMap.get(namespace);
+      if (schema == null) {
+        throw new IllegalArgumentException("Unsupported xmlns:" + namespace);
+      }
+      schema.get();
+    }
+  }
+
   private final boolean validate;
-  private final Map<String, Schema> schemaMap;
+  private final Map<String, Supplier<Schema>> schemaMap;
+  private boolean packPolygons;
+  private StringInterner interner;
+  private ParseLimits limits = ParseLimits.DEFAULT;
+  private FieldProjection projection = FieldProjection.ALL;
+  private AlertFilter filter;
+  private boolean compiledSchemaValidation;
 
   /**
    * Creates a new parser.
@@ -120,6 +186,125 @@ public class CapXmlParser {
         ? STRICT_SCHEMA_MAP : EXTENDED_SCHEMA_MAP;
   }
 
+  /**
+   * @return true if this parser performs by-the-spec xsd schema validation
+   */
+  public boolean isStrictXsdValidation() {
+    return schemaMap == STRICT_SCHEMA_MAP;
+  }
+
+  /**
+   * Sets whether polygons are parsed into their compact
+   * {@code packed_coordinates} encoding rather than one {@link Point} per
+   * vertex. Use {@link PolygonView} to read packed polygons. Defaults to
+   * false.
+   *
+   * @param packPolygons true to parse polygons into packed coordinates
+   */
+  public void setPackPolygons(boolean packPolygons) {
+    this.packPolygons = packPolygons;
+  }
+
+  /**
+   * Sets an interner used to deduplicate the values of low-cardinality
+   * string fields, such as sender names and area descriptions, across
+   * parsed alerts. The interner may be shared between parsers. Defaults to
+   * null, meaning no interning.
+   *
+   * @param interner the interner to use, or null for none
+   */
+  public void setStringInterner(StringInterner interner) {
+    this.interner = interner;
+  }
+
+  /**
+   * Sets the limits on the resources spent parsing an alert. When a limit
+   * is exceeded, parsing stops and an error reason is added, so a
+   * validating parser throws {@link CapException} and a non-validating one
+   * returns the fields read so far. Parsing also stops, with a
+   * {@link ReasonType#PARSE_CANCELLED} error, if the parsing thread is
+   * interrupted, such as by {@code Future.cancel(true)}. Defaults to
+   * {@link ParseLimits#DEFAULT}.
+   *
+   * @param limits the limits to enforce
+   */
+  public void setParseLimits(ParseLimits limits) {
+    this.limits = Preconditions.checkNotNull(limits);
+  }
+
+  /**
+   * @return the limits on the resources spent parsing an alert
+   */
+  public ParseLimits getParseLimits() {
+    return limits;
+  }
+
+  /**
+   * Sets the fields of parsed alerts to keep. The others are still checked
+   * against the schema as they are read, but their text is not kept and no
+   * messages are built for them, and {@link CapValidator} checks only the
+   * fields kept. Parsed alerts are partial, so may be missing required
+   * fields. Defaults to {@link FieldProjection#ALL}.
+   *
+   * @param projection the fields to keep
+   */
+  public void setFieldProjection(FieldProjection projection) {
+    this.projection = Preconditions.checkNotNull(projection);
+  }
+
+  /**
+   * @return the fields of parsed alerts to keep
+   */
+  public FieldProjection getFieldProjection() {
+    return projection;
+  }
+
+  /**
+   * Sets a filter that alerts must match to be parsed. The filter is
+   * checked as the alert is read, and parsing stops as soon as the alert
+   * cannot match, in which case the {@code parseFrom} methods return null
+   * and add no reasons. Infos that do not match are dropped from alerts
+   * that do. The fields the filter needs must be kept by the
+   * {@link #setFieldProjection field projection}. Defaults to null,
+   * meaning all alerts are parsed.
+   *
+   * @param filter the filter, or null for none
+   */
+  public void setAlertFilter(AlertFilter filter) {
+    this.filter = filter;
+  }
+
+  /**
+   * @return the filter that alerts must match to be parsed, or null
+   */
+  public AlertFilter getAlertFilter() {
+    return filter;
+  }
+
+  /**
+   * Sets whether to validate alerts against the extended schemas with a
+   * validator compiled from them, rather than with the Xerces XSD
+   * validator. It reports the same reasons, as mapped by
+   * {@link XercesCapExceptionMapper}, in a fraction of the time, except
+   * that errors Xerces has no CAP-specific type for, such as for
+   * attributes, are reported as {@link ReasonType#OTHER} with its message.
+   * Has no effect on a parser doing strict XSD validation. Defaults to
+   * false.
+   *
+   * @param compiledSchemaValidation true to validate with the compiled
+   * schemas
+   */
+  public void setCompiledSchemaValidation(boolean compiledSchemaValidation) {
+    this.compiledSchemaValidation = compiledSchemaValidation;
+  }
+
+  /**
+   * @return true if the compiled schemas are used rather than Xerces
+   */
+  private boolean useCompiledSchema() {
+    return compiledSchemaValidation && schemaMap != STRICT_SCHEMA_MAP;
+  }
+
   /**
    * Parses a CAP circle area from a string.
    *
@@ -129,30 +314,7 @@ public class CapXmlParser {
    * string failed to parse.
    */
   public static Circle toCircle(String str) {
-    if (str == null) {
-      return null;
-    }
-    String[] pointRadius = str.trim().split("\\s+");
-    if (pointRadius.length == 0) {
-      return null;
-    }
-    if (pointRadius.length != 2) {
-      return null;
-    }
-    Point point = toPoint(pointRadius[0]);
-    if (point == null) {
-      return null;
-    }
-
-    float radius;
-    try {
-      radius = Float.parseFloat(pointRadius[1]);
-    } catch (NumberFormatException e) {
-      return null;
-    }
-
-    return Circle.newBuilder().setPoint(point).setRadius(radius)
-        .buildPartial();
+    return CoordinateScanner.scanCircle(str);
   }
 
   /**
@@ -160,19 +322,11 @@ public class CapXmlParser {
    * of doubles, as a Point. Returns null if it could not be parsed.
    */
   static Point toPoint(String point) {
-    String[] latlng = point.split(",");
-    if (latlng.length != 2) {
+    double[] latlng = CoordinateScanner.scanPoint(point);
+    if (latlng == null) {
       return null;
     }
-    double latitude;
-    double longitude;
-    try {
-      latitude = Double.parseDouble(latlng[0]);
-      longitude = Double.parseDouble(latlng[1]);
-    } catch (NumberFormatException e) {
-      return null;
-    }
-    return Point.newBuilder().setLatitude(latitude).setLongitude(longitude)
+    return Point.newBuilder().setLatitude(latlng[0]).setLongitude(latlng[1])
         .buildPartial();
   }
 
@@ -186,23 +340,24 @@ public class CapXmlParser {
    * string failed to parse.
    */
   public static Polygon toPolygon(String str) {
-    if (str == null) {
-      return null;
-    }
-    String[] pointStrs = str.trim().split("\\s+");
-    if (CapUtil.isEmptyOrWhitespace(str) || pointStrs.length == 0) {
-      return null;
-    }
-    Polygon.Builder polygon = Polygon.newBuilder();
-    for (String pointStr : pointStrs) {
-      Point point = toPoint(pointStr);
-      if (point == null) {
-        return null;
-      } else {
-        polygon.addPoint(point);
-      }
-    }
-    return polygon.buildPartial();
+    double[] coordinates = CoordinateScanner.scanPolygon(str);
+    return coordinates == null ? null : PolygonView.of(coordinates).toPointPolygon();
+  }
+
+  /**
+   * Parses a CAP polygon area from a string into its packed encoding, without
+   * creating a {@link Point} per vertex.
+   *
+   * @param str A string encoding a polygon, as described in the CAP schema.
+   * It should be a space-separated list of points, each of which is a
+   * comma-separated list of doubles.
+   * @return A CAP Polygon with the same points in
+   * {@code packed_coordinates}, or null if the string failed to parse.
+   * @see PolygonView
+   */
+  public static Polygon toPackedPolygon(String str) {
+    double[] coordinates = CoordinateScanner.scanPolygon(str);
+    return coordinates == null ? null : PolygonView.of(coordinates).toPackedPolygon();
   }
 
   /**
@@ -228,7 +383,8 @@ public class CapXmlParser {
    * Parse the given alert.
    *
    * @param str the CAP XML to parse, as a UTF-8 string
-   * @return the parsed alert
+   * @return the parsed alert, or null if it does not match the
+   * {@link #setAlertFilter alert filter}
    * @throws CapException if validate is true and there are parse-related
    * or validation errors
    * @throws NotCapException if the XML is not CAP XML
@@ -245,7 +401,8 @@ public class CapXmlParser {
    * @param str the CAP XML to parse, as a UTF-8 string
    * @param reasons a collection to which to add any non-fatal errors,
    * warnings or recommendations during parsing
-   * @return the parsed alert
+   * @return the parsed alert, or null if it does not match the
+   * {@link #setAlertFilter alert filter}
    * @throws NotCapException if the XML is not CAP XML
    * @throws SAXParseException on XML parsing error
    */
@@ -258,7 +415,8 @@ public class CapXmlParser {
    * Parse the given alert.
    *
    * @param reader the reader to read the CAP XML to parse
-   * @return the parsed alert
+   * @return the parsed alert, or null if it does not match the
+   * {@link #setAlertFilter alert filter}
    * @throws CapException if validate is true and there are parse-related
    * or validation errors
    * @throws NotCapException if the XML is not CAP XML
@@ -266,7 +424,7 @@ public class CapXmlParser {
    */
   public final Alert parseFrom(Reader reader)
       throws CapException, NotCapException, SAXParseException {
-    return parseFromInternal(new CachedSaxInputSource(reader));
+    return parseFromInternal(new CachedSaxInputSource(reader, limits.getMaxLength()));
   }
 
   /**
@@ -280,14 +438,16 @@ public class CapXmlParser {
    */
   public final Alert parseFrom(Reader reader, Reasons.Builder reasons)
       throws NotCapException, SAXParseException {
-    return parseFromInternal(new CachedSaxInputSource(reader), reasons);
+    return parseFromInternal(
+        new CachedSaxInputSource(reader, limits.getMaxLength()), reasons);
   }
 
   /**
    * Parse the given alert.
    *
    * @param is the input source to read the CAP XML to parse
-   * @return the parsed alert
+   * @return the parsed alert, or null if it does not match the
+   * {@link #setAlertFilter alert filter}
    * @throws CapException if validate is true and there are parse-related
    * or validation errors
    * @throws NotCapException if the XML is not CAP XML
@@ -295,7 +455,7 @@ public class CapXmlParser {
    */
   public final Alert parseFrom(InputSource is)
     throws CapException, NotCapException, SAXParseException {
-    return parseFromInternal(new CachedSaxInputSource(is));
+    return parseFromInternal(new CachedSaxInputSource(is, limits.getMaxLength()));
   }
 
   /**
@@ -304,13 +464,175 @@ public class CapXmlParser {
    * @param is the input source to read the CAP XML to parse
    * @param reasons a collection to which to add any non-fatal errors,
    * warnings or recommendations during parsing
-   * @return the parsed alert
+   * @return the parsed alert, or null if it does not match the
+   * {@link #setAlertFilter alert filter}
    * @throws NotCapException if the XML is not CAP XML
    * @throws SAXParseException on XML parsing error
    */
   public final Alert parseFrom(InputSource is, Reasons.Builder reasons)
       throws NotCapException, SAXParseException {
-    return parseFromInternal(new CachedSaxInputSource(is), reasons);
+    return parseFromInternal(
+        new CachedSaxInputSource(is, limits.getMaxLength()), reasons);
+  }
+
+  /**
+   * Parse the given alert, reusing the state held by the given context
+   * rather than allocating it anew. See {@link CapParseContext}.
+   *
+   * @param str the CAP XML to parse, as a UTF-8 string
+   * @param reasons a collection to which to add any non-fatal errors,
+   * warnings or recommendations during parsing
+   * @param context the context to parse with, which must not be in use
+   * by another parse
+   * @return the parsed alert, or null if it does not match the
+   * {@link #setAlertFilter alert filter}
+   * @throws NotCapException if the XML is not CAP XML
+   * @throws SAXParseException on XML parsing error
+   */
+  public final Alert parseFrom(String str, Reasons.Builder reasons,
+      CapParseContext context) throws NotCapException, SAXParseException {
+    return parseFromInternal(new CachedSaxInputSource(str), reasons, context);
+  }
+
+  /**
+   * Parse the given alert, reusing the state held by the given context
+   * rather than allocating it anew. See {@link CapParseContext}.
+   *
+   * @param is the input source to read the CAP XML to parse
+   * @param reasons a collection to which to add any non-fatal errors,
+   * warnings or recommendations during parsing
+   * @param context the context to parse with, which must not be in use
+   * by another parse
+   * @return the parsed alert, or null if it does not match the
+   * {@link #setAlertFilter alert filter}
+   * @throws NotCapException if the XML is not CAP XML
+   * @throws SAXParseException on XML parsing error
+   */
+  public final Alert parseFrom(InputSource is, Reasons.Builder reasons,
+      CapParseContext context) throws NotCapException, SAXParseException {
+    return parseFromInternal(
+        new CachedSaxInputSource(is, limits.getMaxLength()), reasons, context);
+  }
+
+  /**
+   * Parse the given alert in a single pass as it is read, rather than
+   * reading all of it before parsing starts. Use this when the input
+   * arrives slowly, such as over a network, so that parsing overlaps with
+   * reading it and the input is never held in memory in full.
+   *
+   * <p>The alert is validated against the schema for the namespace of its
+   * root element as that element is read, so the reasons are the same as
+   * for {@link #parseFrom(InputSource, Reasons.Builder)}.
+   *
+   * @param is the input source to read the CAP XML to parse
+   * @param reasons a collection to which to add any non-fatal errors,
+   * warnings or recommendations during parsing
+   * @return the parsed alert, or null if it does not match the
+   * {@link #setAlertFilter alert filter}
+   * @throws NotCapException if the XML is not CAP XML
+   * @throws SAXParseException on XML parsing error
+   */
+  public final Alert parseFromStream(InputSource is, Reasons.Builder reasons)
+      throws NotCapException, SAXParseException {
+    return parseFromStreamInternal(is, reasons);
+  }
+
+  /**
+   * Parse only the top-level fields of the given alert, for deciding
+   * where to route it. See {@link #parseEnvelope(InputSource)}.
+   *
+   * @param str the CAP XML to parse, as a UTF-8 string
+   * @return the top-level fields of the alert
+   * @throws CapException if a {@link ParseLimits} limit is exceeded
+   * @throws NotCapException if the XML is not CAP XML
+   * @throws SAXParseException on XML parsing error
+   */
+  public final AlertEnvelope parseEnvelope(String str)
+      throws CapException, NotCapException, SAXParseException {
+    return parseEnvelope(new InputSource(new StringReader(str)));
+  }
+
+  /**
+   * Parse only the top-level fields of the given alert, for deciding
+   * where to route it. Reading stops at the first {@code <info>}, so
+   * typically only the first few hundred bytes of the alert are read.
+   * The alert is not validated against the schema or by
+   * {@link CapValidator}, and the XML after the top-level fields is not
+   * checked to be well-formed; parse the alert in full for that.
+   *
+   * @param is the input source to read the CAP XML to parse
+   * @return the top-level fields of the alert
+   * @throws CapException if a {@link ParseLimits} limit is exceeded
+   * @throws NotCapException if the XML is not CAP XML
+   * @throws SAXParseException on XML parsing error
+   */
+  public final AlertEnvelope parseEnvelope(InputSource is)
+      throws CapException, NotCapException, SAXParseException {
+    ParseLimits limits = this.limits;
+    CapXmlHandler handler = newHandler(limits);
+    handler.setEnvelopeOnly(true);
+    handler.setFieldProjection(FieldProjection.ALL);
+    handler.setAlertFilter(null);
+    parseWithoutSchema(is, handler, limits);
+    return new AlertEnvelope(handler.getPartialAlert());
+  }
+
+  /**
+   * Parse the given alert without validating it, as {@link AlertView}
+   * does to decode its infos.
+   *
+   * @param is the input source to read the CAP XML to parse
+   * @return the parsed alert
+   * @throws CapException if a {@link ParseLimits} limit is exceeded
+   * @throws NotCapException if the XML is not CAP XML
+   * @throws SAXParseException on XML parsing error
+   */
+  Alert parseUnvalidated(InputSource is)
+      throws CapException, NotCapException, SAXParseException {
+    ParseLimits limits = this.limits;
+    CapXmlHandler handler = newHandler(limits);
+    handler.setFieldProjection(FieldProjection.ALL);
+    handler.setAlertFilter(null);
+    parseWithoutSchema(is, handler, limits);
+    return handler.getPartialAlert();
+  }
+
+  private void parseWithoutSchema(InputSource is, CapXmlHandler handler,
+      ParseLimits limits) throws CapException, SAXParseException {
+    XMLReader reader = UNVALIDATED_READER.get();
+    try {
+      if (reader == null) {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        reader = XmlUtil.getXMLReader(factory);
+        UNVALIDATED_READER.set(reader);
+      }
+      reader.setContentHandler(handler);
+      reader.setErrorHandler(handler);
+      reader.parse(new LengthLimitedInputSource(is, limits.getMaxLength()));
+    } catch (EnvelopeCompleteException e) {
+      // Read all the top-level fields of an envelope
+    } catch (ParseAbortedException e) {
+      throw new CapException(handler.getReasons());
+    } catch (LengthLimitExceededException e) {
+      throw new CapException(new Reason("", ReasonType.PARSE_LIMIT_EXCEEDED,
+          "alert", "The length of the input", limits.getMaxLength()));
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } catch (SAXException e) {
+      if (e instanceof SAXParseException) {
+        throw (SAXParseException) e;
+      }
+      throw new RuntimeException(e);
+    } catch (ParserConfigurationException e) {
+      throw new RuntimeException(e);
+    } finally {
+      if (reader != null) {
+        // Do not keep the handler, and the alert it built, reachable
+        reader.setContentHandler(NO_OP_HANDLER);
+        reader.setErrorHandler(NO_OP_HANDLER);
+      }
+    }
   }
 
   private Alert parseFromInternal(CachedSaxInputSource is)
@@ -326,23 +648,159 @@ public class CapXmlParser {
     return alert;
   }
 
+  /**
+   * Parses the given input with a new {@link CapParseContext}.
+   */
   protected Alert parseFromInternal(CachedSaxInputSource is,
       Reasons.Builder reasons) throws NotCapException, SAXParseException {
-    SAXParserFactory factory = SAXParserFactory.newInstance();
-    factory.setNamespaceAware(true);
+    return parseFromInternal(is, reasons, new CapParseContext());
+  }
+
+  /**
+   * Parses the given input with the given context. All the
+   * {@code parseFrom} methods call this method, so subclasses adding to
+   * the parse should override it.
+   */
+  protected Alert parseFromInternal(CachedSaxInputSource is,
+      Reasons.Builder reasons, CapParseContext context)
+      throws NotCapException, SAXParseException {
+    CapMetrics metrics = CapMetrics.get();
+    CapMetrics.Span span = metrics.startSpan(CapMetrics.Stage.PARSE)
+        .setBytes(is.getLength());
+    Reasons.Builder parseReasons = metrics.isEnabled() ? Reasons.newBuilder() : reasons;
+    context.acquire();
+    try {
+      Alert alert = parseFromInternal(is, parseReasons, context, metrics, span);
+      metrics.alertParsed(alert);
+      return alert;
+    } finally {
+      if (parseReasons != reasons) {
+        Reasons built = parseReasons.build();
+        span.setReasons(built);
+        reasons.addAll(built);
+      }
+      span.end();
+      context.release();
+    }
+  }
 
-    CapXmlHandler handler = new CapXmlHandler();
+  private Alert parseFromInternal(CachedSaxInputSource is, Reasons.Builder reasons,
+      CapParseContext context, CapMetrics metrics, CapMetrics.Span parseSpan)
+      throws NotCapException, SAXParseException {
+    ParseLimits limits = this.limits;
+    if (is.exceedsMaxLength() || is.getLength() > limits.getMaxLength()) {
+      reasons.add(new Reason("", ReasonType.PARSE_LIMIT_EXCEEDED,
+          "alert", "The length of the input", limits.getMaxLength()));
+      return Alert.newBuilder().buildPartial();
+    }
+
+    CapXmlHandler handler = configureHandler(context.getHandler(), limits);
+    boolean aborted = false;
+    TimedContentHandler timedHandler = metrics.isEnabled()
+        ? new TimedContentHandler(handler) : null;
     try {
-      String xmlns = getXmlns(is);
+      CapMetrics.Span sniffSpan = metrics.startSpan(CapMetrics.Stage.XMLNS_SNIFF)
+          .setBytes(is.getLength());
+      String xmlns;
+      try {
+        xmlns = getXmlns(is, context);
+      } finally {
+        sniffSpan.end();
+      }
       if (!schemaMap.containsKey(xmlns)) {
         throw new NotCapException("Unsupported xmlns:" + xmlns);
       }
+      parseSpan.setXmlns(xmlns);
       is.reset(); // Reset input streams so we can now parse entire document.
-      factory.setSchema(schemaMap.get(xmlns));
+      CapMetrics.Span schemaSpan = metrics.startSpan(CapMetrics.Stage.SCHEMA_PARSE)
+          .setXmlns(xmlns).setBytes(is.getLength());
+      try {
+        XMLReader reader;
+        if (useCompiledSchema()) {
+          // A reader for no schema, with the handler validating instead
+          reader = context.getReader(null);
+          handler.setCompiledSchema(xmlns);
+        } else {
+          reader = context.getReader(schemaMap.get(xmlns).get());
+        }
+        reader.setContentHandler(timedHandler == null ? handler : timedHandler);
+        reader.setErrorHandler(handler);
+        reader.parse(is);
+      } catch (ParseAbortedException e) {
+        // The reason was added by the handler
+        aborted = true;
+      } catch (AlertFilteredException e) {
+        return null;
+      } finally {
+        schemaSpan.setReasons(handler.getReasons());
+        schemaSpan.end();
+        if (timedHandler != null) {
+          metrics.startSpan(CapMetrics.Stage.HANDLER).setXmlns(xmlns)
+              .end(timedHandler.nanos);
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } catch (SAXException e) {
+      if (e instanceof SAXParseException) {
+        throw (SAXParseException) e;
+      }
+      throw new RuntimeException(e);
+    } catch (ParserConfigurationException e) {
+      throw new RuntimeException(e);
+    }
+    return finishParse(handler, context.getValidator(), aborted, reasons);
+  }
+
+  /**
+   * Parses the given input in a single pass; see {@link #parseFromStream}.
+   * Subclasses that override
+   * {@link #parseFromInternal(CachedSaxInputSource, Reasons.Builder)}
+   * should override this method as well.
+   */
+  protected Alert parseFromStreamInternal(InputSource is,
+      Reasons.Builder reasons) throws NotCapException, SAXParseException {
+    CapMetrics metrics = CapMetrics.get();
+    CapMetrics.Span span = metrics.startSpan(CapMetrics.Stage.PARSE);
+    Reasons.Builder parseReasons = metrics.isEnabled() ? Reasons.newBuilder() : reasons;
+    try {
+      Alert alert = parseFromStream(is, parseReasons, span);
+      metrics.alertParsed(alert);
+      return alert;
+    } finally {
+      if (parseReasons != reasons) {
+        Reasons built = parseReasons.build();
+        span.setReasons(built);
+        reasons.addAll(built);
+      }
+      span.end();
+    }
+  }
+
+  private Alert parseFromStream(InputSource is, Reasons.Builder reasons,
+      CapMetrics.Span parseSpan) throws NotCapException, SAXParseException {
+    ParseLimits limits = this.limits;
+    CapXmlHandler handler = newHandler(limits);
+    SchemaSelectingHandler selector = new SchemaSelectingHandler(handler);
+    LengthLimitedInputSource limited =
+        new LengthLimitedInputSource(is, limits.getMaxLength());
+    boolean aborted = false;
+    try {
+      SAXParserFactory factory = SAXParserFactory.newInstance();
+      factory.setNamespaceAware(true);
       XMLReader reader = XmlUtil.getXMLReader(factory);
-      reader.setContentHandler(handler);
+      reader.setContentHandler(selector);
       reader.setErrorHandler(handler);
-      reader.parse(is);
+      reader.parse(limited);
+    } catch (ParseAbortedException e) {
+      // The reason was added by the handler
+      aborted = true;
+    } catch (AlertFilteredException e) {
+      return null;
+    } catch (LengthLimitExceededException e) {
+      reasons.add(new Reason("", ReasonType.PARSE_LIMIT_EXCEEDED,
+          "alert", "The length of the input", limits.getMaxLength()));
+      aborted = true;
     } catch (IOException e) {
       throw new RuntimeException(e);
     } catch (SAXException e) {
@@ -352,24 +810,41 @@ public class CapXmlParser {
       throw new RuntimeException(e);
     } catch (ParserConfigurationException e) {
       throw new RuntimeException(e);
+    } finally {
+      parseSpan.setXmlns(selector.xmlns).setBytes(limited.getLength());
     }
+    return finishParse(handler, new CapValidator(), aborted, reasons);
+  }
+
+  private CapXmlHandler newHandler(ParseLimits limits) {
+    return configureHandler(new CapXmlHandler(), limits);
+  }
+
+  private CapXmlHandler configureHandler(CapXmlHandler handler, ParseLimits limits) {
+    handler.setPackPolygons(packPolygons);
+    handler.setStringInterner(interner);
+    handler.setParseLimits(limits, System.nanoTime());
+    handler.setFieldProjection(projection);
+    handler.setAlertFilter(filter);
+    return handler;
+  }
+
+  private Alert finishParse(CapXmlHandler handler, CapValidator validator,
+      boolean aborted, Reasons.Builder reasons) {
     reasons.addAll(handler.getReasons());
     
-    Alert alert = handler.getAlert();
+    Alert alert = aborted ? handler.getPartialAlert() : handler.getAlert();
     
-    if (schemaMap != STRICT_SCHEMA_MAP) {
-      reasons.addAll(new CapValidator().validateAlert(alert));
+    if (schemaMap != STRICT_SCHEMA_MAP && !aborted) {
+      reasons.addAll(validator.validateAlert(alert, handler.getFieldProjection()));
     }
     
     return alert;
   }
 
-  private String getXmlns(CachedSaxInputSource is)
+  private String getXmlns(CachedSaxInputSource is, CapParseContext context)
       throws ParserConfigurationException, SAXException, IOException {
-    SAXParserFactory factory = SAXParserFactory.newInstance();
-    factory.setNamespaceAware(true);
-    XMLReader reader = XmlUtil.getXMLReader(factory);
-    reader.setContentHandler(new XmlnsHandler());
+    XMLReader reader = context.getXmlnsReader();
     try {
       reader.parse(is);
     } catch (AbortXmlnsParseException e) {
@@ -388,11 +863,238 @@ public class CapXmlParser {
     private final String xmlns;
 
     public AbortXmlnsParseException(String xmlns) {
-      super(xmlns);
+      // Thrown for every alert parsed, so skip filling in the stack trace
+      super(xmlns, null, false, false);
       this.xmlns = xmlns;
     }
   }
 
+  /**
+   * Exception to break out of the parse routine when a {@link ParseLimits}
+   * limit is exceeded or the parse is cancelled.
+   */
+  static class ParseAbortedException extends RuntimeException {
+    private static final long serialVersionUID = -2271505839402447296L;
+  }
+
+  /**
+   * Exception to break out of the parse routine once an alert cannot match
+   * the {@link AlertFilter}. Thrown for most alerts by some consumers, so
+   * does not fill in its stack trace.
+   */
+  static class AlertFilteredException extends RuntimeException {
+    private static final long serialVersionUID = 2916325427744935102L;
+
+    AlertFilteredException() {
+      super(null, null, false, false);
+    }
+  }
+
+  /**
+   * Exception to break out of the parse routine once the top-level fields
+   * of an alert have been read by {@link #parseEnvelope}.
+   */
+  static class EnvelopeCompleteException extends RuntimeException {
+    private static final long serialVersionUID = -5829470196683154235L;
+  }
+
+  /**
+   * Thrown by a {@link LengthLimitedInputSource} stream read past its
+   * maximum length.
+   */
+  static class LengthLimitExceededException extends IOException {
+    private static final long serialVersionUID = 4387208834011645386L;
+  }
+
+  /**
+   * Wraps the streams of an {@link InputSource} to count what is read from
+   * them, throwing a {@link LengthLimitExceededException} once more than
+   * {@code maxLength} bytes, or characters for a character stream, have
+   * been read.
+   */
+  static class LengthLimitedInputSource extends InputSource {
+    private final long maxLength;
+    private long length = -1;
+
+    LengthLimitedInputSource(InputSource is, final long maxLength) {
+      this.maxLength = maxLength;
+      if (is.getByteStream() != null) {
+        length = 0;
+        setByteStream(new FilterInputStream(is.getByteStream()) {
+          @Override
+          public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+              count(1);
+            }
+            return b;
+          }
+
+          @Override
+          public int read(byte[] b, int off, int len) throws IOException {
+            return count(super.read(b, off, len));
+          }
+        });
+      }
+      if (is.getCharacterStream() != null) {
+        length = 0;
+        setCharacterStream(new FilterReader(is.getCharacterStream()) {
+          @Override
+          public int read() throws IOException {
+            int c = super.read();
+            if (c != -1) {
+              count(1);
+            }
+            return c;
+          }
+
+          @Override
+          public int read(char[] cbuf, int off, int len) throws IOException {
+            return count(super.read(cbuf, off, len));
+          }
+        });
+      }
+      setPublicId(is.getPublicId());
+      setSystemId(is.getSystemId());
+      setEncoding(is.getEncoding());
+    }
+
+    private int count(int read) throws LengthLimitExceededException {
+      if (read > 0) {
+        length += read;
+        if (length > maxLength) {
+          throw new LengthLimitExceededException();
+        }
+      }
+      return read;
+    }
+
+    /**
+     * @return the number of bytes, or characters for a character stream,
+     * read so far; -1 if the source has neither
+     */
+    long getLength() {
+      return length;
+    }
+  }
+
+  /**
+   * Checks that the root element of a document is a CAP {@code <alert>},
+   * then forwards it and the rest of the document to a
+   * {@link ValidatorHandler} for the schema of its namespace, which in turn
+   * forwards them to a {@link CapXmlHandler}, or with
+   * {@link #setCompiledSchemaValidation compiled schema validation}, to the
+   * {@link CapXmlHandler} itself. Lets a document be validated
+   * against the right schema in a single pass, without knowing its
+   * namespace up front.
+   */
+  class SchemaSelectingHandler extends DefaultHandler {
+    private final CapXmlHandler handler;
+    private final List<String[]> prefixMappings = new ArrayList<String[]>();
+    private Locator locator;
+    private ContentHandler target;
+    String xmlns;
+
+    SchemaSelectingHandler(CapXmlHandler handler) {
+      this.handler = handler;
+    }
+
+    @Override
+    public void setDocumentLocator(Locator locator) {
+      this.locator = locator;
+    }
+
+    @Override
+    public void startPrefixMapping(String prefix, String uri)
+        throws SAXException {
+      if (target == null) {
+        prefixMappings.add(new String[] {prefix, uri});
+      } else {
+        target.startPrefixMapping(prefix, uri);
+      }
+    }
+
+    @Override
+    public void endPrefixMapping(String prefix) throws SAXException {
+      if (target != null) {
+        target.endPrefixMapping(prefix);
+      }
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName,
+        Attributes attributes) throws SAXException {
+      if (target == null) {
+        if (!"alert".equals(localName)
+            || !CapValidator.CAP_XML_NAMESPACES.contains(uri)) {
+          throw new NotCapException();
+        }
+        if (!schemaMap.containsKey(uri)) {
+          throw new NotCapException("Unsupported xmlns:" + uri);
+        }
+        xmlns = uri;
+        if (useCompiledSchema()) {
+          if (locator != null) {
+            handler.setDocumentLocator(locator);
+          }
+          handler.setCompiledSchema(uri);
+          target = handler;
+        } else {
+          ValidatorHandler validator =
+              schemaMap.get(uri).get().newValidatorHandler();
+          validator.setContentHandler(handler);
+          validator.setErrorHandler(handler);
+          if (locator != null) {
+            validator.setDocumentLocator(locator);
+          }
+          validator.startDocument();
+          for (String[] mapping : prefixMappings) {
+            validator.startPrefixMapping(mapping[0], mapping[1]);
+          }
+          target = validator;
+        }
+      }
+      target.startElement(uri, localName, qName, attributes);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName)
+        throws SAXException {
+      target.endElement(uri, localName, qName);
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length)
+        throws SAXException {
+      if (target != null) {
+        target.characters(ch, start, length);
+      }
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length)
+        throws SAXException {
+      if (target != null) {
+        target.ignorableWhitespace(ch, start, length);
+      }
+    }
+
+    @Override
+    public void processingInstruction(String target, String data)
+        throws SAXException {
+      if (this.target != null) {
+        this.target.processingInstruction(target, data);
+      }
+    }
+
+    @Override
+    public void endDocument() throws SAXException {
+      if (target != null) {
+        target.endDocument();
+      }
+    }
+  }
+
   /**
    * Simple handler for determining the XML namespace of an alert document,
    * then aborting by throwing an {@link AbortXmlnsParseException}.
@@ -409,33 +1111,231 @@ public class CapXmlParser {
     }
   }
 
+  /**
+   * Forwards the callbacks that build the alert to a {@link CapXmlHandler},
+   * adding up the time spent in them for {@link CapMetrics.Stage#HANDLER}.
+   */
+  static class TimedContentHandler extends DefaultHandler {
+    private final CapXmlHandler handler;
+    long nanos;
+
+    TimedContentHandler(CapXmlHandler handler) {
+      this.handler = handler;
+    }
+
+    @Override
+    public void setDocumentLocator(Locator locator) {
+      handler.setDocumentLocator(locator);
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName,
+        Attributes attributes) {
+      long start = System.nanoTime();
+      try {
+        handler.startElement(uri, localName, qName, attributes);
+      } finally {
+        nanos += System.nanoTime() - start;
+      }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+      long start = System.nanoTime();
+      try {
+        handler.endElement(uri, localName, qName);
+      } finally {
+        nanos += System.nanoTime() - start;
+      }
+    }
+
+    @Override
+    public void characters(char ch[], int start, int length) {
+      long startNanos = System.nanoTime();
+      try {
+        handler.characters(ch, start, length);
+      } finally {
+        nanos += System.nanoTime() - startNanos;
+      }
+    }
+  }
+
   /**
    * SAX handler for parsing CAP XML.
    */
   static class CapXmlHandler extends DefaultHandler {
+    /** Check the deadline every 64 callbacks. */
+    private static final int DEADLINE_CHECK_MASK = 63;
+
     private final StringBuilder characters;
-    private final Stack<Builder> builderStack;
-    private final Stack<String> builderNameStack;
-    private final Reasons.Builder reasons;
+    private final ArrayDeque<Builder> builderStack;
+    private final ArrayDeque<String> builderNameStack;
+    private Reasons.Builder reasons;
     private final XPath xPath;
     private boolean inSignature;
+    private boolean packPolygons;
+    private boolean envelopeOnly;
+    private final ArrayDeque<FieldProjection> projectionStack;
+    /** The depth within a subtree dropped by the projection, or 0. */
+    private int skipDepth;
+    private AlertFilter filter;
+    /** Whether the filter matched the top-level fields of the alert. */
+    private boolean alertMatched;
+    /** Whether the filter matched any info of the alert. */
+    private boolean infoMatched;
+    /** The result of the filter for the info being read. */
+    private AlertFilter.Result infoResult;
+    private StringInterner interner;
+    private ParseLimits limits = ParseLimits.NONE;
+    private long deadlineNanos;
+    private int depth;
+    private int infoCount;
+    private int areaCount;
+    private int callbackCount;
     private Alert.Builder alertBuilder;
     private Alert alert;
+    private final CompiledSchemaValidator schemaValidator;
+    /** Whether the schema validator checks the document. */
+    private boolean compiledSchema;
 
     private String localName;
 
+    /**
+     * The fields found for element names, by the type of message they are
+     * in, kept across documents so each name is converted to a field name
+     * only once.
+     */
+    private final Map<Descriptor, Map<String, FieldDescriptor>> fieldCache =
+        Maps.newHashMap();
+
     public CapXmlHandler() {
       this.characters = new StringBuilder();
-      this.builderStack = new Stack<Builder>();
-      this.builderNameStack = new Stack<String>();
+      this.builderStack = new ArrayDeque<Builder>();
+      this.builderNameStack = new ArrayDeque<String>();
+      this.projectionStack = new ArrayDeque<FieldProjection>();
+      this.projectionStack.push(FieldProjection.ALL);
       this.reasons = Reasons.newBuilder();
       this.xPath = new XPath();
+      this.schemaValidator = new CompiledSchemaValidator(xPath);
+    }
+
+    /**
+     * Forgets the last document parsed and all the settings, keeping the
+     * buffers and stacks, so the handler can parse another document as if
+     * newly created.
+     */
+    void reset() {
+      characters.setLength(0);
+      builderStack.clear();
+      builderNameStack.clear();
+      projectionStack.clear();
+      projectionStack.push(FieldProjection.ALL);
+      reasons = Reasons.newBuilder();
+      xPath.clear();
+      inSignature = false;
+      packPolygons = false;
+      envelopeOnly = false;
+      skipDepth = 0;
+      filter = null;
+      alertMatched = false;
+      infoMatched = false;
+      infoResult = null;
+      interner = null;
+      limits = ParseLimits.NONE;
+      deadlineNanos = 0;
+      depth = 0;
+      infoCount = 0;
+      areaCount = 0;
+      callbackCount = 0;
+      alertBuilder = null;
+      alert = null;
+      compiledSchema = false;
+      schemaValidator.setDocumentLocator(null);
+      localName = null;
+    }
+
+    void setPackPolygons(boolean packPolygons) {
+      this.packPolygons = packPolygons;
+    }
+
+    /**
+     * Validates the document with a {@link CompiledSchemaValidator}, for
+     * parsing without a schema.
+     *
+     * @param xmlns the namespace of the document
+     */
+    void setCompiledSchema(String xmlns) {
+      compiledSchema = true;
+      schemaValidator.reset(xmlns, reasons);
+    }
+
+    @Override
+    public void setDocumentLocator(Locator locator) {
+      schemaValidator.setDocumentLocator(locator);
+    }
+
+    void setStringInterner(StringInterner interner) {
+      this.interner = interner;
+    }
+
+    /**
+     * @param envelopeOnly if true, stop parsing with an
+     * {@link EnvelopeCompleteException} at the first {@code <info>} or
+     * {@code <Signature>} of the alert, which follow all of its top-level
+     * fields
+     */
+    void setEnvelopeOnly(boolean envelopeOnly) {
+      this.envelopeOnly = envelopeOnly;
+    }
+
+    /**
+     * @param projection the fields to keep; no builders are created and no
+     * text is kept for the others
+     */
+    void setFieldProjection(FieldProjection projection) {
+      projectionStack.clear();
+      projectionStack.push(projection);
+    }
+
+    FieldProjection getFieldProjection() {
+      return projectionStack.peekLast();
+    }
+
+    /**
+     * @param filter the filter the alert must match, or null for none; if
+     * it cannot match, parsing stops with an {@link AlertFilteredException}
+     */
+    void setAlertFilter(AlertFilter filter) {
+      this.filter = filter;
+    }
+
+    /**
+     * @param limits the limits to enforce
+     * @param startNanos the {@link System#nanoTime()} the parse started,
+     * from which its deadline is measured
+     */
+    void setParseLimits(ParseLimits limits, long startNanos) {
+      this.limits = limits;
+      this.deadlineNanos = limits.getTimeoutMillis() == 0 ? 0
+          : startNanos + TimeUnit.MILLISECONDS.toNanos(limits.getTimeoutMillis());
     }
 
     public Alert getAlert() {
       return alert;
     }
 
+    /**
+     * @return the alert, or if parsing stopped before the end of the
+     * {@code <alert>}, the top-level fields read so far
+     */
+    Alert getPartialAlert() {
+      if (alert != null) {
+        return alert;
+      }
+      return alertBuilder == null
+          ? Alert.newBuilder().buildPartial() : alertBuilder.buildPartial();
+    }
+
     public Reasons getReasons() {
       return reasons.build();
     }
@@ -463,13 +1363,26 @@ public class CapXmlParser {
     @Override
     public void startElement(String uri, String localName, String qName,
         Attributes attributes) {
+      if (compiledSchema) {
+        schemaValidator.startElement(uri, localName, qName, attributes);
+      }
       this.localName = localName;
       characters.setLength(0);
+      if (++depth > limits.getMaxDepth()) {
+        abortLimitExceeded("The nesting depth", limits.getMaxDepth());
+      }
+      checkCancelled();
 
       // Do not bother parsing components of the digital signature
       if (inSignature) {
         return;
       }
+      // Nor fields dropped by the projection
+      if (skipDepth > 0) {
+        skipDepth++;
+        xPath.push(localName);
+        return;
+      }
 
       FieldDescriptor fd = getField(localName);
       if (builderStack.isEmpty()) {
@@ -483,13 +1396,36 @@ public class CapXmlParser {
         builderStack.push(alertBuilder);
         builderNameStack.push(localName);
         xPath.push("alert");
+      } else if (envelopeOnly && builderStack.size() == 1
+          && ("info".equals(localName) || "Signature".equals(localName))) {
+        throw new EnvelopeCompleteException();
       } else if ("Signature".equals(localName)) {
         inSignature = true;
       } else if (fd != null) {
+        if (filter != null && builderStack.size() == 1 && "info".equals(localName)) {
+          // All the top-level fields precede the infos
+          if (!alertMatched) {
+            filterAlert(true);
+          }
+          infoResult = AlertFilter.Result.UNDECIDED;
+        }
+        FieldProjection projection = projectionStack.peek().getChild(fd);
+        if (projection == null || isInInfoRejectedByFilter()) {
+          // Still track the xpath, for any schema errors within it
+          xPath.push(localName);
+          skipDepth = 1;
+          return;
+        }
+        if ("info".equals(localName) && ++infoCount > limits.getMaxInfos()) {
+          abortLimitExceeded("The number of <info> blocks", limits.getMaxInfos());
+        } else if ("area".equals(localName) && ++areaCount > limits.getMaxAreas()) {
+          abortLimitExceeded("The number of <area> blocks", limits.getMaxAreas());
+        }
         if (fd.getType() == FieldDescriptor.Type.MESSAGE) {
           // Start a new complex child element
           builderStack.push(builderStack.peek().newBuilderForField(fd));
           builderNameStack.push(localName);
+          projectionStack.push(projection);
         }
         xPath.push(localName);
       }
@@ -497,14 +1433,29 @@ public class CapXmlParser {
 
     @Override
     public void endElement(String uri, String localName, String qName) {
+      if (compiledSchema) {
+        String value = schemaValidator.endElement(uri, localName, qName);
+        if (value != null) {
+          // The value Xerces would have passed on instead of the text
+          characters.setLength(0);
+          characters.append(value);
+        }
+      }
       // Do not bother parsing components of the digital signature
       this.localName = localName;
+      depth--;
       if (inSignature) {
         if ("Signature".equals(localName)) {
           inSignature = false;
         }
         return;
       }
+      if (skipDepth > 0) {
+        skipDepth--;
+        xPath.pop();
+        characters.setLength(0);
+        return;
+      }
 
       FieldDescriptor fd = getField(localName);
       if (fd == null) {
@@ -514,6 +1465,14 @@ public class CapXmlParser {
           // tag must be ok
           if (builderStack.size() == 1) {
             // Must be the end of the <alert>
+            if (filter != null) {
+              if (!alertMatched) {
+                filterAlert(true);
+              }
+              if (!infoMatched && filter.requiresMatchingInfo()) {
+                throw new AlertFilteredException();
+              }
+            }
             builderNameStack.pop();
             Builder builder = builderStack.pop();
             if (builder != null) {
@@ -522,11 +1481,15 @@ public class CapXmlParser {
           } else {
             // Must be the end of a complex child element
             builderNameStack.pop();
+            projectionStack.pop();
             Builder finishedBuilder = builderStack.pop();
             fd = getField(localName);
             if (fd != null) {
-              setOrAdd(fd,
-                  getComplexValue(finishedBuilder, characters.toString()));
+              if (filter == null || keepFinishedInfo(finishedBuilder)) {
+                setOrAdd(fd,
+                    getComplexValue(finishedBuilder, characters.toString()));
+                filterField();
+              }
               characters.setLength(0);
               xPath.pop();
             }
@@ -536,15 +1499,107 @@ public class CapXmlParser {
       }
 
       setOrAdd(fd, getPrimitiveValue(fd, characters.toString()));
+      filterField();
       characters.setLength(0);
       if (fd != null) {
         xPath.pop();
       }
     }
 
+    /**
+     * Checks the filter against the alert or info whose field was just
+     * set, unless the filter has already decided it.
+     */
+    private void filterField() {
+      if (filter == null) {
+        return;
+      }
+      if (builderStack.size() == 1) {
+        if (!alertMatched) {
+          filterAlert(false);
+        }
+      } else if (builderStack.size() == 2 && infoResult == AlertFilter.Result.UNDECIDED
+          && builderStack.peek() instanceof Info.Builder) {
+        infoResult = filter.filterInfo((Info.Builder) builderStack.peek(), false);
+      }
+    }
+
+    private void filterAlert(boolean complete) {
+      AlertFilter.Result result = filter.filterAlert(alertBuilder, complete);
+      if (result == AlertFilter.Result.MATCH) {
+        alertMatched = true;
+      } else if (result == AlertFilter.Result.NO_MATCH || complete) {
+        throw new AlertFilteredException();
+      }
+    }
+
+    /**
+     * @return false if the given finished builder is of an info that does
+     * not match the filter, and so should be dropped
+     */
+    private boolean keepFinishedInfo(Builder finishedBuilder) {
+      if (builderStack.size() != 1 || !(finishedBuilder instanceof Info.Builder)) {
+        return true;
+      }
+      if (infoResult == AlertFilter.Result.UNDECIDED) {
+        infoResult = filter.filterInfo((Info.Builder) finishedBuilder, true);
+      }
+      if (infoResult != AlertFilter.Result.MATCH) {
+        return false;
+      }
+      infoMatched = true;
+      return true;
+    }
+
+    /**
+     * @return true if the element being started is a field of an info that
+     * does not match the filter, and so should be skipped
+     */
+    private boolean isInInfoRejectedByFilter() {
+      return filter != null && infoResult == AlertFilter.Result.NO_MATCH
+          && builderStack.size() == 2 && builderStack.peek() instanceof Info.Builder;
+    }
+
     @Override
     public void characters(char ch[], int start, int length) {
+      if (compiledSchema) {
+        schemaValidator.characters(ch, start, length);
+      }
+      if (skipDepth > 0) {
+        checkCancelled();
+        return;
+      }
+      if (characters.length() + length > limits.getMaxTextLength()) {
+        abortLimitExceeded("The length of the text", limits.getMaxTextLength());
+      }
       characters.append(ch, start, length);
+      checkCancelled();
+    }
+
+    /**
+     * Stops parsing if the thread was interrupted or, checking every few
+     * callbacks, if the deadline has passed.
+     */
+    private void checkCancelled() {
+      if (Thread.currentThread().isInterrupted()) {
+        abort(new Reason(xPath.toString(), ReasonType.PARSE_CANCELLED, localName));
+      }
+      if (deadlineNanos != 0
+          && (++callbackCount & DEADLINE_CHECK_MASK) == 0
+          && System.nanoTime() - deadlineNanos > 0) {
+        abort(new Reason(xPath.toString(), ReasonType.PARSE_DEADLINE_EXCEEDED,
+            localName, limits.getTimeoutMillis()));
+      }
+    }
+
+    private void abortLimitExceeded(String what, long limit) {
+      abort(new Reason(xPath.toString(), ReasonType.PARSE_LIMIT_EXCEEDED,
+          localName, what, limit));
+    }
+
+    private void abort(Reason reason) {
+      reasons.add(reason);
+      throw new ParseAbortedException();
     }
 
     void setOrAdd(FieldDescriptor fd, Object value) {
@@ -565,8 +1620,24 @@ public class CapXmlParser {
     }
 
     private FieldDescriptor getField(String localName) {
-      return builderStack.isEmpty() ? null :
-          CapUtil.findFieldByName(builderStack.peek(), localName);
+      if (builderStack.isEmpty()) {
+        return null;
+      }
+      Builder builder = builderStack.peek();
+      Map<String, FieldDescriptor> fields = fieldCache.get(builder.getDescriptorForType());
+      if (fields == null) {
+        fields = Maps.newHashMap();
+        fieldCache.put(builder.getDescriptorForType(), fields);
+      }
+      FieldDescriptor fd = fields.get(localName);
+      if (fd == null) {
+        fd = CapUtil.findFieldByName(builder, localName);
+        // Only the names of fields, so a document cannot grow the cache
+        if (fd != null) {
+          fields.put(localName, fd);
+        }
+      }
+      return fd;
     }
 
     /**
@@ -614,7 +1685,8 @@ public class CapXmlParser {
         case BOOL:
           return Boolean.parseBoolean(val);
         case STRING:
-          return val;
+          return interner != null && interner.isInterned(fd)
+              ? interner.intern(val) : val;
         case FLOAT:
           try {
             return Float.parseFloat(val);
@@ -626,26 +1698,8 @@ public class CapXmlParser {
         case BYTES:
           return ByteString.copyFromUtf8(val);
         case ENUM:
-          // Special-case the only valid space character
-          if ("Very Likely".equals(val)) {
-            val = "VERY_LIKELY";
-          } else if (val != null) {
-            val = CapUtil.underscoreCase(val).toUpperCase();
-          }
-          Descriptors.EnumDescriptor enumType = fd.getEnumType();
-          Descriptors.EnumValueDescriptor evd = enumType.findValueByName(val);
-          if (evd == null) {
-            // Enum values in proto use C++ scoping rules, so 2 enums
-            // of the same message can't have the same name. We work around
-            // this limitation by using the name Value_EnumTypeName
-            evd = enumType.findValueByName(val + "_" +
-                enumType.getName().toUpperCase());
-          }
-          if (evd == null) {
-            // Error will be added by the XSD validation
-            return null;
-          }
-          return evd;
+          // Error will be added by the XSD validation if null
+          return toEnumValue(fd.getEnumType(), val);
         case UINT64:
         case FIXED64:
         case MESSAGE:
@@ -657,6 +1711,30 @@ public class CapXmlParser {
       return null;
     }
 
+    /**
+     * @param enumType the type of the enum
+     * @param val the CAP value of the enum, such as {@code Very Likely}
+     * @return the enum value, or null if there is none with the given name
+     */
+    static Descriptors.EnumValueDescriptor toEnumValue(
+        Descriptors.EnumDescriptor enumType, String val) {
+      // Special-case the only valid space character
+      if ("Very Likely".equals(val)) {
+        val = "VERY_LIKELY";
+      } else if (val != null) {
+        val = CapUtil.underscoreCase(val).toUpperCase();
+      }
+      Descriptors.EnumValueDescriptor evd = enumType.findValueByName(val);
+      if (evd == null) {
+        // Enum values in proto use C++ scoping rules, so 2 enums
+        // of the same message can't have the same name. We work around
+        // this limitation by using the name Value_EnumTypeName
+        evd = enumType.findValueByName(val + "_" +
+            enumType.getName().toUpperCase());
+      }
+      return evd;
+    }
+
     MessageOrBuilder getComplexValue(Builder builder, String str) {
       MessageOrBuilder message;
       if (builder instanceof Polygon.Builder) {
@@ -675,7 +1753,11 @@ public class CapXmlParser {
     }
 
     Polygon toPolygonWithErrors(String str) {
-      Polygon polygon = toPolygon(str);
+      // Each vertex is a comma-separated pair, so count before scanning
+      if (CharMatcher.is(',').countIn(str) > limits.getMaxPolygonVertices()) {
+        abortLimitExceeded("The number of vertices", limits.getMaxPolygonVertices());
+      }
+      Polygon polygon = packPolygons ? toPackedPolygon(str) : toPolygon(str);
       if (polygon == null) {
         // Would like to handle this in the xsd, but the pattern can
         // cause stack overflow if the number of points is large
@@ -685,7 +1767,7 @@ public class CapXmlParser {
             (str.length() > 50) ? str.substring(0, 47) + "..." : str));
         return null;
       }
-      if (polygon.getPointCount() < 4) {
+      if (PolygonView.getPointCount(polygon) < 4) {
         // Would like to handle this in the xsd, but the pattern can
         // cause stack overflow if the number of points is large
         reasons.add(new Reason(
@@ -704,7 +1786,7 @@ public class CapXmlParser {
      * @param str string to parse into a group
      * @return the parsed group
      */
-    Group toGroup(String str) {
+    static Group toGroup(String str) {
       Group.Builder group = Group.newBuilder();
       boolean inQuotes = false;
       boolean lastWasEscape = false;
@@ -0,0 +1,1145 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.publicalerts.cap.CapException.ReasonType;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.xml.XMLConstants;
+import javax.xml.crypto.dsig.XMLSignature;
+
+/**
+ * Validates a CAP document against the rules of the extended schemas,
+ * {@code cap10_extended.xsd}, {@code cap11_extended.xsd} and
+ * {@code cap12_extended.xsd}, compiled by hand into content models and
+ * value checks and run as a state machine on the SAX events of the parse.
+ * See {@link CapXmlParser#setCompiledSchemaValidation}.
+ *
+ * <p>Reports the reasons {@link XercesCapExceptionMapper} makes of the
+ * errors of the Xerces schema validator, with the same types and xpaths,
+ * including the ways Xerces carries on after an error: once the children
+ * of an element are out of sequence, the rest of them are checked only
+ * against the declaration of their name, and an element with no
+ * declaration is not checked at all. Errors in an empty-element tag,
+ * {@code <tag/>}, are reported at the path of its parent, as Xerces checks
+ * the tag before the handler sees it. Like Xerces, the text of an element
+ * is passed on with its whitespace collapsed, for the types that collapse
+ * it, and a {@code <language>} with no text takes its default,
+ * {@code en-US}. Errors Xerces reports
+ * without a more specific type, such as for attributes, are reported as
+ * {@link ReasonType#OTHER} with the Xerces message.
+ *
+ * <p>The {@code xsi} attributes are allowed but not interpreted, and
+ * {@code anyURI} values are checked with {@link URI}, escaped as Xerces
+ * escapes them, rather than with the Xerces URI parser.
+ *
+ * <p>Validating allocates little more than the reasons for a document once
+ * the stacks have grown to its depth. A validator may be reused for any number of
+ * documents, but by only one thread at a time.
+ *
+ * @author agent@local (agent)
+ */
+final class CompiledSchemaValidator {
+  private static final int INITIAL_CAPACITY = 8;
+  private static final int UNBOUNDED = Integer.MAX_VALUE;
+
+  /** Flags for each open element. */
+  private static final int IN_ERROR = 1;
+  private static final int SAW_CHARACTERS = 2;
+  private static final int HAD_CHILDREN = 4;
+
+  private static final Set<String> XSI_ATTRIBUTES = ImmutableSet.of(
+      "type", "nil", "schemaLocation", "noNamespaceSchemaLocation");
+
+  private static final Set<String> DATE_TAGS =
+      ImmutableSet.of("sent", "effective", "onset", "expires");
+
+  private static final Map<String, ReasonType> PATTERN_REASON_TYPES =
+      ImmutableMap.of(
+          "identifier", ReasonType.INVALID_IDENTIFIER,
+          "sender", ReasonType.INVALID_SENDER,
+          "references", ReasonType.INVALID_REFERENCES,
+          "circle", ReasonType.INVALID_CIRCLE);
+
+  private final XPath xPath;
+  private final StringBuilder text = new StringBuilder();
+  private Reasons.Builder reasons;
+  private Locator locator;
+  private String xmlns;
+  private Decl alert;
+
+  /** The declaration, sequence state and flags of each open element. */
+  private Decl[] decls = new Decl[INITIAL_CAPACITY];
+  /** The index of the child declaration last matched, or -1. */
+  private int[] positions = new int[INITIAL_CAPACITY];
+  /** The number of children matched by that declaration. */
+  private int[] counts = new int[INITIAL_CAPACITY];
+  private int[] flags = new int[INITIAL_CAPACITY];
+  /** The length of the xpath before the element started. */
+  private int[] pathLengths = new int[INITIAL_CAPACITY];
+  /** The line and column where the element started. */
+  private int[] lines = new int[INITIAL_CAPACITY];
+  private int[] columns = new int[INITIAL_CAPACITY];
+  /** The value of {@link #lastName} before the element started. */
+  private String[] previousNames = new String[INITIAL_CAPACITY];
+  private int depth;
+
+  /** The depth within a subtree that is not checked, or 0. */
+  private int uncheckedDepth;
+
+  /** The local name of the last element started or ended. */
+  private String lastName;
+
+  /**
+   * @param xPath the path of the element being parsed, kept up to date by
+   * the handler, which pushes an element after this validator has seen it
+   * start and pops it after this validator has seen it end
+   */
+  CompiledSchemaValidator(XPath xPath) {
+    this.xPath = xPath;
+  }
+
+  /**
+   * @param locator the locator of the parse, or null if there is none
+   */
+  void setDocumentLocator(Locator locator) {
+    this.locator = locator;
+  }
+
+  /**
+   * Prepares to validate a new document.
+   *
+   * @param xmlns the namespace of the document, which must be that of a
+   * CAP version
+   * @param reasons the builder to add errors to
+   */
+  void reset(String xmlns, Reasons.Builder reasons) {
+    this.xmlns = xmlns;
+    this.alert = ALERTS.get(xmlns);
+    this.reasons = reasons;
+    Arrays.fill(decls, 0, depth, null);
+    Arrays.fill(previousNames, 0, depth, null);
+    depth = 0;
+    uncheckedDepth = 0;
+    lastName = null;
+    text.setLength(0);
+  }
+
+  void startElement(String uri, String localName, String qName,
+      Attributes attributes) {
+    Decl decl = uncheckedDepth > 0 ? null : findDecl(uri, localName, qName);
+    if (decl == null || decl.name == null) {
+      // Neither undeclared elements nor signatures are checked
+      uncheckedDepth++;
+    } else {
+      checkAttributes(decl, localName, qName, attributes);
+      push(decl);
+    }
+    lastName = localName;
+  }
+
+  void characters(char[] ch, int start, int length) {
+    if (uncheckedDepth > 0 || depth == 0) {
+      return;
+    }
+    int level = depth - 1;
+    Decl decl = decls[level];
+    if (decl.children == null) {
+      if (decl.type != STRING) {
+        text.append(ch, start, length);
+      }
+    } else if ((flags[level] & SAW_CHARACTERS) == 0
+        && !isWhitespace(ch, start, length)) {
+      flags[level] |= SAW_CHARACTERS;
+    }
+  }
+
+  /**
+   * @return the text the handler should use for the element, if not what
+   * was parsed: as Xerces does, the default value of an empty element that
+   * has one, or the value with its whitespace collapsed, for the types that
+   * collapse whitespace; otherwise null
+   */
+  String endElement(String uri, String localName, String qName) {
+    String value = null;
+    if (uncheckedDepth > 0) {
+      uncheckedDepth--;
+    } else {
+      int level = --depth;
+      Decl decl = decls[level];
+      // Xerces checks an empty-element tag, <tag/>, before passing it on,
+      // so reports its errors at the path of its parent, and with the
+      // previous element as the one being parsed
+      String path;
+      String tag;
+      if (isEmptyElementTag(level)) {
+        path = xPath.toString(pathLengths[level]);
+        tag = previousNames[level];
+      } else {
+        path = xPath.toString();
+        tag = lastName;
+      }
+      if (decl.children == null) {
+        value = checkValue(decl, level, path, tag);
+      } else {
+        if ((flags[level] & SAW_CHARACTERS) != 0) {
+          reasons.add(new Reason(path, ReasonType.INVALID_CHARACTERS, qName));
+        }
+        if ((flags[level] & IN_ERROR) == 0 && !isComplete(decl, level)) {
+          reasons.add(new Reason(path, ReasonType.MISSING_REQUIRED_ELEMENT,
+              qName, getExpected(decl, level)));
+        }
+      }
+      decls[level] = null;
+      previousNames[level] = null;
+    }
+    lastName = localName;
+    return value;
+  }
+
+  /**
+   * @return true if the element ended where it started, as only an
+   * empty-element tag does
+   */
+  private boolean isEmptyElementTag(int level) {
+    return locator != null && locator.getLineNumber() == lines[level]
+        && locator.getColumnNumber() == columns[level];
+  }
+
+  /**
+   * @return the declaration to check the element against, or null if it
+   * is not to be checked
+   */
+  private Decl findDecl(String uri, String localName, String qName) {
+    if (depth == 0) {
+      // The handler checks that the root is a CAP <alert>
+      return alert;
+    }
+    int parent = depth - 1;
+    Decl parentDecl = decls[parent];
+    if (parentDecl.children == null) {
+      // An element of simple type can have no children
+      flags[parent] |= HAD_CHILDREN;
+      return null;
+    }
+    if ((flags[parent] & IN_ERROR) == 0) {
+      Decl decl = nextDecl(parentDecl, parent, uri, localName);
+      if (decl != null) {
+        return decl;
+      }
+      reportInvalidContent(parentDecl, parent, localName, qName);
+      flags[parent] |= IN_ERROR;
+    }
+    // Once out of sequence, children are checked against the declaration
+    // of their name, if any
+    for (Decl child : parentDecl.children) {
+      if (matches(child, uri, localName)) {
+        return child;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Advances the sequence of the given parent to the child.
+   *
+   * @return the declaration of the child, or null if it is out of sequence
+   */
+  private Decl nextDecl(Decl parentDecl, int parent, String uri,
+      String localName) {
+    Decl[] children = parentDecl.children;
+    int pos = positions[parent];
+    if (pos >= 0 && counts[parent] < children[pos].maxOccurs
+        && matches(children[pos], uri, localName)) {
+      counts[parent]++;
+      return children[pos];
+    }
+    for (int i = pos + 1; i < children.length; i++) {
+      if (matches(children[i], uri, localName)) {
+        positions[parent] = i;
+        counts[parent] = 1;
+        return children[i];
+      }
+      if (children[i].minOccurs > 0) {
+        break;
+      }
+    }
+    return null;
+  }
+
+  private boolean matches(Decl decl, String uri, String localName) {
+    return decl.name == null
+        ? XMLSignature.XMLNS.equals(uri)
+        : decl.name.equals(localName) && xmlns.equals(uri);
+  }
+
+  /**
+   * @return true if no more children are required after those matched
+   */
+  private boolean isComplete(Decl decl, int level) {
+    for (int i = positions[level] + 1; i < decl.children.length; i++) {
+      if (decl.children[i].minOccurs > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the children that could come next, formatted as Xerces does
+   */
+  private String getExpected(Decl decl, int level) {
+    StringBuilder sb = new StringBuilder("{");
+    int pos = positions[level];
+    if (pos >= 0 && counts[level] < decl.children[pos].maxOccurs) {
+      appendExpected(sb, decl.children[pos]);
+    }
+    for (int i = pos + 1; i < decl.children.length; i++) {
+      appendExpected(sb, decl.children[i]);
+      if (decl.children[i].minOccurs > 0) {
+        break;
+      }
+    }
+    return sb.append('}').toString();
+  }
+
+  private void appendExpected(StringBuilder sb, Decl decl) {
+    if (sb.length() > 1) {
+      sb.append(", ");
+    }
+    if (decl.name == null) {
+      sb.append("WC[\"").append(XMLSignature.XMLNS).append("\"]");
+    } else {
+      sb.append('"').append(xmlns).append("\":").append(decl.name);
+    }
+  }
+
+  /**
+   * Reports a child out of sequence as {@link XercesCapExceptionMapper}
+   * does: as a duplicate if it has the name of the element just seen.
+   */
+  private void reportInvalidContent(Decl parentDecl, int parent,
+      String localName, String qName) {
+    String path = xPath.toString();
+    if (!XercesCapExceptionMapper.isCapTag(localName)) {
+      reasons.add(new Reason(path + '/' + localName + "[1]",
+          ReasonType.UNSUPPORTED_ELEMENT, qName));
+    } else if (localName.equals(lastName)) {
+      reasons.add(new Reason(path + '/' + localName + "[2]",
+          ReasonType.DUPLICATE_ELEMENT, localName, ""));
+    } else {
+      reasons.add(new Reason(path + '/' + localName + "[1]",
+          ReasonType.INVALID_SEQUENCE, getExpected(parentDecl, parent), qName));
+    }
+  }
+
+  private void checkAttributes(Decl decl, String localName, String qName,
+      Attributes attributes) {
+    for (int i = 0; i < attributes.getLength(); i++) {
+      if (XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI.equals(attributes.getURI(i))
+          && XSI_ATTRIBUTES.contains(attributes.getLocalName(i))) {
+        continue;
+      }
+      String message = decl.children == null
+          ? "cvc-type.3.1.1: Element '" + qName + "' is a simple type, so it "
+              + "cannot have attributes, excepting those whose namespace name "
+              + "is identical to '" + XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI
+              + "' and whose [local name] is one of 'type', 'nil', "
+              + "'schemaLocation' or 'noNamespaceSchemaLocation'. However, the "
+              + "attribute, '" + attributes.getQName(i) + "' was found."
+          : "cvc-complex-type.3.2.2: Attribute '" + attributes.getQName(i)
+              + "' is not allowed to appear in element '" + qName + "'.";
+      reasons.add(new Reason(xPath.toString(), ReasonType.OTHER, message,
+          localName, ""));
+    }
+  }
+
+  private void push(Decl decl) {
+    if (depth == decls.length) {
+      int capacity = depth * 2;
+      decls = Arrays.copyOf(decls, capacity);
+      positions = Arrays.copyOf(positions, capacity);
+      counts = Arrays.copyOf(counts, capacity);
+      flags = Arrays.copyOf(flags, capacity);
+      pathLengths = Arrays.copyOf(pathLengths, capacity);
+      lines = Arrays.copyOf(lines, capacity);
+      columns = Arrays.copyOf(columns, capacity);
+      previousNames = Arrays.copyOf(previousNames, capacity);
+    }
+    decls[depth] = decl;
+    positions[depth] = -1;
+    counts[depth] = 0;
+    flags[depth] = 0;
+    pathLengths[depth] = xPath.length();
+    lines[depth] = locator == null ? -1 : locator.getLineNumber();
+    columns[depth] = locator == null ? -1 : locator.getColumnNumber();
+    previousNames[depth] = lastName;
+    depth++;
+    if (decl.children == null) {
+      text.setLength(0);
+    }
+  }
+
+  /**
+   * Checks the text of an element of simple type.
+   *
+   * @return the text the handler should use for the element, or null
+   */
+  private String checkValue(Decl decl, int level, String path, String tag) {
+    CharSequence value = text;
+    String normalized = null;
+    if ((flags[level] & HAD_CHILDREN) != 0) {
+      reasons.add(new Reason(path, ReasonType.INVALID_VALUE, tag, ""));
+      // Xerces then checks the value as if empty
+      value = "";
+    } else if (text.length() == 0 && decl.defaultValue != null) {
+      return decl.defaultValue;
+    } else if (decl.type.collapse && needsCollapse(text)) {
+      normalized = collapse(text);
+      value = normalized;
+    }
+    if (!decl.type.matchesPattern(value)) {
+      reportPatternMismatch(level, path, tag, value.toString());
+    } else if (!decl.type.isValid(value)) {
+      String v = value.toString();
+      if (decl.type instanceof Enumeration) {
+        reasons.add(new Reason(path, ReasonType.INVALID_ENUM_VALUE,
+            tag, v, decl.type.toString()));
+      } else {
+        reasons.add(new Reason(path, DATE_TAGS.contains(tag)
+            ? ReasonType.INVALID_DATE : ReasonType.INVALID_VALUE, tag, v));
+      }
+    }
+    return normalized;
+  }
+
+  /**
+   * Reports a value not matching the pattern of its type as
+   * {@link XercesCapExceptionMapper} does, by the name of the element being
+   * parsed, or failing that, by the name Xerces gives its anonymous type,
+   * which is that of the element followed by those of its ancestors.
+   */
+  private void reportPatternMismatch(int level, String path, String tag,
+      String value) {
+    if (PATTERN_REASON_TYPES.containsKey(tag)) {
+      reasons.add(new Reason(path, PATTERN_REASON_TYPES.get(tag), value));
+    } else if ("polygon".equals(tag)) {
+      reasons.add(new Reason(path, ReasonType.INVALID_POLYGON, value));
+    } else if (DATE_TAGS.contains(tag)) {
+      reasons.add(new Reason(path, ReasonType.INVALID_DATE, tag, value));
+    } else {
+      String typeName = decls[level].name;
+      for (int i = level - 1; i > 0; i--) {
+        typeName += decls[i].name;
+      }
+      ReasonType type = PATTERN_REASON_TYPES.get(typeName);
+      reasons.add(new Reason(path, type == null ? ReasonType.INVALID_VALUE : type,
+          typeName, value));
+    }
+  }
+
+  /** XML whitespace, which is also what {@code \s} matches in XSD. */
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+  }
+
+  /**
+   * @return true if collapsing the whitespace of the value changes it
+   */
+  private static boolean needsCollapse(CharSequence s) {
+    int length = s.length();
+    if (length > 0 && (s.charAt(0) == ' ' || s.charAt(length - 1) == ' ')) {
+      return true;
+    }
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      if (c == '\t' || c == '\n' || c == '\r'
+          || c == ' ' && s.charAt(i - 1) == ' ') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the value with each run of whitespace replaced by a space, and
+   * that at the start and end removed
+   */
+  private static String collapse(CharSequence s) {
+    StringBuilder sb = new StringBuilder(s.length());
+    boolean space = false;
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (isWhitespace(c)) {
+        space = sb.length() > 0;
+      } else {
+        if (space) {
+          sb.append(' ');
+          space = false;
+        }
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  private static boolean isWhitespace(char[] ch, int start, int length) {
+    for (int i = start; i < start + length; i++) {
+      if (!isWhitespace(ch[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isAsciiDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /** An element declaration, or the signature wildcard. */
+  private static final class Decl {
+    /** The local name, or null for the wildcard. */
+    final String name;
+    final int minOccurs;
+    final int maxOccurs;
+    /** The type of an element of simple type; null for a complex type. */
+    final ValueType type;
+    /** The children of a complex type, in sequence; null for a simple type. */
+    final Decl[] children;
+    final String defaultValue;
+
+    Decl(String name, int minOccurs, int maxOccurs, ValueType type,
+        Decl[] children, String defaultValue) {
+      this.name = name;
+      this.minOccurs = minOccurs;
+      this.maxOccurs = maxOccurs;
+      this.type = type;
+      this.children = children;
+      this.defaultValue = defaultValue;
+    }
+  }
+
+  private static Decl simple(String name, int minOccurs, int maxOccurs,
+      ValueType type) {
+    return new Decl(name, minOccurs, maxOccurs, type, null, null);
+  }
+
+  private static Decl complex(String name, int minOccurs, int maxOccurs,
+      Decl... children) {
+    return new Decl(name, minOccurs, maxOccurs, null, children, null);
+  }
+
+  /** The {@code valueName} and {@code value} of CAP 1.1 and later. */
+  private static Decl valuePair(String name) {
+    return complex(name, 0, UNBOUNDED,
+        simple("valueName", 1, 1, STRING),
+        simple("value", 1, 1, STRING));
+  }
+
+  private static Decl buildCap10Alert() {
+    return complex("alert", 1, 1,
+        simple("identifier", 1, 1, IDENTIFIER),
+        simple("sender", 1, 1, IDENTIFIER),
+        simple("sent", 1, 1, DATE_TIME),
+        simple("status", 1, 1,
+            new Enumeration("Actual", "Exercise", "System", "Test")),
+        simple("msgType", 1, 1, MSG_TYPE),
+        simple("password", 0, 1, STRING),
+        simple("source", 0, 1, STRING),
+        simple("scope", 0, 1, SCOPE),
+        simple("restriction", 0, 1, STRING),
+        simple("addresses", 0, 1, STRING),
+        simple("code", 0, UNBOUNDED, STRING),
+        simple("note", 0, 1, STRING),
+        simple("references", 0, 1, CAP10_REFERENCES),
+        simple("incidents", 0, 1, STRING),
+        complex("info", 0, UNBOUNDED,
+            new Decl("language", 0, 1, LANGUAGE, null, "en-US"),
+            simple("category", 0, UNBOUNDED, new Enumeration("Geo", "Met",
+                "Safety", "Security", "Rescue", "Fire", "Health", "Env",
+                "Transport", "Infra", "Other")),
+            simple("event", 1, 1, STRING),
+            simple("urgency", 1, 1, URGENCY),
+            simple("severity", 1, 1, SEVERITY),
+            simple("certainty", 1, 1, new Enumeration(
+                "Very Likely", "Likely", "Possible", "Unlikely", "Unknown")),
+            simple("audience", 0, 1, STRING),
+            simple("eventCode", 0, UNBOUNDED, CAP10_VALUE_PAIR),
+            simple("effective", 0, 1, DATE_TIME),
+            simple("onset", 0, 1, DATE_TIME),
+            simple("expires", 0, 1, DATE_TIME),
+            simple("senderName", 0, 1, STRING),
+            simple("headline", 0, 1, STRING),
+            simple("description", 0, 1, STRING),
+            simple("instruction", 0, 1, STRING),
+            simple("web", 0, 1, ANY_URI),
+            simple("contact", 0, 1, STRING),
+            simple("parameter", 0, UNBOUNDED, CAP10_VALUE_PAIR),
+            complex("resource", 0, UNBOUNDED,
+                simple("resourceDesc", 1, 1, STRING),
+                simple("mimeType", 0, 1, STRING),
+                simple("size", 0, 1, INTEGER),
+                simple("uri", 0, 1, ANY_URI),
+                simple("digest", 0, 1, STRING)),
+            complex("area", 0, UNBOUNDED,
+                simple("areaDesc", 1, 1, STRING),
+                simple("polygon", 0, UNBOUNDED, STRING),
+                simple("circle", 0, UNBOUNDED, CIRCLE),
+                simple("geocode", 0, UNBOUNDED, CAP10_VALUE_PAIR),
+                simple("altitude", 0, 1, NON_NEGATIVE_DECIMAL),
+                simple("ceiling", 0, 1, NON_NEGATIVE_DECIMAL))));
+  }
+
+  /**
+   * CAP 1.2 adds two response types and requires the {@code mimeType} of a
+   * resource, but otherwise has the same schema as CAP 1.1.
+   */
+  private static Decl buildCap11Alert(boolean cap12) {
+    ValueType responseType = cap12
+        ? new Enumeration("Shelter", "Evacuate", "Prepare", "Execute",
+            "Avoid", "Monitor", "Assess", "AllClear", "None")
+        : new Enumeration("Shelter", "Evacuate", "Prepare", "Execute",
+            "Monitor", "Assess", "None");
+    return complex("alert", 1, 1,
+        simple("identifier", 1, 1, IDENTIFIER),
+        simple("sender", 1, 1, IDENTIFIER),
+        simple("sent", 1, 1, DATE_TIME),
+        simple("status", 1, 1, new Enumeration(
+            "Actual", "Exercise", "System", "Test", "Draft")),
+        simple("msgType", 1, 1, MSG_TYPE),
+        simple("source", 0, 1, STRING),
+        simple("scope", 1, 1, SCOPE),
+        simple("restriction", 0, 1, STRING),
+        simple("addresses", 0, 1, STRING),
+        simple("code", 0, UNBOUNDED, STRING),
+        simple("note", 0, 1, STRING),
+        simple("references", 0, 1, REFERENCES),
+        simple("incidents", 0, 1, STRING),
+        complex("info", 0, UNBOUNDED,
+            new Decl("language", 0, 1, LANGUAGE, null, "en-US"),
+            simple("category", 1, UNBOUNDED, new Enumeration("Geo", "Met",
+                "Safety", "Security", "Rescue", "Fire", "Health", "Env",
+                "Transport", "Infra", "CBRNE", "Other")),
+            simple("event", 1, 1, STRING),
+            simple("responseType", 0, UNBOUNDED, responseType),
+            simple("urgency", 1, 1, URGENCY),
+            simple("severity", 1, 1, SEVERITY),
+            simple("certainty", 1, 1, new Enumeration(
+                "Observed", "Likely", "Possible", "Unlikely", "Unknown")),
+            simple("audience", 0, 1, STRING),
+            valuePair("eventCode"),
+            simple("effective", 0, 1, DATE_TIME),
+            simple("onset", 0, 1, DATE_TIME),
+            simple("expires", 0, 1, DATE_TIME),
+            simple("senderName", 0, 1, STRING),
+            simple("headline", 0, 1, STRING),
+            simple("description", 0, 1, STRING),
+            simple("instruction", 0, 1, STRING),
+            simple("web", 0, 1, ANY_URI),
+            simple("contact", 0, 1, STRING),
+            valuePair("parameter"),
+            complex("resource", 0, UNBOUNDED,
+                simple("resourceDesc", 1, 1, STRING),
+                simple("mimeType", cap12 ? 1 : 0, 1, STRING),
+                simple("size", 0, 1, INTEGER),
+                simple("uri", 0, 1, ANY_URI),
+                simple("derefUri", 0, 1, STRING),
+                simple("digest", 0, 1, STRING)),
+            complex("area", 0, UNBOUNDED,
+                simple("areaDesc", 1, 1, STRING),
+                simple("polygon", 0, UNBOUNDED, STRING),
+                simple("circle", 0, UNBOUNDED, CIRCLE),
+                valuePair("geocode"),
+                simple("altitude", 0, 1, NON_NEGATIVE_DECIMAL),
+                simple("ceiling", 0, 1, NON_NEGATIVE_DECIMAL))),
+        new Decl(null, 0, UNBOUNDED, null, null, null));
+  }
+
+  /**
+   * The type of the text of an element of simple type. As Xerces does, a
+   * value is checked against the pattern of its type, if any, and then
+   * checked to be valid.
+   */
+  private abstract static class ValueType {
+    /** Whether whitespace is collapsed before the value is checked. */
+    final boolean collapse;
+
+    ValueType() {
+      this(false);
+    }
+
+    ValueType(boolean collapse) {
+      this.collapse = collapse;
+    }
+
+    boolean matchesPattern(CharSequence value) {
+      return true;
+    }
+
+    boolean isValid(CharSequence value) {
+      return true;
+    }
+  }
+
+  /** An {@code xs:string} with no restrictions. */
+  private static final ValueType STRING = new ValueType() {};
+
+  /** An enumeration of {@code xs:string}, whose whitespace is kept. */
+  private static final class Enumeration extends ValueType {
+    private final String[] values;
+
+    Enumeration(String... values) {
+      this.values = values;
+    }
+
+    @Override
+    boolean isValid(CharSequence value) {
+      for (String v : values) {
+        if (v.contentEquals(value)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /** Formats the values as Xerces does in its message. */
+    @Override
+    public String toString() {
+      return Arrays.toString(values);
+    }
+  }
+
+  private static final ValueType MSG_TYPE =
+      new Enumeration("Alert", "Update", "Cancel", "Ack", "Error");
+  private static final ValueType SCOPE =
+      new Enumeration("Public", "Restricted", "Private");
+  private static final ValueType URGENCY = new Enumeration(
+      "Immediate", "Expected", "Future", "Past", "Unknown");
+  private static final ValueType SEVERITY = new Enumeration(
+      "Extreme", "Severe", "Moderate", "Minor", "Unknown");
+
+  /** The pattern {@code [^\s,&<]+} of identifier and sender. */
+  private static final ValueType IDENTIFIER = new ValueType() {
+    @Override
+    boolean matchesPattern(CharSequence value) {
+      return isIdentifier(value, 0, value.length());
+    }
+  };
+
+  private static boolean isIdentifier(CharSequence s, int start, int end) {
+    if (start >= end) {
+      return false;
+    }
+    for (int i = start; i < end; i++) {
+      char c = s.charAt(i);
+      if (isWhitespace(c) || c == ',' || c == '&' || c == '<') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * An {@code xs:dateTime} restricted to the pattern
+   * {@code \d\d\d\d-\d\d-\d\dT\d\d:\d\d:\d\d[-,+]\d\d:\d\d}. Only ASCII
+   * digits and the {@code -} and {@code +} of the pattern are valid in a
+   * dateTime.
+   */
+  private static final ValueType DATE_TIME = new ValueType(true) {
+    @Override
+    boolean matchesPattern(CharSequence value) {
+      int start = trimStart(value);
+      return isDatePattern(value, start, trimEnd(value, start));
+    }
+
+    @Override
+    boolean isValid(CharSequence value) {
+      int start = trimStart(value);
+      if (value.charAt(start + 19) == ',') {
+        return false;
+      }
+      for (int i = start; i < start + 25; i++) {
+        char c = value.charAt(i);
+        if (Character.isDigit(c) && !isAsciiDigit(c)) {
+          return false;
+        }
+      }
+      int year = number(value, start, 4);
+      int month = number(value, start + 5, 2);
+      int day = number(value, start + 8, 2);
+      int hour = number(value, start + 11, 2);
+      int minute = number(value, start + 14, 2);
+      int second = number(value, start + 17, 2);
+      int zoneHour = number(value, start + 20, 2);
+      int zoneMinute = number(value, start + 23, 2);
+      return year != 0 && month >= 1 && month <= 12
+          && day >= 1 && day <= maxDay(year, month)
+          && (hour < 24 || hour == 24 && minute == 0 && second == 0)
+          && minute < 60 && second < 60
+          && (zoneHour < 14 || zoneHour == 14 && zoneMinute == 0)
+          && zoneMinute < 60;
+    }
+  };
+
+  /**
+   * @return true if the characters match the CAP date pattern, in which
+   * {@code \d} is any decimal digit
+   */
+  private static boolean isDatePattern(CharSequence s, int start, int end) {
+    if (end - start != 25) {
+      return false;
+    }
+    for (int i = 0; i < 25; i++) {
+      char c = s.charAt(start + i);
+      boolean valid;
+      switch (i) {
+        case 4: case 7:
+          valid = c == '-';
+          break;
+        case 10:
+          valid = c == 'T';
+          break;
+        case 13: case 16: case 22:
+          valid = c == ':';
+          break;
+        case 19:
+          valid = c == '-' || c == ',' || c == '+';
+          break;
+        default:
+          valid = Character.isDigit(c);
+      }
+      if (!valid) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int number(CharSequence s, int start, int length) {
+    int n = 0;
+    for (int i = start; i < start + length; i++) {
+      n = n * 10 + s.charAt(i) - '0';
+    }
+    return n;
+  }
+
+  private static int maxDay(int year, int month) {
+    switch (month) {
+      case 2:
+        return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+      case 4: case 6: case 9: case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+
+  /**
+   * The CAP 1.1 and 1.2 pattern of whitespace-separated
+   * {@code sender,identifier,sent} triplets, checked by hand as the regular
+   * expression overflows the stack on long values.
+   */
+  private static final ValueType REFERENCES = new ValueType() {
+    @Override
+    boolean matchesPattern(CharSequence value) {
+      int count = 0;
+      int end = value.length();
+      int i = 0;
+      while (true) {
+        while (i < end && isWhitespace(value.charAt(i))) {
+          i++;
+        }
+        if (i == end) {
+          return count > 0;
+        }
+        int tokenStart = i;
+        while (i < end && !isWhitespace(value.charAt(i))) {
+          i++;
+        }
+        if (!isReference(value, tokenStart, i)) {
+          return false;
+        }
+        count++;
+      }
+    }
+  };
+
+  private static boolean isReference(CharSequence s, int start, int end) {
+    int comma1 = indexOf(s, ',', start, end);
+    int comma2 = comma1 < 0 ? -1 : indexOf(s, ',', comma1 + 1, end);
+    return comma2 >= 0 && isIdentifier(s, start, comma1)
+        && isIdentifier(s, comma1 + 1, comma2)
+        && isDatePattern(s, comma2 + 1, end);
+  }
+
+  /**
+   * The CAP 1.0 pattern of whitespace-separated {@code sender/identifier}
+   * pairs, each part of which may itself contain {@code /}.
+   */
+  private static final ValueType CAP10_REFERENCES = new ValueType() {
+    @Override
+    boolean matchesPattern(CharSequence value) {
+      int count = 0;
+      int end = value.length();
+      int i = 0;
+      while (true) {
+        while (i < end && isWhitespace(value.charAt(i))) {
+          i++;
+        }
+        if (i == end) {
+          return count > 0;
+        }
+        int tokenStart = i;
+        while (i < end && !isWhitespace(value.charAt(i))) {
+          i++;
+        }
+        if (!isIdentifier(value, tokenStart, i)
+            || !containsInside(value, '/', tokenStart, i)) {
+          return false;
+        }
+        count++;
+      }
+    }
+  };
+
+  /**
+   * The CAP 1.0 pattern {@code \s*[^\s]+=[^\s]+\s*} of eventCode, parameter
+   * and geocode.
+   */
+  private static final ValueType CAP10_VALUE_PAIR = new ValueType() {
+    @Override
+    boolean matchesPattern(CharSequence value) {
+      int start = trimStart(value);
+      int end = trimEnd(value, start);
+      for (int i = start; i < end; i++) {
+        if (isWhitespace(value.charAt(i))) {
+          return false;
+        }
+      }
+      return containsInside(value, '=', start, end);
+    }
+  };
+
+  /**
+   * @return true if the character is in the given range, but neither first
+   * nor last
+   */
+  private static boolean containsInside(CharSequence s, char c, int start,
+      int end) {
+    return indexOf(s, c, start + 1, end - 1) >= 0;
+  }
+
+  private static int indexOf(CharSequence s, char c, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (s.charAt(i) == c) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** In XSD, {@code \d} is any decimal digit, and {@code \s} XML whitespace. */
+  private static final Pattern CIRCLE_PATTERN = Pattern.compile(
+      "[ \\t\\n\\r]*[+-]?\\p{Nd}{0,2}[.]?\\p{Nd}*,[+-]?\\p{Nd}{0,3}[.]?\\p{Nd}*"
+      + "[ \\t\\n\\r][+]?\\p{Nd}*[.]?\\p{Nd}*[ \\t\\n\\r]*");
+
+  private static final ValueType CIRCLE = new ValueType() {
+    @Override
+    boolean matchesPattern(CharSequence value) {
+      return CIRCLE_PATTERN.matcher(value).matches();
+    }
+  };
+
+  /**
+   * An {@code xs:decimal} restricted to the pattern
+   * {@code [+]?\d*[.]?\d*}. Only ASCII digits are valid in a decimal, and
+   * there must be at least one.
+   */
+  private static final ValueType NON_NEGATIVE_DECIMAL = new ValueType(true) {
+    @Override
+    boolean matchesPattern(CharSequence value) {
+      int start = trimStart(value);
+      int end = trimEnd(value, start);
+      int i = start;
+      if (i < end && value.charAt(i) == '+') {
+        i++;
+      }
+      boolean point = false;
+      for (; i < end; i++) {
+        char c = value.charAt(i);
+        if (c == '.' && !point) {
+          point = true;
+        } else if (!Character.isDigit(c)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    boolean isValid(CharSequence value) {
+      int start = trimStart(value);
+      int end = trimEnd(value, start);
+      boolean digits = false;
+      for (int i = start; i < end; i++) {
+        char c = value.charAt(i);
+        if (Character.isDigit(c)) {
+          if (!isAsciiDigit(c)) {
+            return false;
+          }
+          digits = true;
+        }
+      }
+      return digits;
+    }
+  };
+
+  /** An {@code xs:integer}. */
+  private static final ValueType INTEGER = new ValueType(true) {
+    @Override
+    boolean isValid(CharSequence value) {
+      int start = trimStart(value);
+      int end = trimEnd(value, start);
+      int i = start;
+      if (i < end && (value.charAt(i) == '+' || value.charAt(i) == '-')) {
+        i++;
+      }
+      if (i == end) {
+        return false;
+      }
+      for (; i < end; i++) {
+        if (!isAsciiDigit(value.charAt(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+  };
+
+  /** An {@code xs:language}: {@code [a-zA-Z]{1,8}(-[a-zA-Z0-9]{1,8})*}. */
+  private static final ValueType LANGUAGE = new ValueType(true) {
+    @Override
+    boolean isValid(CharSequence value) {
+      int start = trimStart(value);
+      int end = trimEnd(value, start);
+      int partLength = 0;
+      boolean first = true;
+      for (int i = start; i < end; i++) {
+        char c = value.charAt(i);
+        if (c == '-') {
+          if (partLength == 0) {
+            return false;
+          }
+          partLength = 0;
+          first = false;
+        } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+            || (!first && isAsciiDigit(c))) {
+          if (++partLength > 8) {
+            return false;
+          }
+        } else {
+          return false;
+        }
+      }
+      return partLength > 0;
+    }
+  };
+
+  /**
+   * An {@code xs:anyURI}, which Xerces checks by escaping the characters
+   * not allowed in URIs, then parsing it as an absolute or relative URI.
+   */
+  private static final ValueType ANY_URI = new ValueType(true) {
+    @Override
+    boolean isValid(CharSequence value) {
+      int start = trimStart(value);
+      int end = trimEnd(value, start);
+      if (start == end) {
+        return true;
+      }
+      try {
+        new URI(escapeUri(value.subSequence(start, end).toString()));
+        return true;
+      } catch (URISyntaxException e) {
+        return false;
+      }
+    }
+  };
+
+  private static final String URI_CHARACTERS_TO_ESCAPE = " <>\"{}|\\^`";
+
+  private static String escapeUri(String uri) {
+    StringBuilder sb = new StringBuilder(uri.length());
+    for (int i = 0; i < uri.length(); i++) {
+      char c = uri.charAt(i);
+      if (c >= 0x80) {
+        try {
+          for (byte b : uri.substring(i, i + 1).getBytes("UTF-8")) {
+            appendEscaped(sb, b & 0xff);
+          }
+        } catch (UnsupportedEncodingException e) {
+          throw new AssertionError(e);
+        }
+      } else if (c < 0x20 || c == 0x7f || URI_CHARACTERS_TO_ESCAPE.indexOf(c) >= 0) {
+        appendEscaped(sb, c);
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  private static void appendEscaped(StringBuilder sb, int b) {
+    sb.append('%').append(Character.toUpperCase(Character.forDigit(b >> 4, 16)))
+        .append(Character.toUpperCase(Character.forDigit(b & 0xf, 16)));
+  }
+
+  /** Whitespace is collapsed before checking all but string values. */
+  private static int trimStart(CharSequence s) {
+    int start = 0;
+    while (start < s.length() && isWhitespace(s.charAt(start))) {
+      start++;
+    }
+    return start;
+  }
+
+  private static int trimEnd(CharSequence s, int start) {
+    int end = s.length();
+    while (end > start && isWhitespace(s.charAt(end - 1))) {
+      end--;
+    }
+    return end;
+  }
+
+  // Last, as the declarations refer to the value types above
+  private static final Map<String, Decl> ALERTS = ImmutableMap.of(
+      CapValidator.CAP10_XMLNS, buildCap10Alert(),
+      CapValidator.CAP11_XMLNS, buildCap11Alert(false),
+      CapValidator.CAP12_XMLNS, buildCap11Alert(true));
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap;
+
+import java.util.Arrays;
+
+/**
+ * Scans the coordinate strings of CAP polygons and circles in a single pass,
+ * parsing doubles in place into a growable primitive buffer.
+ *
+ * <p>Accepts exactly the strings the {@code String.split}-based parsing it
+ * replaces did: points are separated by runs of whitespace, the two values
+ * of a point are separated by a comma (trailing commas are ignored), and
+ * each value is anything {@link Double#parseDouble(String)} accepts. Plain
+ * decimal values take a fast path; anything else falls back to
+ * {@code Double.parseDouble}.
+ *
+ * @author agent@local (agent)
+ */
+final class CoordinateScanner {
+  private static final int INITIAL_CAPACITY = 16;
+
+  /** Powers of ten that are exactly representable as doubles. */
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+  /** Largest mantissa that converts to a double without rounding. */
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  private final CharSequence chars;
+  private int start;
+  private int end;
+  private double[] buffer;
+  private int size;
+
+  private CoordinateScanner(CharSequence chars) {
+    this.chars = chars;
+    this.end = chars.length();
+    // Leading and trailing control characters are ignored, like String.trim
+    while (start < end && chars.charAt(start) <= ' ') {
+      start++;
+    }
+    while (end > start && chars.charAt(end - 1) <= ' ') {
+      end--;
+    }
+  }
+
+  /**
+   * Parses a polygon string into alternating latitude and longitude values.
+   *
+   * @param str a space-separated list of comma-separated coordinate pairs
+   * @return the coordinates, or null if the string is null, empty, or
+   * malformed
+   */
+  static double[] scanPolygon(CharSequence str) {
+    if (str == null) {
+      return null;
+    }
+    CoordinateScanner scanner = new CoordinateScanner(str);
+    if (scanner.start == scanner.end) {
+      return null;
+    }
+    scanner.buffer = new double[INITIAL_CAPACITY];
+    int pos = scanner.start;
+    while (pos < scanner.end) {
+      int tokenEnd = scanner.tokenEnd(pos);
+      if (!scanner.scanPoint(pos, tokenEnd)) {
+        return null;
+      }
+      pos = scanner.skipWhitespace(tokenEnd);
+    }
+    return scanner.size == scanner.buffer.length
+        ? scanner.buffer : Arrays.copyOf(scanner.buffer, scanner.size);
+  }
+
+  /**
+   * Parses a circle string.
+   *
+   * @param str a comma-separated coordinate pair, whitespace, and a radius
+   * @return the circle, or null if the string is null or malformed
+   */
+  static Circle scanCircle(CharSequence str) {
+    if (str == null) {
+      return null;
+    }
+    CoordinateScanner scanner = new CoordinateScanner(str);
+    if (scanner.start == scanner.end) {
+      return null;
+    }
+    scanner.buffer = new double[2];
+    int pointEnd = scanner.tokenEnd(scanner.start);
+    int radiusStart = scanner.skipWhitespace(pointEnd);
+    if (radiusStart == scanner.end
+        || scanner.tokenEnd(radiusStart) != scanner.end
+        || !scanner.scanPoint(scanner.start, pointEnd)) {
+      return null;
+    }
+    float radius;
+    try {
+      radius = Float.parseFloat(
+          str.subSequence(radiusStart, scanner.end).toString());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    return Circle.newBuilder()
+        .setPoint(Point.newBuilder()
+            .setLatitude(scanner.buffer[0])
+            .setLongitude(scanner.buffer[1])
+            .buildPartial())
+        .setRadius(radius)
+        .buildPartial();
+  }
+
+  /**
+   * Parses a single comma-separated coordinate pair. Unlike the polygon and
+   * circle forms, whitespace around each value is allowed.
+   *
+   * @param str the coordinate pair
+   * @return the latitude and longitude, or null if the string is malformed
+   */
+  static double[] scanPoint(CharSequence str) {
+    CoordinateScanner scanner = new CoordinateScanner(str);
+    scanner.buffer = new double[2];
+    return scanner.scanPoint(0, str.length()) ? scanner.buffer : null;
+  }
+
+  /**
+   * Parses the coordinate pair in {@code [from, to)} into the buffer.
+   * Returns false if it is malformed.
+   */
+  private boolean scanPoint(int from, int to) {
+    int comma = indexOfComma(from, to);
+    if (comma == to) {
+      return false;
+    }
+    int secondComma = indexOfComma(comma + 1, to);
+    for (int i = secondComma; i < to; i++) {
+      if (chars.charAt(i) != ',') {
+        return false;
+      }
+    }
+    if (size + 2 > buffer.length) {
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    }
+    return parseDouble(from, comma) && parseDouble(comma + 1, secondComma);
+  }
+
+  /**
+   * Parses the double in {@code [from, to)} and appends it to the buffer.
+   * Returns false if it is malformed.
+   */
+  private boolean parseDouble(int from, int to) {
+    int i = from;
+    boolean negative = false;
+    if (i < to && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+      negative = chars.charAt(i) == '-';
+      i++;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int fractionDigits = -1;
+    for (; i < to; i++) {
+      char c = chars.charAt(i);
+      if (c >= '0' && c <= '9') {
+        if (mantissa == 0 && c == '0') {
+          // Leading zeros don't count towards the precision limit
+          if (fractionDigits >= 0) {
+            fractionDigits++;
+          }
+          digits = Math.max(digits, 1);
+          continue;
+        }
+        mantissa = mantissa * 10 + (c - '0');
+        if (fractionDigits >= 0) {
+          fractionDigits++;
+        }
+        if (++digits > 18) {
+          break;
+        }
+      } else if (c == '.' && fractionDigits < 0) {
+        fractionDigits = 0;
+      } else {
+        break;
+      }
+    }
+    if (i == to && digits > 0 && mantissa <= MAX_EXACT_MANTISSA
+        && fractionDigits < POWERS_OF_TEN.length) {
+      // Both the mantissa and the power of ten are exact, so a single
+      // division is correctly rounded
+      double value = fractionDigits > 0
+          ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+      buffer[size++] = negative ? -value : value;
+      return true;
+    }
+    double value;
+    try {
+      value = Double.parseDouble(chars.subSequence(from, to).toString());
+    } catch (NumberFormatException e) {
+      return false;
+    }
+    buffer[size++] = value;
+    return true;
+  }
+
+  private int indexOfComma(int from, int to) {
+    while (from < to && chars.charAt(from) != ',') {
+      from++;
+    }
+    return from;
+  }
+
+  private int tokenEnd(int pos) {
+    while (pos < end && !isWhitespace(chars.charAt(pos))) {
+      pos++;
+    }
+    return pos;
+  }
+
+  private int skipWhitespace(int pos) {
+    while (pos < end && isWhitespace(chars.charAt(pos))) {
+      pos++;
+    }
+    return pos;
+  }
+
+  /** The characters matched by {@code \s} in a regular expression. */
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B'
+        || c == '\f' || c == '\r';
+  }
+}
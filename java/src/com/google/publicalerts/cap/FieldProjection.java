@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The fields of an {@link Alert} to keep when parsing, in the manner of a
+ * protocol buffer {@code FieldMask}, for consumers that need only a few of
+ * them. See {@link CapXmlParser#setFieldProjection}.
+ *
+ * <p>A projection is a set of dot-separated paths of field names from
+ * {@link Alert}, such as {@code info.event} or {@code info.area.geocode}.
+ * Names may be given as in the proto ({@code sender_name}) or as in the
+ * XML ({@code senderName}). A path keeps its field and everything under
+ * it, along with the messages on the way to it, but none of their other
+ * fields. The {@code xmlns} of the alert is always kept.
+ *
+ * <p>Fields parsed from the text of a single element, such as
+ * {@code polygon} and {@code references}, are kept or dropped as a whole.
+ *
+ * <p>Instances are immutable.
+ *
+ * @author agent@local (agent)
+ */
+public final class FieldProjection {
+  private static final Splitter PATH_SPLITTER = Splitter.on('.');
+
+  /** Keeps every field. */
+  public static final FieldProjection ALL = new FieldProjection(null);
+
+  /**
+   * The kept fields and the projections of their values, or null if every
+   * field is kept.
+   */
+  private final Map<FieldDescriptor, FieldProjection> fields;
+
+  private FieldProjection(Map<FieldDescriptor, FieldProjection> fields) {
+    this.fields = fields;
+  }
+
+  /**
+   * @param paths the paths of the fields to keep
+   * @return a projection keeping the given fields
+   * @throws IllegalArgumentException if a path does not name a field of
+   * {@link Alert}
+   */
+  public static FieldProjection of(String... paths) {
+    return of(Arrays.asList(paths));
+  }
+
+  /**
+   * @param paths the paths of the fields to keep
+   * @return a projection keeping the given fields
+   * @throws IllegalArgumentException if a path does not name a field of
+   * {@link Alert}
+   */
+  public static FieldProjection of(Iterable<String> paths) {
+    Node root = new Node();
+    for (String path : paths) {
+      Node node = root;
+      Descriptor type = Alert.getDescriptor();
+      for (String name : PATH_SPLITTER.split(path)) {
+        if (type == null) {
+          throw new IllegalArgumentException(
+              "Path " + path + " continues past a field with no fields");
+        }
+        FieldDescriptor fd = findField(type, name);
+        if (fd == null) {
+          throw new IllegalArgumentException(
+              "No field " + name + " in " + type.getName() + " for path " + path);
+        }
+        type = fd.getType() == FieldDescriptor.Type.MESSAGE ? fd.getMessageType() : null;
+        if (node != null && !node.all) {
+          Node child = node.children.get(fd);
+          if (child == null) {
+            child = new Node();
+            node.children.put(fd, child);
+          }
+          node = child;
+        } else {
+          // Already kept by a shorter path
+          node = null;
+        }
+      }
+      if (node != null) {
+        node.all = true;
+        node.children.clear();
+      }
+    }
+    return root.toProjection();
+  }
+
+  private static FieldDescriptor findField(Descriptor type, String name) {
+    return type.findFieldByName(CapUtil.underscoreCase(name).toLowerCase());
+  }
+
+  /**
+   * @return true if this projection keeps every field
+   */
+  public boolean includesAll() {
+    return fields == null;
+  }
+
+  /**
+   * @param path the dot-separated path of a field of {@link Alert}
+   * @return true if the field is kept, whether by name or because a field
+   * containing it is kept
+   */
+  public boolean includes(String path) {
+    FieldProjection projection = this;
+    Descriptor type = Alert.getDescriptor();
+    for (String name : PATH_SPLITTER.split(path)) {
+      if (projection.fields == null) {
+        return true;
+      }
+      FieldDescriptor fd = type == null ? null : findField(type, name);
+      if (fd == null) {
+        return false;
+      }
+      projection = projection.fields.get(fd);
+      if (projection == null) {
+        return false;
+      }
+      type = fd.getType() == FieldDescriptor.Type.MESSAGE ? fd.getMessageType() : null;
+    }
+    return true;
+  }
+
+  /**
+   * @param fd a field of the message this projection applies to
+   * @return the projection of the field's value, or null if the field is
+   * not kept
+   */
+  FieldProjection getChild(FieldDescriptor fd) {
+    return fields == null ? this : fields.get(fd);
+  }
+
+  @Override
+  public String toString() {
+    if (fields == null) {
+      return "FieldProjection[*]";
+    }
+    List<String> paths = Lists.newArrayList();
+    addPaths("", paths);
+    return "FieldProjection[" + Joiner.on(", ").join(paths) + "]";
+  }
+
+  private void addPaths(String prefix, List<String> paths) {
+    for (Map.Entry<FieldDescriptor, FieldProjection> entry : fields.entrySet()) {
+      String path = prefix + entry.getKey().getName();
+      if (entry.getValue().fields == null) {
+        paths.add(path);
+      } else {
+        entry.getValue().addPaths(path + ".", paths);
+      }
+    }
+  }
+
+  /** Mutable tree of paths, built into a projection. */
+  private static class Node {
+    final Map<FieldDescriptor, Node> children = Maps.newLinkedHashMap();
+    boolean all;
+
+    FieldProjection toProjection() {
+      if (all) {
+        return ALL;
+      }
+      ImmutableMap.Builder<FieldDescriptor, FieldProjection> fields =
+          ImmutableMap.builder();
+      for (Map.Entry<FieldDescriptor, Node> entry : children.entrySet()) {
+        fields.put(entry.getKey(), entry.getValue().toProjection());
+      }
+      return new FieldProjection(fields.build());
+    }
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Limits on the resources {@link CapXmlParser} spends on a single alert,
+ * so that hostile or broken input cannot pin a thread.
+ *
+ * <p>Limits are checked as the alert is read. When one is exceeded, parsing
+ * stops and a {@link CapException.ReasonType#PARSE_LIMIT_EXCEEDED} or
+ * {@link CapException.ReasonType#PARSE_DEADLINE_EXCEEDED} error is added to
+ * the reasons, rather than an exception thrown; the alert returned has the
+ * fields read so far.
+ *
+ * <p>Instances are immutable; use {@link #newBuilder()} to create one.
+ *
+ * @author agent@local (agent)
+ */
+public final class ParseLimits {
+  /** No limits. */
+  public static final ParseLimits NONE = newBuilder().build();
+
+  /**
+   * Limits far above any real alert: 16MB of input, elements nested 64
+   * deep, 4M characters of text in an element, 1000 infos, 10,000 areas,
+   * and 1,000,000 vertices in a polygon. No deadline.
+   */
+  public static final ParseLimits DEFAULT = newBuilder()
+      .setMaxLength(16 * 1024 * 1024)
+      .setMaxDepth(64)
+      .setMaxTextLength(4 * 1024 * 1024)
+      .setMaxInfos(1000)
+      .setMaxAreas(10000)
+      .setMaxPolygonVertices(1000000)
+      .build();
+
+  private final long maxLength;
+  private final int maxDepth;
+  private final int maxTextLength;
+  private final int maxInfos;
+  private final int maxAreas;
+  private final int maxPolygonVertices;
+  private final long timeoutMillis;
+
+  private ParseLimits(Builder builder) {
+    this.maxLength = builder.maxLength;
+    this.maxDepth = builder.maxDepth;
+    this.maxTextLength = builder.maxTextLength;
+    this.maxInfos = builder.maxInfos;
+    this.maxAreas = builder.maxAreas;
+    this.maxPolygonVertices = builder.maxPolygonVertices;
+    this.timeoutMillis = builder.timeoutMillis;
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * @return a builder initialized with these limits
+   */
+  public Builder toBuilder() {
+    return new Builder()
+        .setMaxLength(maxLength)
+        .setMaxDepth(maxDepth)
+        .setMaxTextLength(maxTextLength)
+        .setMaxInfos(maxInfos)
+        .setMaxAreas(maxAreas)
+        .setMaxPolygonVertices(maxPolygonVertices)
+        .setTimeoutMillis(timeoutMillis);
+  }
+
+  /**
+   * @return the maximum length of the input, in bytes, or characters for
+   * character input
+   */
+  public long getMaxLength() {
+    return maxLength;
+  }
+
+  /**
+   * @return the maximum depth of nested elements, counting {@code <alert>}
+   * as 1
+   */
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * @return the maximum number of characters of text in an element
+   */
+  public int getMaxTextLength() {
+    return maxTextLength;
+  }
+
+  /**
+   * @return the maximum number of {@code <info>} blocks in an alert
+   */
+  public int getMaxInfos() {
+    return maxInfos;
+  }
+
+  /**
+   * @return the maximum number of {@code <area>} blocks in an alert,
+   * across all its infos
+   */
+  public int getMaxAreas() {
+    return maxAreas;
+  }
+
+  /**
+   * @return the maximum number of vertices in a {@code <polygon>}
+   */
+  public int getMaxPolygonVertices() {
+    return maxPolygonVertices;
+  }
+
+  /**
+   * @return the maximum wall-clock time to spend parsing an alert, in
+   * milliseconds, or 0 for no deadline
+   */
+  public long getTimeoutMillis() {
+    return timeoutMillis;
+  }
+
+  @Override
+  public String toString() {
+    return "ParseLimits[maxLength=" + maxLength + ", maxDepth=" + maxDepth
+        + ", maxTextLength=" + maxTextLength + ", maxInfos=" + maxInfos
+        + ", maxAreas=" + maxAreas + ", maxPolygonVertices=" + maxPolygonVertices
+        + ", timeoutMillis=" + timeoutMillis + "]";
+  }
+
+  /** Builder for {@link ParseLimits}; all limits default to unlimited. */
+  public static final class Builder {
+    private long maxLength = Long.MAX_VALUE;
+    private int maxDepth = Integer.MAX_VALUE;
+    private int maxTextLength = Integer.MAX_VALUE;
+    private int maxInfos = Integer.MAX_VALUE;
+    private int maxAreas = Integer.MAX_VALUE;
+    private int maxPolygonVertices = Integer.MAX_VALUE;
+    private long timeoutMillis;
+
+    private Builder() {}
+
+    public Builder setMaxLength(long maxLength) {
+      Preconditions.checkArgument(maxLength > 0, "maxLength must be positive");
+      this.maxLength = maxLength;
+      return this;
+    }
+
+    public Builder setMaxDepth(int maxDepth) {
+      Preconditions.checkArgument(maxDepth > 0, "maxDepth must be positive");
+      this.maxDepth = maxDepth;
+      return this;
+    }
+
+    public Builder setMaxTextLength(int maxTextLength) {
+      Preconditions.checkArgument(maxTextLength > 0, "maxTextLength must be positive");
+      this.maxTextLength = maxTextLength;
+      return this;
+    }
+
+    public Builder setMaxInfos(int maxInfos) {
+      Preconditions.checkArgument(maxInfos >= 0, "maxInfos must not be negative");
+      this.maxInfos = maxInfos;
+      return this;
+    }
+
+    public Builder setMaxAreas(int maxAreas) {
+      Preconditions.checkArgument(maxAreas >= 0, "maxAreas must not be negative");
+      this.maxAreas = maxAreas;
+      return this;
+    }
+
+    public Builder setMaxPolygonVertices(int maxPolygonVertices) {
+      Preconditions.checkArgument(maxPolygonVertices > 0,
+          "maxPolygonVertices must be positive");
+      this.maxPolygonVertices = maxPolygonVertices;
+      return this;
+    }
+
+    /**
+     * @param timeoutMillis the maximum wall-clock time to spend parsing an
+     * alert, or 0 for no deadline
+     */
+    public Builder setTimeoutMillis(long timeoutMillis) {
+      Preconditions.checkArgument(timeoutMillis >= 0, "timeoutMillis must not be negative");
+      this.timeoutMillis = timeoutMillis;
+      return this;
+    }
+
+    public ParseLimits build() {
+      return new ParseLimits(this);
+    }
+  }
+}
@@ -30,6 +30,7 @@ public  final class Polygon extends
     return com.google.publicalerts.cap.Cap.internal_static_publicalerts_cap_Polygon_fieldAccessorTable;
   }
   
+  private int bitField0_;
   // repeated .publicalerts.cap.Point point = 1;
   public static final int POINT_FIELD_NUMBER = 1;
   private java.util.List<com.google.publicalerts.cap.Point> point_;
@@ -51,8 +52,19 @@ public  final class Polygon extends
     return point_.get(index);
   }
   
+  // optional bytes packed_coordinates = 2;
+  public static final int PACKED_COORDINATES_FIELD_NUMBER = 2;
+  private com.google.protobuf.ByteString packedCoordinates_;
+  public boolean hasPackedCoordinates() {
+    return ((bitField0_ & 0x00000001) == 0x00000001);
+  }
+  public com.google.protobuf.ByteString getPackedCoordinates() {
+    return packedCoordinates_;
+  }
+  
   private void initFields() {
     point_ = java.util.Collections.emptyList();
+    packedCoordinates_ = com.google.protobuf.ByteString.EMPTY;
   }
   private byte memoizedIsInitialized = -1;
   public final boolean isInitialized() {
@@ -75,6 +87,9 @@ public  final class Polygon extends
     for (int i = 0; i < point_.size(); i++) {
       output.writeMessage(1, point_.get(i));
     }
+    if (((bitField0_ & 0x00000001) == 0x00000001)) {
+      output.writeBytes(2, packedCoordinates_);
+    }
     getUnknownFields().writeTo(output);
   }
   
@@ -88,6 +103,10 @@ public  final class Polygon extends
       size += com.google.protobuf.CodedOutputStream
         .computeMessageSize(1, point_.get(i));
     }
+    if (((bitField0_ & 0x00000001) == 0x00000001)) {
+      size += com.google.protobuf.CodedOutputStream
+        .computeBytesSize(2, packedCoordinates_);
+    }
     size += getUnknownFields().getSerializedSize();
     memoizedSerializedSize = size;
     return size;
@@ -113,6 +132,11 @@ public  final class Polygon extends
     boolean result = true;
     result = result && getPointList()
         .equals(other.getPointList());
+    result = result && (hasPackedCoordinates() == other.hasPackedCoordinates());
+    if (hasPackedCoordinates()) {
+      result = result && getPackedCoordinates()
+          .equals(other.getPackedCoordinates());
+    }
     result = result &&
         getUnknownFields().equals(other.getUnknownFields());
     return result;
@@ -126,6 +150,10 @@ public  final class Polygon extends
       hash = (37 * hash) + POINT_FIELD_NUMBER;
       hash = (53 * hash) + getPointList().hashCode();
     }
+    if (hasPackedCoordinates()) {
+      hash = (37 * hash) + PACKED_COORDINATES_FIELD_NUMBER;
+      hash = (53 * hash) + getPackedCoordinates().hashCode();
+    }
     hash = (29 * hash) + getUnknownFields().hashCode();
     return hash;
   }
@@ -249,6 +277,8 @@ public  final class Polygon extends
       } else {
         pointBuilder_.clear();
       }
+      packedCoordinates_ = com.google.protobuf.ByteString.EMPTY;
+      bitField0_ = (bitField0_ & ~0x00000002);
       return this;
     }
     
@@ -286,6 +316,7 @@ public  final class Polygon extends
     public com.google.publicalerts.cap.Polygon buildPartial() {
       com.google.publicalerts.cap.Polygon result = new com.google.publicalerts.cap.Polygon(this);
       int from_bitField0_ = bitField0_;
+      int to_bitField0_ = 0;
       if (pointBuilder_ == null) {
         if (((bitField0_ & 0x00000001) == 0x00000001)) {
           point_ = java.util.Collections.unmodifiableList(point_);
@@ -295,6 +326,11 @@ public  final class Polygon extends
       } else {
         result.point_ = pointBuilder_.build();
       }
+      if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
+        to_bitField0_ |= 0x00000001;
+      }
+      result.packedCoordinates_ = packedCoordinates_;
+      result.bitField0_ = to_bitField0_;
       onBuilt();
       return result;
     }
@@ -336,6 +372,9 @@ public  final class Polygon extends
           }
         }
       }
+      if (other.hasPackedCoordinates()) {
+        setPackedCoordinates(other.getPackedCoordinates());
+      }
       this.mergeUnknownFields(other.getUnknownFields());
       return this;
     }
@@ -379,6 +418,11 @@ public  final class Polygon extends
             addPoint(subBuilder.buildPartial());
             break;
           }
+          case 18: {
+            bitField0_ |= 0x00000002;
+            packedCoordinates_ = input.readBytes();
+            break;
+          }
         }
       }
     }
@@ -571,6 +615,30 @@ public  final class Polygon extends
       return pointBuilder_;
     }
     
+    // optional bytes packed_coordinates = 2;
+    private com.google.protobuf.ByteString packedCoordinates_ = com.google.protobuf.ByteString.EMPTY;
+    public boolean hasPackedCoordinates() {
+      return ((bitField0_ & 0x00000002) == 0x00000002);
+    }
+    public com.google.protobuf.ByteString getPackedCoordinates() {
+      return packedCoordinates_;
+    }
+    public Builder setPackedCoordinates(com.google.protobuf.ByteString value) {
+      if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000002;
+      packedCoordinates_ = value;
+      onChanged();
+      return this;
+    }
+    public Builder clearPackedCoordinates() {
+      bitField0_ = (bitField0_ & ~0x00000002);
+      packedCoordinates_ = getDefaultInstance().getPackedCoordinates();
+      onChanged();
+      return this;
+    }
+    
     // @@protoc_insertion_point(builder_scope:publicalerts.cap.Polygon)
   }
   
@@ -14,4 +14,8 @@ public interface PolygonOrBuilder
       getPointOrBuilderList();
   com.google.publicalerts.cap.PointOrBuilder getPointOrBuilder(
       int index);
+  
+  // optional bytes packed_coordinates = 2;
+  boolean hasPackedCoordinates();
+  com.google.protobuf.ByteString getPackedCoordinates();
 }
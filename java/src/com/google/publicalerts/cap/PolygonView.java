@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap;
+
+import com.google.common.base.Preconditions;
+import com.google.protobuf.ByteString;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A read-only view of the coordinates of a {@link Polygon} as a primitive
+ * {@code double[]} of alternating latitudes and longitudes.
+ *
+ * <p>A polygon stores its points either as {@code point} messages or, more
+ * compactly, as {@code packed_coordinates}. This class reads either
+ * encoding without materializing a {@link Point} per vertex, and converts
+ * between them. If a polygon has both, the packed coordinates win.
+ *
+ * @author agent@local (agent)
+ */
+public final class PolygonView {
+  private static final int BYTES_PER_POINT = 16;
+
+  private final double[] coordinates;
+
+  private PolygonView(double[] coordinates) {
+    this.coordinates = coordinates;
+  }
+
+  /**
+   * Returns a view of the given polygon.
+   *
+   * @param polygon the polygon, in either encoding
+   * @return the view
+   */
+  public static PolygonView of(PolygonOrBuilder polygon) {
+    if (polygon.hasPackedCoordinates()) {
+      return new PolygonView(unpack(polygon.getPackedCoordinates()));
+    }
+    int count = polygon.getPointCount();
+    double[] coordinates = new double[count * 2];
+    for (int i = 0; i < count; i++) {
+      PointOrBuilder point = polygon.getPointOrBuilder(i);
+      coordinates[i * 2] = point.getLatitude();
+      coordinates[i * 2 + 1] = point.getLongitude();
+    }
+    return new PolygonView(coordinates);
+  }
+
+  /**
+   * Returns a view of the given coordinates, which are not copied.
+   *
+   * @param coordinates alternating latitude and longitude values
+   * @return the view
+   */
+  public static PolygonView of(double[] coordinates) {
+    Preconditions.checkArgument(coordinates.length % 2 == 0,
+        "Odd number of coordinates: %s", coordinates.length);
+    return new PolygonView(coordinates);
+  }
+
+  /**
+   * Returns the coordinates of the polygon as alternating latitude and
+   * longitude values. This is the backing array of the view, so callers
+   * must not modify it.
+   */
+  public double[] getCoordinates() {
+    return coordinates;
+  }
+
+  public int getPointCount() {
+    return coordinates.length / 2;
+  }
+
+  public double getLatitude(int index) {
+    return coordinates[index * 2];
+  }
+
+  public double getLongitude(int index) {
+    return coordinates[index * 2 + 1];
+  }
+
+  /**
+   * Returns the number of points in the given polygon, in either encoding,
+   * without creating a view.
+   */
+  public static int getPointCount(PolygonOrBuilder polygon) {
+    return polygon.hasPackedCoordinates()
+        ? polygon.getPackedCoordinates().size() / BYTES_PER_POINT
+        : polygon.getPointCount();
+  }
+
+  /**
+   * Returns true if the points at the two indexes are the same, using the
+   * same comparison as {@link Point#equals(Object)}.
+   */
+  public boolean pointEquals(int index1, int index2) {
+    return Double.doubleToLongBits(getLatitude(index1))
+            == Double.doubleToLongBits(getLatitude(index2))
+        && Double.doubleToLongBits(getLongitude(index1))
+            == Double.doubleToLongBits(getLongitude(index2));
+  }
+
+  /**
+   * @return a polygon with the coordinates of this view in
+   * {@code packed_coordinates}
+   */
+  public Polygon toPackedPolygon() {
+    return Polygon.newBuilder()
+        .setPackedCoordinates(pack(coordinates, coordinates.length))
+        .buildPartial();
+  }
+
+  /**
+   * @return a polygon with the coordinates of this view as {@code point}
+   * messages
+   */
+  public Polygon toPointPolygon() {
+    Polygon.Builder polygon = Polygon.newBuilder();
+    for (int i = 0; i < getPointCount(); i++) {
+      polygon.addPoint(Point.newBuilder()
+          .setLatitude(getLatitude(i))
+          .setLongitude(getLongitude(i))
+          .buildPartial());
+    }
+    return polygon.buildPartial();
+  }
+
+  /**
+   * Encodes the first {@code length} values of the given coordinates as
+   * {@code packed_coordinates}.
+   */
+  static ByteString pack(double[] coordinates, int length) {
+    ByteBuffer buffer = ByteBuffer.allocate(length * 8).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.asDoubleBuffer().put(coordinates, 0, length);
+    return ByteString.copyFrom(buffer.array());
+  }
+
+  private static double[] unpack(ByteString packed) {
+    // Ignore a trailing partial point
+    double[] coordinates = new double[packed.size() / BYTES_PER_POINT * 2];
+    packed.asReadOnlyByteBuffer().order(ByteOrder.LITTLE_ENDIAN)
+        .asDoubleBuffer().get(coordinates);
+    return coordinates;
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, thread-safe table used to share equal {@code String} instances
+ * between parsed alerts.
+ *
+ * <p>Alerts from the same publisher repeat the same sender names, events,
+ * area descriptions and so on, so keeping many alerts in memory retains many
+ * copies of the same strings. Set an interner on {@link CapXmlParser} to
+ * have the values of the configured fields deduplicated as they are parsed.
+ *
+ * <p>The table is direct-mapped: each string hashes to a single slot, and a
+ * new string evicts whatever was in its slot. Slots hold weak references, so
+ * the table never keeps a string alive on its own, and its size is fixed
+ * at construction. Strings longer than {@link #MAX_LENGTH} are never
+ * interned, since they rarely repeat.
+ *
+ * @author agent@local (agent)
+ */
+public final class StringInterner {
+
+  /**
+   * Names of the low-cardinality fields interned by default. Matched against
+   * {@link FieldDescriptor#getName()}, so they apply to the field wherever
+   * it appears; {@code value_name} covers geocodes, parameters and event
+   * codes.
+   */
+  public static final ImmutableSet<String> DEFAULT_FIELDS = ImmutableSet.of(
+      "sender", "sender_name", "language", "event", "web", "area_desc",
+      "value_name");
+
+  /** Strings longer than this are returned as-is. */
+  public static final int MAX_LENGTH = 256;
+
+  private final AtomicReferenceArray<WeakReference<String>> table;
+  private final int mask;
+  private final ImmutableSet<String> fieldNames;
+
+  /**
+   * Creates an interner for {@link #DEFAULT_FIELDS}.
+   *
+   * @param capacity the number of slots, rounded up to a power of 2
+   */
+  public StringInterner(int capacity) {
+    this(capacity, DEFAULT_FIELDS);
+  }
+
+  /**
+   * Creates an interner for the given fields.
+   *
+   * @param capacity the number of slots, rounded up to a power of 2
+   * @param fieldNames the proto names of the fields to intern
+   */
+  public StringInterner(int capacity, Set<String> fieldNames) {
+    Preconditions.checkArgument(capacity > 0 && capacity <= 1 << 30,
+        "Invalid capacity: %s", capacity);
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    this.table = new AtomicReferenceArray<WeakReference<String>>(size);
+    this.mask = size - 1;
+    this.fieldNames = ImmutableSet.copyOf(fieldNames);
+  }
+
+  /**
+   * @return true if values of the given field should be interned
+   */
+  public boolean isInterned(FieldDescriptor fd) {
+    return fieldNames.contains(fd.getName());
+  }
+
+  /**
+   * Returns a string equal to the given one, reusing a previously interned
+   * instance if one is still in the table.
+   *
+   * @param str the string to intern, may be null
+   * @return an equal string
+   */
+  public String intern(String str) {
+    if (str == null || str.length() > MAX_LENGTH) {
+      return str;
+    }
+    int hash = str.hashCode();
+    int index = (hash ^ (hash >>> 16)) & mask;
+    WeakReference<String> ref = table.get(index);
+    String existing = ref == null ? null : ref.get();
+    if (str.equals(existing)) {
+      return existing;
+    }
+    // Racing writers may overwrite each other; either way the slot ends up
+    // holding one valid entry and the caller gets an equal string
+    table.lazySet(index, new WeakReference<String>(str));
+    return str;
+  }
+
+  /**
+   * @return the number of slots in the table
+   */
+  public int getCapacity() {
+    return table.length();
+  }
+}
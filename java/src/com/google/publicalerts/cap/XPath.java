@@ -16,62 +16,124 @@
 
 package com.google.publicalerts.cap;
 
-import static com.google.common.base.Preconditions.checkNotNull;
-
-import com.google.common.collect.Maps;
-
-import java.util.Map;
-import java.util.Stack;
+import java.util.Arrays;
 
 /**
  * A utility class to deal with the current XPath during XML parsing.
  *
+ * <p>Pushing and popping elements allocates nothing once the arrays have
+ * grown to the depth and breadth of the document, so a parser can track
+ * the path of every element and build the string only when reporting one.
+ *
  * @author sschiavoni@google.com (Stefano Schiavoni)
  */
 public class XPath {
-  private final Stack<String> elements;
-  private Map<String, Integer> indexMap; // Key is a non-predicated XPath
-  
+  private static final int INITIAL_CAPACITY = 8;
+
+  /** The names of the elements on the path. */
+  private String[] elements;
+
+  /** The 1-based index of each element among its siblings of that name. */
+  private int[] indexes;
+
+  private int size;
+
+  /**
+   * For each element on the path, and the root, the names of its children
+   * seen so far and how many of each; the children of {@code elements[i]}
+   * are at {@code i + 1}.
+   */
+  private String[][] childNames;
+  private int[][] childCounts;
+  private int[] childSizes;
+
   public XPath() {
-    this.elements = new Stack<String>();
-    this.indexMap = Maps.newHashMap();
+    this.elements = new String[INITIAL_CAPACITY];
+    this.indexes = new int[INITIAL_CAPACITY];
+    this.childNames = new String[INITIAL_CAPACITY + 1][];
+    this.childCounts = new int[INITIAL_CAPACITY + 1][];
+    this.childSizes = new int[INITIAL_CAPACITY + 1];
   }
 
   public void push(String element) {
-    String currentXPath = toString();
-    String currentNonPredicatedXPath = currentXPath
-        + (currentXPath.equals("/") ? "" : "/")
-        + element;
-    
-    if (indexMap.containsKey(currentNonPredicatedXPath)) {
-      indexMap.put(currentNonPredicatedXPath,
-          indexMap.get(currentNonPredicatedXPath) + 1);
-    } else {
-      indexMap.put(currentNonPredicatedXPath, 1); // XPaths are 1-based
+    if (size == elements.length) {
+      elements = Arrays.copyOf(elements, size * 2);
+      indexes = Arrays.copyOf(indexes, size * 2);
+      childNames = Arrays.copyOf(childNames, size * 2 + 1);
+      childCounts = Arrays.copyOf(childCounts, size * 2 + 1);
+      childSizes = Arrays.copyOf(childSizes, size * 2 + 1);
     }
-    
-    elements.push(element);
+    elements[size] = element;
+    indexes[size] = countChild(size, element);
+    size++;
+    // A new element has no children yet
+    childSizes[size] = 0;
   }
 
   public void pop() {
-    elements.pop();
+    size--;
+    elements[size] = null;
+  }
+
+  /** Pops every element, and forgets the elements seen at the root. */
+  void clear() {
+    Arrays.fill(elements, 0, size, null);
+    size = 0;
+    childSizes[0] = 0;
   }
-  
+
+  /**
+   * Counts a child of the given name under the element at the given
+   * level, where 0 is the root.
+   *
+   * @return the 1-based index of the child among those of its name
+   */
+  private int countChild(int level, String name) {
+    String[] names = childNames[level];
+    int count = childSizes[level];
+    for (int i = 0; i < count; i++) {
+      if (names[i].equals(name)) {
+        return ++childCounts[level][i];
+      }
+    }
+    if (names == null) {
+      names = new String[INITIAL_CAPACITY];
+      childNames[level] = names;
+      childCounts[level] = new int[INITIAL_CAPACITY];
+    } else if (count == names.length) {
+      names = Arrays.copyOf(names, count * 2);
+      childNames[level] = names;
+      childCounts[level] = Arrays.copyOf(childCounts[level], count * 2);
+    }
+    names[count] = name;
+    childCounts[level][count] = 1;
+    childSizes[level] = count + 1;
+    return 1;
+  }
+
+  /**
+   * @return the number of elements on the path
+   */
+  int length() {
+    return size;
+  }
+
   @Override
   public String toString() {
+    return toString(size);
+  }
+
+  /**
+   * @return the path of the first {@code length} elements on the path
+   */
+  String toString(int length) {
     StringBuilder xPath = new StringBuilder("/");
     
-    for (int i = 0; i < elements.size(); i++) {
-      String currentElement = elements.get(i);
-
+    for (int i = 0; i < length; i++) {
       if (i != 0) {
         xPath.append("/");
       }
-      
-      xPath.append(currentElement);
-      
-      Integer currentIndex = checkNotNull(indexMap.get(xPath.toString()));
-      xPath.append("[").append(currentIndex).append("]");
+      xPath.append(elements[i]).append("[").append(indexes[i]).append("]");
     }
     
     return xPath.toString();
@@ -45,6 +45,8 @@ public class XercesCapExceptionMapper {
   ".* '(.*)' .*");
   private static final Pattern XERCES_TWO_PARAM_PATTERN = Pattern.compile(
       ".* '(.*)'.* '(.*)'.*");
+  private static final Pattern XERCES_ELEMENT_PATTERN = Pattern.compile(
+      ".* element '([^']*)'.*");
   private static final Pattern ANON_TYPE_PATTERN = Pattern.compile(
       ".*AnonType_(.*)alert.*");
 
@@ -117,22 +119,14 @@ public class XercesCapExceptionMapper {
     if ("cvc-complex-type.2.4.a".equals(code)) {
       Matcher matcher = XERCES_TWO_PARAM_PATTERN.matcher(message);
       if (matcher.matches()) {
-        if (VALID_TAGS.contains(stripTagNamespace(matcher.group(1)))) {
-          if (matcher.group(1).equals(tag)) {
-            type = ReasonType.DUPLICATE_ELEMENT;
-            args = new String[] { tag, value };
-            xPath += '/' + stripTagNamespace(tag) + "[2]";
-            //TODO(sschiavoni): count actual occurrences
-          } else {
-            type = ReasonType.INVALID_SEQUENCE;
-            args = new String[] { matcher.group(2), matcher.group(1) };
-            xPath += '/' + stripTagNamespace(matcher.group(1)) + "[1]";
-          }
-        } else {
-          type = ReasonType.UNSUPPORTED_ELEMENT;
-          args = new String[] { matcher.group(1) };
-          xPath += '/' + stripTagNamespace(matcher.group(1)) + "[1]";
-        }
+        return mapInvalidContent(
+            xPath, tag, value, matcher.group(1), matcher.group(2));
+      }
+    } else if ("cvc-complex-type.2.4.d".equals(code)) {
+      // Invalid content where no more children are allowed
+      Matcher matcher = XERCES_ELEMENT_PATTERN.matcher(message);
+      if (matcher.matches()) {
+        return mapInvalidContent(xPath, tag, value, matcher.group(1), "{}");
       }
     } else if ("cvc-complex-type.2.4.b".equals(code)) {
       // Missing required element
@@ -152,8 +146,10 @@ public class XercesCapExceptionMapper {
       // invalid datetime or integer
       if (DATE_TAGS.contains(tag)) {
         type = ReasonType.INVALID_DATE;
-        args = new String[] { tag, value };
+      } else {
+        type = ReasonType.INVALID_VALUE;
       }
+      args = new String[] { tag, value };
     } else if ("cvc-enumeration-valid".equals(code)) {
       // invalid enum
       Matcher matcher = XERCES_TWO_PARAM_PATTERN.matcher(message);
@@ -201,6 +197,34 @@ public class XercesCapExceptionMapper {
     return new Reason(xPath, type, (Object[]) args);
   }
 
+  /**
+   * Maps an element out of sequence: a duplicate if it has the name of the
+   * element just parsed, unsupported if it is not a CAP element.
+   */
+  private Reason mapInvalidContent(String xPath, String tag, String value,
+      String element, String expected) {
+    String name = stripTagNamespace(element);
+    if (!VALID_TAGS.contains(name)) {
+      return new Reason(xPath + '/' + name + "[1]",
+          ReasonType.UNSUPPORTED_ELEMENT, element);
+    }
+    if (name.equals(tag)) {
+      //TODO(sschiavoni): count actual occurrences
+      return new Reason(xPath + '/' + name + "[2]",
+          ReasonType.DUPLICATE_ELEMENT, tag, value);
+    }
+    return new Reason(xPath + '/' + name + "[1]",
+        ReasonType.INVALID_SEQUENCE, expected, element);
+  }
+
+  /**
+   * @return true if the given local name is the name of a CAP element, in
+   * any version
+   */
+  static boolean isCapTag(String localName) {
+    return VALID_TAGS.contains(localName);
+  }
+
   private String extractMessageCode(String message) {
     if (message == null || message.indexOf(':') < 0) {
       return null;
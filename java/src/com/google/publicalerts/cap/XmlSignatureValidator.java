@@ -159,6 +159,16 @@ public class XmlSignatureValidator {
    * @throws SAXParseException on error parsing the XML document
    */
   public Result validate(InputSource is) throws SAXParseException {
+    CapMetrics.Span span =
+        CapMetrics.get().startSpan(CapMetrics.Stage.SIGNATURE_VALIDATION);
+    try {
+      return validateDocument(is);
+    } finally {
+      span.end();
+    }
+  }
+
+  private Result validateDocument(InputSource is) throws SAXParseException {
     Document doc = XmlUtil.parseDocument(is);
     NodeList nl = doc.getElementsByTagNameNS(XMLSignature.XMLNS, "Signature");
     int numSignatures = nl.getLength();
@@ -186,6 +186,16 @@ public class XmlSigner {
    */
   public void sign(InputSource is, Writer writer)
       throws SAXParseException, IOException {
+    CapMetrics.Span span = CapMetrics.get().startSpan(CapMetrics.Stage.SIGN);
+    try {
+      signInternal(is, writer);
+    } finally {
+      span.end();
+    }
+  }
+
+  private void signInternal(InputSource is, Writer writer)
+      throws SAXParseException, IOException {
     Document document = XmlUtil.parseDocument(is);
 
     // Factory to assemble the components of the signature
@@ -0,0 +1,420 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.async;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.publicalerts.cap.Alert;
+import com.google.publicalerts.cap.CapUtil;
+import com.google.publicalerts.cap.CapXmlParser;
+import com.google.publicalerts.cap.NotCapException;
+import com.google.publicalerts.cap.Reasons;
+import com.google.publicalerts.cap.XmlSignatureValidator;
+import com.google.publicalerts.cap.feed.CapFeedParser;
+
+import com.sun.syndication.feed.synd.SyndContent;
+import com.sun.syndication.feed.synd.SyndEntry;
+import com.sun.syndication.feed.synd.SyndFeed;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXParseException;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Parses alerts and feeds asynchronously on a caller-supplied
+ * {@link Executor}, which may be a thread pool or a virtual-thread
+ * executor.
+ *
+ * <p>Each call returns a {@link CompletableFuture}. Validation problems do
+ * not fail the future; they are returned in {@link ParsedAlert#getReasons()}.
+ * The future fails with {@link NotCapException} if the input is not CAP,
+ * with {@link org.xml.sax.SAXParseException} if it is not well-formed XML,
+ * and, for feeds, with the exceptions of {@link CapFeedParser#parseFeed}.
+ *
+ * <p>At most {@code maxInFlight} alerts or feeds are parsed at once,
+ * counting each entry of a feed being parsed as an alert. When
+ * that many are in flight, {@code parse} and {@code parseFeed} block the
+ * calling thread until one completes, pushing back on the producer; the
+ * {@code tryParse} methods instead fail fast with a
+ * {@link RejectedExecutionException}, for callers that shed load.
+ *
+ * <p>This class is thread-safe.
+ *
+ * @author agent@local (agent)
+ */
+public class AsyncCapParser {
+  private final CapXmlParser parser;
+  private final CapFeedParser feedParser;
+  private final Executor executor;
+  private final int maxInFlight;
+  private final Semaphore permits;
+  private volatile XmlSignatureValidator xmlSignatureValidator;
+
+  /**
+   * Creates a validating parser.
+   *
+   * @param executor the executor to parse on
+   * @param maxInFlight the maximum number of alerts or feeds parsed at once
+   */
+  public AsyncCapParser(Executor executor, int maxInFlight) {
+    this(new CapXmlParser(true), new CapFeedParser(true), executor, maxInFlight);
+  }
+
+  /**
+   * @param parser the parser for alerts, including those in feeds
+   * @param feedParser the parser for feeds
+   * @param executor the executor to parse on
+   * @param maxInFlight the maximum number of alerts or feeds parsed at once
+   */
+  public AsyncCapParser(CapXmlParser parser, CapFeedParser feedParser,
+      Executor executor, int maxInFlight) {
+    Preconditions.checkArgument(maxInFlight > 0, "maxInFlight must be positive");
+    this.parser = Preconditions.checkNotNull(parser);
+    this.feedParser = Preconditions.checkNotNull(feedParser);
+    this.executor = Preconditions.checkNotNull(executor);
+    this.maxInFlight = maxInFlight;
+    this.permits = new Semaphore(maxInFlight);
+  }
+
+  /**
+   * Sets the validator used to validate the XML signatures of alerts.
+   * If null, the default, no signature validation is done.
+   *
+   * @param validator the new validator
+   */
+  public void setXmlSignatureValidator(XmlSignatureValidator validator) {
+    this.xmlSignatureValidator = validator;
+  }
+
+  /**
+   * @return the maximum number of alerts or feeds parsed at once
+   */
+  public int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  /**
+   * @return the number of alerts or feeds currently being parsed
+   */
+  public int getInFlight() {
+    return maxInFlight - permits.availablePermits();
+  }
+
+  /**
+   * Parses the given alert, waiting for a slot if {@code maxInFlight}
+   * alerts or feeds are already being parsed.
+   *
+   * @param alert the alert, as an XML string
+   * @return the parsed alert
+   */
+  public CompletableFuture<ParsedAlert> parse(String alert) {
+    return parse(new AlertInput(alert));
+  }
+
+  /**
+   * Parses the given alert, waiting for a slot if {@code maxInFlight}
+   * alerts or feeds are already being parsed.
+   *
+   * @param alert the alert, as bytes
+   * @return the parsed alert
+   */
+  public CompletableFuture<ParsedAlert> parse(byte[] alert) {
+    return parse(new AlertInput(alert));
+  }
+
+  private CompletableFuture<ParsedAlert> parse(AlertInput alert) {
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return failed(e);
+    }
+    return submitAlert(alert);
+  }
+
+  /**
+   * Parses the given alert if fewer than {@code maxInFlight} alerts or
+   * feeds are being parsed.
+   *
+   * @param alert the alert, as an XML string
+   * @return the parsed alert, or a future failed with
+   * {@link RejectedExecutionException} if there was no free slot
+   */
+  public CompletableFuture<ParsedAlert> tryParse(String alert) {
+    return tryParse(new AlertInput(alert));
+  }
+
+  /**
+   * Parses the given alert if fewer than {@code maxInFlight} alerts or
+   * feeds are being parsed.
+   *
+   * @param alert the alert, as bytes
+   * @return the parsed alert, or a future failed with
+   * {@link RejectedExecutionException} if there was no free slot
+   */
+  public CompletableFuture<ParsedAlert> tryParse(byte[] alert) {
+    return tryParse(new AlertInput(alert));
+  }
+
+  private CompletableFuture<ParsedAlert> tryParse(AlertInput alert) {
+    if (!permits.tryAcquire()) {
+      return failed(new RejectedExecutionException(
+          maxInFlight + " alerts already in flight"));
+    }
+    return submitAlert(alert);
+  }
+
+  /**
+   * Parses the given feed, then the alerts in the {@code <content>} of each
+   * of its entries in parallel, waiting for a slot if {@code maxInFlight}
+   * alerts or feeds are already being parsed. The feed's slot parses its
+   * entries one after another, alongside as many more slots as are free
+   * once the feed has been parsed, so the entries take no more slots than
+   * {@code maxInFlight} allows; entries that find no free slot wait for one
+   * of the feed's.
+   *
+   * @param feed the ATOM, RSS or EDXL-DE feed
+   * @return the parsed alerts, in feed order. Fails with
+   * {@link NotCapException} if the feed has no entries or an entry has no
+   * content.
+   */
+  public CompletableFuture<List<ParsedAlert>> parseFeed(final String feed) {
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return failed(e);
+    }
+    final CompletableFuture<List<ParsedAlert>> result =
+        new CompletableFuture<List<ParsedAlert>>();
+    execute(result, new Runnable() {
+      @Override
+      public void run() {
+        try {
+          FeedEntries entries =
+              new FeedEntries(getEntryPayloads(feedParser.parseFeed(feed)));
+          allOf(entries.alerts).whenComplete(complete(result));
+          entries.parse();
+        } catch (Exception e) {
+          result.completeExceptionally(e);
+        }
+      }
+    });
+    return releaseOnCompletion(result);
+  }
+
+  private CompletableFuture<ParsedAlert> submitAlert(AlertInput alert) {
+    return releaseOnCompletion(parseOnExecutor(alert));
+  }
+
+  private CompletableFuture<ParsedAlert> parseOnExecutor(final AlertInput alert) {
+    final CompletableFuture<ParsedAlert> result = new CompletableFuture<ParsedAlert>();
+    execute(result, new Runnable() {
+      @Override
+      public void run() {
+        try {
+          result.complete(parseNow(alert));
+        } catch (Exception e) {
+          result.completeExceptionally(e);
+        }
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Parses the given alert on the current thread.
+   */
+  ParsedAlert parseNow(AlertInput alert) throws NotCapException, SAXParseException {
+    if (alert.isEmpty()) {
+      throw new NotCapException();
+    }
+    Reasons.Builder reasons = Reasons.newBuilder();
+    Alert parsed = parser.parseFrom(alert.newInputSource(), reasons);
+    XmlSignatureValidator validator = xmlSignatureValidator;
+    XmlSignatureValidator.Result signatureResult = validator == null ? null
+        : validator.validate(alert.newInputSource());
+    return new ParsedAlert(parsed, reasons.build(), signatureResult);
+  }
+
+  private void execute(CompletableFuture<?> result, Runnable task) {
+    try {
+      executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      result.completeExceptionally(e);
+    }
+  }
+
+  private <T> CompletableFuture<T> releaseOnCompletion(CompletableFuture<T> future) {
+    future.whenComplete(new BiConsumer<T, Throwable>() {
+      @Override
+      public void accept(T value, Throwable t) {
+        permits.release();
+      }
+    });
+    return future;
+  }
+
+  private static List<AlertInput> getEntryPayloads(SyndFeed feed) throws NotCapException {
+    @SuppressWarnings("unchecked")
+    List<SyndEntry> entries = feed.getEntries();
+    if (entries.isEmpty()) {
+      throw new NotCapException();
+    }
+    List<AlertInput> payloads = Lists.newArrayListWithCapacity(entries.size());
+    for (SyndEntry entry : entries) {
+      @SuppressWarnings("unchecked")
+      List<SyndContent> contents = entry.getContents();
+      if (contents.isEmpty()
+          || CapUtil.isEmptyOrWhitespace(contents.get(0).getValue())) {
+        throw new NotCapException();
+      }
+      payloads.add(new AlertInput(contents.get(0).getValue()));
+    }
+    return payloads;
+  }
+
+  private static CompletableFuture<List<ParsedAlert>> allOf(
+      final List<CompletableFuture<ParsedAlert>> alerts) {
+    return CompletableFuture.allOf(alerts.toArray(new CompletableFuture<?>[alerts.size()]))
+        .thenApply(new Function<Void, List<ParsedAlert>>() {
+          @Override
+          public List<ParsedAlert> apply(Void ignored) {
+            List<ParsedAlert> result = Lists.newArrayListWithCapacity(alerts.size());
+            for (CompletableFuture<ParsedAlert> alert : alerts) {
+              result.add(alert.join());
+            }
+            return result;
+          }
+        });
+  }
+
+  private static <T> BiConsumer<T, Throwable> complete(final CompletableFuture<T> result) {
+    return new BiConsumer<T, Throwable>() {
+      @Override
+      public void accept(T value, Throwable t) {
+        if (t == null) {
+          result.complete(value);
+        } else {
+          result.completeExceptionally(
+              t instanceof CompletionException && t.getCause() != null
+                  ? t.getCause() : t);
+        }
+      }
+    };
+  }
+
+  private static <T> CompletableFuture<T> failed(Throwable t) {
+    CompletableFuture<T> future = new CompletableFuture<T>();
+    future.completeExceptionally(t);
+    return future;
+  }
+
+  /**
+   * The entries of a feed, parsed in lanes that each hold a slot: the
+   * feed's own, and one for each other slot free when parsing starts. Each
+   * lane parses the next entry not yet started until none are left.
+   */
+  private class FeedEntries {
+    final List<AlertInput> payloads;
+    final List<CompletableFuture<ParsedAlert>> alerts;
+    private final AtomicInteger next = new AtomicInteger();
+
+    FeedEntries(List<AlertInput> payloads) {
+      this.payloads = payloads;
+      this.alerts = Lists.newArrayListWithCapacity(payloads.size());
+      for (int i = 0; i < payloads.size(); i++) {
+        alerts.add(new CompletableFuture<ParsedAlert>());
+      }
+    }
+
+    /**
+     * Starts a lane on the executor for each free slot, up to one per
+     * entry, then runs the lane of the feed's slot on this thread.
+     */
+    void parse() {
+      for (int lanes = 1; lanes < payloads.size() && permits.tryAcquire(); lanes++) {
+        try {
+          executor.execute(new Runnable() {
+            @Override
+            public void run() {
+              try {
+                parseEntries();
+              } finally {
+                permits.release();
+              }
+            }
+          });
+        } catch (RejectedExecutionException e) {
+          // The lanes already running parse the rest
+          permits.release();
+          break;
+        }
+      }
+      parseEntries();
+    }
+
+    private void parseEntries() {
+      for (int i = next.getAndIncrement(); i < payloads.size(); i = next.getAndIncrement()) {
+        try {
+          alerts.get(i).complete(parseNow(payloads.get(i)));
+        } catch (Exception e) {
+          alerts.get(i).completeExceptionally(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * An alert as bytes or as characters. Characters are parsed as such, so
+   * an encoding declared in the XML does not apply to them.
+   */
+  static final class AlertInput {
+    private final byte[] bytes;
+    private final String chars;
+
+    AlertInput(byte[] bytes) {
+      this.bytes = Preconditions.checkNotNull(bytes);
+      this.chars = null;
+    }
+
+    AlertInput(String chars) {
+      this.bytes = null;
+      this.chars = Preconditions.checkNotNull(chars);
+    }
+
+    boolean isEmpty() {
+      return bytes == null ? chars.isEmpty() : bytes.length == 0;
+    }
+
+    InputSource newInputSource() {
+      return bytes == null ? new InputSource(new StringReader(chars))
+          : new InputSource(new ByteArrayInputStream(bytes));
+    }
+  }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.async;
+
+import com.google.common.base.Preconditions;
+import com.google.publicalerts.cap.Alert;
+import com.google.publicalerts.cap.CapException.ReasonType;
+import com.google.publicalerts.cap.CapXmlParser;
+import com.google.publicalerts.cap.NotCapException;
+import com.google.publicalerts.cap.Reason;
+import com.google.publicalerts.cap.Reasons;
+
+import org.xml.sax.InputSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Parses a single alert pushed to it in chunks as they arrive, for
+ * event-driven servers that read request bodies without blocking.
+ *
+ * <p>Call {@link #feed} with each chunk of the body as it is read, then
+ * {@link #endOfInput} once the body is complete. Neither blocks. Parsing
+ * starts on the executor with the first chunk and proceeds as chunks
+ * arrive, with {@link CapXmlParser#parseFromStream}, so the alert is parsed
+ * while the rest of it is still being read, and each chunk is released
+ * once it has been parsed rather than the whole body being held until it
+ * is complete. While waiting for a chunk, the parse holds an executor
+ * thread, for no longer than the idle timeout, and in all no longer than
+ * the parser's
+ * {@link com.google.publicalerts.cap.ParseLimits#getTimeoutMillis timeout}
+ * from the start of the parse, if it has one; if the next chunk has not
+ * arrived by then, the result has a null alert and a
+ * {@link ReasonType#PARSE_DEADLINE_EXCEEDED} reason.
+ *
+ * <p>As with {@link AsyncCapParser}, validation problems do not fail the
+ * result; they are returned in {@link ParsedAlert#getReasons()}. The result
+ * fails with {@link NotCapException} if the input is not CAP, and with
+ * {@link org.xml.sax.SAXParseException} if it is not well-formed XML.
+ * Cancelling the result stops the parse.
+ *
+ * <p>A parser is used for one alert. {@code feed} and {@code endOfInput}
+ * may be called from any thread, but not concurrently with each other.
+ *
+ * @author agent@local (agent)
+ */
+public class CapPushParser {
+  /** The default time to wait for each chunk, in milliseconds. */
+  public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 30 * 1000;
+
+  /** Marks the end of the input in the chunk queue. */
+  private static final byte[] END = new byte[0];
+  /** Marks that the result completed before the parse did. */
+  private static final byte[] ABORT = new byte[0];
+
+  private final CapXmlParser parser;
+  private final Executor executor;
+  private final long maxLength;
+  private final long timeoutMillis;
+  private final long idleTimeoutMillis;
+  private final CompletableFuture<ParsedAlert> result =
+      new CompletableFuture<ParsedAlert>();
+  private final BlockingQueue<byte[]> chunks = new LinkedBlockingQueue<byte[]>();
+  private final AtomicLong bufferedBytes = new AtomicLong();
+  private long fedBytes;
+  private boolean started;
+  private boolean ended;
+
+  /**
+   * Creates a parser that waits for each chunk for no longer than
+   * {@link #DEFAULT_IDLE_TIMEOUT_MILLIS}.
+   *
+   * @param parser the parser to parse the alert with
+   * @param executor the executor to parse on
+   */
+  public CapPushParser(CapXmlParser parser, Executor executor) {
+    this(parser, executor, DEFAULT_IDLE_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * @param parser the parser to parse the alert with
+   * @param executor the executor to parse on
+   * @param idleTimeoutMillis the time to wait for each chunk, in
+   * milliseconds, whether or not the parser has a timeout
+   */
+  public CapPushParser(CapXmlParser parser, Executor executor,
+      long idleTimeoutMillis) {
+    Preconditions.checkArgument(idleTimeoutMillis > 0,
+        "Invalid idle timeout %s", idleTimeoutMillis);
+    this.parser = Preconditions.checkNotNull(parser);
+    this.executor = Preconditions.checkNotNull(executor);
+    this.maxLength = parser.getParseLimits().getMaxLength();
+    this.timeoutMillis = parser.getParseLimits().getTimeoutMillis();
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    result.whenComplete(new BiConsumer<ParsedAlert, Throwable>() {
+      @Override
+      public void accept(ParsedAlert value, Throwable t) {
+        // Unblock the parse if the result was cancelled, and drop any
+        // chunks it will never read
+        chunks.clear();
+        chunks.offer(ABORT);
+        bufferedBytes.set(0);
+      }
+    });
+  }
+
+  /**
+   * Adds the remaining bytes of the given chunk to the input, consuming
+   * them. The bytes are copied, so the buffer may be reused once this
+   * returns. Chunks fed after the result is complete, for example because
+   * the input turned out not to be CAP or the parse timed out, are
+   * ignored, and not counted in {@link #getBufferedBytes}.
+   *
+   * @param chunk the next chunk of the alert
+   * @throws IllegalStateException if {@link #endOfInput} has been called
+   */
+  public void feed(ByteBuffer chunk) {
+    Preconditions.checkState(!ended, "endOfInput has been called");
+    if (!chunk.hasRemaining()) {
+      return;
+    }
+    if (result.isDone() || fedBytes > maxLength) {
+      // Past the length limit the parse will stop without reading more
+      chunk.position(chunk.limit());
+      return;
+    }
+    byte[] bytes = new byte[chunk.remaining()];
+    chunk.get(bytes);
+    fedBytes += bytes.length;
+    bufferedBytes.addAndGet(bytes.length);
+    chunks.offer(bytes);
+    if (result.isDone()) {
+      // Completed meanwhile, so the parse will never read the chunk
+      chunks.remove(bytes);
+      return;
+    }
+    start();
+  }
+
+  /**
+   * Marks the end of the input.
+   *
+   * @return the parsed alert, once all the input has been parsed
+   */
+  public CompletableFuture<ParsedAlert> endOfInput() {
+    if (!ended) {
+      ended = true;
+      if (fedBytes == 0) {
+        result.completeExceptionally(new NotCapException());
+      } else {
+        chunks.offer(END);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the parsed alert, once all the input has been parsed
+   */
+  public CompletableFuture<ParsedAlert> getResult() {
+    return result;
+  }
+
+  /**
+   * Stops parsing, failing the result with a {@link CancellationException}.
+   */
+  public void cancel() {
+    result.cancel(false);
+  }
+
+  /**
+   * @return the number of bytes fed but not yet parsed, or 0 once the
+   * result is complete. Servers may stop reading while this is high, to
+   * push back on fast senders.
+   */
+  public long getBufferedBytes() {
+    return result.isDone() ? 0 : bufferedBytes.get();
+  }
+
+  private void start() {
+    if (started) {
+      return;
+    }
+    started = true;
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          ChunkInputStream stream = new ChunkInputStream(timeoutMillis == 0
+              ? 0 : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+          try {
+            Reasons.Builder reasons = Reasons.newBuilder();
+            Alert alert = parser.parseFromStream(new InputSource(stream), reasons);
+            result.complete(new ParsedAlert(alert, reasons.build(), null));
+          } catch (Exception e) {
+            if (stream.timedOutMillis != 0) {
+              result.complete(new ParsedAlert(null, Reasons.of(new Reason("",
+                  ReasonType.PARSE_DEADLINE_EXCEEDED, "alert",
+                  stream.timedOutMillis)), null));
+            } else {
+              result.completeExceptionally(e);
+            }
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      result.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Reads the chunks fed to the parser, blocking until the next one
+   * arrives, the idle timeout passes or the deadline passes.
+   */
+  private class ChunkInputStream extends InputStream {
+    /** The {@link System#nanoTime()} to wait for chunks until, or 0. */
+    private final long deadlineNanos;
+    private byte[] chunk = new byte[0];
+    private int pos;
+
+    /** The timeout that passed while waiting for a chunk, or 0. */
+    private long timedOutMillis;
+
+    ChunkInputStream(long deadlineNanos) {
+      this.deadlineNanos = deadlineNanos;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (!nextChunk()) {
+        return -1;
+      }
+      bufferedBytes.decrementAndGet();
+      return chunk[pos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (!nextChunk()) {
+        return -1;
+      }
+      int read = Math.min(len, chunk.length - pos);
+      System.arraycopy(chunk, pos, b, off, read);
+      pos += read;
+      bufferedBytes.addAndGet(-read);
+      return read;
+    }
+
+    @Override
+    public int available() {
+      return chunk.length - pos;
+    }
+
+    /**
+     * @return false at the end of the input, otherwise true once there is
+     * an unread byte in {@code chunk}
+     */
+    private boolean nextChunk() throws IOException {
+      while (pos == chunk.length) {
+        if (chunk == END) {
+          return false;
+        }
+        long waitNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        boolean deadline = false;
+        if (deadlineNanos != 0 && deadlineNanos - System.nanoTime() < waitNanos) {
+          waitNanos = deadlineNanos - System.nanoTime();
+          deadline = true;
+        }
+        byte[] next;
+        try {
+          next = chunks.poll(waitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException();
+        }
+        if (next == null) {
+          timedOutMillis = deadline ? timeoutMillis : idleTimeoutMillis;
+          throw new InterruptedIOException("Timed out waiting for input");
+        }
+        chunk = next;
+        pos = 0;
+        if (chunk == ABORT) {
+          chunks.offer(ABORT);
+          throw new InterruptedIOException("Parse cancelled");
+        }
+      }
+      return true;
+    }
+  }
+}
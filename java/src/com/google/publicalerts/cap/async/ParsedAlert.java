@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.async;
+
+import com.google.publicalerts.cap.Alert;
+import com.google.publicalerts.cap.Reason;
+import com.google.publicalerts.cap.Reasons;
+import com.google.publicalerts.cap.XmlSignatureValidator;
+
+/**
+ * An alert parsed by {@link AsyncCapParser}, with the reasons found while
+ * parsing and validating it and the result of validating its signature.
+ *
+ * @author agent@local (agent)
+ */
+public final class ParsedAlert {
+  private final Alert alert;
+  private final Reasons reasons;
+  private final XmlSignatureValidator.Result signatureResult;
+
+  ParsedAlert(Alert alert, Reasons reasons,
+      XmlSignatureValidator.Result signatureResult) {
+    this.alert = alert;
+    this.reasons = reasons;
+    this.signatureResult = signatureResult;
+  }
+
+  /**
+   * @return the parsed alert
+   */
+  public Alert getAlert() {
+    return alert;
+  }
+
+  /**
+   * @return the errors, warnings, recommendations and infos found while
+   * parsing and validating the alert
+   */
+  public Reasons getReasons() {
+    return reasons;
+  }
+
+  /**
+   * @return the result of validating the signature of the alert, or null if
+   * the parser has no {@link XmlSignatureValidator}
+   */
+  public XmlSignatureValidator.Result getSignatureResult() {
+    return signatureResult;
+  }
+
+  /**
+   * @return true if there are no reasons at level
+   * {@link Reason.Level#ERROR} or higher and the signature, if validated,
+   * is valid
+   */
+  public boolean isValid() {
+    return !reasons.containsWithLevelOrHigher(Reason.Level.ERROR)
+        && (signatureResult == null || signatureResult.isSignatureValid());
+  }
+}
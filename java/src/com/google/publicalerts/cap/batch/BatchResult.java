@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.batch;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.publicalerts.cap.Alert;
+import com.google.publicalerts.cap.Reason;
+import com.google.publicalerts.cap.Reasons;
+import com.google.publicalerts.cap.profile.CapProfile;
+
+import java.util.Map;
+
+/**
+ * The outcome of validating one alert, feed or other document in a batch.
+ *
+ * <p>A document holding an alert yields one result. A feed yields one
+ * result for each of its entries, followed by one for the feed itself.
+ *
+ * @author agent@local (agent)
+ */
+public final class BatchResult {
+
+  /**
+   * What a result describes.
+   */
+  public enum Kind {
+    /** An alert, on its own or embedded in a feed entry. */
+    ALERT,
+    /**
+     * A feed entry that links to an alert rather than embedding it. The
+     * link is not followed.
+     */
+    LINK,
+    /** An ATOM, RSS or EDXL-DE feed. */
+    FEED,
+    /**
+     * A document that could not be read, or that is neither an alert nor
+     * a feed of alerts.
+     */
+    OTHER,
+  }
+
+  private final String source;
+  private final int document;
+  private final int entry;
+  private final Kind kind;
+  private final String identifier;
+  private final String sender;
+  private final String sent;
+  private final String xmlns;
+  private final String link;
+  private final Reasons reasons;
+  private final Map<CapProfile, Reasons> profileReasons;
+
+  private BatchResult(String source, int document, int entry, Kind kind,
+      Alert alert, String link, Reasons reasons,
+      Map<CapProfile, Reasons> profileReasons) {
+    this.source = source;
+    this.document = document;
+    this.entry = entry;
+    this.kind = kind;
+    this.identifier = alert == null ? null : alert.getIdentifier();
+    this.sender = alert == null ? null : alert.getSender();
+    this.sent = alert == null ? null : alert.getSent();
+    this.xmlns = alert == null ? null : alert.getXmlns();
+    this.link = link;
+    this.reasons = reasons;
+    this.profileReasons = profileReasons;
+  }
+
+  static BatchResult forAlert(String source, int document, int entry,
+      Alert alert, Reasons reasons, Map<CapProfile, Reasons> profileReasons) {
+    return new BatchResult(source, document, entry, Kind.ALERT, alert, null,
+        reasons, ImmutableMap.copyOf(profileReasons));
+  }
+
+  static BatchResult forLink(String source, int document, int entry,
+      String link, Reasons reasons) {
+    return new BatchResult(source, document, entry, Kind.LINK, null, link,
+        reasons, ImmutableMap.<CapProfile, Reasons>of());
+  }
+
+  static BatchResult forFeed(String source, int document, Reasons reasons) {
+    return new BatchResult(source, document, -1, Kind.FEED, null, null,
+        reasons, ImmutableMap.<CapProfile, Reasons>of());
+  }
+
+  static BatchResult forOther(String source, int document, Reasons reasons) {
+    return new BatchResult(source, document, -1, Kind.OTHER, null, null,
+        reasons, ImmutableMap.<CapProfile, Reasons>of());
+  }
+
+  /**
+   * @return the file or other source the document was read from
+   */
+  public String getSource() {
+    return source;
+  }
+
+  /**
+   * @return the 0-based index of the document among those concatenated in
+   * the source
+   */
+  public int getDocument() {
+    return document;
+  }
+
+  /**
+   * @return the 0-based index of the feed entry, or -1 if the result is not
+   * for a feed entry
+   */
+  public int getEntry() {
+    return entry;
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  /**
+   * @return the {@code <identifier>} of the alert, or null if the result is
+   * not for a parsed alert
+   */
+  public String getIdentifier() {
+    return identifier;
+  }
+
+  /**
+   * @return the {@code <sender>} of the alert, or null if the result is
+   * not for a parsed alert
+   */
+  public String getSender() {
+    return sender;
+  }
+
+  /**
+   * @return the {@code <sent>} of the alert, or null if the result is not
+   * for a parsed alert
+   */
+  public String getSent() {
+    return sent;
+  }
+
+  /**
+   * @return the CAP namespace of the alert, or null if the result is not
+   * for a parsed alert
+   */
+  public String getXmlns() {
+    return xmlns;
+  }
+
+  /**
+   * @return the URL of the alert for a {@link Kind#LINK}, otherwise null
+   */
+  public String getLink() {
+    return link;
+  }
+
+  /**
+   * @return the reasons found by parsing, schema validation and
+   * {@link com.google.publicalerts.cap.CapValidator}, or by feed validation,
+   * independent of any profile
+   */
+  public Reasons getReasons() {
+    return reasons;
+  }
+
+  /**
+   * @return the reasons found by each profile, in the order the profiles
+   * were given to the validator; empty unless this is a parsed
+   * {@link Kind#ALERT}
+   */
+  public Map<CapProfile, Reasons> getProfileReasons() {
+    return profileReasons;
+  }
+
+  /**
+   * @return true if neither validation nor any profile found an error
+   */
+  public boolean isValid() {
+    return getErrorCount() == 0;
+  }
+
+  /**
+   * @param profile one of the profiles the alert was validated against
+   * @return true if this is a parsed alert and neither validation nor the
+   * given profile found an error
+   */
+  public boolean isValid(CapProfile profile) {
+    Reasons reasons = profileReasons.get(profile);
+    return reasons != null
+        && !this.reasons.containsWithLevelOrHigher(Reason.Level.ERROR)
+        && !reasons.containsWithLevelOrHigher(Reason.Level.ERROR);
+  }
+
+  /**
+   * @return the number of errors found by validation and all profiles
+   */
+  public int getErrorCount() {
+    return count(Reason.Level.ERROR);
+  }
+
+  /**
+   * @return the number of warnings found by validation and all profiles
+   */
+  public int getWarningCount() {
+    return count(Reason.Level.WARNING);
+  }
+
+  private int count(Reason.Level level) {
+    int count = count(reasons, level);
+    for (Reasons profile : profileReasons.values()) {
+      count += count(profile, level);
+    }
+    return count;
+  }
+
+  private static int count(Reasons reasons, Reason.Level level) {
+    int count = 0;
+    for (Reason reason : reasons) {
+      if (reason.getLevel() == level) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public String toString() {
+    return source + "[" + document + "]"
+        + (entry < 0 ? "" : "[entry " + entry + "]") + " " + kind
+        + (identifier == null ? "" : " " + identifier)
+        + ": " + getErrorCount() + " errors, " + getWarningCount()
+        + " warnings";
+  }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.batch;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import com.google.publicalerts.cap.Reason;
+import com.google.publicalerts.cap.Reasons;
+import com.google.publicalerts.cap.profile.CapProfile;
+
+import org.json.JSONException;
+import org.json.JSONWriter;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes {@link BatchResult}s as they complete, one line per result.
+ *
+ * <p>Results arrive from many threads in the order they finish, not the
+ * order of their sources; each line identifies its source, document and
+ * feed entry. Implementations are thread-safe.
+ *
+ * @author agent@local (agent)
+ */
+public abstract class BatchResultWriter implements Flushable, Closeable {
+  private final Writer out;
+  private volatile boolean autoFlush;
+
+  /**
+   * @param out the writer to write lines to
+   */
+  protected BatchResultWriter(Writer out) {
+    this.out = out;
+  }
+
+  /**
+   * Creates a writer of newline-delimited JSON: one object per result, with
+   * the reasons found by validation and by each profile.
+   *
+   * @param out the writer to write lines to
+   * @return the result writer
+   */
+  public static BatchResultWriter ndjson(Writer out) {
+    return new NdjsonWriter(out);
+  }
+
+  /**
+   * Creates a writer of comma-separated values, with a header line: one
+   * summary row per result, with the number of errors found by each
+   * profile and the types of the errors and warnings.
+   *
+   * @param out the writer to write lines to
+   * @param profiles the profiles results are validated against, one column
+   * each
+   * @return the result writer
+   * @throws IOException on error writing the header
+   */
+  public static BatchResultWriter csv(Writer out, List<CapProfile> profiles)
+      throws IOException {
+    return new CsvWriter(out, profiles);
+  }
+
+  /**
+   * @param autoFlush if true, flush the writer after every line, so that
+   * each result reaches a client streaming them as soon as it completes.
+   * False by default.
+   */
+  public void setAutoFlush(boolean autoFlush) {
+    this.autoFlush = autoFlush;
+  }
+
+  /**
+   * Writes the given result.
+   *
+   * @param result the result to write
+   * @throws IOException on error writing
+   */
+  public void write(BatchResult result) throws IOException {
+    String line = format(result);
+    synchronized (this) {
+      out.write(line);
+      out.write('\n');
+      if (autoFlush) {
+        out.flush();
+      }
+    }
+  }
+
+  /**
+   * @param result the result to format
+   * @return the line for the result, without a line terminator
+   */
+  protected abstract String format(BatchResult result);
+
+  @Override
+  public synchronized void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    out.close();
+  }
+
+  private static class NdjsonWriter extends BatchResultWriter {
+    NdjsonWriter(Writer out) {
+      super(out);
+    }
+
+    @Override
+    protected String format(BatchResult result) {
+      StringWriter sw = new StringWriter();
+      try {
+        JSONWriter json = new JSONWriter(sw).object()
+            .key("source").value(result.getSource())
+            .key("document").value(result.getDocument());
+        if (result.getEntry() >= 0) {
+          json.key("entry").value(result.getEntry());
+        }
+        json.key("kind").value(result.getKind().name());
+        if (result.getIdentifier() != null) {
+          json.key("identifier").value(result.getIdentifier())
+              .key("sender").value(result.getSender())
+              .key("sent").value(result.getSent())
+              .key("xmlns").value(result.getXmlns());
+        }
+        if (result.getLink() != null) {
+          json.key("link").value(result.getLink());
+        }
+        json.key("valid").value(result.isValid())
+            .key("errors").value(result.getErrorCount())
+            .key("warnings").value(result.getWarningCount())
+            .key("reasons");
+        writeReasons(json, result.getReasons());
+        if (!result.getProfileReasons().isEmpty()) {
+          json.key("profiles").object();
+          for (Map.Entry<CapProfile, Reasons> entry
+              : result.getProfileReasons().entrySet()) {
+            json.key(entry.getKey().getCode()).object()
+                .key("valid").value(result.isValid(entry.getKey()))
+                .key("reasons");
+            writeReasons(json, entry.getValue());
+            json.endObject();
+          }
+          json.endObject();
+        }
+        json.endObject();
+      } catch (JSONException e) {
+        throw new RuntimeException(e);
+      }
+      return sw.toString();
+    }
+
+    private static void writeReasons(JSONWriter json, Reasons reasons)
+        throws JSONException {
+      json.array();
+      for (Reason reason : reasons) {
+        json.object()
+            .key("level").value(reason.getLevel().name())
+            .key("type").value(reason.getType().toString())
+            .key("xpath").value(reason.getXPath())
+            .key("source").value(reason.getSource())
+            .key("message").value(reason.getMessage())
+            .endObject();
+      }
+      json.endArray();
+    }
+  }
+
+  private static class CsvWriter extends BatchResultWriter {
+    private static final List<String> COLUMNS = ImmutableList.of(
+        "source", "document", "entry", "kind", "identifier", "sender", "sent",
+        "xmlns", "link", "valid", "errors", "warnings");
+
+    private final List<CapProfile> profiles;
+
+    CsvWriter(Writer out, List<CapProfile> profiles) throws IOException {
+      super(out);
+      this.profiles = ImmutableList.copyOf(profiles);
+      StringBuilder header = new StringBuilder(Joiner.on(',').join(COLUMNS));
+      for (CapProfile profile : profiles) {
+        header.append(',').append(escape(profile.getCode()));
+      }
+      header.append(",types,first_error\n");
+      out.write(header.toString());
+    }
+
+    @Override
+    protected String format(BatchResult result) {
+      StringBuilder sb = new StringBuilder();
+      sb.append(escape(result.getSource()))
+          .append(',').append(result.getDocument())
+          .append(',').append(result.getEntry() < 0 ? "" : result.getEntry())
+          .append(',').append(result.getKind())
+          .append(',').append(escape(result.getIdentifier()))
+          .append(',').append(escape(result.getSender()))
+          .append(',').append(escape(result.getSent()))
+          .append(',').append(escape(result.getXmlns()))
+          .append(',').append(escape(result.getLink()))
+          .append(',').append(result.isValid())
+          .append(',').append(result.getErrorCount())
+          .append(',').append(result.getWarningCount());
+      Set<String> types = Sets.newTreeSet();
+      String firstError = addTypes(result.getReasons(), types, null);
+      for (CapProfile profile : profiles) {
+        Reasons reasons = result.getProfileReasons().get(profile);
+        sb.append(',');
+        if (reasons != null) {
+          sb.append(reasons.getWithLevelOrHigher(Reason.Level.ERROR).size());
+          firstError = addTypes(reasons, types, firstError);
+        }
+      }
+      sb.append(',').append(escape(Joiner.on(' ').join(types)))
+          .append(',').append(escape(firstError));
+      return sb.toString();
+    }
+
+    /**
+     * Adds the types of the errors and warnings in the given reasons.
+     *
+     * @return the message of the first error seen
+     */
+    private static String addTypes(
+        Reasons reasons, Set<String> types, String firstError) {
+      for (Reason reason : reasons) {
+        if (reason.getLevel() == Reason.Level.ERROR
+            || reason.getLevel() == Reason.Level.WARNING) {
+          types.add(reason.getType().toString());
+        }
+        if (firstError == null && reason.getLevel() == Reason.Level.ERROR) {
+          firstError = reason.getMessage();
+        }
+      }
+      return firstError;
+    }
+
+    private static String escape(String value) {
+      if (value == null) {
+        return "";
+      }
+      if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+          && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+        return value;
+      }
+      return '"' + value.replace("\"", "\"\"") + '"';
+    }
+  }
+}
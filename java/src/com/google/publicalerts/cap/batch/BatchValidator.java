@@ -0,0 +1,818 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.batch;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.publicalerts.cap.Alert;
+import com.google.publicalerts.cap.CapException.ReasonType;
+import com.google.publicalerts.cap.CapParseContext;
+import com.google.publicalerts.cap.CapXmlParser;
+import com.google.publicalerts.cap.NotCapException;
+import com.google.publicalerts.cap.ParseLimits;
+import com.google.publicalerts.cap.Reason;
+import com.google.publicalerts.cap.Reasons;
+import com.google.publicalerts.cap.XercesCapExceptionMapper;
+import com.google.publicalerts.cap.edxl.DistributionFeed;
+import com.google.publicalerts.cap.feed.CapFeedException;
+import com.google.publicalerts.cap.feed.CapFeedParser;
+import com.google.publicalerts.cap.feed.CapFeedValidator;
+import com.google.publicalerts.cap.profile.CapProfile;
+import com.google.publicalerts.cap.profile.ProfileEngine;
+
+import com.sun.syndication.feed.atom.Feed;
+import com.sun.syndication.feed.synd.SyndContent;
+import com.sun.syndication.feed.synd.SyndEntry;
+import com.sun.syndication.feed.synd.SyndFeed;
+import com.sun.syndication.io.FeedException;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXParseException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Validates many alerts and feeds of alerts, such as an archive of
+ * years of alerts, against the CAP schema, {@link
+ * com.google.publicalerts.cap.CapValidator} and a set of profiles, using
+ * every core.
+ *
+ * <p>{@link #validate(Iterable, BatchResultWriter, ForkJoinPool)} walks
+ * files and directories on a work-stealing {@link ForkJoinPool}: each
+ * directory, file and document is a task, so idle threads take work from
+ * busy ones however the input is laid out. A file may hold several
+ * concatenated documents and may be compressed with gzip or be a zip
+ * archive. {@link #validate(Input, BatchResultWriter, ForkJoinPool)} does
+ * the same for a sequence of streams, such as the parts of an upload, but
+ * reads them on the calling thread so that a slow stream does not hold a
+ * pool thread.
+ * Each alert is parsed once, with a {@link CapParseContext} per
+ * thread, and validated against all the profiles in a single pass with a
+ * {@link ProfileEngine}.
+ *
+ * <p>Feeds are validated as by the validator web app, except that links
+ * to alerts in thin feeds are reported as {@link BatchResult.Kind#LINK}
+ * rather than fetched.
+ *
+ * <p>This class is thread-safe.
+ *
+ * @author agent@local (agent)
+ */
+public class BatchValidator {
+  private static final String NOT_CAP_MESSAGE = "The input must be a CAP "
+      + "1.0, 1.1, or 1.2 message or an RSS, Atom or EDXL-DE feed of CAP "
+      + "messages";
+
+  /**
+   * The number of documents per thread a batch may have split off but not
+   * yet validated, to bound the memory used by large archives.
+   */
+  private static final int MAX_PENDING_DOCUMENTS_PER_THREAD = 4;
+
+  private final CapXmlParser parser;
+  private final CapFeedParser feedParser;
+  private final ProfileEngine engine;
+  private long maxInputDocuments = Long.MAX_VALUE;
+  private long maxInputBytes = Long.MAX_VALUE;
+  private final ThreadLocal<CapParseContext> contexts =
+      new ThreadLocal<CapParseContext>() {
+        @Override
+        protected CapParseContext initialValue() {
+          return new CapParseContext();
+        }
+      };
+
+  /**
+   * @param profiles the profiles to validate alerts against, in the order
+   * their results should be reported
+   */
+  public BatchValidator(Iterable<? extends CapProfile> profiles) {
+    this(profiles, false);
+  }
+
+  /**
+   * @param profiles the profiles to validate alerts against, in the order
+   * their results should be reported
+   * @param strictXsdValidation if {@code true}, perform by-the-spec XSD schema validation, which
+   * does not check a number of properties specified elsewhere in the spec. If {@code false}
+   * (the default), attempt to do extra validation to conform to the text of the spec.
+   */
+  public BatchValidator(Iterable<? extends CapProfile> profiles,
+      boolean strictXsdValidation) {
+    this.parser = new CapXmlParser(true /* validate */, strictXsdValidation);
+    this.feedParser = new CapFeedParser(true /* validate */);
+    this.engine = new ProfileEngine(profiles);
+  }
+
+  /**
+   * See {@link CapXmlParser#setCompiledSchemaValidation}. Must be called
+   * before validation starts.
+   */
+  public void setCompiledSchemaValidation(boolean compiledSchemaValidation) {
+    parser.setCompiledSchemaValidation(compiledSchemaValidation);
+  }
+
+  /**
+   * See {@link CapXmlParser#setParseLimits}. Documents longer than the
+   * maximum length are reported as a {@link BatchResult.Kind#OTHER} result
+   * without being held in memory. Must be called before validation starts.
+   */
+  public void setParseLimits(ParseLimits limits) {
+    parser.setParseLimits(limits);
+  }
+
+  /**
+   * Sets the most documents, and the most bytes of documents, that one call
+   * to {@link #validate(Input, BatchResultWriter, ForkJoinPool)} validates.
+   * The document past either limit is reported as a
+   * {@link BatchResult.Kind#OTHER} result, and ends the batch. Unlimited by
+   * default. Must be called before validation starts.
+   *
+   * @param maxDocuments the most documents to validate
+   * @param maxBytes the most bytes of documents to validate
+   */
+  public void setInputLimits(long maxDocuments, long maxBytes) {
+    this.maxInputDocuments = maxDocuments;
+    this.maxInputBytes = maxBytes;
+  }
+
+  /**
+   * @return the profiles alerts are validated against
+   */
+  public List<CapProfile> getProfiles() {
+    return engine.getProfiles();
+  }
+
+  /**
+   * Validates the given files on the given pool, writing each result as
+   * it completes. Directories are walked recursively. Returns once all
+   * documents are validated.
+   *
+   * @param inputs the files and directories to validate
+   * @param writer the writer to write results to
+   * @param pool the pool to validate on
+   * @return the counts of what was validated
+   * @throws IOException on error writing a result. Errors reading a file
+   * are reported as a {@link BatchResult.Kind#OTHER} result instead.
+   */
+  public Stats validate(Iterable<File> inputs, BatchResultWriter writer,
+      ForkJoinPool pool) throws IOException {
+    Stats stats = new Stats();
+    AtomicInteger inFlight = new AtomicInteger();
+    List<InputTask> tasks = Lists.newArrayList();
+    for (File input : inputs) {
+      tasks.add(new InputTask(input, writer, stats, inFlight));
+    }
+    try {
+      pool.invoke(new AllTask(tasks));
+    } catch (WriteException e) {
+      throw e.getCause();
+    }
+    stats.end();
+    return stats;
+  }
+
+  /**
+   * Validates the documents in the streams of the given input on the given
+   * pool, writing each result as it completes. The streams are read in
+   * order and split on the calling thread, which may block on them, while
+   * their documents are validated on the pool. Returns once all documents
+   * are validated.
+   *
+   * @param input the streams to validate
+   * @param writer the writer to write results to
+   * @param pool the pool to validate on
+   * @return the counts of what was validated
+   * @throws IOException on error writing a result. An error reading the
+   * input is reported as a {@link BatchResult.Kind#OTHER} result instead,
+   * and ends the batch.
+   * @see #setInputLimits
+   */
+  public Stats validate(Input input, BatchResultWriter writer,
+      ForkJoinPool pool) throws IOException {
+    Stats stats = new Stats();
+    // Shared across streams, so that many small streams are validated
+    // concurrently
+    Deque<DocumentTask> pending = Lists.newLinkedList();
+    AtomicInteger inFlight = new AtomicInteger();
+    Quota quota = new Quota(maxInputDocuments, maxInputBytes);
+    String source = null;
+    try {
+      try {
+        while ((source = input.next()) != null) {
+          stats.files.incrementAndGet();
+          if (!split(source, input.getStream(), writer, stats, pool, pending,
+              inFlight, quota)) {
+            break;
+          }
+        }
+      } catch (IOException e) {
+        write(writer, stats, BatchResult.forOther(
+            source == null ? "input" : source, 0,
+            reasons("Unable to read: " + e)));
+      } finally {
+        joinAll(pending);
+      }
+    } catch (WriteException e) {
+      throw e.getCause();
+    }
+    stats.end();
+    return stats;
+  }
+
+  /**
+   * Validates a single document, which may be an alert or a feed of
+   * alerts.
+   *
+   * @param source where the document came from, to identify the results
+   * @param document the 0-based index of the document in the source
+   * @param xml the document
+   * @return the results for the document: one for an alert, or one for
+   * each entry of a feed followed by one for the feed itself
+   */
+  public List<BatchResult> validate(String source, int document, byte[] xml) {
+    Reasons.Builder reasons = Reasons.newBuilder();
+    Alert alert;
+    try {
+      alert = parser.parseFrom(new InputSource(new ByteArrayInputStream(xml)),
+          reasons, contexts.get());
+    } catch (NotCapException e) {
+      return validateFeed(source, document, xml);
+    } catch (SAXParseException e) {
+      return ImmutableList.of(BatchResult.forOther(source, document,
+          invalidXml(e)));
+    }
+    return ImmutableList.of(toResult(source, document, -1, alert,
+        new XercesCapExceptionMapper().map(reasons.build()), null));
+  }
+
+  private List<BatchResult> validateFeed(
+      String source, int document, byte[] xml) {
+    SyndFeed feed;
+    try {
+      feed = feedParser.parseFeed(
+          new InputSource(new ByteArrayInputStream(xml)));
+    } catch (IllegalArgumentException e) {
+      return ImmutableList.of(BatchResult.forOther(source, document,
+          reasons(NOT_CAP_MESSAGE)));
+    } catch (FeedException e) {
+      return ImmutableList.of(BatchResult.forOther(source, document,
+          reasons("Invalid XML: " + e.getMessage())));
+    } catch (CapFeedException e) {
+      return ImmutableList.of(BatchResult.forFeed(source, document,
+          new XercesCapExceptionMapper().map(e.getReasons())));
+    }
+
+    List<BatchResult> results = Lists.newArrayList();
+    @SuppressWarnings("unchecked")
+    List<SyndEntry> entries = feed.getEntries();
+    for (int i = 0; i < entries.size(); i++) {
+      results.add(validateEntry(source, document, i, entries.get(i), feed));
+    }
+
+    Reasons.Builder feedReasons = Reasons.newBuilder();
+    if (entries.isEmpty()) {
+      feedReasons.add(new Reason("/", ReasonType.OTHER, NOT_CAP_MESSAGE));
+    }
+    feedReasons.addAll(new CapFeedValidator().validate(feed));
+    results.add(BatchResult.forFeed(source, document, feedReasons.build()));
+    return results;
+  }
+
+  private BatchResult validateEntry(String source, int document, int entry,
+      SyndEntry syndEntry, SyndFeed feed) {
+    @SuppressWarnings("unchecked")
+    List<SyndContent> contents = syndEntry.getContents();
+    String content = contents.isEmpty() ? null : contents.get(0).getValue();
+    if (content != null && !content.trim().isEmpty()) {
+      Reasons.Builder reasons = Reasons.newBuilder();
+      try {
+        Alert alert = parser.parseFrom(content, reasons, contexts.get());
+        return toResult(source, document, entry, alert, prefix(
+            new XercesCapExceptionMapper().map(reasons.build()), entry, feed),
+            feed);
+      } catch (NotCapException e) {
+        // No CAP in the <content>; maybe there's a link to an alert
+      } catch (SAXParseException e) {
+        return BatchResult.forOther(source, document,
+            prefix(invalidXml(e), entry, feed));
+      }
+    }
+
+    String link;
+    try {
+      link = feedParser.getCapUrl(syndEntry);
+    } catch (FeedException e) {
+      return BatchResult.forLink(source, document, entry, null,
+          reasons(e.getMessage()));
+    }
+    return BatchResult.forLink(source, document, entry, link, link == null
+        ? reasons("Entry has neither an embedded alert nor a link to one")
+        : Reasons.EMPTY);
+  }
+
+  /**
+   * Validates the alert against the profiles.
+   *
+   * @param feed the feed the alert is embedded in, or null
+   */
+  private BatchResult toResult(String source, int document, int entry,
+      Alert alert, Reasons reasons, SyndFeed feed) {
+    Map<CapProfile, Reasons> profileReasons = engine.validate(alert);
+    if (feed != null) {
+      Map<CapProfile, Reasons> prefixed = Maps.newLinkedHashMap();
+      for (Map.Entry<CapProfile, Reasons> profile : profileReasons.entrySet()) {
+        prefixed.put(profile.getKey(), prefix(profile.getValue(), entry, feed));
+      }
+      profileReasons = prefixed;
+    }
+    return BatchResult.forAlert(source, document, entry, alert, reasons,
+        profileReasons);
+  }
+
+  /**
+   * Prefixes the XPaths of the reasons for the content of a feed entry
+   * with the XPath of the content, as the validator web app does.
+   */
+  private static Reasons prefix(Reasons reasons, int entry, SyndFeed feed) {
+    if (feed.originalWireFeed() instanceof Feed) {
+      return reasons.prefixWithXpath(
+          "/feed[1]/entry[" + (entry + 1) + "]/content[1]");
+    } else if (feed.originalWireFeed() instanceof DistributionFeed) {
+      return reasons.prefixWithXpath("/EDXLDistribution[1]/contentObject["
+          + (entry + 1) + "]/xmlContent[1]/embeddedXMLContent[1]");
+    }
+    return reasons;
+  }
+
+  private static Reasons invalidXml(SAXParseException e) {
+    return reasons("Invalid XML at line " + e.getLineNumber() + ", column "
+        + e.getColumnNumber() + ": " + e.getMessage());
+  }
+
+  private static Reasons reasons(String message) {
+    return Reasons.of(new Reason("/", ReasonType.OTHER, message));
+  }
+
+  /**
+   * Opens the given file, decompressing it if it starts with the gzip
+   * magic number.
+   */
+  private static InputStream open(File file) throws IOException {
+    InputStream in = new BufferedInputStream(new FileInputStream(file));
+    in.mark(2);
+    int b1 = in.read();
+    int b2 = in.read();
+    in.reset();
+    if (b1 == 0x1f && b2 == 0x8b) {
+      return new GZIPInputStream(in, 64 * 1024);
+    }
+    return in;
+  }
+
+  private static boolean isZip(File file) {
+    return file.getName().toLowerCase().endsWith(".zip");
+  }
+
+  /**
+   * Validates a file, or each file under a directory.
+   */
+  private class InputTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final File file;
+    private final BatchResultWriter writer;
+    private final Stats stats;
+    private final AtomicInteger inFlight;
+
+    InputTask(File file, BatchResultWriter writer, Stats stats,
+        AtomicInteger inFlight) {
+      this.file = file;
+      this.writer = writer;
+      this.stats = stats;
+      this.inFlight = inFlight;
+    }
+
+    @Override
+    protected void compute() {
+      if (file.isDirectory()) {
+        File[] children = file.listFiles();
+        if (children == null) {
+          write(BatchResult.forOther(file.getPath(), 0,
+              reasons("Unable to list directory")));
+          return;
+        }
+        Arrays.sort(children);
+        List<InputTask> tasks = Lists.newArrayListWithCapacity(children.length);
+        for (File child : children) {
+          tasks.add(new InputTask(child, writer, stats, inFlight));
+        }
+        invokeAll(tasks);
+        return;
+      }
+
+      stats.files.incrementAndGet();
+      Deque<DocumentTask> pending = Lists.newLinkedList();
+      try {
+        if (isZip(file)) {
+          ZipInputStream zip = new ZipInputStream(
+              new BufferedInputStream(new FileInputStream(file)));
+          try {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+              if (!entry.isDirectory()) {
+                split(file.getPath() + "!" + entry.getName(), zip, pending);
+              }
+            }
+          } finally {
+            zip.close();
+          }
+        } else {
+          InputStream in = open(file);
+          try {
+            split(file.getPath(), in, pending);
+          } finally {
+            in.close();
+          }
+        }
+      } catch (IOException e) {
+        write(BatchResult.forOther(file.getPath(), 0,
+            reasons("Unable to read: " + e)));
+      } finally {
+        joinAll(pending);
+      }
+    }
+
+    private void split(String source, InputStream in,
+        Deque<DocumentTask> pending) throws IOException {
+      BatchValidator.this.split(source, in, writer, stats, getPool(), pending,
+          inFlight, null);
+    }
+
+    private void write(BatchResult result) {
+      BatchValidator.this.write(writer, stats, result);
+    }
+  }
+
+  /**
+   * Splits the stream into documents and validates each in its own task on
+   * the pool, keeping at most a few per thread in flight across the whole
+   * batch. Once the batch is at that bound, waits for the oldest documents
+   * of this stream, or validates the next document inline if none are
+   * left. May be called from a task running in the pool or from another
+   * thread.
+   *
+   * @param pending the tasks submitted and not yet joined, to which the
+   * tasks for this stream are added
+   * @param inFlight the documents of the batch submitted and not yet
+   * validated, shared by all the streams of the batch
+   * @param quota the documents and bytes left to validate, or null for no
+   * limit
+   * @return false if the quota ran out, so no more should be read
+   */
+  private boolean split(String source, InputStream in,
+      BatchResultWriter writer, Stats stats, ForkJoinPool pool,
+      Deque<DocumentTask> pending, AtomicInteger inFlight, Quota quota)
+      throws IOException {
+    int maxPending = pool.getParallelism() * MAX_PENDING_DOCUMENTS_PER_THREAD;
+    DocumentSplitter splitter = new DocumentSplitter(in,
+        parser.getParseLimits().getMaxLength());
+    int document = 0;
+    while (true) {
+      long start = System.nanoTime();
+      byte[] xml;
+      try {
+        xml = splitter.next();
+      } catch (DocumentSplitter.DocumentTooLongException e) {
+        write(writer, stats, BatchResult.forOther(source, document++,
+            reasons(e.getMessage())));
+        continue;
+      } finally {
+        stats.readNanos.addAndGet(System.nanoTime() - start);
+      }
+      if (xml == null) {
+        return true;
+      }
+      String exceeded = quota == null ? null : quota.take(xml);
+      if (exceeded != null) {
+        write(writer, stats, BatchResult.forOther(source, document,
+            reasons(exceeded)));
+        return false;
+      }
+      DocumentTask task = new DocumentTask(source, document++, xml,
+          writer, stats, inFlight);
+      while (inFlight.get() >= maxPending && !pending.isEmpty()) {
+        pending.removeFirst().join();
+      }
+      if (inFlight.incrementAndGet() > maxPending) {
+        // Other streams hold the bound, so hold no more than this document
+        task.invoke();
+        continue;
+      }
+      if (ForkJoinTask.getPool() == pool) {
+        task.fork();
+      } else {
+        pool.execute(task);
+      }
+      pending.addLast(task);
+      // Forget validated documents, so a long stream keeps a short deque
+      while (pending.peekFirst().isDone()) {
+        pending.removeFirst().join();
+      }
+    }
+  }
+
+  private static void joinAll(Deque<DocumentTask> pending) {
+    while (!pending.isEmpty()) {
+      pending.removeFirst().join();
+    }
+  }
+
+  /**
+   * Validates one document.
+   */
+  private class DocumentTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final String source;
+    private final int document;
+    private final BatchResultWriter writer;
+    private final Stats stats;
+    private final AtomicInteger inFlight;
+    // Dropped once validated, as the task may wait a while to be joined
+    private byte[] xml;
+
+    DocumentTask(String source, int document, byte[] xml,
+        BatchResultWriter writer, Stats stats, AtomicInteger inFlight) {
+      this.source = source;
+      this.document = document;
+      this.xml = xml;
+      this.writer = writer;
+      this.stats = stats;
+      this.inFlight = inFlight;
+    }
+
+    @Override
+    protected void compute() {
+      try {
+        stats.documents.incrementAndGet();
+        stats.bytes.addAndGet(xml.length);
+        for (BatchResult result : validate(source, document, xml)) {
+          write(writer, stats, result);
+        }
+      } finally {
+        xml = null;
+        inFlight.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * The documents and bytes of documents a batch may still validate.
+   */
+  private static class Quota {
+    private final long maxDocuments;
+    private final long maxBytes;
+    private long documents;
+    private long bytes;
+
+    Quota(long maxDocuments, long maxBytes) {
+      this.maxDocuments = maxDocuments;
+      this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Takes the given document from the quota, if it fits.
+     *
+     * @return why the document does not fit, or null if it does
+     */
+    String take(byte[] xml) {
+      if (documents >= maxDocuments) {
+        return "The input has more than the limit of " + maxDocuments
+            + " documents";
+      }
+      if (xml.length > maxBytes - bytes) {
+        return "The input has more than the limit of " + maxBytes
+            + " bytes of documents";
+      }
+      documents++;
+      bytes += xml.length;
+      return null;
+    }
+  }
+
+  /**
+   * Runs the tasks for all the inputs.
+   */
+  private static class AllTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final List<? extends ForkJoinTask<?>> tasks;
+
+    AllTask(List<? extends ForkJoinTask<?>> tasks) {
+      this.tasks = tasks;
+    }
+
+    @Override
+    protected void compute() {
+      invokeAll(tasks);
+    }
+  }
+
+  private void write(BatchResultWriter writer, Stats stats,
+      BatchResult result) {
+    stats.results.incrementAndGet();
+    if (result.getKind() == BatchResult.Kind.ALERT) {
+      stats.alerts.incrementAndGet();
+    }
+    if (!result.isValid()) {
+      stats.invalid.incrementAndGet();
+    }
+    long start = System.nanoTime();
+    try {
+      writer.write(result);
+    } catch (IOException e) {
+      throw new WriteException(e);
+    } finally {
+      stats.writeNanos.addAndGet(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Carries an error writing a result out of the pool.
+   */
+  private static class WriteException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    WriteException(IOException cause) {
+      super(cause);
+    }
+
+    @Override
+    public synchronized IOException getCause() {
+      return (IOException) super.getCause();
+    }
+  }
+
+  /**
+   * A sequence of named streams, each holding one or more concatenated
+   * documents, such as the parts of a multipart upload. The streams are
+   * read in order, one at a time, by the thread that calls
+   * {@link #validate(Input, BatchResultWriter, ForkJoinPool)}.
+   */
+  public interface Input {
+    /**
+     * Advances to the next stream. The validator reads each stream to its
+     * end before advancing.
+     *
+     * @return the name of the next stream, to identify its results, or null
+     * if there are no more streams
+     * @throws IOException on error advancing
+     */
+    String next() throws IOException;
+
+    /**
+     * @return the current stream
+     * @throws IOException on error opening the stream
+     */
+    InputStream getStream() throws IOException;
+  }
+
+  /**
+   * Counts of what a batch validated, updated as it runs.
+   */
+  public static class Stats {
+    private final long startNanos = System.nanoTime();
+    private volatile long elapsedNanos = -1;
+    private final AtomicLong files = new AtomicLong();
+    private final AtomicLong documents = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong results = new AtomicLong();
+    private final AtomicLong alerts = new AtomicLong();
+    private final AtomicLong invalid = new AtomicLong();
+    private final AtomicLong readNanos = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+
+    Stats() {
+    }
+
+    void end() {
+      elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @return the number of files or streams read
+     */
+    public long getFiles() {
+      return files.get();
+    }
+
+    /**
+     * @return the number of documents validated
+     */
+    public long getDocuments() {
+      return documents.get();
+    }
+
+    /**
+     * @return the total size of the documents validated, in bytes, after
+     * decompression
+     */
+    public long getBytes() {
+      return bytes.get();
+    }
+
+    /**
+     * @return the number of results written
+     */
+    public long getResults() {
+      return results.get();
+    }
+
+    /**
+     * @return the number of results for alerts
+     */
+    public long getAlerts() {
+      return alerts.get();
+    }
+
+    /**
+     * @return the number of results with at least one error
+     */
+    public long getInvalid() {
+      return invalid.get();
+    }
+
+    /**
+     * @return the time spent reading, decompressing and splitting files,
+     * summed across threads, in nanoseconds
+     */
+    public long getReadNanos() {
+      return readNanos.get();
+    }
+
+    /**
+     * @return the time spent writing results, including waiting for other
+     * threads to finish writing, summed across threads, in nanoseconds
+     */
+    public long getWriteNanos() {
+      return writeNanos.get();
+    }
+
+    /**
+     * @return the time from the start to the end of the batch, or to now if
+     * it has not ended, in nanoseconds
+     */
+    public long getElapsedNanos() {
+      long elapsed = elapsedNanos;
+      return elapsed < 0 ? System.nanoTime() - startNanos : elapsed;
+    }
+
+    /**
+     * @return a summary of the counts and throughput of the batch
+     */
+    @Override
+    public String toString() {
+      double seconds = Math.max(getElapsedNanos(), 1) / 1e9;
+      return String.format("%d files, %d documents, %d alerts, "
+          + "%d invalid of %d results, %.1f MB in %.2f s: "
+          + "%.0f documents/s, %.1f MB/s (read %.0f ms, write %.0f ms)",
+          getFiles(), getDocuments(), getAlerts(), getInvalid(), getResults(),
+          getBytes() / 1e6, seconds, getDocuments() / seconds,
+          getBytes() / 1e6 / seconds, getReadNanos() / 1e6,
+          getWriteNanos() / 1e6);
+    }
+  }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.batch;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.publicalerts.cap.CapMetrics;
+import com.google.publicalerts.cap.profile.CapProfile;
+import com.google.publicalerts.cap.profile.CapProfiles;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Command-line entry point to validate archives of alerts with a
+ * {@link BatchValidator}.
+ *
+ * <pre>
+ * java -jar cap-library.jar [options] input...
+ *
+ *   input               a file, a directory, or a glob such as
+ *                       'archive/2012/**&#47;*.xml.gz'
+ *   --format=ndjson|csv the format of the results (default ndjson)
+ *   --profiles=a,b      the codes of the profiles to validate against,
+ *                       or "all" (default none)
+ *   --threads=n         the number of threads (default the number of cores)
+ *   --output=file       the file to write results to (default stdout)
+ *   --strict            perform by-the-spec XSD schema validation only
+ *   --compiled-schema   validate with the compiled schema validator
+ * </pre>
+ *
+ * <p>Results are written as they complete; a summary of throughput and the
+ * time spent in each stage is printed to stderr at the end. Exits with
+ * status 0 if every result is valid, 1 if any has errors and 2 on a usage
+ * error.
+ *
+ * @author agent@local (agent)
+ */
+public class BatchValidatorMain {
+  static final int EXIT_VALID = 0;
+  static final int EXIT_INVALID = 1;
+  static final int EXIT_USAGE = 2;
+
+  private static final String USAGE = "Usage: BatchValidatorMain "
+      + "[--format=ndjson|csv] [--profiles=code,...|all] [--threads=n] "
+      + "[--output=file] [--strict] [--compiled-schema] input...";
+
+  public static void main(String[] args) throws IOException {
+    System.exit(run(args, System.out, System.err));
+  }
+
+  /**
+   * Runs a batch with the given command-line arguments.
+   *
+   * @param args the arguments
+   * @param out the stream to write results to, unless {@code --output} is
+   * given
+   * @param err the stream to write usage errors and the summary to
+   * @return the exit status
+   * @throws IOException on error writing results
+   */
+  static int run(String[] args, PrintStream out, PrintStream err)
+      throws IOException {
+    String format = "ndjson";
+    List<CapProfile> profiles = Lists.newArrayList();
+    int threads = Runtime.getRuntime().availableProcessors();
+    String output = null;
+    boolean strict = false;
+    boolean compiledSchema = false;
+    List<File> inputs = Lists.newArrayList();
+
+    try {
+      for (String arg : args) {
+        if (arg.startsWith("--format=")) {
+          format = value(arg);
+          if (!format.equals("ndjson") && !format.equals("csv")) {
+            throw new IllegalArgumentException("Unknown format: " + format);
+          }
+        } else if (arg.startsWith("--profiles=")) {
+          profiles = getProfiles(value(arg));
+        } else if (arg.startsWith("--threads=")) {
+          threads = Integer.parseInt(value(arg));
+          if (threads < 1) {
+            throw new IllegalArgumentException("Invalid threads: " + threads);
+          }
+        } else if (arg.startsWith("--output=")) {
+          output = value(arg);
+        } else if (arg.equals("--strict")) {
+          strict = true;
+        } else if (arg.equals("--compiled-schema")) {
+          compiledSchema = true;
+        } else if (arg.startsWith("--")) {
+          throw new IllegalArgumentException("Unknown option: " + arg);
+        } else {
+          inputs.addAll(expand(arg));
+        }
+      }
+      if (inputs.isEmpty()) {
+        throw new IllegalArgumentException("No inputs");
+      }
+    } catch (IllegalArgumentException e) {
+      err.println(e.getMessage());
+      err.println(USAGE);
+      return EXIT_USAGE;
+    }
+
+    BatchValidator validator = new BatchValidator(profiles, strict);
+    validator.setCompiledSchemaValidation(compiledSchema);
+
+    OutputStream stream = output == null ? out : new FileOutputStream(output);
+    Writer writer = new BufferedWriter(
+        new OutputStreamWriter(stream, Charsets.UTF_8), 64 * 1024);
+    BatchResultWriter results = format.equals("csv")
+        ? BatchResultWriter.csv(writer, profiles)
+        : BatchResultWriter.ndjson(writer);
+
+    CapMetrics previous = CapMetrics.get();
+    StageTimingMetrics timing = new StageTimingMetrics(previous);
+    CapMetrics.set(timing);
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    BatchValidator.Stats stats;
+    try {
+      stats = validator.validate(inputs, results, pool);
+    } finally {
+      pool.shutdown();
+      CapMetrics.set(previous);
+      if (output == null) {
+        results.flush();
+      } else {
+        results.close();
+      }
+    }
+
+    err.println(stats);
+    err.print(timing);
+    return stats.getInvalid() == 0 ? EXIT_VALID : EXIT_INVALID;
+  }
+
+  private static String value(String arg) {
+    return arg.substring(arg.indexOf('=') + 1);
+  }
+
+  private static List<CapProfile> getProfiles(String codes) {
+    if (codes.equals("all")) {
+      return Lists.newArrayList(CapProfiles.getProfiles());
+    }
+    List<CapProfile> profiles = Lists.newArrayList();
+    for (String code : Splitter.on(',').omitEmptyStrings().trimResults()
+        .split(codes)) {
+      CapProfile found = null;
+      for (CapProfile profile : CapProfiles.getProfiles()) {
+        if (profile.getCode().equals(code)) {
+          found = profile;
+        }
+      }
+      if (found == null) {
+        throw new IllegalArgumentException("Unknown profile: " + code);
+      }
+      profiles.add(found);
+    }
+    return profiles;
+  }
+
+  /**
+   * Expands an input argument to the files it names: the file or directory
+   * itself, or the files matching a glob such as {@code archive/2012/*.cap}.
+   *
+   * @param arg the argument
+   * @return the files and directories, sorted
+   * @throws IllegalArgumentException if nothing matches
+   */
+  static List<File> expand(String arg) throws IOException {
+    File file = new File(arg);
+    if (file.exists()) {
+      return Collections.singletonList(file);
+    }
+
+    // Walk from the longest leading path without wildcards
+    List<String> parts = Lists.newArrayList(
+        Splitter.on(File.separatorChar).split(arg));
+    int literal = 0;
+    while (literal < parts.size() - 1 && !isGlob(parts.get(literal))) {
+      literal++;
+    }
+    if (!isGlob(parts.get(literal))) {
+      throw new IllegalArgumentException("No such file: " + arg);
+    }
+    String prefix = Joiner.on(File.separatorChar).join(parts.subList(0, literal));
+    Path base = Paths.get(
+        literal == 1 && prefix.isEmpty() ? File.separator : prefix);
+    int maxDepth = arg.contains("**")
+        ? Integer.MAX_VALUE : parts.size() - literal;
+
+    final PathMatcher matcher =
+        FileSystems.getDefault().getPathMatcher("glob:" + arg);
+    final List<File> files = Lists.newArrayList();
+    if (Files.isDirectory(base)) {
+      Files.walkFileTree(base, EnumSet.noneOf(FileVisitOption.class),
+          maxDepth, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(
+                Path path, BasicFileAttributes attrs) {
+              if (attrs.isRegularFile() && matcher.matches(path)) {
+                files.add(path.toFile());
+              }
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path path, IOException e) {
+              return FileVisitResult.CONTINUE;
+            }
+          });
+    }
+    if (files.isEmpty()) {
+      throw new IllegalArgumentException("No files match: " + arg);
+    }
+    Collections.sort(files);
+    return files;
+  }
+
+  private static boolean isGlob(String part) {
+    for (char c : "*?[{".toCharArray()) {
+      if (part.indexOf(c) >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.batch;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Splits a stream holding one or more concatenated XML documents, such as
+ * an archive of alerts appended to one file, into its documents.
+ *
+ * <p>The splitter does not parse the XML; it tracks just enough of the
+ * markup (comments, CDATA sections, processing instructions, quoted
+ * attribute values and the nesting of tags) to find where each root
+ * element ends. Each document returned includes its prolog, such as an
+ * XML declaration, and is left for the parser to check. A document that is
+ * not closed by the end of the stream is returned as is. A document longer
+ * than the maximum length is not held in memory: its bytes past the limit
+ * are skipped and {@link #next} throws a {@link DocumentTooLongException},
+ * after which the splitter continues with the following document.
+ *
+ * <p>The input must use an ASCII-compatible encoding, such as UTF-8 or
+ * ISO-8859-1. Not thread-safe.
+ *
+ * @author agent@local (agent)
+ */
+class DocumentSplitter {
+  /** The largest array most JVMs will allocate. */
+  private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+  private static final byte[] COMMENT_END = {'-', '-', '>'};
+  private static final byte[] CDATA_END = {']', ']', '>'};
+  private static final byte[] PI_END = {'?', '>'};
+
+  private final InputStream in;
+  private final long maxLength;
+  private final byte[] buf = new byte[64 * 1024];
+  private int pos;
+  private int limit;
+
+  private byte[] doc = new byte[8 * 1024];
+  private int docLength;
+  private boolean tooLong;
+
+  /**
+   * @param in the stream to split, which the caller must close
+   * @param maxLength the maximum length of a document, in bytes
+   */
+  DocumentSplitter(InputStream in, long maxLength) {
+    Preconditions.checkArgument(maxLength > 0, "maxLength must be positive");
+    this.in = in;
+    this.maxLength = Math.min(maxLength, MAX_ARRAY_LENGTH);
+  }
+
+  /**
+   * @return the next document, or null at the end of the stream
+   * @throws DocumentTooLongException if the next document is longer than
+   * the maximum length. The rest of it has been skipped, so the following
+   * document can be read with another call.
+   * @throws IOException on error reading the stream
+   */
+  byte[] next() throws IOException {
+    docLength = 0;
+    tooLong = false;
+    int depth = 0;
+    int c;
+    while ((c = read()) != -1) {
+      if (c != '<') {
+        if (docLength == 1 && isWhitespace(c)) {
+          // Skip whitespace between documents
+          docLength = 0;
+        }
+        continue;
+      }
+      c = read();
+      if (c == '!') {
+        c = read();
+        if (c == '-') {
+          skipPast(COMMENT_END);
+        } else if (c == '[') {
+          skipPast(CDATA_END);
+        } else {
+          skipDeclaration();
+        }
+      } else if (c == '?') {
+        skipPast(PI_END);
+      } else if (c == '/') {
+        skipTag();
+        if (--depth <= 0) {
+          return document();
+        }
+      } else if (c != -1 && c != '>') {
+        if (!skipTag()) {
+          depth++;
+        } else if (depth == 0) {
+          return document();
+        }
+      }
+    }
+    return docLength == 0 || isBlank() ? null : document();
+  }
+
+  private byte[] document() throws DocumentTooLongException {
+    if (tooLong) {
+      throw new DocumentTooLongException(maxLength);
+    }
+    return Arrays.copyOf(doc, docLength);
+  }
+
+  private boolean isBlank() {
+    for (int i = 0; i < docLength; i++) {
+      if (!isWhitespace(doc[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Skips to the end of a tag, past any quoted attribute values.
+   *
+   * @return true if the tag is self-closing
+   */
+  private boolean skipTag() throws IOException {
+    int quote = 0;
+    int previous = 0;
+    int c;
+    while ((c = read()) != -1) {
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '"' || c == '\'') {
+        quote = c;
+      } else if (c == '>') {
+        return previous == '/';
+      }
+      previous = c;
+    }
+    return false;
+  }
+
+  /**
+   * Skips a declaration such as {@code <!DOCTYPE ...>}, including any
+   * internal subset in square brackets.
+   */
+  private void skipDeclaration() throws IOException {
+    int brackets = 0;
+    int c;
+    while ((c = read()) != -1) {
+      if (c == '[') {
+        brackets++;
+      } else if (c == ']') {
+        brackets--;
+      } else if (c == '>' && brackets <= 0) {
+        return;
+      }
+    }
+  }
+
+  private void skipPast(byte[] end) throws IOException {
+    int matched = 0;
+    int c;
+    while ((c = read()) != -1) {
+      if (c == end[matched]) {
+        if (++matched == end.length) {
+          return;
+        }
+      } else if (matched > 0 && c == end[matched - 1]) {
+        // Still a prefix, as in "--->" or "]]]>"
+        continue;
+      } else {
+        matched = c == end[0] ? 1 : 0;
+      }
+    }
+  }
+
+  /**
+   * Reads the next byte, appending it to the current document if that is
+   * within the maximum length.
+   */
+  private int read() throws IOException {
+    if (pos == limit) {
+      limit = in.read(buf, 0, buf.length);
+      pos = 0;
+      if (limit <= 0) {
+        limit = 0;
+        return -1;
+      }
+    }
+    byte b = buf[pos++];
+    if (docLength == maxLength) {
+      // Keep scanning for the end of the document, dropping its bytes
+      tooLong = true;
+      return b & 0xff;
+    }
+    if (docLength == doc.length) {
+      doc = Arrays.copyOf(doc, (int) Math.min(doc.length * 2L, maxLength));
+    }
+    doc[docLength++] = b;
+    return b & 0xff;
+  }
+
+  private static boolean isWhitespace(int c) {
+    return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+  }
+
+  /**
+   * Thrown by {@link #next} for a document longer than the maximum length.
+   */
+  static class DocumentTooLongException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    DocumentTooLongException(long maxLength) {
+      super("The document is longer than the limit of " + maxLength
+          + " bytes");
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.batch;
+
+import com.google.common.base.Preconditions;
+import com.google.publicalerts.cap.CapMetrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link CapMetrics} that sums the number of spans and their latency for
+ * each {@link CapMetrics.Stage}, for reporting where a batch spent its time.
+ *
+ * <p>Install with:
+ * <pre>
+ *   StageTimingMetrics timing = new StageTimingMetrics(CapMetrics.get());
+ *   CapMetrics.set(timing);
+ * </pre>
+ *
+ * <p>Since spans are summed across threads, the totals of a batch run on
+ * several cores may exceed its elapsed time.
+ *
+ * @author agent@local (agent)
+ */
+public class StageTimingMetrics extends CapMetrics {
+  private final CapMetrics delegate;
+  private final AtomicLongArray counts =
+      new AtomicLongArray(Stage.values().length);
+  private final AtomicLongArray nanos =
+      new AtomicLongArray(Stage.values().length);
+
+  /**
+   * Creates a listener that only sums spans.
+   */
+  public StageTimingMetrics() {
+    this(CapMetrics.NO_OP);
+  }
+
+  /**
+   * @param delegate a listener to also notify of every span, such as the
+   * one installed before this one
+   */
+  public StageTimingMetrics(CapMetrics delegate) {
+    this.delegate = Preconditions.checkNotNull(delegate);
+  }
+
+  @Override
+  public void spanEnded(Span span) {
+    int stage = span.getStage().ordinal();
+    counts.incrementAndGet(stage);
+    nanos.addAndGet(stage, span.getDurationNanos());
+    delegate.spanEnded(span);
+  }
+
+  @Override
+  public void alertParsed(int infoCount, int areaCount, int vertexCount) {
+    delegate.alertParsed(infoCount, areaCount, vertexCount);
+  }
+
+  /**
+   * @return the number of spans of the given stage that ended
+   */
+  public long getCount(Stage stage) {
+    return counts.get(stage.ordinal());
+  }
+
+  /**
+   * @return the summed latency of the spans of the given stage, in
+   * nanoseconds
+   */
+  public long getTotalNanos(Stage stage) {
+    return nanos.get(stage.ordinal());
+  }
+
+  /**
+   * @return a table of the count, total and mean latency of each stage with
+   * at least one span, one stage per line
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(String.format(
+        "%-22s %10s %12s %12s%n", "stage", "count", "total ms", "mean us"));
+    for (Stage stage : Stage.values()) {
+      long count = getCount(stage);
+      if (count > 0) {
+        long total = getTotalNanos(stage);
+        sb.append(String.format("%-22s %10d %12.1f %12.1f%n", stage, count,
+            total / 1e6, total / 1e3 / count));
+      }
+    }
+    return sb.toString();
+  }
+}
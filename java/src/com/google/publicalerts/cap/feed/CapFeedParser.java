@@ -18,11 +18,14 @@ package com.google.publicalerts.cap.feed;
 
 import java.net.URL;
 import java.lang.Thread;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.publicalerts.cap.Alert;
 import com.google.publicalerts.cap.CapException;
+import com.google.publicalerts.cap.CapMetrics;
 import com.google.publicalerts.cap.CapUtil;
 import com.google.publicalerts.cap.CapXmlParser;
 import com.google.publicalerts.cap.NotCapException;
@@ -102,12 +105,29 @@ public class CapFeedParser {
   public static final String ALTERNATE_CAP_MIME_TYPE =
       "application/common-alerting-protocol+xml";
 
-  private static final Schema ATOM_RELAX_NG_SCHEMA =
-      loadRelaxNgSchema("atom_rfc4287.rng");
-  private static final Schema RSS2_XSD =
-      loadXsd("rss-2_0.xsd");
-  private static final Schema EDXLDE_SCHEMA =
-      loadXsd("edxlde-1_0.xsd");
+  // Schemas are compiled on first use, so that parsing only one kind of feed
+  // (or none at all) doesn't pay for compiling the others
+  private static final Supplier<Schema> ATOM_RELAX_NG_SCHEMA =
+      Suppliers.memoize(new Supplier<Schema>() {
+        @Override
+        public Schema get() {
+          return loadRelaxNgSchema("atom_rfc4287.rng");
+        }
+      });
+  private static final Supplier<Schema> RSS2_XSD =
+      Suppliers.memoize(new Supplier<Schema>() {
+        @Override
+        public Schema get() {
+          return loadXsd("rss-2_0.xsd");
+        }
+      });
+  private static final Supplier<Schema> EDXLDE_SCHEMA =
+      Suppliers.memoize(new Supplier<Schema>() {
+        @Override
+        public Schema get() {
+          return loadXsd("edxlde-1_0.xsd");
+        }
+      });
 
   private static final Charset UTF_8 = Charset.forName("UTF-8");
 
@@ -130,6 +150,18 @@ public class CapFeedParser {
     }
   }
 
+  /**
+   * Compiles the Atom, RSS and EDXL-DE feed schemas now, rather than the
+   * first time a feed of that kind is validated. Useful to move the cost of
+   * compiling schemas to startup, or to a background thread.
+   * See also {@link CapXmlParser#preloadSchemas}.
+   */
+  public static void preloadSchemas() {
+    ATOM_RELAX_NG_SCHEMA.get();
+    RSS2_XSD.get();
+    EDXLDE_SCHEMA.get();
+  }
+
   private static final Schema loadXsd(String schemaFile) {
     SchemaFactory schemaFactory = SchemaFactory.newInstance(
         XMLConstants.W3C_XML_SCHEMA_NS_URI);
@@ -248,6 +280,20 @@ public class CapFeedParser {
   private SyndFeed parseFeedInternal(
       InputSource reader, boolean validateSchema)
       throws FeedException, CapFeedException, IllegalArgumentException {
+    CapMetrics.Span span = CapMetrics.get().startSpan(CapMetrics.Stage.FEED_PARSE);
+    try {
+      return parseFeedInternal(reader, validateSchema, span);
+    } catch (CapFeedException e) {
+      span.setReasons(e.getReasons());
+      throw e;
+    } finally {
+      span.end();
+    }
+  }
+
+  private SyndFeed parseFeedInternal(
+      InputSource reader, boolean validateSchema, CapMetrics.Span span)
+      throws FeedException, CapFeedException, IllegalArgumentException {
     SyndFeedInput syndFeedInput = new SyndFeedInput(validate);
     syndFeedInput.setPreserveWireFeed(true);
 
@@ -257,6 +303,7 @@ public class CapFeedParser {
     if (validate) {
       CapFeedValidator validator = new CapFeedValidator();
       Reasons reasons = validator.validate(syndFeed);
+      span.setReasons(reasons);
 
       if (reasons.containsWithLevelOrHigher(Reason.Level.ERROR)) {
         throw new CapFeedException(reasons);
@@ -264,11 +311,11 @@ public class CapFeedParser {
 
       if (validateSchema) {
         if (syndFeed.originalWireFeed() instanceof Feed) {
-          validate(ATOM_RELAX_NG_SCHEMA, new JDOMSource(doc).getInputSource());
+          validate(ATOM_RELAX_NG_SCHEMA.get(), new JDOMSource(doc).getInputSource());
         } else if (syndFeed.originalWireFeed() instanceof Channel) {
-          validate(RSS2_XSD, new JDOMSource(doc).getInputSource());
+          validate(RSS2_XSD.get(), new JDOMSource(doc).getInputSource());
         } else if (syndFeed.originalWireFeed() instanceof DistributionFeed) {
-          validate(EDXLDE_SCHEMA, new JDOMSource(doc).getInputSource());
+          validate(EDXLDE_SCHEMA.get(), new JDOMSource(doc).getInputSource());
         }
       }
     }
@@ -280,6 +327,16 @@ public class CapFeedParser {
     if (schema == null) {
       return;
     }
+    CapMetrics.Span span = CapMetrics.get().startSpan(CapMetrics.Stage.FEED_SCHEMA);
+    try {
+      validateInternal(schema, inputSource, span);
+    } finally {
+      span.end();
+    }
+  }
+
+  private void validateInternal(Schema schema, InputSource inputSource,
+      CapMetrics.Span span) throws CapFeedException, IllegalArgumentException {
 
     FeedHandler handler = null;
 
@@ -305,6 +362,7 @@ public class CapFeedParser {
       throw new RuntimeException(e);
     }
     Reasons reasons = handler.reasons.build();
+    span.setReasons(reasons);
     if (reasons.containsWithLevelOrHigher(Reason.Level.ERROR)) {
       throw new CapFeedException(reasons);
     }
@@ -328,9 +386,19 @@ public class CapFeedParser {
       throw new NotCapException();
     }
 
+    CapMetrics metrics = CapMetrics.get();
     List<Alert> alerts = Lists.newArrayList();
-    for (SyndEntry entry : entries) {
-      alerts.add(parseAlert(entry));
+    for (int i = 0; i < entries.size(); i++) {
+      CapMetrics.Span span = metrics.startSpan(CapMetrics.Stage.FEED_ENTRY)
+          .setEntryIndex(i);
+      try {
+        alerts.add(parseAlert(entries.get(i)));
+      } catch (CapException e) {
+        span.setReasons(e.getReasons());
+        throw e;
+      } finally {
+        span.end();
+      }
     }
     return alerts;
   }
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.jfr;
+
+import com.google.publicalerts.cap.CapMetrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The Flight Recorder events emitted by {@link JfrCapMetrics}, one type per
+ * {@link CapMetrics.Stage} that runs as a single interval.
+ *
+ * @author agent@local (agent)
+ */
+final class CapEvents {
+  static final String PREFIX = "com.google.publicalerts.cap.";
+
+  private CapEvents() {}
+
+  /**
+   * @return a new event for the given stage, or null if the stage has no
+   * event type
+   */
+  static CapEvent newEvent(CapMetrics.Stage stage) {
+    switch (stage) {
+      case PARSE:
+        return new ParseEvent();
+      case XMLNS_SNIFF:
+        return new XmlnsSniffEvent();
+      case SCHEMA_PARSE:
+        return new SchemaValidationEvent();
+      case SEMANTIC_VALIDATION:
+        return new ValidateAlertEvent();
+      case PROFILE:
+        return new ProfileEvent();
+      case FEED_PARSE:
+        return new FeedParseEvent();
+      case FEED_SCHEMA:
+        return new FeedSchemaValidationEvent();
+      case FEED_ENTRY:
+        return new FeedEntryEvent();
+      case SIGN:
+        return new SignEvent();
+      case SIGNATURE_VALIDATION:
+        return new SignatureValidationEvent();
+      default:
+        // HANDLER is the sum of many callbacks, not an interval
+        return null;
+    }
+  }
+
+  /** Fields common to all CAP events. */
+  @Category({"CAP"})
+  @StackTrace(false)
+  abstract static class CapEvent extends Event {
+    @Label("CAP Version")
+    @Description("The CAP version, like 12 for CAP 1.2, or 0 if unknown")
+    int capVersion;
+
+    @Label("Payload Size")
+    @Description("Size of the input in bytes, or characters for character input; -1 if unknown")
+    @DataAmount
+    long payloadSize;
+
+    @Label("Entry Index")
+    @Description("0-based index of the feed entry, or -1 if not parsing a feed entry")
+    int entryIndex;
+
+    @Label("Error Count")
+    @Description("Number of reasons at level ERROR or higher")
+    int errorCount;
+
+    @Label("Reason Count")
+    @Description("Number of errors, warnings, recommendations and infos")
+    int reasonCount;
+  }
+
+  @Name(PREFIX + "Parse")
+  @Label("CAP Parse")
+  @Description("CapXmlParser.parseFrom, including schema and semantic validation")
+  static final class ParseEvent extends CapEvent {}
+
+  @Name(PREFIX + "XmlnsSniff")
+  @Label("CAP Namespace Sniff")
+  @Description("Reading the namespace of an alert to choose its schema")
+  static final class XmlnsSniffEvent extends CapEvent {}
+
+  @Name(PREFIX + "SchemaValidation")
+  @Label("CAP Schema Validation")
+  @Description("The SAX pass validating an alert against its schema and building it")
+  static final class SchemaValidationEvent extends CapEvent {}
+
+  @Name(PREFIX + "ValidateAlert")
+  @Label("CAP Validate Alert")
+  @Description("CapValidator.validateAlert")
+  static final class ValidateAlertEvent extends CapEvent {}
+
+  @Name(PREFIX + "Profile")
+  @Label("CAP Profile Check")
+  @Description("Validating an alert against one or more profiles")
+  static final class ProfileEvent extends CapEvent {}
+
+  @Name(PREFIX + "FeedParse")
+  @Label("CAP Feed Parse")
+  @Description("CapFeedParser.parseFeed")
+  static final class FeedParseEvent extends CapEvent {}
+
+  @Name(PREFIX + "FeedSchemaValidation")
+  @Label("CAP Feed Schema Validation")
+  @Description("Validating a feed against its ATOM, RSS or EDXL-DE schema")
+  static final class FeedSchemaValidationEvent extends CapEvent {}
+
+  @Name(PREFIX + "FeedEntry")
+  @Label("CAP Feed Entry")
+  @Description("Parsing the alert in one feed entry")
+  static final class FeedEntryEvent extends CapEvent {}
+
+  @Name(PREFIX + "Sign")
+  @Label("CAP Sign")
+  @Description("XmlSigner.sign")
+  static final class SignEvent extends CapEvent {}
+
+  @Name(PREFIX + "SignatureValidation")
+  @Label("CAP Signature Validation")
+  @Description("XmlSignatureValidator.validate")
+  static final class SignatureValidationEvent extends CapEvent {}
+}
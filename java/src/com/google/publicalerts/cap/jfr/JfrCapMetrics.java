@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.jfr;
+
+import com.google.common.base.Preconditions;
+import com.google.publicalerts.cap.CapMetrics;
+import com.google.publicalerts.cap.jfr.CapEvents.CapEvent;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * A {@link CapMetrics} that emits a Java Flight Recorder event for each
+ * parse, schema validation, {@code validateAlert}, profile check, signature
+ * validation and feed parse, so that slow alerts can be correlated with GC
+ * pauses, lock contention and the like in a recording. Events are in the
+ * "CAP" category and named {@code com.google.publicalerts.cap.*}; each
+ * carries the CAP version, payload size, feed entry index and error count.
+ *
+ * <p>Install with:
+ * <pre>
+ *   CapMetrics.set(new JfrCapMetrics(CapMetrics.get()));
+ * </pre>
+ *
+ * <p>While no recording is running, this listener is disabled, unless the
+ * listener it delegates to is enabled, so it costs no more than
+ * {@link CapMetrics#NO_OP}. Requires a JVM with the {@code jdk.jfr} API:
+ * Java 11 or later, or Java 8u262 or later.
+ *
+ * @author agent@local (agent)
+ */
+public class JfrCapMetrics extends CapMetrics {
+  private static volatile boolean recording;
+
+  static {
+    FlightRecorder.addListener(new FlightRecorderListener() {
+      @Override
+      public void recorderInitialized(FlightRecorder recorder) {
+        updateRecording();
+      }
+
+      @Override
+      public void recordingStateChanged(Recording changed) {
+        updateRecording();
+      }
+    });
+  }
+
+  private final CapMetrics delegate;
+
+  /**
+   * Creates a listener that only emits events.
+   */
+  public JfrCapMetrics() {
+    this(CapMetrics.NO_OP);
+  }
+
+  /**
+   * @param delegate a listener to also notify of every span, such as the
+   * one installed before this one
+   */
+  public JfrCapMetrics(CapMetrics delegate) {
+    this.delegate = Preconditions.checkNotNull(delegate);
+  }
+
+  private static void updateRecording() {
+    boolean running = false;
+    if (FlightRecorder.isInitialized()) {
+      for (Recording r : FlightRecorder.getFlightRecorder().getRecordings()) {
+        if (r.getState() == RecordingState.RUNNING) {
+          running = true;
+          break;
+        }
+      }
+    }
+    recording = running;
+  }
+
+  /**
+   * @return true if a flight recording is running or the delegate is enabled
+   */
+  @Override
+  public boolean isEnabled() {
+    return recording || delegate.isEnabled();
+  }
+
+  @Override
+  public Span startSpan(Stage stage) {
+    CapEvent event = recording ? CapEvents.newEvent(stage) : null;
+    return event == null ? super.startSpan(stage) : new JfrSpan(this, stage, event);
+  }
+
+  @Override
+  public void spanEnded(Span span) {
+    if (span instanceof JfrSpan) {
+      CapEvent event = ((JfrSpan) span).event;
+      event.end();
+      if (event.shouldCommit()) {
+        event.capVersion = span.getVersion();
+        event.payloadSize = span.getBytes();
+        event.entryIndex = span.getEntryIndex();
+        event.errorCount = span.getErrorCount();
+        event.reasonCount = span.getReasonTypeCounts().size();
+        event.commit();
+      }
+    }
+    delegate.spanEnded(span);
+  }
+
+  @Override
+  public void alertParsed(int infoCount, int areaCount, int vertexCount) {
+    delegate.alertParsed(infoCount, areaCount, vertexCount);
+  }
+
+  /**
+   * A span that begins its event when it starts.
+   */
+  private static class JfrSpan extends Span {
+    final CapEvent event;
+
+    JfrSpan(CapMetrics metrics, Stage stage, CapEvent event) {
+      super(metrics, stage);
+      this.event = event;
+      event.begin();
+    }
+  }
+}
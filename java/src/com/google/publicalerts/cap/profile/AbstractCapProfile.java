@@ -16,14 +16,19 @@
 
 package com.google.publicalerts.cap.profile;
 
+import com.google.common.base.Preconditions;
 import com.google.publicalerts.cap.Alert;
+import com.google.publicalerts.cap.AlertOrBuilder;
 import com.google.publicalerts.cap.CachedSaxInputSource;
 import com.google.publicalerts.cap.CapDateUtil;
+import com.google.publicalerts.cap.CapParseContext;
 import com.google.publicalerts.cap.CapXmlParser;
+import com.google.publicalerts.cap.FieldProjection;
 import com.google.publicalerts.cap.NotCapException;
 import com.google.publicalerts.cap.Reason;
 import com.google.publicalerts.cap.Reasons;
 
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXParseException;
 
 /**
@@ -47,14 +52,66 @@ public abstract class AbstractCapProfile
     super(true /* validate */, strictXsdValidation);
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Profiles check the alert as a whole, so only
+   * {@link FieldProjection#ALL} is supported.
+   *
+   * @throws IllegalArgumentException if the projection drops any fields
+   */
+  @Override
+  public void setFieldProjection(FieldProjection projection) {
+    Preconditions.checkArgument(projection.includesAll(),
+        "Profiles validate whole alerts, so cannot parse a projection");
+    super.setFieldProjection(projection);
+  }
+
+  @Override
+  protected Alert parseFromInternal(CachedSaxInputSource is, Reasons.Builder reasons,
+      CapParseContext context) throws NotCapException, SAXParseException {
+    Alert alert = super.parseFromInternal(is, reasons, context);
+    if (alert != null) {
+      reasons.addAll(validate(alert));
+    }
+    return alert;
+  }
+
   @Override
-  protected Alert parseFromInternal(CachedSaxInputSource is, Reasons.Builder reasons)
+  protected Alert parseFromStreamInternal(InputSource is, Reasons.Builder reasons)
       throws NotCapException, SAXParseException {
-    Alert alert = super.parseFromInternal(is, reasons);
-    reasons.addAll(validate(alert));
+    Alert alert = super.parseFromStreamInternal(is, reasons);
+    if (alert != null) {
+      reasons.addAll(validate(alert));
+    }
     return alert;
   }
 
+  /**
+   * Returns a new set of rules checking this profile, so that
+   * {@link ProfileEngine} can validate it in the same traversal as other
+   * profiles. Called once per alert validated.
+   *
+   * @return the rules, or null if this profile only supports
+   * {@link #validate(AlertOrBuilder)}
+   */
+  protected ProfileRules newRules() {
+    return null;
+  }
+
+  /**
+   * Validates the alert by running the rules returned by {@link #newRules()},
+   * for profiles that implement {@link #validate(AlertOrBuilder)} with rules.
+   *
+   * @param alert the alert to validate
+   * @return the reasons found by the rules
+   */
+  protected final Reasons validateWithRules(AlertOrBuilder alert) {
+    ProfileRules rules = newRules();
+    Preconditions.checkState(rules != null, "%s has no rules", getClass().getName());
+    return ProfileEngine.validate(alert, rules);
+  }
+
   /**
    * Checks if the timezone on the given {@code dateStr} is zero.  If so, adds a new reason with
    * the given xpath and type to the collection of reasons.
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.profile;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.publicalerts.cap.AlertOrBuilder;
+import com.google.publicalerts.cap.CapDateUtil;
+import com.google.publicalerts.cap.Info;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Facts about an alert shared by all the profiles validating it.
+ *
+ * <p>Each fact is computed the first time a profile asks for it and then
+ * cached, so profiles that check the same thing pay for it once.
+ *
+ * @author agent@local (agent)
+ */
+public final class AlertFacts {
+  private final AlertOrBuilder alert;
+  private final InfoFacts[] infos;
+
+  private Set<String> languages;
+  private Map<String, String> firstEventByLanguage;
+  private Boolean sentZeroTimezone;
+
+  AlertFacts(AlertOrBuilder alert) {
+    this.alert = alert;
+    this.infos = new InfoFacts[alert.getInfoCount()];
+    for (int i = 0; i < infos.length; i++) {
+      infos[i] = new InfoFacts(this, alert.getInfo(i), i);
+    }
+  }
+
+  public AlertOrBuilder getAlert() {
+    return alert;
+  }
+
+  public int getInfoCount() {
+    return infos.length;
+  }
+
+  public InfoFacts getInfo(int index) {
+    return infos[index];
+  }
+
+  /**
+   * @return the distinct {@code <language>}s of the alert's infos
+   */
+  public Set<String> getLanguages() {
+    if (languages == null) {
+      languages = Sets.newHashSet();
+      for (InfoFacts info : infos) {
+        languages.add(info.getInfo().getLanguage());
+      }
+    }
+    return languages;
+  }
+
+  /**
+   * @param language the language of an info in the alert
+   * @return the {@code <event>} of the first info with the given language,
+   * or null if there is none
+   */
+  public String getFirstEvent(String language) {
+    if (firstEventByLanguage == null) {
+      firstEventByLanguage = Maps.newHashMap();
+      for (InfoFacts info : infos) {
+        Info i = info.getInfo();
+        if (!firstEventByLanguage.containsKey(i.getLanguage())) {
+          firstEventByLanguage.put(i.getLanguage(), i.getEvent());
+        }
+      }
+    }
+    return firstEventByLanguage.get(language);
+  }
+
+  /**
+   * @return true if {@code <sent>} is a valid date in the UTC time zone
+   */
+  public boolean isSentZeroTimezone() {
+    if (sentZeroTimezone == null) {
+      sentZeroTimezone = isZeroTimezone(alert.getSent());
+    }
+    return sentZeroTimezone;
+  }
+
+  static boolean isZeroTimezone(String dateStr) {
+    return CapDateUtil.isValidDate(dateStr)
+        && CapDateUtil.getTimezoneOffset(dateStr) == 0;
+  }
+}
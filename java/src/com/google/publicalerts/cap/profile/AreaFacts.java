@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.profile;
+
+import com.google.publicalerts.cap.Area;
+
+/**
+ * Facts about an {@code <area>} shared by all the profiles validating it.
+ *
+ * @author agent@local (agent)
+ */
+public final class AreaFacts {
+  private final InfoFacts info;
+  private final Area area;
+  private final int index;
+  private String xpath;
+
+  AreaFacts(InfoFacts info, Area area, int index) {
+    this.info = info;
+    this.area = area;
+    this.index = index;
+  }
+
+  public InfoFacts getInfo() {
+    return info;
+  }
+
+  public Area getArea() {
+    return area;
+  }
+
+  /**
+   * @return the 0-based index of the area in its info
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * @return the xpath of the area, like {@code /alert[1]/info[1]/area[2]}
+   */
+  public String getXPath() {
+    if (xpath == null) {
+      xpath = info.getXPath() + "/area[" + (index + 1) + "]";
+    }
+    return xpath;
+  }
+
+  /**
+   * @param child the name of a child element
+   * @param childIndex the 0-based index of the child
+   * @return the xpath of the given child of the area
+   */
+  public String getXPath(String child, int childIndex) {
+    return getXPath() + "/" + child + "[" + (childIndex + 1) + "]";
+  }
+}
@@ -21,12 +21,9 @@ import static com.google.publicalerts.cap.Reason.Level.ERROR;
 import static com.google.publicalerts.cap.Reason.Level.INFO;
 import static com.google.publicalerts.cap.Reason.Level.RECOMMENDATION;
 
-import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 import com.google.publicalerts.cap.Alert;
 import com.google.publicalerts.cap.AlertOrBuilder;
 import com.google.publicalerts.cap.Area;
-import com.google.publicalerts.cap.CapDateUtil;
 import com.google.publicalerts.cap.CapUtil;
 import com.google.publicalerts.cap.Circle;
 import com.google.publicalerts.cap.Info;
@@ -37,8 +34,6 @@ import com.google.publicalerts.cap.ValuePair;
 
 import java.util.Date;
 import java.util.Locale;
-import java.util.Map;
-import java.util.Set;
 
 /**
  * A CAP profile for alerts intended for the Google Public Alerts platform.
@@ -87,50 +82,58 @@ public class GoogleProfile extends AbstractCapProfile {
 
   @Override
   public Reasons validate(AlertOrBuilder alert) {
-    Reasons.Builder reasons = Reasons.newBuilder();
-    
-    checkForErrors(alert, reasons);
-    checkForRecommendations(alert, reasons);
-    
-    return reasons.build();
+    return validateWithRules(alert);
   }
-  
-  /**
-   * Checks the Alert for errors and populates the collection provided as input.
-   */
-  private void checkForErrors(AlertOrBuilder alert, Reasons.Builder reasons) {
-    // An Update or Cancel message should minimally include references to all active messages
-    if ((alert.getMsgType() == Alert.MsgType.UPDATE || alert.getMsgType() == Alert.MsgType.CANCEL)
-        && alert.getReferences().getValueCount() == 0) {
-      reasons.add("/alert[1]/msgType[1]", ReasonType.UPDATE_OR_CANCEL_MUST_REFERENCE);
+
+  @Override
+  protected ProfileRules newRules() {
+    return new Rules();
+  }
+
+  private static class Rules extends ProfileRules {
+    @Override
+    protected void checkAlert(AlertFacts facts, Reasons.Builder reasons) {
+      AlertOrBuilder alert = facts.getAlert();
+
+      // An Update or Cancel message should minimally include references to all active messages
+      if ((alert.getMsgType() == Alert.MsgType.UPDATE
+          || alert.getMsgType() == Alert.MsgType.CANCEL)
+          && alert.getReferences().getValueCount() == 0) {
+        reasons.add("/alert[1]/msgType[1]", ReasonType.UPDATE_OR_CANCEL_MUST_REFERENCE);
+      }
+
+      // Alert messages intended for public distribution must include an <info> block
+      if (alert.getInfoCount() == 0) {
+        reasons.add("/alert[1]", ReasonType.INFO_IS_REQUIRED);
+      }
+
+      // Annotate all time values if they refer to the UTC time zone, in case this is an oversight
+      if (facts.isSentZeroTimezone()) {
+        reasons.add("/alert[1]/sent[1]", ReasonType.SENT_INCLUDES_UTC_TIMEZONE);
+      }
+
+      // Alerts with status Test are discouraged
+      if (alert.hasStatus() && alert.getStatus() == Alert.Status.TEST) {
+        reasons.add("/alert[1]/status[1]", ReasonType.TEST_ALERT_DISCOURAGED);
+      }
     }
 
-    // Alert messages intended for public distribution must include an <info> block
-    if (alert.getInfoCount() == 0) {
-      reasons.add("/alert[1]", ReasonType.INFO_IS_REQUIRED);
+    @Override
+    protected void checkInfo(InfoFacts facts, Reasons.Builder reasons) {
+      checkInfoForErrors(facts, reasons);
+      checkInfoForRecommendations(facts, reasons);
     }
 
-    Set<Info.Category> categories = null;
-    Set<ValuePair> eventCodes = null;
-    for (int i = 0; i < alert.getInfoCount(); i++) {
-      Info info = alert.getInfo(i);
-      String xpath = "/alert[1]/info[" + (i + 1) + "]";
+    private void checkInfoForErrors(InfoFacts facts, Reasons.Builder reasons) {
+      Info info = facts.getInfo();
+      String xpath = facts.getXPath();
 
       // All infos must have same <category> and <eventCode> values
-      Set<Info.Category> cats = Sets.newHashSet();
-      cats.addAll(info.getCategoryList());
-      if (categories == null) {
-        categories = cats;
-      } else if (!categories.equals(cats)) {
-        reasons.add(xpath + "/category[1]", ReasonType.CATEGORIES_MUST_MATCH);
+      if (!facts.categoriesMatchFirst()) {
+        reasons.add(facts.getXPath("category"), ReasonType.CATEGORIES_MUST_MATCH);
       }
-
-      Set<ValuePair> ecs = Sets.newHashSet();
-      ecs.addAll(info.getEventCodeList());
-      if (eventCodes == null) {
-        eventCodes = ecs;
-      } else if (!eventCodes.equals(ecs)) {
-        reasons.add(xpath + "/eventCode[1]", ReasonType.EVENT_CODES_MUST_MATCH);
+      if (!facts.eventCodesMatchFirst()) {
+        reasons.add(facts.getXPath("eventCode"), ReasonType.EVENT_CODES_MUST_MATCH);
       }
 
       // <description> is required
@@ -140,15 +143,13 @@ public class GoogleProfile extends AbstractCapProfile {
 
       // <effective> should be before <expires>
       if (info.hasExpires()) {
-        String effective = info.hasEffective() ? info.getEffective() : alert.getSent();
-        
         // The following variables are nullable, as their corresponding dates could be not parsable.
         // If this happens, an error has already been thrown.
-        Date effectiveDate = CapDateUtil.toJavaDate(effective);
-        Date expiresDate = CapDateUtil.toJavaDate(info.getExpires());
+        Date effectiveDate = facts.getEffectiveDate();
+        Date expiresDate = facts.getExpiresDate();
 
         if (effectiveDate != null && expiresDate != null && effectiveDate.after(expiresDate)) {
-          reasons.add(xpath + "/effective[1]", ReasonType.EFFECTIVE_NOT_AFTER_EXPIRES);
+          reasons.add(facts.getXPath("effective"), ReasonType.EFFECTIVE_NOT_AFTER_EXPIRES);
         }
       }
 
@@ -176,45 +177,22 @@ public class GoogleProfile extends AbstractCapProfile {
       if (!info.hasCertainty()) {
         reasons.add(xpath, ReasonType.CERTAINTY_IS_REQUIRED);
       }
-
-      // <area> blocks must have at least one <circle> <polygon> or <geocode>
-      for (int j = 0; j < info.getAreaCount(); j++) {
-        Area area = info.getArea(j);
-        if (area.getGeocodeCount() == 0 && area.getCircleCount() == 0
-            && area.getPolygonCount() == 0) {
-          reasons.add(xpath + "/area[" + (j + 1) + "]",
-              ReasonType.CIRCLE_POLYGON_OR_GEOCODE_IS_REQUIRED);
-        }
-      }
     }
-  }
 
-  /**
-   * Checks the Alert for recommendations and populates the collection provided as input.
-   */
-  private void checkForRecommendations(
-      AlertOrBuilder alert, Reasons.Builder reasons) {
-    // Annotate all time values if they refer to the UTC time zone, in case this is an oversight
-    checkZeroTimezone(reasons, alert.getSent(), "/alert[1]/sent[1]",
-        ReasonType.SENT_INCLUDES_UTC_TIMEZONE);
-
-    // Alerts with status Test are discouraged 
-    if (alert.hasStatus() && alert.getStatus() == Alert.Status.TEST) {
-      reasons.add("/alert[1]/status[1]", ReasonType.TEST_ALERT_DISCOURAGED);
-    }
-
-    Map<String, String> eventByLanguage = Maps.newHashMap();
-    for (int i = 0; i < alert.getInfoCount(); i++) {
-      Info info = alert.getInfo(i);
-      String xpath = "/alert[1]/info[" + (i + 1) + "]";
+    private void checkInfoForRecommendations(InfoFacts facts, Reasons.Builder reasons) {
+      Info info = facts.getInfo();
+      String xpath = facts.getXPath();
 
       // Annotate all time values if they refer to the UTC time zone, in case this is an oversight
-      checkZeroTimezone(reasons, info.getEffective(), xpath + "/effective[1]",
-          ReasonType.EFFECTIVE_INCLUDES_UTC_TIMEZONE);
-      checkZeroTimezone(reasons, info.getOnset(), xpath + "/onset[1]",
-          ReasonType.ONSET_INCLUDES_UTC_TIMEZONE);
-      checkZeroTimezone(reasons, info.getExpires(), xpath + "/expires[1]",
-          ReasonType.EXPIRES_INCLUDES_UTC_TIMEZONE);
+      if (facts.isEffectiveZeroTimezone()) {
+        reasons.add(facts.getXPath("effective"), ReasonType.EFFECTIVE_INCLUDES_UTC_TIMEZONE);
+      }
+      if (facts.isOnsetZeroTimezone()) {
+        reasons.add(facts.getXPath("onset"), ReasonType.ONSET_INCLUDES_UTC_TIMEZONE);
+      }
+      if (facts.isExpiresZeroTimezone()) {
+        reasons.add(facts.getXPath("expires"), ReasonType.EXPIRES_INCLUDES_UTC_TIMEZONE);
+      }
 
       // A <senderName> is strongly recommended
       if (CapUtil.isEmptyOrWhitespace(info.getSenderName())) {
@@ -232,28 +210,29 @@ public class GoogleProfile extends AbstractCapProfile {
 
       // Headline should be < 140 chars
       if (info.hasHeadline() && info.getHeadline().length() > 140) {
-        reasons.add(xpath + "/headline[1]", ReasonType.HEADLINE_TOO_LONG);
+        reasons.add(facts.getXPath("headline"), ReasonType.HEADLINE_TOO_LONG);
       }
 
       if (info.getDescription().equals(info.getHeadline())) {
-        reasons.add(xpath + "/headline[1]", ReasonType.HEADLINE_AND_DESCRIPTION_SHOULD_DIFFER);
+        reasons.add(facts.getXPath("headline"),
+            ReasonType.HEADLINE_AND_DESCRIPTION_SHOULD_DIFFER);
       }
 
       if (info.hasInstruction()
           && !CapUtil.isEmptyOrWhitespace(info.getInstruction())
           && info.getDescription().equals(info.getInstruction())) {
-        reasons.add(xpath + "/description[1]",
+        reasons.add(facts.getXPath("description"),
             ReasonType.DESCRIPTION_AND_INSTRUCTION_SHOULD_DIFFER);
       }
 
       if (info.getUrgency() == Info.Urgency.UNKNOWN_URGENCY) {
-        reasons.add(xpath + "/urgency[1]", ReasonType.UNKNOWN_URGENCY_DISCOURAGED);
+        reasons.add(facts.getXPath("urgency"), ReasonType.UNKNOWN_URGENCY_DISCOURAGED);
       }
       if (info.getSeverity() == Info.Severity.UNKNOWN_SEVERITY) {
-        reasons.add(xpath + "/severity[1]", ReasonType.UNKNOWN_SEVERITY_DISCOURAGED);
+        reasons.add(facts.getXPath("severity"), ReasonType.UNKNOWN_SEVERITY_DISCOURAGED);
       }
       if (info.getCertainty() == Info.Certainty.UNKNOWN_CERTAINTY) {
-        reasons.add(xpath + "/certainty[1]", ReasonType.UNKNOWN_CERTAINTY_DISCOURAGED);
+        reasons.add(facts.getXPath("certainty"), ReasonType.UNKNOWN_CERTAINTY_DISCOURAGED);
       }
 
       if (!info.hasContact()
@@ -262,30 +241,22 @@ public class GoogleProfile extends AbstractCapProfile {
       }
 
       // 18. Preferential treatment of <polygon> and <circle>
-      boolean hasPolygonOrCircle = false;
       for (int j = 0; j < info.getAreaCount(); j++) {
         Area area = info.getArea(j);
-        if (area.getCircleCount() != 0 || area.getPolygonCount() != 0) {
-          hasPolygonOrCircle = true;
-        }
         for (int k = 0; k < area.getCircleCount(); k++) {
           Circle circle = area.getCircle(k);
           if (circle.getRadius() == 0) {
-            reasons.add(xpath + "/area[" + (j + 1) + "]/circle[" + (k + 1) + "]",
+            reasons.add(facts.getArea(j).getXPath("circle", k),
                 ReasonType.NONZERO_CIRCLE_RADIUS_RECOMMENDED);
           }
         }
       }
-      if (!hasPolygonOrCircle && info.getAreaCount() > 0) {
-        reasons.add(xpath + "/area[1]", ReasonType.CIRCLE_POLYGON_ENCOURAGED);
+      if (!facts.hasCircleOrPolygon() && info.getAreaCount() > 0) {
+        reasons.add(facts.getXPath("area"), ReasonType.CIRCLE_POLYGON_ENCOURAGED);
       }
 
-      if (eventByLanguage.containsKey(info.getLanguage())) {
-        if (!info.getEvent().equals(eventByLanguage.get(info.getLanguage()))) {
-          reasons.add(xpath + "/event[1]", ReasonType.EVENTS_IN_SAME_LANGUAGE_SHOULD_MATCH);
-        }
-      } else {
-        eventByLanguage.put(info.getLanguage(), info.getEvent());
+      if (!info.getEvent().equals(facts.getAlert().getFirstEvent(info.getLanguage()))) {
+        reasons.add(facts.getXPath("event"), ReasonType.EVENTS_IN_SAME_LANGUAGE_SHOULD_MATCH);
       }
 
       // Check for empty values in geocode <valueName> or <value> field
@@ -294,14 +265,24 @@ public class GoogleProfile extends AbstractCapProfile {
         for (int k = 0; k < area.getGeocodeCount(); k++) {
           ValuePair geocode = area.getGeocode(k);
           if ("".equals(geocode.getValueName()) || "".equals(geocode.getValue())) {
-            reasons.add(xpath + "/area[" + (j + 1) + "]/geocode[" + (k + 1) + "]",
-                ReasonType.EMPTY_GEOCODE_FIELD);
+            reasons.add(facts.getArea(j).getXPath("geocode", k), ReasonType.EMPTY_GEOCODE_FIELD);
           }
         }
       }
     }
+
+    @Override
+    protected void checkArea(AreaFacts facts, Reasons.Builder reasons) {
+      Area area = facts.getArea();
+
+      // <area> blocks must have at least one <circle> <polygon> or <geocode>
+      if (area.getGeocodeCount() == 0 && area.getCircleCount() == 0
+          && area.getPolygonCount() == 0) {
+        reasons.add(facts.getXPath(), ReasonType.CIRCLE_POLYGON_OR_GEOCODE_IS_REQUIRED);
+      }
+    }
   }
-  
+
   // TODO(shakusa) Localize messages
   enum ReasonType implements Reason.Type {
     
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.profile;
+
+import com.google.common.collect.Sets;
+import com.google.publicalerts.cap.Area;
+import com.google.publicalerts.cap.CapDateUtil;
+import com.google.publicalerts.cap.Info;
+import com.google.publicalerts.cap.ValuePair;
+
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Facts about an {@code <info>} shared by all the profiles validating it.
+ * Like {@link AlertFacts}, each fact is computed at most once.
+ *
+ * @author agent@local (agent)
+ */
+public final class InfoFacts {
+  private final AlertFacts alert;
+  private final Info info;
+  private final int index;
+  private final String xpath;
+  private AreaFacts[] areas;
+
+  private Set<Info.Category> categories;
+  private Set<ValuePair> eventCodes;
+  private Boolean hasCircleOrPolygon;
+  private boolean datesParsed;
+  private Date effectiveDate;
+  private Date expiresDate;
+  private Boolean effectiveZeroTimezone;
+  private Boolean onsetZeroTimezone;
+  private Boolean expiresZeroTimezone;
+
+  InfoFacts(AlertFacts alert, Info info, int index) {
+    this.alert = alert;
+    this.info = info;
+    this.index = index;
+    this.xpath = "/alert[1]/info[" + (index + 1) + "]";
+  }
+
+  public AlertFacts getAlert() {
+    return alert;
+  }
+
+  public Info getInfo() {
+    return info;
+  }
+
+  /**
+   * @return the 0-based index of the info in the alert
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * @return the xpath of the info, like {@code /alert[1]/info[2]}
+   */
+  public String getXPath() {
+    return xpath;
+  }
+
+  /**
+   * @param child the name of a child element
+   * @return the xpath of the first such child of the info
+   */
+  public String getXPath(String child) {
+    return xpath + "/" + child + "[1]";
+  }
+
+  public int getAreaCount() {
+    return info.getAreaCount();
+  }
+
+  public AreaFacts getArea(int index) {
+    if (areas == null) {
+      areas = new AreaFacts[info.getAreaCount()];
+    }
+    if (areas[index] == null) {
+      areas[index] = new AreaFacts(this, info.getArea(index), index);
+    }
+    return areas[index];
+  }
+
+  public Set<Info.Category> getCategories() {
+    if (categories == null) {
+      categories = info.getCategoryCount() == 0
+          ? EnumSet.noneOf(Info.Category.class)
+          : EnumSet.copyOf(info.getCategoryList());
+    }
+    return categories;
+  }
+
+  public Set<ValuePair> getEventCodes() {
+    if (eventCodes == null) {
+      eventCodes = Sets.newHashSet(info.getEventCodeList());
+    }
+    return eventCodes;
+  }
+
+  /**
+   * @return true if this info has the same {@code <category>}s as the first
+   * info of the alert
+   */
+  public boolean categoriesMatchFirst() {
+    return index == 0
+        || getCategories().equals(alert.getInfo(0).getCategories());
+  }
+
+  /**
+   * @return true if this info has the same {@code <eventCode>}s as the first
+   * info of the alert
+   */
+  public boolean eventCodesMatchFirst() {
+    return index == 0
+        || getEventCodes().equals(alert.getInfo(0).getEventCodes());
+  }
+
+  /**
+   * @return true if any of the info's areas has a {@code <circle>} or
+   * {@code <polygon>}
+   */
+  public boolean hasCircleOrPolygon() {
+    if (hasCircleOrPolygon == null) {
+      boolean result = false;
+      for (Area area : info.getAreaList()) {
+        if (area.getCircleCount() != 0 || area.getPolygonCount() != 0) {
+          result = true;
+          break;
+        }
+      }
+      hasCircleOrPolygon = result;
+    }
+    return hasCircleOrPolygon;
+  }
+
+  /**
+   * @return the {@code <effective>} date of the info, defaulting to the
+   * {@code <sent>} date of the alert, or null if it does not parse
+   */
+  public Date getEffectiveDate() {
+    parseDates();
+    return effectiveDate;
+  }
+
+  /**
+   * @return the {@code <expires>} date of the info, or null if it is absent
+   * or does not parse
+   */
+  public Date getExpiresDate() {
+    parseDates();
+    return expiresDate;
+  }
+
+  /**
+   * @return true if {@code <effective>} is a valid date in the UTC time zone
+   */
+  public boolean isEffectiveZeroTimezone() {
+    if (effectiveZeroTimezone == null) {
+      effectiveZeroTimezone = AlertFacts.isZeroTimezone(info.getEffective());
+    }
+    return effectiveZeroTimezone;
+  }
+
+  /**
+   * @return true if {@code <onset>} is a valid date in the UTC time zone
+   */
+  public boolean isOnsetZeroTimezone() {
+    if (onsetZeroTimezone == null) {
+      onsetZeroTimezone = AlertFacts.isZeroTimezone(info.getOnset());
+    }
+    return onsetZeroTimezone;
+  }
+
+  /**
+   * @return true if {@code <expires>} is a valid date in the UTC time zone
+   */
+  public boolean isExpiresZeroTimezone() {
+    if (expiresZeroTimezone == null) {
+      expiresZeroTimezone = AlertFacts.isZeroTimezone(info.getExpires());
+    }
+    return expiresZeroTimezone;
+  }
+
+  private void parseDates() {
+    if (datesParsed) {
+      return;
+    }
+    effectiveDate = CapDateUtil.toJavaDate(
+        info.hasEffective() ? info.getEffective() : alert.getAlert().getSent());
+    expiresDate = info.hasExpires() ? CapDateUtil.toJavaDate(info.getExpires()) : null;
+    datesParsed = true;
+  }
+}
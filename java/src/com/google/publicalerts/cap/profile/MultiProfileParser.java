@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.profile;
+
+import com.google.common.base.Preconditions;
+import com.google.publicalerts.cap.Alert;
+import com.google.publicalerts.cap.CapXmlParser;
+import com.google.publicalerts.cap.NotCapException;
+import com.google.publicalerts.cap.Reasons;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXParseException;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+
+/**
+ * Parses and schema-validates an alert once, then validates it against
+ * several profiles.
+ *
+ * <p>Parsing through each {@link AbstractCapProfile} in turn repeats the
+ * parse and the core CAP validation for every profile. This class does that
+ * work once and runs the profiles with a {@link ProfileEngine}, returning
+ * the reasons of each in a {@link ProfiledAlert}.
+ *
+ * <p>Unlike the {@code parseFrom} methods of a profile, the methods of this
+ * class never throw {@link com.google.publicalerts.cap.CapException}; use
+ * {@link ProfiledAlert#isValid(CapProfile)} instead.
+ *
+ * @author agent@local (agent)
+ */
+public class MultiProfileParser {
+  private final CapXmlParser parser;
+  private final ProfileEngine engine;
+
+  /**
+   * Creates a parser performing the XSD schema validation the profiles
+   * perform, or the default if none of them parse.
+   *
+   * @param profiles the profiles to validate against
+   * @throws IllegalArgumentException if the profiles disagree on strict XSD
+   * schema validation
+   */
+  public MultiProfileParser(Iterable<? extends CapProfile> profiles) {
+    this(profiles, isStrictXsdValidation(profiles));
+  }
+
+  /**
+   * @param profiles the profiles to validate against
+   * @param strictXsdValidation if {@code true}, perform by-the-spec XSD schema validation, which
+   * does not check a number of properties specified elsewhere in the spec. If {@code false}
+   * (the default), attempt to do extra validation to conform to the text of the spec.
+   * @throws IllegalArgumentException if any {@link AbstractCapProfile} is set
+   * differently, since the alert is schema-validated only once
+   */
+  public MultiProfileParser(Iterable<? extends CapProfile> profiles,
+      boolean strictXsdValidation) {
+    this.parser = new CapXmlParser(true /* validate */, strictXsdValidation);
+    this.engine = new ProfileEngine(profiles);
+    for (CapProfile profile : engine.getProfiles()) {
+      Preconditions.checkArgument(!(profile instanceof AbstractCapProfile)
+          || ((AbstractCapProfile) profile).isStrictXsdValidation() == strictXsdValidation,
+          "Profile %s does not match strictXsdValidation=%s", profile.getCode(),
+          strictXsdValidation);
+    }
+  }
+
+  private static boolean isStrictXsdValidation(Iterable<? extends CapProfile> profiles) {
+    for (CapProfile profile : profiles) {
+      if (profile instanceof AbstractCapProfile) {
+        return ((AbstractCapProfile) profile).isStrictXsdValidation();
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the profiles this parser validates against
+   */
+  public List<CapProfile> getProfiles() {
+    return engine.getProfiles();
+  }
+
+  /**
+   * @return true if this parser performs by-the-spec XSD schema validation
+   */
+  public boolean isStrictXsdValidation() {
+    return parser.isStrictXsdValidation();
+  }
+
+  /**
+   * Parses the given alert and validates it against each profile.
+   *
+   * @param str the CAP XML to parse, as a UTF-8 string
+   * @return the parsed alert with the reasons found by each profile
+   * @throws NotCapException if the XML is not CAP XML
+   * @throws SAXParseException on XML parsing error
+   */
+  public ProfiledAlert parseFrom(String str) throws NotCapException, SAXParseException {
+    return parseFrom(new StringReader(str));
+  }
+
+  /**
+   * Parses the given alert and validates it against each profile.
+   *
+   * @param reader the reader to read the CAP XML to parse
+   * @return the parsed alert with the reasons found by each profile
+   * @throws NotCapException if the XML is not CAP XML
+   * @throws SAXParseException on XML parsing error
+   */
+  public ProfiledAlert parseFrom(Reader reader) throws NotCapException, SAXParseException {
+    return parseFrom(new InputSource(reader));
+  }
+
+  /**
+   * Parses the given alert and validates it against each profile.
+   *
+   * @param is the input source to read the CAP XML to parse
+   * @return the parsed alert with the reasons found by each profile
+   * @throws NotCapException if the XML is not CAP XML
+   * @throws SAXParseException on XML parsing error
+   */
+  public ProfiledAlert parseFrom(InputSource is) throws NotCapException, SAXParseException {
+    Reasons.Builder reasons = Reasons.newBuilder();
+    Alert alert = parser.parseFrom(is, reasons);
+    return new ProfiledAlert(alert, reasons.build(), engine.validate(alert));
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.profile;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.publicalerts.cap.AlertOrBuilder;
+import com.google.publicalerts.cap.CapMetrics;
+import com.google.publicalerts.cap.Reason;
+import com.google.publicalerts.cap.Reasons;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Validates an alert against several profiles in a single traversal.
+ *
+ * <p>Profiles extending {@link AbstractCapProfile} that provide
+ * {@link ProfileRules} are fused: the engine walks the alert once, computes
+ * the facts the profiles share once (see {@link AlertFacts}) and dispatches
+ * each node to every profile's rules. Other profiles are validated with
+ * {@link CapProfile#validate} as usual.
+ *
+ * <p>This class is thread-safe.
+ *
+ * @author agent@local (agent)
+ */
+public final class ProfileEngine {
+  private final List<CapProfile> profiles;
+
+  /**
+   * @param profiles the profiles to validate against, in the order their
+   * results should be returned
+   */
+  public ProfileEngine(Iterable<? extends CapProfile> profiles) {
+    this.profiles = ImmutableList.copyOf(profiles);
+  }
+
+  /**
+   * @return the profiles this engine validates against
+   */
+  public List<CapProfile> getProfiles() {
+    return profiles;
+  }
+
+  /**
+   * Validates the alert against each profile.
+   *
+   * @param alert the alert to validate
+   * @return the reasons found by each profile, in the order the profiles
+   * were given
+   */
+  public Map<CapProfile, Reasons> validate(AlertOrBuilder alert) {
+    CapMetrics metrics = CapMetrics.get();
+    CapMetrics.Span span = metrics.startSpan(CapMetrics.Stage.PROFILE)
+        .setXmlns(alert.getXmlns());
+    try {
+      Map<CapProfile, Reasons> result = validateInternal(alert);
+      if (metrics.isEnabled()) {
+        Reasons.Builder reasons = Reasons.newBuilder();
+        for (Reasons profileReasons : result.values()) {
+          reasons.addAll(profileReasons);
+        }
+        span.setReasons(reasons.build());
+      }
+      return result;
+    } finally {
+      span.end();
+    }
+  }
+
+  private Map<CapProfile, Reasons> validateInternal(AlertOrBuilder alert) {
+    List<ProfileRules> rules = Lists.newArrayListWithCapacity(profiles.size());
+    List<Reasons.Builder> reasons = Lists.newArrayListWithCapacity(profiles.size());
+    for (CapProfile profile : profiles) {
+      ProfileRules profileRules = profile instanceof AbstractCapProfile
+          ? ((AbstractCapProfile) profile).newRules() : null;
+      rules.add(profileRules);
+      reasons.add(profileRules == null ? null : Reasons.newBuilder());
+    }
+
+    walk(new AlertFacts(alert), rules, reasons);
+
+    Map<CapProfile, Reasons> result = Maps.newLinkedHashMap();
+    for (int i = 0; i < profiles.size(); i++) {
+      CapProfile profile = profiles.get(i);
+      result.put(profile, reasons.get(i) == null
+          ? profile.validate(alert) : errorsFirst(reasons.get(i).build()));
+    }
+    return Collections.unmodifiableMap(result);
+  }
+
+  /**
+   * Validates the alert against a single set of rules.
+   */
+  static Reasons validate(AlertOrBuilder alert, ProfileRules rules) {
+    CapMetrics.Span span = CapMetrics.get().startSpan(CapMetrics.Stage.PROFILE)
+        .setXmlns(alert.getXmlns());
+    try {
+      Reasons.Builder reasons = Reasons.newBuilder();
+      walk(new AlertFacts(alert), Collections.singletonList(rules),
+          Collections.singletonList(reasons));
+      Reasons result = errorsFirst(reasons.build());
+      span.setReasons(result);
+      return result;
+    } finally {
+      span.end();
+    }
+  }
+
+  private static void walk(AlertFacts alert, List<ProfileRules> rules,
+      List<Reasons.Builder> reasons) {
+    int count = rules.size();
+    for (int r = 0; r < count; r++) {
+      if (rules.get(r) != null) {
+        rules.get(r).checkAlert(alert, reasons.get(r));
+      }
+    }
+    for (int i = 0; i < alert.getInfoCount(); i++) {
+      InfoFacts info = alert.getInfo(i);
+      for (int r = 0; r < count; r++) {
+        if (rules.get(r) != null) {
+          rules.get(r).checkInfo(info, reasons.get(r));
+        }
+      }
+      for (int j = 0; j < info.getAreaCount(); j++) {
+        AreaFacts area = info.getArea(j);
+        for (int r = 0; r < count; r++) {
+          if (rules.get(r) != null) {
+            rules.get(r).checkArea(area, reasons.get(r));
+          }
+        }
+      }
+    }
+    for (int r = 0; r < count; r++) {
+      if (rules.get(r) != null) {
+        rules.get(r).finishAlert(alert, reasons.get(r));
+      }
+    }
+  }
+
+  /**
+   * Rules report errors and recommendations node by node, while profiles
+   * report all their errors first. Moves the errors back in front, keeping
+   * the order within each level.
+   */
+  private static Reasons errorsFirst(Reasons reasons) {
+    if (!reasons.containsWithLevel(Reason.Level.ERROR)
+        || reasons.iterator().next().getLevel() == Reason.Level.ERROR) {
+      return reasons;
+    }
+    Reasons.Builder builder = Reasons.newBuilder()
+        .addAll(reasons.getWithLevel(Reason.Level.ERROR));
+    for (Reason reason : reasons) {
+      if (reason.getLevel() != Reason.Level.ERROR) {
+        builder.add(reason);
+      }
+    }
+    return builder.build();
+  }
+}
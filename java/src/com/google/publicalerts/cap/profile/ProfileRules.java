@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.profile;
+
+import com.google.publicalerts.cap.Reasons;
+
+/**
+ * Per-node rule callbacks for a single profile, invoked by
+ * {@link ProfileEngine} as it walks an alert.
+ *
+ * <p>The engine walks the alert once, in document order: {@link #checkAlert}
+ * once, then for each {@code <info>}, {@link #checkInfo} followed by
+ * {@link #checkArea} for each of its {@code <area>}s, and finally
+ * {@link #finishAlert}. A new instance is
+ * created for each alert validated, so implementations may keep state
+ * across callbacks.
+ *
+ * @author agent@local (agent)
+ */
+public abstract class ProfileRules {
+
+  /**
+   * Checks the alert-level constraints of the profile.
+   *
+   * @param alert facts about the alert being validated
+   * @param reasons collection to add errors and recommendations to
+   */
+  protected void checkAlert(AlertFacts alert, Reasons.Builder reasons) {}
+
+  /**
+   * Checks the constraints of the profile on a single {@code <info>}.
+   *
+   * @param info facts about the info being validated
+   * @param reasons collection to add errors and recommendations to
+   */
+  protected void checkInfo(InfoFacts info, Reasons.Builder reasons) {}
+
+  /**
+   * Checks the constraints of the profile on a single {@code <area>}.
+   *
+   * @param area facts about the area being validated
+   * @param reasons collection to add errors and recommendations to
+   */
+  protected void checkArea(AreaFacts area, Reasons.Builder reasons) {}
+
+  /**
+   * Checks the constraints of the profile that apply after every
+   * {@code <info>} and {@code <area>} has been checked.
+   *
+   * @param alert facts about the alert being validated
+   * @param reasons collection to add errors and recommendations to
+   */
+  protected void finishAlert(AlertFacts alert, Reasons.Builder reasons) {}
+}
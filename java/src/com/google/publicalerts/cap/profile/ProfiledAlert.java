@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.profile;
+
+import com.google.publicalerts.cap.Alert;
+import com.google.publicalerts.cap.Reason;
+import com.google.publicalerts.cap.Reasons;
+
+import java.util.Map;
+
+/**
+ * An alert parsed once and validated against several profiles, as returned
+ * by {@link MultiProfileParser}.
+ *
+ * @author agent@local (agent)
+ */
+public final class ProfiledAlert {
+  private final Alert alert;
+  private final Reasons parseReasons;
+  private final Map<CapProfile, Reasons> profileReasons;
+
+  ProfiledAlert(Alert alert, Reasons parseReasons, Map<CapProfile, Reasons> profileReasons) {
+    this.alert = alert;
+    this.parseReasons = parseReasons;
+    this.profileReasons = profileReasons;
+  }
+
+  /**
+   * @return the parsed alert
+   */
+  public Alert getAlert() {
+    return alert;
+  }
+
+  /**
+   * @return the errors, warnings and recommendations found by parsing and
+   * schema-validating the alert, independent of any profile
+   */
+  public Reasons getParseReasons() {
+    return parseReasons;
+  }
+
+  /**
+   * @return the reasons found by each profile, in the order the profiles
+   * were given to the parser
+   */
+  public Map<CapProfile, Reasons> getProfileReasons() {
+    return profileReasons;
+  }
+
+  /**
+   * Returns the reasons found by the given profile only, excluding the
+   * parse reasons.
+   *
+   * @param profile one of the profiles the alert was validated against
+   * @return the reasons
+   * @throws IllegalArgumentException if the alert was not validated against
+   * the profile
+   */
+  public Reasons getReasons(CapProfile profile) {
+    Reasons reasons = profileReasons.get(profile);
+    if (reasons == null) {
+      throw new IllegalArgumentException("Not validated against " + profile);
+    }
+    return reasons;
+  }
+
+  /**
+   * Returns true if the alert is valid for the given profile, that is if
+   * neither parsing nor the profile found any errors. This is the condition
+   * under which parsing through the profile itself would not throw a
+   * {@link com.google.publicalerts.cap.CapException}.
+   *
+   * @param profile one of the profiles the alert was validated against
+   * @return true if the alert is valid for the profile
+   */
+  public boolean isValid(CapProfile profile) {
+    return !parseReasons.containsWithLevelOrHigher(Reason.Level.ERROR)
+        && !getReasons(profile).containsWithLevelOrHigher(Reason.Level.ERROR);
+  }
+}
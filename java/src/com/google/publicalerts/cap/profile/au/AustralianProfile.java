@@ -20,13 +20,13 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.publicalerts.cap.Reason.Level.ERROR;
 import static com.google.publicalerts.cap.Reason.Level.RECOMMENDATION;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.publicalerts.cap.Alert;
 import com.google.publicalerts.cap.AlertOrBuilder;
-import com.google.publicalerts.cap.Area;
 import com.google.publicalerts.cap.CapUtil;
 import com.google.publicalerts.cap.Info;
 import com.google.publicalerts.cap.Reason;
@@ -34,8 +34,11 @@ import com.google.publicalerts.cap.Reason.Level;
 import com.google.publicalerts.cap.Reasons;
 import com.google.publicalerts.cap.ValuePair;
 import com.google.publicalerts.cap.profile.AbstractCapProfile;
+import com.google.publicalerts.cap.profile.AlertFacts;
 import com.google.publicalerts.cap.profile.CsvFileIterator;
 import com.google.publicalerts.cap.profile.CsvFileIterator.CsvRow;
+import com.google.publicalerts.cap.profile.InfoFacts;
+import com.google.publicalerts.cap.profile.ProfileRules;
 
 import java.util.Iterator;
 import java.util.Locale;
@@ -67,8 +70,14 @@ public class AustralianProfile extends AbstractCapProfile {
   static final String CAP_AU_EVENT_CODE_VALUE_NAME =
       "https://govshare.gov.au/xmlui/handle/10772/6495";
 
-  private static final Map<String, EventListEntry> EVENT_BY_EVENT_CODE_MAP =
-      loadEventList("AUeventLIST1.0.csv");
+  // Loaded on first use, so that merely referencing the profile doesn't parse the CSV
+  private static final Supplier<Map<String, EventListEntry>> EVENT_BY_EVENT_CODE_MAP =
+      Suppliers.memoize(new Supplier<Map<String, EventListEntry>>() {
+        @Override
+        public Map<String, EventListEntry> get() {
+          return loadEventList("AUeventLIST1.0.csv");
+        }
+      });
 
   static final Set<String> RECOGNIZED_GEOCODE_VALUES = ImmutableSet.of(
       "http://www.psma.com.au/?product=g-naf",
@@ -89,6 +98,14 @@ public class AustralianProfile extends AbstractCapProfile {
     super(strictXsdValidation);
   }
 
+  /**
+   * Loads the AUeventLIST event list now, rather than the first time an
+   * alert is validated against this profile.
+   */
+  public static void preloadEventList() {
+    EVENT_BY_EVENT_CODE_MAP.get();
+  }
+
   @Override
   public String getName() {
     return "CAP Australian Profile v3.0, Committee Specification 02";
@@ -111,64 +128,79 @@ public class AustralianProfile extends AbstractCapProfile {
 
   @Override
   public Reasons validate(AlertOrBuilder alert) {
-    Reasons.Builder reasons = Reasons.newBuilder();
-    
-    checkForErrors(alert, reasons);
-    checkForRecommendations(alert, reasons);
-    
-    return reasons.build();
+    return validateWithRules(alert);
   }
-  
-  /**
-   * Checks the Alert for errors and populates the collection provided as input.
-   */
-  private void checkForErrors(AlertOrBuilder alert, Reasons.Builder reasons) {
-    // The CAP-AU version code is required
-    boolean hasVersionCode = false;
-    for (String code : alert.getCodeList()) {
-      if (getCode().equals(code)) {
-        hasVersionCode = true;
+
+  @Override
+  protected ProfileRules newRules() {
+    return new Rules();
+  }
+
+  private class Rules extends ProfileRules {
+    private ValuePair authorizedEventCode;
+
+    @Override
+    protected void checkAlert(AlertFacts facts, Reasons.Builder reasons) {
+      AlertOrBuilder alert = facts.getAlert();
+
+      // The CAP-AU version code is required
+      boolean hasVersionCode = false;
+      for (String code : alert.getCodeList()) {
+        if (getCode().equals(code)) {
+          hasVersionCode = true;
+        }
+      }
+      if (!hasVersionCode) {
+        reasons.add("/alert[1]", ReasonType.VERSION_CODE_REQUIRED, getCode());
       }
-    }
-    if (!hasVersionCode) {
-      reasons.add("/alert[1]", ReasonType.VERSION_CODE_REQUIRED, getCode());
-    }
 
-    // For alert messages intended for public distribution, a <msgType> of "Alert", "Update" or
-    // "Cancel" affects the message state, and an <info> element is REQUIRED.
-    if (alert.getMsgType() != Alert.MsgType.ACK && alert.getMsgType() != Alert.MsgType.ERROR
-        && alert.getInfoCount() == 0) {
-      reasons.add("/alert[1]", ReasonType.INFO_IS_REQUIRED);
+      // For alert messages intended for public distribution, a <msgType> of "Alert", "Update" or
+      // "Cancel" affects the message state, and an <info> element is REQUIRED.
+      if (alert.getMsgType() != Alert.MsgType.ACK && alert.getMsgType() != Alert.MsgType.ERROR
+          && alert.getInfoCount() == 0) {
+        reasons.add("/alert[1]", ReasonType.INFO_IS_REQUIRED);
+      }
+
+      // An Update or Cancel message should minimally include references to all active messages
+      if ((alert.getMsgType() == Alert.MsgType.UPDATE
+          || alert.getMsgType() == Alert.MsgType.CANCEL)
+          && alert.getReferences().getValueCount() == 0) {
+        reasons.add("/alert[1]/msgType[1]", ReasonType.UPDATE_OR_CANCEL_MUST_REFERENCE);
+      }
+
+      // <sender> RECOMMENDED that a valid address in the format example@domain that identifies
+      // the agency that assembled the message, or another agency that originated the message be
+      // used. Use of Third Level Domain (example@bom.gov.au) or Fourth Level Domain
+      // (example.ses.sa.gov.au) acceptable.
+      if (!EMAIL_PATTERN.matcher(alert.getSender()).matches()) {
+        reasons.add("/alert[1]/sender[1]", ReasonType.SENDER_SHOULD_BE_EMAIL);
+      }
+
+      // <status> "Test" treated as log-only event and not be broadcast as a valid alert
+      if (alert.getStatus() == Alert.Status.TEST) {
+        reasons.add("/alert[1]/status[1]", ReasonType.TEST_ALERT_WILL_NOT_BE_BROADCAST);
+      }
+
+      // TODO(shakusa) Timezones should be local to the area of the alert unless the area crosses
+      // multiple timezones (then use UTC).
+      // Is there a way we can recommend based on this?
     }
 
-    // An Update or Cancel message should minimally include references to all active messages
-    if ((alert.getMsgType() == Alert.MsgType.UPDATE || alert.getMsgType() == Alert.MsgType.CANCEL)
-        && alert.getReferences().getValueCount() == 0) {
-      reasons.add("/alert[1]/msgType[1]", ReasonType.UPDATE_OR_CANCEL_MUST_REFERENCE);
+    @Override
+    protected void checkInfo(InfoFacts facts, Reasons.Builder reasons) {
+      checkInfoForErrors(facts, reasons);
+      checkInfoForRecommendations(facts, reasons);
     }
 
-    Set<Info.Category> categories = null;
-    Set<ValuePair> eventCodes = null;
-    ValuePair authorizedEventCode = null;
-    Map<String, String> eventByLanguage = Maps.newHashMap();
-    for (int i = 0; i < alert.getInfoCount(); i++) {
-      Info info = alert.getInfo(i);
-      String xpath = "/alert[1]/info[" + (i + 1) + "]";
+    private void checkInfoForErrors(InfoFacts facts, Reasons.Builder reasons) {
+      Info info = facts.getInfo();
+      String xpath = facts.getXPath();
 
       // All infos must have same <category> and <eventCode> values
-      Set<Info.Category> cats = Sets.newHashSet();
-      cats.addAll(info.getCategoryList());
-      if (categories == null) {
-        categories = cats;
-      } else if (!categories.equals(cats)) {
+      if (!facts.categoriesMatchFirst()) {
         reasons.add(xpath, ReasonType.CATEGORIES_MUST_MATCH);
       }
-
-      Set<ValuePair> ecs = Sets.newHashSet();
-      ecs.addAll(info.getEventCodeList());
-      if (eventCodes == null) {
-        eventCodes = ecs;
-      } else if (!eventCodes.equals(ecs)) {
+      if (!facts.eventCodesMatchFirst()) {
         reasons.add(xpath, ReasonType.EVENT_CODES_MUST_MATCH);
       }
 
@@ -186,7 +218,7 @@ public class AustralianProfile extends AbstractCapProfile {
         reasons.add(xpath, ReasonType.ONE_AUTHORIZED_EVENT_CODE_PER_ALERT);
       } else {
         EventListEntry eventListEntry =
-            EVENT_BY_EVENT_CODE_MAP.get(authorizedEventCode.getValue());
+            EVENT_BY_EVENT_CODE_MAP.get().get(authorizedEventCode.getValue());
         if (eventListEntry == null) {
           reasons.add(xpath, ReasonType.UNRECOGNIZED_EVENT_CODE, authorizedEventCode.getValue());
         } else if (!info.getEvent().equals(eventListEntry.tierIEvent)
@@ -198,16 +230,13 @@ public class AustralianProfile extends AbstractCapProfile {
         }
       }
 
-      if (eventByLanguage.containsKey(info.getLanguage())) {
-        if (!info.getEvent().equals(eventByLanguage.get(info.getLanguage()))) {
-          reasons.add(xpath, ReasonType.EVENTS_IN_SAME_LANGUAGE_MUST_MATCH);
-        }
-      } else {
-        eventByLanguage.put(info.getLanguage(), info.getEvent());
+      if (!info.getEvent().equals(facts.getAlert().getFirstEvent(info.getLanguage()))) {
+        reasons.add(xpath, ReasonType.EVENTS_IN_SAME_LANGUAGE_MUST_MATCH);
       }
 
       // Do not use <effective> when <msgType> is Cancel
-      if (alert.getMsgType() == Alert.MsgType.CANCEL && info.hasEffective()) {
+      if (facts.getAlert().getAlert().getMsgType() == Alert.MsgType.CANCEL
+          && info.hasEffective()) {
         reasons.add(xpath, ReasonType.DO_NOT_USE_EFFECTIVE_WITH_MSGTYPE_CANCEL);
       }
 
@@ -216,34 +245,10 @@ public class AustralianProfile extends AbstractCapProfile {
         reasons.add(xpath, ReasonType.AREA_IS_REQUIRED);
       }
     }
-  }
 
-  /**
-   * Checks the Alert for recommendations and populates the collection provided as input.
-   */
-  private void checkForRecommendations(
-      AlertOrBuilder alert, Reasons.Builder reasons) {
-    
-    // <sender> RECOMMENDED that a valid address in the format example@domain that identifies the
-    // agency that assembled the message, or another agency that originated the message be used.
-    // Use of Third Level Domain (example@bom.gov.au) or Fourth Level Domain (example.ses.sa.gov.au)
-    // acceptable.
-    if (!EMAIL_PATTERN.matcher(alert.getSender()).matches()) {
-      reasons.add("/alert[1]/sender[1]", ReasonType.SENDER_SHOULD_BE_EMAIL);
-    }
-
-    // <status> "Test" treated as log-only event and not be broadcast as a valid alert
-    if (alert.getStatus() == Alert.Status.TEST) {
-      reasons.add("/alert[1]/status[1]", ReasonType.TEST_ALERT_WILL_NOT_BE_BROADCAST);
-    }
-
-    // TODO(shakusa) Timezones should be local to the area of the alert unless the area crosses
-    // multiple timezones (then use UTC).
-    // Is there a way we can recommend based on this?
-
-    for (int i = 0; i < alert.getInfoCount(); i++) {
-      Info info = alert.getInfo(i);
-      String xpath = "/alert[1]/info[" + (i + 1) + "]";
+    private void checkInfoForRecommendations(InfoFacts facts, Reasons.Builder reasons) {
+      Info info = facts.getInfo();
+      String xpath = facts.getXPath();
 
       // Note when a recognized <eventCode> is not used
       boolean hasRecognizedEventCode = false;
@@ -269,8 +274,8 @@ public class AustralianProfile extends AbstractCapProfile {
       }
 
       // <responseType> is recommended along with corresponding <instruction>
-      // Allows actions to be available when instructions are not available or not available in all
-      // languages.
+      // Allows actions to be available when instructions are not available or not available in
+      // all languages.
       if (info.getResponseTypeCount() == 0) {
         reasons.add(xpath, ReasonType.RESPONSE_TYPE_STRONGLY_RECOMMENDED);
       }
@@ -282,28 +287,23 @@ public class AustralianProfile extends AbstractCapProfile {
       // Indicate when an update message contains non-substantive content changes.
       // TODO(shakusa) How to recommend MinorChange ?
 
-      // Preferential treatment of <polygon> and <circle>
-      boolean hasPolygonOrCircle = false;
+      // 2.4. area should include a recognised <geocode> value.
       for (int j = 0; j < info.getAreaCount(); j++) {
-        Area area = info.getArea(j);
-        if (area.getCircleCount() != 0 || area.getPolygonCount() != 0) {
-          hasPolygonOrCircle = true;
-        }
         boolean hasValidGeocode = false;
-        // 2.4. area should include a recognised <geocode> value.
-        for (ValuePair geocode : area.getGeocodeList()) {
+        for (ValuePair geocode : info.getArea(j).getGeocodeList()) {
           if (RECOGNIZED_GEOCODE_VALUES.contains(geocode.getValueName())) {
             hasValidGeocode = true;
             break;
           }
         }
         if (!hasValidGeocode) {
-          reasons.add(xpath + "/area[" + (j + 1) + "]", ReasonType.AREA_GEOCODE_IS_RECOMMENDED);
+          reasons.add(facts.getArea(j).getXPath(), ReasonType.AREA_GEOCODE_IS_RECOMMENDED);
         }
       }
 
-      if (!hasPolygonOrCircle && info.getAreaCount() > 0) {
-        reasons.add(xpath + "/area[1]", ReasonType.CIRCLE_POLYGON_ENCOURAGED);
+      // Preferential treatment of <polygon> and <circle>
+      if (!facts.hasCircleOrPolygon() && info.getAreaCount() > 0) {
+        reasons.add(facts.getXPath("area"), ReasonType.CIRCLE_POLYGON_ENCOURAGED);
       }
     }
   }
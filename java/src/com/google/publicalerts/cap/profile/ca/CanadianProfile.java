@@ -20,10 +20,8 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.publicalerts.cap.Reason.Level.ERROR;
 import static com.google.publicalerts.cap.Reason.Level.RECOMMENDATION;
 
-import com.google.common.collect.Sets;
 import com.google.publicalerts.cap.Alert;
 import com.google.publicalerts.cap.AlertOrBuilder;
-import com.google.publicalerts.cap.Area;
 import com.google.publicalerts.cap.CapUtil;
 import com.google.publicalerts.cap.Info;
 import com.google.publicalerts.cap.Reason;
@@ -31,6 +29,10 @@ import com.google.publicalerts.cap.Reason.Level;
 import com.google.publicalerts.cap.Reasons;
 import com.google.publicalerts.cap.ValuePair;
 import com.google.publicalerts.cap.profile.AbstractCapProfile;
+import com.google.publicalerts.cap.profile.AlertFacts;
+import com.google.publicalerts.cap.profile.AreaFacts;
+import com.google.publicalerts.cap.profile.InfoFacts;
+import com.google.publicalerts.cap.profile.ProfileRules;
 
 import java.util.Locale;
 import java.util.Set;
@@ -101,55 +103,57 @@ public class CanadianProfile extends AbstractCapProfile {
 
   @Override
   public Reasons validate(AlertOrBuilder alert) {
-    Reasons.Builder reasons = Reasons.newBuilder();
-    
-    checkForErrors(alert, reasons);
-    checkForRecommendations(alert, reasons);
-    
-    return reasons.build();
+    return validateWithRules(alert);
   }
-  
-  /**
-   * Checks the Alert for errors and populates the collection provided as input.
-   */
-  private void checkForErrors(AlertOrBuilder alert, Reasons.Builder reasons) {
-    // Note: numbers in the comments refer to the corresponding numbers in the profile
-    // documentation.
-
-    // 3. The CAP-CP version for an alert message must be identified
-    boolean hasVersionCode = false;
-    for (String code : alert.getCodeList()) {
-      if (code.startsWith("profile:CAP-CP:")) {
-        hasVersionCode = true;
+
+  @Override
+  protected ProfileRules newRules() {
+    return new Rules();
+  }
+
+  // Note: numbers in the comments refer to the corresponding numbers in the profile
+  // documentation.
+  private class Rules extends ProfileRules {
+    @Override
+    protected void checkAlert(AlertFacts facts, Reasons.Builder reasons) {
+      AlertOrBuilder alert = facts.getAlert();
+
+      // 3. The CAP-CP version for an alert message must be identified
+      boolean hasVersionCode = false;
+      for (String code : alert.getCodeList()) {
+        if (code.startsWith("profile:CAP-CP:")) {
+          hasVersionCode = true;
+        }
+      }
+      if (!hasVersionCode) {
+        reasons.add("/alert[1]", ReasonType.VERSION_CODE_REQUIRED, getCode());
       }
-    }
-    if (!hasVersionCode) {
-      reasons.add("/alert[1]", ReasonType.VERSION_CODE_REQUIRED, getCode());
-    }
 
-    // 5. Alert messages intended for public distribution must include an <info> block
-    if (alert.getMsgType() != Alert.MsgType.ACK && alert.getMsgType() != Alert.MsgType.ERROR
-        && alert.getInfoCount() == 0) {
-      reasons.add("/alert[1]", ReasonType.IS_REQUIRED);
-    }
+      // 5. Alert messages intended for public distribution must include an <info> block
+      if (alert.getMsgType() != Alert.MsgType.ACK && alert.getMsgType() != Alert.MsgType.ERROR
+          && alert.getInfoCount() == 0) {
+        reasons.add("/alert[1]", ReasonType.IS_REQUIRED);
+      }
+
+      // 12. An Update or Cancel message should minimally include references to all active
+      // messages
+      if ((alert.getMsgType() == Alert.MsgType.UPDATE
+          || alert.getMsgType() == Alert.MsgType.CANCEL)
+          && alert.getReferences().getValueCount() == 0) {
+        reasons.add("/alert[1]/msgType[1]", ReasonType.UPDATE_OR_CANCEL_MUST_REFERENCE);
+      }
 
-    // 12. An Update or Cancel message should minimally include references to all active messages
-    if ((alert.getMsgType() == Alert.MsgType.UPDATE || alert.getMsgType() == Alert.MsgType.CANCEL)
-        && alert.getReferences().getValueCount() == 0) {
-      reasons.add("/alert[1]/msgType[1]", ReasonType.UPDATE_OR_CANCEL_MUST_REFERENCE);
+      // 7. Use established <event> values
+      // TODO(shakusa) Lookup established event values?
     }
 
-    Set<ValuePair> eventCodes = null;
-    for (int i = 0; i < alert.getInfoCount(); i++) {
-      Info info = alert.getInfo(i);
-      String xpath = "/alert[1]/info[" + (i + 1) + "]";
+    @Override
+    protected void checkInfo(InfoFacts facts, Reasons.Builder reasons) {
+      Info info = facts.getInfo();
+      String xpath = facts.getXPath();
 
       // 2. Constraint of one subject event per alert message
-      Set<ValuePair> ecs = Sets.newHashSet();
-      ecs.addAll(info.getEventCodeList());
-      if (eventCodes == null) {
-        eventCodes = ecs;
-      } else if (!eventCodes.equals(ecs)) {
+      if (!facts.eventCodesMatchFirst()) {
         reasons.add(xpath, ReasonType.EVENT_CODES_MUST_MATCH);
       }
 
@@ -171,42 +175,6 @@ public class CanadianProfile extends AbstractCapProfile {
         reasons.add(xpath, ReasonType.AREA_IS_REQUIRED);
       }
 
-      for (int j = 0; j < info.getAreaCount(); j++) {
-        Area area = info.getArea(j);
-        boolean hasValidGeocode = false;
-        // 9. A recognized <geocode> must be used
-        for (ValuePair geocode : area.getGeocodeList()) {
-          if (geocode.getValueName().startsWith(CAPCP_LOCATION)) {
-            // TODO(shakusa) Validate value according to
-            // http://www.statcan.gc.ca/subjects-sujets/standard-norme/sgc-cgt/geography-geographie-eng.htm
-            // CAP_CP Location References document
-            hasValidGeocode = true;
-            break;
-          }
-        }
-        if (!hasValidGeocode) {
-          reasons.add(xpath + "/area[" + (j + 1) + "]", ReasonType.AREA_GEOCODE_IS_REQUIRED);
-        }
-      }
-    }
-  }
-  
-  /**
-   * Checks the Alert for recommendations and populates the collection provided as input.
-   */
-  private void checkForRecommendations(
-      AlertOrBuilder alert, Reasons.Builder reasons) {
-    
-    // 7. Use established <event> values
-    // TODO(shakusa) Lookup established event values?
-
-    Set<String> languages = Sets.newHashSet();
-    for (int i = 0; i < alert.getInfoCount(); i++) {
-      Info info = alert.getInfo(i);
-      String xpath = "/alert[1]/info[" + (i + 1) + "]";
-
-      languages.add(info.getLanguage());
-
       // 13. An <expires> value is strongly recommended
       if (!info.hasExpires() || CapUtil.isEmptyOrWhitespace(info.getExpires())) {
         reasons.add(xpath, ReasonType.EXPIRES_STRONGLY_RECOMMENDED);
@@ -217,7 +185,7 @@ public class CanadianProfile extends AbstractCapProfile {
         reasons.add(xpath, ReasonType.SENDER_NAME_STRONGLY_RECOMMENDED);
       }
 
-      // 15. <responseType> is strongly recommended, when applicable, along with a corresponding 
+      // 15. <responseType> is strongly recommended, when applicable, along with a corresponding
       // <instruction> value
       if (info.getResponseTypeCount() == 0) {
         reasons.add(xpath, ReasonType.RESPONSE_TYPE_STRONGLY_RECOMMENDED);
@@ -234,22 +202,37 @@ public class CanadianProfile extends AbstractCapProfile {
       // TODO(shakusa) How to recommend AutoTranslated ?
 
       // 18. Preferential treatment of <polygon> and <circle>
-      boolean hasPolygonOrCircle = false;
-      for (int j = 0; j < info.getAreaCount(); j++) {
-        Area area = info.getArea(j);
-        if (area.getCircleCount() != 0 || area.getPolygonCount() != 0) {
-          hasPolygonOrCircle = true;
+      if (!facts.hasCircleOrPolygon() && info.getAreaCount() > 0) {
+        reasons.add(facts.getXPath("area"), ReasonType.CIRCLE_POLYGON_ENCOURAGED);
+      }
+    }
+
+    @Override
+    protected void checkArea(AreaFacts facts, Reasons.Builder reasons) {
+      // 9. A recognized <geocode> must be used
+      boolean hasValidGeocode = false;
+      for (ValuePair geocode : facts.getArea().getGeocodeList()) {
+        if (geocode.getValueName().startsWith(CAPCP_LOCATION)) {
+          // TODO(shakusa) Validate value according to
+          // http://www.statcan.gc.ca/subjects-sujets/standard-norme/sgc-cgt/geography-geographie-eng.htm
+          // CAP_CP Location References document
+          hasValidGeocode = true;
+          break;
         }
       }
-      if (!hasPolygonOrCircle && info.getAreaCount() > 0) {
-        reasons.add(xpath + "/area[1]", ReasonType.CIRCLE_POLYGON_ENCOURAGED);
+      if (!hasValidGeocode) {
+        reasons.add(facts.getXPath(), ReasonType.AREA_GEOCODE_IS_REQUIRED);
       }
     }
 
-    // 6. <info> blocks must specify the content language
-    if ((!languages.contains("en-US") && !languages.contains("en-CA"))
-        || !languages.contains("fr-CA")) {
-      reasons.add("/alert[1]", ReasonType.ENGLISH_AND_FRENCH);
+    @Override
+    protected void finishAlert(AlertFacts facts, Reasons.Builder reasons) {
+      // 6. <info> blocks must specify the content language
+      Set<String> languages = facts.getLanguages();
+      if ((!languages.contains("en-US") && !languages.contains("en-CA"))
+          || !languages.contains("fr-CA")) {
+        reasons.add("/alert[1]", ReasonType.ENGLISH_AND_FRENCH);
+      }
     }
   }
 
@@ -20,10 +20,8 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.publicalerts.cap.Reason.Level.ERROR;
 import static com.google.publicalerts.cap.Reason.Level.RECOMMENDATION;
 
-import com.google.common.collect.Sets;
 import com.google.publicalerts.cap.Alert;
 import com.google.publicalerts.cap.AlertOrBuilder;
-import com.google.publicalerts.cap.Area;
 import com.google.publicalerts.cap.CapUtil;
 import com.google.publicalerts.cap.Info;
 import com.google.publicalerts.cap.Reason;
@@ -31,9 +29,12 @@ import com.google.publicalerts.cap.Reason.Level;
 import com.google.publicalerts.cap.Reasons;
 import com.google.publicalerts.cap.ValuePair;
 import com.google.publicalerts.cap.profile.AbstractCapProfile;
+import com.google.publicalerts.cap.profile.AlertFacts;
+import com.google.publicalerts.cap.profile.AreaFacts;
+import com.google.publicalerts.cap.profile.InfoFacts;
+import com.google.publicalerts.cap.profile.ProfileRules;
 
 import java.util.Locale;
-import java.util.Set;
 
 /**
  * US FEMA Integrated Public Alert and Warning System CAP Profile, version 1.
@@ -81,67 +82,66 @@ public class Ipaws1Profile extends AbstractCapProfile {
   
   @Override
   public Reasons validate(AlertOrBuilder alert) {
-    Reasons.Builder reasons = Reasons.newBuilder();
-    
-    checkForErrors(alert, reasons);
-    checkForRecommendations(alert, reasons);
-    
-    return reasons.build();
+    return validateWithRules(alert);
   }
-  
-  /**
-   * Checks the Alert for errors and populates the collection provided as input.
-   */
-  private void checkForErrors(AlertOrBuilder alert, Reasons.Builder reasons) {
-    // sent SHALL include the timezone offset
-    checkZeroTimezone(reasons, alert.getSent(), "/alert[1]/sent[1]",
-        ReasonType.SENT_INCLUDE_TIMEZONE_OFFSET);
-
-    // code SHALL include the string "IPAWSv1.0" to indicate the profile version in use.
-    boolean hasVersionCode = false;
-    for (String code : alert.getCodeList()) {
-      if (getCode().equals(code)) {
-        hasVersionCode = true;
+
+  @Override
+  protected ProfileRules newRules() {
+    return new Rules();
+  }
+
+  private class Rules extends ProfileRules {
+    @Override
+    protected void checkAlert(AlertFacts facts, Reasons.Builder reasons) {
+      AlertOrBuilder alert = facts.getAlert();
+
+      // sent SHALL include the timezone offset
+      if (facts.isSentZeroTimezone()) {
+        reasons.add("/alert[1]/sent[1]", ReasonType.SENT_INCLUDE_TIMEZONE_OFFSET);
+      }
+
+      // code SHALL include the string "IPAWSv1.0" to indicate the profile version in use.
+      boolean hasVersionCode = false;
+      for (String code : alert.getCodeList()) {
+        if (getCode().equals(code)) {
+          hasVersionCode = true;
+        }
+      }
+      if (!hasVersionCode) {
+        reasons.add("/alert[1]", ReasonType.VERSION_CODE_REQUIRED, getCode());
+      }
+
+      // if Update or Cancel, references should contain all non-expired messages
+      if ((alert.getMsgType() == Alert.MsgType.UPDATE
+          || alert.getMsgType() == Alert.MsgType.CANCEL)
+          && alert.getReferences().getValueCount() == 0) {
+        reasons.add("/alert[1]/msgType[1]", ReasonType.UPDATE_OR_CANCEL_MUST_REFERENCE);
       }
-    }
-    if (!hasVersionCode) {
-      reasons.add("/alert[1]", ReasonType.VERSION_CODE_REQUIRED, getCode());
     }
 
-    // if Update or Cancel, references should contain all non-expired messages
-    if ((alert.getMsgType() == Alert.MsgType.UPDATE || alert.getMsgType() == Alert.MsgType.CANCEL)
-        && alert.getReferences().getValueCount() == 0) {
-      reasons.add("/alert[1]/msgType[1]", ReasonType.UPDATE_OR_CANCEL_MUST_REFERENCE);
+    @Override
+    protected void checkInfo(InfoFacts facts, Reasons.Builder reasons) {
+      checkInfoForErrors(facts, reasons);
+      checkInfoForRecommendations(facts, reasons);
     }
 
-    Set<ValuePair> eventCodes = null;
-    Set<Info.Category> categories = null;
-    for (int i = 0; i < alert.getInfoCount(); i++) {
-      String xpath = "/alert[1]/info[" + (i + 1) + "]";
+    private void checkInfoForErrors(InfoFacts facts, Reasons.Builder reasons) {
+      Info info = facts.getInfo();
+      String xpath = facts.getXPath();
+
       // All info blocks in a single alert MUST have the same category and eventCode values.
-      Info info = alert.getInfo(i);
-      Set<ValuePair> ecs = Sets.newHashSet();
-      ecs.addAll(info.getEventCodeList());
-      Set<Info.Category> cats = Sets.newHashSet();
-      cats.addAll(info.getCategoryList());
-      if (eventCodes == null) {
-        eventCodes = ecs;
-        categories = cats;
-      } else {
-        if (!eventCodes.equals(ecs)) {
-          reasons.add(xpath, ReasonType.EVENT_CODES_MUST_MATCH);
-        }
-        if (!categories.equals(cats)) {
-          reasons.add(xpath, ReasonType.CATEGORIES_MUST_MATCH);
-        }
+      if (!facts.eventCodesMatchFirst()) {
+        reasons.add(xpath, ReasonType.EVENT_CODES_MUST_MATCH);
+      }
+      if (!facts.categoriesMatchFirst()) {
+        reasons.add(xpath, ReasonType.CATEGORIES_MUST_MATCH);
       }
 
       // expires is required.  The value MUST include the timezone offset.
       if (CapUtil.isEmptyOrWhitespace(info.getExpires())) {
         reasons.add(xpath, ReasonType.EXPIRES_IS_REQUIRED);
-      } else {
-        checkZeroTimezone(reasons, info.getExpires(), xpath + "/expires[1]",
-            ReasonType.EXPIRES_INCLUDE_TIMEZONE_OFFSET);
+      } else if (facts.isExpiresZeroTimezone()) {
+        reasons.add(facts.getXPath("expires"), ReasonType.EXPIRES_INCLUDE_TIMEZONE_OFFSET);
       }
 
       // MUST have one and only one eventCode with valueName of "SAME" and a SAME-standard
@@ -171,25 +171,17 @@ public class Ipaws1Profile extends AbstractCapProfile {
       // An alert intended for EAS and/or HazCollect dissemination MUST include a parameter with a
       // valueName of "EAS-ORG" with a value of SAME ORG code.
     }
-  }
 
-  /**
-   * Checks the Alert for recommendations and populates the collection provided
-   * as input.
-   */
-  private void checkForRecommendations(
-      AlertOrBuilder alert, Reasons.Builder reasons) {
-
-    for (int i = 0; i < alert.getInfoCount(); i++) {
-      Info info = alert.getInfo(i);
-      String xpath = "/alert[1]/info[" + (i + 1) + "]";
+    private void checkInfoForRecommendations(InfoFacts facts, Reasons.Builder reasons) {
+      Info info = facts.getInfo();
+      String xpath = facts.getXPath();
 
       // effective, onset are ignored if present.
       if (!CapUtil.isEmptyOrWhitespace(info.getEffective())) {
-        reasons.add(xpath + "/effective[1]", ReasonType.INFO_EFFECTIVE_IS_IGNORED);
+        reasons.add(facts.getXPath("effective"), ReasonType.INFO_EFFECTIVE_IS_IGNORED);
       }
       if (!CapUtil.isEmptyOrWhitespace(info.getOnset())) {
-        reasons.add(xpath + "/onset[1]", ReasonType.INFO_ONSET_IS_IGNORED);
+        reasons.add(facts.getXPath("onset"), ReasonType.INFO_ONSET_IS_IGNORED);
       }
 
       // description should be there
@@ -201,23 +193,23 @@ public class Ipaws1Profile extends AbstractCapProfile {
       if (CapUtil.isEmptyOrWhitespace(info.getInstruction())) {
         reasons.add(xpath, ReasonType.INFO_INSTRUCTION_RECOMMENDED);
       }
+    }
 
-      for (int j = 0; j < info.getAreaCount(); j++) {
-        Area area = info.getArea(j);
-        // At least one <geocode> required with a valueName of "SAME" and value of a SAME 6-digit
-        // location code (extended FIPS).
-        boolean hasSameGeocode = false;
-        for (ValuePair geocode : area.getGeocodeList()) {
-          if ("SAME".equals(geocode.getValueName())) {
-            if (geocode.getValue().length() == 6) {
-              hasSameGeocode = true;
-              break;
-            }
+    @Override
+    protected void checkArea(AreaFacts facts, Reasons.Builder reasons) {
+      // At least one <geocode> required with a valueName of "SAME" and value of a SAME 6-digit
+      // location code (extended FIPS).
+      boolean hasSameGeocode = false;
+      for (ValuePair geocode : facts.getArea().getGeocodeList()) {
+        if ("SAME".equals(geocode.getValueName())) {
+          if (geocode.getValue().length() == 6) {
+            hasSameGeocode = true;
+            break;
           }
         }
-        if (!hasSameGeocode) {
-          reasons.add(xpath + "/area[" + (j + 1) + "]", ReasonType.AREA_SAME_GEOCODE_RECOMMENDED);
-        }
+      }
+      if (!hasSameGeocode) {
+        reasons.add(facts.getXPath(), ReasonType.AREA_SAME_GEOCODE_RECOMMENDED);
       }
     }
   }
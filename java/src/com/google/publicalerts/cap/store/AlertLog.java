@@ -0,0 +1,836 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.store;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.publicalerts.cap.Alert;
+import com.google.publicalerts.cap.CapDateUtil;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of binary {@link Alert} messages.
+ *
+ * <p>Alerts are stored in segment files of length-delimited, checksummed
+ * serialized alerts. Each segment has a companion index file of fixed-width
+ * entries holding the identifier hash, sent time and offset of each alert.
+ * When a segment is sealed, a lookup file is written beside it holding a
+ * hash table of its index entries by identifier hash, and its index entries
+ * sorted by sent time. Lookups query the memory-mapped index and lookup
+ * files directly, probing the hash table or binary searching the sorted
+ * entries, so opening the log reads no more than the headers of its
+ * files, and lookups only parse the alerts that match. The index of the
+ * active segment, which has no lookup file yet, is scanned. Reads parse
+ * from the memory-mapped segment.
+ *
+ * <p>When the active segment would grow past the configured maximum size, a
+ * new segment is started. On {@link #open}, the last segment is checked for a
+ * torn write from a crash: any trailing partial or corrupt record is
+ * truncated and the index is rebuilt to match the segment.
+ *
+ * <p>Data is handed to the operating system on every append; call
+ * {@link #sync()} to force it to disk.
+ *
+ * <p>This class is thread-safe.
+ *
+ * @author agent@local (agent)
+ */
+public class AlertLog implements Closeable {
+  private static final Logger log = Logger.getLogger(AlertLog.class.getName());
+
+  /** The default maximum segment size, in bytes. */
+  public static final long DEFAULT_MAX_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+  private static final int MAGIC = 0x4341504c; // "CAPL"
+  private static final int FORMAT_VERSION = 1;
+  private static final int SEGMENT_HEADER_BYTES = 8;
+
+  // int payload length, int CRC32 of the payload
+  private static final int RECORD_HEADER_BYTES = 8;
+
+  // long identifier hash, long sent millis, int record offset, int payload length
+  private static final int INDEX_ENTRY_BYTES = 24;
+
+  // int entry count, int hash table slot count, int sorted entry count
+  private static final int LOOKUP_HEADER_BYTES = 12;
+
+  // A growing file is remapped once it grows by this much; the bytes past
+  // the mapping are read from the file
+  private static final int MAP_CHUNK_BYTES = 1024 * 1024;
+
+  private static final long UNKNOWN_SENT = Long.MIN_VALUE;
+
+  private static final String LOG_SUFFIX = ".log";
+  private static final String INDEX_SUFFIX = ".idx";
+  private static final String LOOKUP_SUFFIX = ".lkp";
+  private static final Pattern SEGMENT_NAME = Pattern.compile("\\d{8}\\" + LOG_SUFFIX);
+
+  private static final HashFunction IDENTIFIER_HASH = Hashing.murmur3_128();
+
+  private final File directory;
+  private final long maxSegmentBytes;
+  private final List<Segment> segments;
+
+  // Holds each payload while it is parsed, grown to the largest read
+  private byte[] readBuffer = new byte[4096];
+  private boolean closed;
+
+  private AlertLog(File directory, long maxSegmentBytes, List<Segment> segments) {
+    this.directory = directory;
+    this.maxSegmentBytes = maxSegmentBytes;
+    this.segments = segments;
+  }
+
+  /**
+   * Opens the log in the given directory, creating it if necessary, with
+   * segments of at most {@link #DEFAULT_MAX_SEGMENT_BYTES}.
+   *
+   * @param directory the directory holding the segment files
+   * @return the opened log
+   * @throws IOException on error reading or recovering the log
+   */
+  public static AlertLog open(File directory) throws IOException {
+    return open(directory, DEFAULT_MAX_SEGMENT_BYTES);
+  }
+
+  /**
+   * Opens the log in the given directory, creating it if necessary.
+   *
+   * @param directory the directory holding the segment files
+   * @param maxSegmentBytes the size, in bytes, past which a new segment is
+   * started. A single alert larger than this gets a segment of its own.
+   * @return the opened log
+   * @throws IOException on error reading or recovering the log
+   */
+  public static AlertLog open(File directory, long maxSegmentBytes) throws IOException {
+    Preconditions.checkArgument(maxSegmentBytes > SEGMENT_HEADER_BYTES
+        && maxSegmentBytes <= Integer.MAX_VALUE, "Invalid segment size %s", maxSegmentBytes);
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Unable to create " + directory);
+    }
+
+    String[] names = directory.list(new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+        return SEGMENT_NAME.matcher(name).matches();
+      }
+    });
+    Arrays.sort(names);
+
+    List<Segment> segments = Lists.newArrayList();
+    for (int i = 0; i < names.length; i++) {
+      int number = Integer.parseInt(
+          names[i].substring(0, names[i].length() - LOG_SUFFIX.length()));
+      segments.add(Segment.open(directory, number, i == names.length - 1));
+    }
+    if (segments.isEmpty()) {
+      segments.add(Segment.create(directory, 0));
+    }
+    return new AlertLog(directory, maxSegmentBytes, segments);
+  }
+
+  /**
+   * Appends the given alert to the log.
+   *
+   * @param alert the alert to append
+   * @return the address of the alert, for use with {@link #read(long)}
+   * @throws IOException on error writing the log
+   */
+  public synchronized long append(Alert alert) throws IOException {
+    checkOpen();
+    byte[] payload = alert.toByteArray();
+    Segment active = segments.get(segments.size() - 1);
+    long recordBytes = RECORD_HEADER_BYTES + payload.length;
+    if (active.size > SEGMENT_HEADER_BYTES && active.size + recordBytes > maxSegmentBytes) {
+      active.seal();
+      active = Segment.create(directory, active.number + 1);
+      segments.add(active);
+    }
+    int offset = active.append(
+        payload, identifierHash(alert.getIdentifier()), sentMillis(alert));
+    return toAddress(active.number, offset);
+  }
+
+  /**
+   * Reads the alert at the given address.
+   *
+   * @param address an address returned by {@link #append(Alert)}
+   * @return the alert
+   * @throws IOException on error reading the log, or if there is no alert at
+   * the given address
+   */
+  public synchronized Alert read(long address) throws IOException {
+    checkOpen();
+    int number = (int) (address >>> 32);
+    for (Segment segment : segments) {
+      if (segment.number == number) {
+        return read(segment, (int) address);
+      }
+    }
+    throw new IOException("No segment for address " + address);
+  }
+
+  /**
+   * Returns all alerts in the log with the given identifier, in the order
+   * they were appended.
+   *
+   * @param identifier the alert identifier
+   * @return the matching alerts, may be empty
+   * @throws IOException on error reading the log
+   */
+  public synchronized List<Alert> findByIdentifier(String identifier) throws IOException {
+    checkOpen();
+    long hash = identifierHash(identifier);
+    List<Alert> alerts = Lists.newArrayList();
+    for (Segment segment : segments) {
+      for (int entry : segment.findByHash(hash)) {
+        Alert alert = read(segment, segment.offsetOf(entry));
+        if (identifier.equals(alert.getIdentifier())) {
+          alerts.add(alert);
+        }
+      }
+    }
+    return alerts;
+  }
+
+  /**
+   * Returns all alerts in the log sent in the given time range, in the order
+   * they were appended.
+   *
+   * @param from the start of the range, inclusive
+   * @param to the end of the range, exclusive
+   * @return the matching alerts, may be empty
+   * @throws IOException on error reading the log
+   */
+  public synchronized List<Alert> findBySent(Date from, Date to) throws IOException {
+    checkOpen();
+    if (from.getTime() >= to.getTime()) {
+      return Lists.newArrayList();
+    }
+    List<Alert> alerts = Lists.newArrayList();
+    for (Segment segment : segments) {
+      for (int entry : segment.findBySent(from.getTime(), to.getTime())) {
+        alerts.add(read(segment, segment.offsetOf(entry)));
+      }
+    }
+    return alerts;
+  }
+
+  /**
+   * Returns all alerts in the log, in the order they were appended.
+   *
+   * @throws IOException on error reading the log
+   */
+  public synchronized List<Alert> readAll() throws IOException {
+    checkOpen();
+    List<Alert> alerts = Lists.newArrayList();
+    for (Segment segment : segments) {
+      for (int i = 0; i < segment.entryCount; i++) {
+        alerts.add(read(segment, segment.offsetOf(i)));
+      }
+    }
+    return alerts;
+  }
+
+  /**
+   * @return the number of alerts in the log
+   */
+  public synchronized int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.entryCount;
+    }
+    return size;
+  }
+
+  /**
+   * @return the number of segment files in the log
+   */
+  public synchronized int getSegmentCount() {
+    return segments.size();
+  }
+
+  /**
+   * Forces all appended alerts to disk.
+   *
+   * @throws IOException on error syncing the log
+   */
+  public synchronized void sync() throws IOException {
+    checkOpen();
+    segments.get(segments.size() - 1).sync();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    for (Segment segment : segments) {
+      segment.close();
+    }
+  }
+
+  /**
+   * Parses the alert at the given offset of the segment straight from the
+   * bytes of its record.
+   */
+  private Alert read(Segment segment, int offset) throws IOException {
+    int length = segment.readPayloadLength(offset);
+    if (readBuffer.length < length) {
+      readBuffer = new byte[Math.max(length, readBuffer.length * 2)];
+    }
+    segment.logMap.get(offset + RECORD_HEADER_BYTES, readBuffer, length);
+    return Alert.parseFrom(CodedInputStream.newInstance(readBuffer, 0, length));
+  }
+
+  private void checkOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Log is closed");
+    }
+  }
+
+  private static long toAddress(int segmentNumber, int offset) {
+    return ((long) segmentNumber << 32) | (offset & 0xffffffffL);
+  }
+
+  private static long identifierHash(String identifier) {
+    return IDENTIFIER_HASH.hashString(identifier, Charsets.UTF_8).asLong();
+  }
+
+  private static long sentMillis(Alert alert) {
+    Date sent = CapDateUtil.toJavaDate(alert.getSent());
+    return sent == null ? UNKNOWN_SENT : sent.getTime();
+  }
+
+  private static int crc(byte[] payload) {
+    CRC32 crc = new CRC32();
+    crc.update(payload, 0, payload.length);
+    return (int) crc.getValue();
+  }
+
+  /**
+   * A segment file, its index, and, once sealed, its lookup file.
+   */
+  private static class Segment {
+    final int number;
+    final File logFile;
+    final File indexFile;
+    final File lookupFile;
+    final RandomAccessFile logRaf;
+    final RandomAccessFile indexRaf;
+    final MappedFile logMap;
+    final MappedFile indexMap;
+    long size;
+    int entryCount;
+
+    // The hash table and sorted entries of a sealed segment, or null if
+    // the segment is active
+    private MappedByteBuffer lookup;
+    private int slotCount;
+    private int sortedCount;
+
+    private Segment(int number, File directory, String mode) throws IOException {
+      String name = String.format("%08d", number);
+      this.number = number;
+      this.logFile = new File(directory, name + LOG_SUFFIX);
+      this.indexFile = new File(directory, name + INDEX_SUFFIX);
+      this.lookupFile = new File(directory, name + LOOKUP_SUFFIX);
+      this.logRaf = new RandomAccessFile(logFile, mode);
+      this.indexRaf = new RandomAccessFile(indexFile, mode);
+      this.logMap = new MappedFile(logRaf.getChannel());
+      this.indexMap = new MappedFile(indexRaf.getChannel());
+    }
+
+    static Segment create(File directory, int number) throws IOException {
+      Segment segment = new Segment(number, directory, "rw");
+      segment.writeHeader();
+      segment.indexRaf.setLength(0);
+      segment.logMap.grow(segment.size);
+      segment.indexMap.grow(0);
+      return segment;
+    }
+
+    static Segment open(File directory, int number, boolean active) throws IOException {
+      Segment segment = new Segment(number, directory, active ? "rw" : "r");
+      segment.size = segment.logRaf.length();
+      segment.entryCount = (int) (segment.indexRaf.length() / INDEX_ENTRY_BYTES);
+      if (active) {
+        segment.recover();
+      }
+      segment.logMap.grow(segment.size);
+      segment.indexMap.grow((long) segment.entryCount * INDEX_ENTRY_BYTES);
+      if (!active) {
+        segment.openLookup();
+      }
+      return segment;
+    }
+
+    /**
+     * Brings the segment and its index back in line after a crash: drops
+     * index entries for records that did not make it to the segment,
+     * indexes complete records that did not make it to the index, and
+     * truncates any trailing partial record.
+     */
+    void recover() throws IOException {
+      if (size < SEGMENT_HEADER_BYTES) {
+        writeHeader();
+        entryCount = 0;
+        indexRaf.setLength(0);
+        return;
+      }
+      checkHeader();
+
+      // Drop index entries pointing at torn or missing records
+      long end = SEGMENT_HEADER_BYTES;
+      while (entryCount > 0) {
+        indexRaf.seek((long) (entryCount - 1) * INDEX_ENTRY_BYTES + 16);
+        int offset = indexRaf.readInt();
+        int length = indexRaf.readInt();
+        if (readValidPayload(offset) != null
+            && readRecordLength(offset) == length) {
+          end = (long) offset + RECORD_HEADER_BYTES + length;
+          break;
+        }
+        entryCount--;
+      }
+      indexRaf.setLength((long) entryCount * INDEX_ENTRY_BYTES);
+
+      // Index complete records missing from the index
+      int recovered = 0;
+      while (end < size) {
+        byte[] payload = readValidPayload(end);
+        if (payload == null) {
+          break;
+        }
+        Alert alert;
+        try {
+          alert = Alert.parseFrom(payload);
+        } catch (InvalidProtocolBufferException e) {
+          break;
+        }
+        appendIndexEntry(identifierHash(alert.getIdentifier()), sentMillis(alert),
+            (int) end, payload.length);
+        end += RECORD_HEADER_BYTES + payload.length;
+        recovered++;
+      }
+
+      if (end < size) {
+        log.warning("Truncating " + (size - end) + " trailing bytes from " + logFile);
+        logRaf.setLength(end);
+        size = end;
+      }
+      if (recovered > 0) {
+        log.info("Recovered " + recovered + " unindexed alerts in " + logFile);
+      }
+    }
+
+    private int readRecordLength(long offset) throws IOException {
+      logRaf.seek(offset);
+      return logRaf.readInt();
+    }
+
+    /**
+     * Returns the payload of the record at the given offset, or null if the
+     * record is incomplete or fails its checksum.
+     */
+    private byte[] readValidPayload(long offset) throws IOException {
+      if (offset < SEGMENT_HEADER_BYTES || offset + RECORD_HEADER_BYTES > size) {
+        return null;
+      }
+      logRaf.seek(offset);
+      int length = logRaf.readInt();
+      int checksum = logRaf.readInt();
+      if (length < 0 || offset + RECORD_HEADER_BYTES + length > size) {
+        return null;
+      }
+      byte[] payload = new byte[length];
+      logRaf.readFully(payload);
+      return crc(payload) == checksum ? payload : null;
+    }
+
+    int append(byte[] payload, long identifierHash, long sentMillis) throws IOException {
+      int offset = (int) size;
+      ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.length);
+      record.putInt(payload.length).putInt(crc(payload)).put(payload).flip();
+      FileChannel channel = logRaf.getChannel();
+      while (record.hasRemaining()) {
+        channel.write(record, size + record.position());
+      }
+      size += RECORD_HEADER_BYTES + payload.length;
+      appendIndexEntry(identifierHash, sentMillis, offset, payload.length);
+      logMap.grow(size);
+      indexMap.grow((long) entryCount * INDEX_ENTRY_BYTES);
+      return offset;
+    }
+
+    private void appendIndexEntry(long identifierHash, long sentMillis, int offset, int length)
+        throws IOException {
+      ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+      entry.putLong(identifierHash).putLong(sentMillis).putInt(offset).putInt(length).flip();
+      long position = (long) entryCount * INDEX_ENTRY_BYTES;
+      FileChannel channel = indexRaf.getChannel();
+      while (entry.hasRemaining()) {
+        channel.write(entry, position + entry.position());
+      }
+      entryCount++;
+    }
+
+    /**
+     * Returns the length of the payload of the record at the given
+     * offset, checking the record lies within the segment.
+     */
+    int readPayloadLength(int offset) throws IOException {
+      if (offset < SEGMENT_HEADER_BYTES || offset + RECORD_HEADER_BYTES > size) {
+        throw new IOException("No alert at offset " + offset + " of " + logFile);
+      }
+      int length = logMap.getInt(offset);
+      if (length < 0 || (long) offset + RECORD_HEADER_BYTES + length > size) {
+        throw new IOException("Corrupt record length " + length + " at offset " + offset
+            + " of " + logFile);
+      }
+      return length;
+    }
+
+    long hashOf(int entry) throws IOException {
+      return indexMap.getLong((long) entry * INDEX_ENTRY_BYTES);
+    }
+
+    long sentOf(int entry) throws IOException {
+      return indexMap.getLong((long) entry * INDEX_ENTRY_BYTES + 8);
+    }
+
+    int offsetOf(int entry) throws IOException {
+      return indexMap.getInt((long) entry * INDEX_ENTRY_BYTES + 16);
+    }
+
+    /**
+     * Returns the entries with the given identifier hash, in the order
+     * they were appended.
+     */
+    int[] findByHash(long hash) throws IOException {
+      IntList entries = new IntList();
+      if (lookup == null) {
+        for (int entry = 0; entry < entryCount; entry++) {
+          if (hashOf(entry) == hash) {
+            entries.add(entry);
+          }
+        }
+        return entries.toArray();
+      }
+      int mask = slotCount - 1;
+      for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+        int entry = lookup.getInt(LOOKUP_HEADER_BYTES + slot * 4) - 1;
+        if (entry < 0) {
+          break;
+        }
+        if (hashOf(entry) == hash) {
+          entries.add(entry);
+        }
+      }
+      int[] found = entries.toArray();
+      Arrays.sort(found);
+      return found;
+    }
+
+    /**
+     * Returns the entries sent in the given range, in the order they were
+     * appended.
+     */
+    int[] findBySent(long from, long to) throws IOException {
+      IntList entries = new IntList();
+      if (lookup == null) {
+        for (int entry = 0; entry < entryCount; entry++) {
+          long sent = sentOf(entry);
+          if (sent != UNKNOWN_SENT && sent >= from && sent < to) {
+            entries.add(entry);
+          }
+        }
+        return entries.toArray();
+      }
+      int sorted = LOOKUP_HEADER_BYTES + slotCount * 4;
+      int low = 0;
+      int high = sortedCount;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (sentOf(lookup.getInt(sorted + mid * 4)) < from) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      for (int i = low; i < sortedCount; i++) {
+        int entry = lookup.getInt(sorted + i * 4);
+        if (sentOf(entry) >= to) {
+          break;
+        }
+        entries.add(entry);
+      }
+      int[] found = entries.toArray();
+      Arrays.sort(found);
+      return found;
+    }
+
+    /**
+     * Maps the lookup file of this sealed segment, writing it first if it
+     * is missing or does not match the index.
+     */
+    private void openLookup() throws IOException {
+      if (!lookupFile.isFile() || !readLookup()) {
+        writeLookup();
+        if (!readLookup()) {
+          throw new IOException("Unable to read " + lookupFile);
+        }
+      }
+    }
+
+    private boolean readLookup() throws IOException {
+      RandomAccessFile raf = new RandomAccessFile(lookupFile, "r");
+      try {
+        if (raf.length() < LOOKUP_HEADER_BYTES) {
+          return false;
+        }
+        MappedByteBuffer buffer =
+            raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        int entries = buffer.getInt(0);
+        int slots = buffer.getInt(4);
+        int sorted = buffer.getInt(8);
+        if (entries != entryCount || Integer.bitCount(slots) != 1 || sorted > entries
+            || raf.length() != LOOKUP_HEADER_BYTES + 4L * (slots + sorted)) {
+          return false;
+        }
+        lookup = buffer;
+        slotCount = slots;
+        sortedCount = sorted;
+        return true;
+      } finally {
+        raf.close();
+      }
+    }
+
+    /**
+     * Writes the lookup file: an open-addressed hash table of the entries,
+     * plus one, by identifier hash, with at least twice as many slots as
+     * entries, then the entries with a known sent time sorted by it. The
+     * file is written under another name and renamed into place, so a
+     * crash cannot leave a partial one.
+     */
+    private void writeLookup() throws IOException {
+      int slots = Integer.highestOneBit(Math.max(entryCount, 1)) * 4;
+      int[] table = new int[slots];
+      Integer[] sorted = new Integer[entryCount];
+      final long[] sents = new long[entryCount];
+      int known = 0;
+      for (int entry = 0; entry < entryCount; entry++) {
+        int slot = (int) hashOf(entry) & (slots - 1);
+        while (table[slot] != 0) {
+          slot = (slot + 1) & (slots - 1);
+        }
+        table[slot] = entry + 1;
+        sents[entry] = sentOf(entry);
+        if (sents[entry] != UNKNOWN_SENT) {
+          sorted[known++] = entry;
+        }
+      }
+      // A stable sort, so entries sent at the same time keep their order
+      Arrays.sort(sorted, 0, known, new Comparator<Integer>() {
+        @Override
+        public int compare(Integer a, Integer b) {
+          return Long.compare(sents[a], sents[b]);
+        }
+      });
+
+      ByteBuffer buffer = ByteBuffer.allocate(
+          LOOKUP_HEADER_BYTES + 4 * (slots + known));
+      buffer.putInt(entryCount).putInt(slots).putInt(known);
+      for (int slot : table) {
+        buffer.putInt(slot);
+      }
+      for (int i = 0; i < known; i++) {
+        buffer.putInt(sorted[i]);
+      }
+      buffer.flip();
+
+      File tmp = new File(lookupFile.getPath() + ".tmp");
+      RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+      try {
+        raf.setLength(0);
+        FileChannel channel = raf.getChannel();
+        while (buffer.hasRemaining()) {
+          channel.write(buffer, buffer.position());
+        }
+        channel.force(false);
+      } finally {
+        raf.close();
+      }
+      if (!tmp.renameTo(lookupFile)
+          && !(lookupFile.delete() && tmp.renameTo(lookupFile))) {
+        throw new IOException("Unable to rename " + tmp + " to " + lookupFile);
+      }
+    }
+
+    void sync() throws IOException {
+      logRaf.getChannel().force(false);
+      indexRaf.getChannel().force(false);
+    }
+
+    void seal() throws IOException {
+      sync();
+      logMap.mapAll(size);
+      indexMap.mapAll((long) entryCount * INDEX_ENTRY_BYTES);
+      openLookup();
+    }
+
+    void close() throws IOException {
+      lookup = null;
+      logMap.close();
+      indexMap.close();
+      logRaf.close();
+      indexRaf.close();
+    }
+
+    private void writeHeader() throws IOException {
+      logRaf.setLength(0);
+      logRaf.seek(0);
+      logRaf.writeInt(MAGIC);
+      logRaf.writeInt(FORMAT_VERSION);
+      size = SEGMENT_HEADER_BYTES;
+    }
+
+    private void checkHeader() throws IOException {
+      logRaf.seek(0);
+      if (logRaf.readInt() != MAGIC) {
+        throw new IOException(logFile + " is not an alert log segment");
+      }
+      int version = logRaf.readInt();
+      if (version != FORMAT_VERSION) {
+        throw new IOException("Unsupported alert log version " + version + " in " + logFile);
+      }
+    }
+  }
+
+  /**
+   * A read-only mapping of a file that may grow. The mapping is only
+   * remapped once the file has grown {@link #MAP_CHUNK_BYTES} past it;
+   * until then the bytes past it are read from the file.
+   */
+  private static class MappedFile {
+    private final FileChannel channel;
+    private final ByteBuffer scratch = ByteBuffer.allocate(8);
+    private MappedByteBuffer map;
+
+    MappedFile(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    /** Notes the file has grown to the given length. */
+    void grow(long length) throws IOException {
+      if (map == null || length - map.capacity() >= MAP_CHUNK_BYTES) {
+        mapAll(length);
+      }
+    }
+
+    /** Maps all of the file, which has the given length. */
+    void mapAll(long length) throws IOException {
+      if (map == null || map.capacity() < length) {
+        map = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+      }
+    }
+
+    int getInt(long position) throws IOException {
+      if (position + 4 <= map.capacity()) {
+        return map.getInt((int) position);
+      }
+      return read(position, 4).getInt(0);
+    }
+
+    long getLong(long position) throws IOException {
+      if (position + 8 <= map.capacity()) {
+        return map.getLong((int) position);
+      }
+      return read(position, 8).getLong(0);
+    }
+
+    /** Copies the bytes at the given position into the start of the array. */
+    void get(long position, byte[] dst, int length) throws IOException {
+      if (position + length <= map.capacity()) {
+        ByteBuffer src = map.duplicate();
+        src.position((int) position);
+        src.get(dst, 0, length);
+      } else {
+        readFully(position, ByteBuffer.wrap(dst, 0, length));
+      }
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+      scratch.clear().limit(length);
+      readFully(position, scratch);
+      return scratch;
+    }
+
+    private void readFully(long position, ByteBuffer dst) throws IOException {
+      int start = dst.position();
+      while (dst.hasRemaining()) {
+        if (channel.read(dst, position + dst.position() - start) < 0) {
+          throw new EOFException();
+        }
+      }
+    }
+
+    void close() {
+      map = null;
+    }
+  }
+
+  /** A growable array of ints. */
+  private static class IntList {
+    private int[] values = new int[8];
+    private int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap;
+
+import com.google.publicalerts.cap.AlertFilter.Result;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link AlertFilter}.
+ *
+ * @author agent@local (agent)
+ */
+public class AlertFilterTest extends TestCase {
+
+  public AlertFilterTest(String s) {
+    super(s);
+  }
+
+  public void testDefaultMatchesEverything() {
+    AlertFilter filter = new AlertFilter() {};
+    assertEquals(Result.MATCH, filter.filterAlert(Alert.newBuilder(), false));
+    assertEquals(Result.MATCH, filter.filterInfo(Info.newBuilder(), false));
+    assertFalse(filter.requiresMatchingInfo());
+    assertFalse(AlertFilter.newBuilder().build().requiresMatchingInfo());
+  }
+
+  public void testStatusesAndMsgTypes() {
+    AlertFilter filter = AlertFilter.newBuilder()
+        .setStatuses(Alert.Status.ACTUAL, Alert.Status.EXERCISE)
+        .setMsgTypes(Alert.MsgType.ALERT)
+        .build();
+    Alert.Builder alert = Alert.newBuilder();
+    assertEquals(Result.UNDECIDED, filter.filterAlert(alert, false));
+    assertEquals(Result.NO_MATCH, filter.filterAlert(alert, true));
+    alert.setStatus(Alert.Status.EXERCISE);
+    assertEquals(Result.UNDECIDED, filter.filterAlert(alert, false));
+    alert.setMsgType(Alert.MsgType.ALERT);
+    assertEquals(Result.MATCH, filter.filterAlert(alert, false));
+    alert.setMsgType(Alert.MsgType.CANCEL);
+    assertEquals(Result.NO_MATCH, filter.filterAlert(alert, false));
+    alert.setStatus(Alert.Status.TEST).clearMsgType();
+    assertEquals(Result.NO_MATCH, filter.filterAlert(alert, false));
+    assertFalse(filter.requiresMatchingInfo());
+  }
+
+  public void testMinimums() {
+    AlertFilter filter = AlertFilter.newBuilder()
+        .setMinUrgency(Info.Urgency.EXPECTED)
+        .setMinSeverity(Info.Severity.SEVERE)
+        .setMinCertainty(Info.Certainty.LIKELY)
+        .build();
+    assertTrue(filter.requiresMatchingInfo());
+    Info.Builder info = Info.newBuilder()
+        .setUrgency(Info.Urgency.IMMEDIATE)
+        .setSeverity(Info.Severity.EXTREME);
+    assertEquals(Result.UNDECIDED, filter.filterInfo(info, false));
+    assertEquals(Result.NO_MATCH, filter.filterInfo(info, true));
+    info.setCertainty(Info.Certainty.VERY_LIKELY);
+    assertEquals(Result.MATCH, filter.filterInfo(info, false));
+    info.setCertainty(Info.Certainty.POSSIBLE);
+    assertEquals(Result.NO_MATCH, filter.filterInfo(info, false));
+    info.setCertainty(Info.Certainty.OBSERVED)
+        .setSeverity(Info.Severity.UNKNOWN_SEVERITY);
+    assertEquals(Result.NO_MATCH, filter.filterInfo(info, false));
+    info.setSeverity(Info.Severity.SEVERE).setUrgency(Info.Urgency.PAST);
+    assertEquals(Result.NO_MATCH, filter.filterInfo(info, false));
+  }
+
+  public void testBoundingBox() {
+    AlertFilter filter = AlertFilter.newBuilder()
+        .setBoundingBox(10, 20, 11, 21)
+        .build();
+    Info.Builder info = Info.newBuilder();
+    assertEquals(Result.UNDECIDED, filter.filterInfo(info, false));
+
+    info.addArea(Area.newBuilder().setAreaDesc("geocode only")
+        .addGeocode(ValuePair.newBuilder().setValueName("a").setValue("b")));
+    assertEquals(Result.UNDECIDED, filter.filterInfo(info, false));
+    assertEquals(Result.NO_MATCH, filter.filterInfo(info, true));
+
+    // A polygon whose bounding box overlaps, though no vertex is inside
+    info.addArea(Area.newBuilder().setAreaDesc("polygon")
+        .addPolygon(CapXmlParser.toPolygon("9,19 9,22 12,22 9,19")));
+    assertEquals(Result.MATCH, filter.filterInfo(info, false));
+    assertEquals(Result.MATCH, filter.filterInfo(info, true));
+
+    // A 50km circle centered about 0.3 degrees outside the box
+    info = Info.newBuilder().addArea(Area.newBuilder().setAreaDesc("circle")
+        .addCircle(CapXmlParser.toCircle("11.3,20.5 50")));
+    assertEquals(Result.MATCH, filter.filterInfo(info, true));
+    info = Info.newBuilder().addArea(Area.newBuilder().setAreaDesc("circle")
+        .addCircle(CapXmlParser.toCircle("11.3,20.5 10")));
+    assertEquals(Result.NO_MATCH, filter.filterInfo(info, true));
+  }
+
+  public void testInvalidBoundingBox() {
+    try {
+      AlertFilter.newBuilder().setBoundingBox(11, 20, 10, 21);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+  }
+}
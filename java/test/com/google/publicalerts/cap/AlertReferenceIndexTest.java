@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap;
+
+import com.google.publicalerts.cap.testing.CapTestUtil;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+/**
+ * Tests for {@link AlertReferenceIndex}.
+ *
+ * @author agent@local (agent)
+ */
+public class AlertReferenceIndexTest extends TestCase {
+
+  private static final String SENDER = "hsas@dhs.gov";
+
+  private AlertReferenceIndex index;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    index = new AlertReferenceIndex();
+  }
+
+  public void testChain() {
+    int a = index.add(alert("a", "2003-04-02T14:00:00-05:00"));
+    int b = index.add(alert("b", "2003-04-02T15:00:00-05:00", "a"));
+    int c = index.add(alert("c", "2003-04-02T16:00:00-05:00", "b"));
+
+    assertEquals(3, index.size());
+    assertEquals(a, index.getId(SENDER, "a"));
+    assertEquals("c", index.getIdentifier(c));
+    assertEquals(SENDER, index.getSender(c));
+
+    assertIds(index.getReferences(c), b);
+    assertIds(index.getReferencedBy(a), b);
+    assertIds(index.getAncestors(c), b, a);
+    assertIds(index.getDescendants(a), b, c);
+    assertIds(index.getAncestors(a));
+    assertIds(index.getDescendants(c));
+
+    assertEquals(c, index.getLatestVersion(a));
+    assertEquals(c, index.getLatestVersion(b));
+    assertEquals(c, index.getLatestVersion(c));
+    assertIds(index.getOrphans());
+  }
+
+  public void testBranchesPickLatestSent() {
+    int a = index.add(alert("a", "2003-04-02T14:00:00-05:00"));
+    int late = index.add(alert("late", "2003-04-02T18:00:00-05:00", "a"));
+    index.add(alert("early", "2003-04-02T16:00:00-05:00", "a"));
+    int merge = index.add(alert("merge", "2003-04-02T17:00:00-05:00", "a", "early"));
+
+    assertEquals(late, index.getLatestVersion(a));
+    assertEquals(merge, index.getLatestVersion(index.getId(SENDER, "early")));
+    assertIds(index.getAncestors(merge), a, index.getId(SENDER, "early"));
+  }
+
+  public void testOrphans() {
+    int b = index.add(alert("b", "2003-04-02T15:00:00-05:00", "a"));
+    int a = index.getId(SENDER, "a");
+
+    assertTrue(index.isOrphan(a));
+    assertFalse(index.isOrphan(b));
+    assertIds(index.getOrphans(), a);
+    assertEquals(b, index.getLatestVersion(a));
+    // Sent time comes from the reference until the alert itself is added
+    assertNotNull(index.getSentMillis(a));
+
+    // Adding the referenced alert later links up with existing references
+    assertEquals(a, index.add(alert("a", "2003-04-02T14:00:00-05:00")));
+    assertFalse(index.isOrphan(a));
+    assertIds(index.getOrphans());
+    assertIds(index.getDescendants(a), b);
+  }
+
+  public void testTiesGoToLastAdded() {
+    int a = index.add(alert("a", "2003-04-02T14:00:00-05:00"));
+    // c is referenced, and so assigned an ID, before b is added
+    index.add(alert("d", "2003-04-02T14:30:00-05:00", "c"));
+    int b = index.add(alert("b", "2003-04-02T15:00:00-05:00", "a"));
+    int c = index.add(alert("c", "2003-04-02T15:00:00-05:00", "a"));
+
+    assertTrue(c < b);
+    assertEquals(c, index.getLatestVersion(a));
+  }
+
+  public void testUnknown() {
+    assertEquals(AlertReferenceIndex.NO_ID, index.getId(SENDER, "nope"));
+    try {
+      index.getAncestors(0);
+      fail("Expected IndexOutOfBoundsException");
+    } catch (IndexOutOfBoundsException expected) {
+      // expected
+    }
+  }
+
+  public void testCyclesAndDuplicates() {
+    int a = index.add(alert("a", "2003-04-02T14:00:00-05:00", "a", "b"));
+    int b = index.add(alert("b", "2003-04-02T15:00:00-05:00", "a", "a"));
+    index.add(alert("b", "2003-04-02T15:00:00-05:00", "a"));
+
+    assertIds(index.getReferences(a), b);
+    assertIds(index.getReferences(b), a);
+    assertIds(index.getAncestors(a), b);
+    assertIds(index.getDescendants(a), b);
+  }
+
+  public void testCap10References() {
+    Alert.Builder alert = alert("b", "2003-04-02T15:00:00-05:00")
+        .setXmlns(CapValidator.CAP10_XMLNS)
+        .setReferences(Group.newBuilder().addValue("a/" + SENDER));
+    int b = index.add(alert);
+    assertIds(index.getReferences(b), index.getId(SENDER, "a"));
+  }
+
+  public void testManyAlerts() {
+    int first = index.add(alert("0", "2003-04-02T14:00:00-05:00"));
+    for (int i = 1; i < 100; i++) {
+      index.add(alert(String.valueOf(i), "2003-04-02T14:00:00-05:00", String.valueOf(i - 1)));
+    }
+    assertEquals(99, index.getDescendants(first).length);
+    assertEquals(index.getId(SENDER, "99"), index.getLatestVersion(first));
+  }
+
+  private Alert.Builder alert(String identifier, String sent, String... references) {
+    Alert.Builder alert = CapTestUtil.getValidAlertBuilder()
+        .setIdentifier(identifier)
+        .setSent(sent)
+        .clearReferences();
+    if (references.length > 0) {
+      Group.Builder group = Group.newBuilder();
+      for (String reference : references) {
+        group.addValue(CapUtil.formatCapReference(SENDER, reference, "2003-04-02T13:00:00-05:00"));
+      }
+      alert.setReferences(group);
+    }
+    return alert;
+  }
+
+  private void assertIds(int[] actual, int... expected) {
+    assertEquals(Arrays.toString(expected), Arrays.toString(actual));
+  }
+}
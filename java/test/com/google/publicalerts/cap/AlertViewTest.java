@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.publicalerts.cap.testing.CapTestUtil;
+import com.google.publicalerts.cap.testing.TestResources;
+
+import junit.framework.TestCase;
+
+import org.xml.sax.SAXParseException;
+
+/**
+ * Tests for {@link AlertView}.
+ *
+ * @author agent@local (agent)
+ */
+public class AlertViewTest extends TestCase {
+
+  public AlertViewTest(String s) {
+    super(s);
+  }
+
+  public void testMatchesParser() throws Exception {
+    CapXmlParser parser = new CapXmlParser(false);
+    for (String file : new String[] {"australia.cap", "canada.cap",
+        "canada_signed.cap", "earthquake.cap", "no_optional_fields.cap",
+        "weather.cap", "wcatwc-warning.cap", "noaa_errors.cap"}) {
+      byte[] bytes = TestResources.loadBytes(file);
+      Alert expected = parser.parseFrom(new String(bytes, Charsets.UTF_8));
+      AlertView view = AlertView.of(bytes);
+      assertEquals(file, expected, view.toAlert());
+      assertEquals(file, Lists.newArrayList(new CapValidator().validateAlert(expected)),
+          Lists.newArrayList(new CapValidator().validateAlert(view)));
+      assertEquals(file, new CapXmlBuilder().toXml(expected),
+          new CapXmlBuilder().toXml(view));
+    }
+  }
+
+  public void testGetters() throws Exception {
+    Alert alert = CapTestUtil.getValidAlertBuilder()
+        .setAddresses(Group.newBuilder().addValue("a b").addValue("c"))
+        .addCode("code1")
+        .addCode("code2")
+        .clearNote()
+        .clearIncidents()
+        .build();
+    AlertView view = AlertView.of(toBytes(new CapXmlBuilder().toXml(alert)));
+    assertEquals(alert.getXmlns(), view.getXmlns());
+    assertEquals(alert.getIdentifier(), view.getIdentifier());
+    assertEquals(alert.getSender(), view.getSender());
+    assertEquals(alert.getSent(), view.getSent());
+    assertEquals(alert.getStatus(), view.getStatus());
+    assertEquals(alert.getMsgType(), view.getMsgType());
+    assertEquals(alert.getScope(), view.getScope());
+    assertEquals(alert.getAddresses(), view.getAddresses());
+    assertEquals(alert.getCodeList(), view.getCodeList());
+    assertEquals("code2", view.getCode(view.getCodeCount() - 1));
+    assertFalse(view.hasNote());
+    assertEquals("", view.getNote());
+    assertFalse(view.hasIncidents());
+    assertEquals(Group.getDefaultInstance(), view.getIncidents());
+    assertEquals(alert.getInfoCount(), view.getInfoCount());
+    assertSame(view.getInfo(0), view.getInfoList().get(0));
+    assertEquals(alert.getInfo(0), view.getInfo(0));
+    assertTrue(view.isInitialized());
+    assertEquals(alert.getAllFields(), view.getAllFields());
+  }
+
+  public void testDecodesText() throws Exception {
+    String xml = "﻿<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<!-- comment -->\n"
+        + "<cap:alert xmlns:cap=\"" + CapValidator.CAP12_XMLNS + "\">\r\n"
+        + "<cap:identifier>a&amp;b&#x3c;&#62;</cap:identifier>"
+        + "<cap:sender>café <![CDATA[<x>]]></cap:sender>"
+        + "<cap:status> Actual</cap:status><cap:status>Test</cap:status>"
+        + "<cap:note>line1\r\nline2<!-- ignored --> ☃</cap:note>"
+        + "<cap:info><cap:event>snow &amp; ice</cap:event></cap:info>"
+        + "</cap:alert>\n";
+    AlertView view = AlertView.of(toBytes(xml));
+    assertEquals(CapValidator.CAP12_XMLNS, view.getXmlns());
+    assertEquals("a&b<>", view.getIdentifier());
+    assertEquals("café <x>", view.getSender());
+    // As in the parser, the first valid value wins
+    assertEquals(Alert.Status.TEST, view.getStatus());
+    assertEquals("line1\nline2 ☃", view.getNote());
+    assertEquals("snow & ice", view.getInfo(0).getEvent());
+    assertFalse(view.isInitialized());
+    assertEquals(new CapXmlParser(false).parseFrom(xml.substring(1)), view.toAlert());
+  }
+
+  public void testOffset() throws Exception {
+    String xml = new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder());
+    byte[] bytes = toBytes("<junk>" + xml + "</junk>");
+    AlertView view = AlertView.of(bytes, 6, bytes.length - 13);
+    assertEquals(new CapXmlParser(false).parseFrom(xml), view.toAlert());
+  }
+
+  public void testNotCap() throws Exception {
+    for (String xml : new String[] {"", "<feed/>",
+        "<alert xmlns=\"urn:example\"/>", "<alert/>"}) {
+      try {
+        AlertView.of(toBytes(xml));
+        fail("Expected NotCapException for " + xml);
+      } catch (NotCapException expected) {
+        // expected
+      }
+    }
+  }
+
+  public void testMalformed() throws Exception {
+    String pre = "<alert xmlns=\"" + CapValidator.CAP12_XMLNS + "\">";
+    for (String xml : new String[] {
+        pre + "<identifier>1</sender></alert>",
+        pre + "<identifier>1</identifier>",
+        pre + "<identifier>&bogus;</identifier></alert>",
+        pre + "<identifier>a & b</identifier></alert>",
+        pre + "<identifier a=\"1>1</identifier></alert>",
+        pre + "</alert><alert/>",
+        "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>" + pre + "</alert>",
+        "<!DOCTYPE alert [<!ENTITY a \"b\">]>" + pre + "</alert>"}) {
+      try {
+        AlertView.of(toBytes(xml));
+        fail("Expected SAXParseException for " + xml);
+      } catch (SAXParseException expected) {
+        // expected
+      }
+    }
+  }
+
+  public void testInfoFieldsDecodedOnDemand() throws Exception {
+    String pre = "<alert xmlns=\"" + CapValidator.CAP12_XMLNS + "\"><info>"
+        + "<category>Met</category><category>Bogus</category><category>Fire</category>"
+        + "<event>snow</event><urgency>Immediate</urgency>"
+        + "<certainty>Very Likely</certainty>";
+    String post = "<senderName>NWS</senderName></info></alert>";
+    CapXmlParser parser = new CapXmlParser(false);
+    parser.setParseLimits(ParseLimits.newBuilder().setMaxPolygonVertices(3).build());
+    byte[] bytes = toBytes(pre
+        + "<area><areaDesc>a</areaDesc><polygon>1,1 2,2 3,3 4,4 1,1</polygon></area>"
+        + post);
+    AlertView view = AlertView.of(bytes, 0, bytes.length, parser);
+    InfoOrBuilder info = view.getInfoOrBuilder(0);
+    assertEquals("snow", info.getEvent());
+    assertEquals("NWS", info.getSenderName());
+    assertEquals("en-US", info.getLanguage());
+    assertFalse(info.hasLanguage());
+    assertEquals(Lists.newArrayList(Info.Category.MET, Info.Category.FIRE),
+        info.getCategoryList());
+    assertEquals(Info.Urgency.IMMEDIATE, info.getUrgency());
+    assertFalse(info.hasSeverity());
+    assertEquals(Info.Certainty.VERY_LIKELY, info.getCertainty());
+    assertSame(info, view.getInfoOrBuilderList().get(0));
+    // Only reading the areas parses them, and so exceeds the limit
+    try {
+      info.getAreaCount();
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+  }
+
+  public void testIgnoresOtherNamespaces() throws Exception {
+    String xml = "<alert xmlns=\"" + CapValidator.CAP12_XMLNS + "\" xmlns:x=\"urn:x\">"
+        + "<x:identifier>x</x:identifier>"
+        + "<identifier xmlns=\"urn:y\">y</identifier>"
+        + "<identifier>1</identifier>"
+        + "<info><x:event>x</x:event><event>e</event></info>"
+        + "</alert>";
+    AlertView view = AlertView.of(toBytes(xml));
+    assertEquals("1", view.getIdentifier());
+    assertEquals("e", view.getInfoOrBuilder(0).getEvent());
+    assertEquals("e", view.getInfo(0).getEvent());
+  }
+
+  public void testNotUtf8() throws Exception {
+    byte[] bytes = toBytes("<alert xmlns=\"" + CapValidator.CAP12_XMLNS + "\">"
+        + "<identifier>caf\u00e9</identifier></alert>");
+    AlertView.of(bytes);
+    bytes = new String(bytes, Charsets.UTF_8).getBytes(Charsets.ISO_8859_1);
+    try {
+      AlertView.of(bytes);
+      fail("Expected SAXParseException");
+    } catch (SAXParseException expected) {
+      // expected
+    }
+  }
+
+  private static byte[] toBytes(String str) {
+    return str.getBytes(Charsets.UTF_8);
+  }
+}
@@ -16,14 +16,22 @@
 
 package com.google.publicalerts.cap;
 
+import com.google.publicalerts.cap.async.AsyncCapParserTest;
+import com.google.publicalerts.cap.async.CapPushParserTest;
+import com.google.publicalerts.cap.batch.BatchValidatorTest;
+import com.google.publicalerts.cap.batch.DocumentSplitterTest;
 import com.google.publicalerts.cap.edxl.io.ConverterForEdxlde10Test;
 import com.google.publicalerts.cap.edxl.io.Edxlde10ParserTest;
 import com.google.publicalerts.cap.feed.CapFeedParserTest;
 import com.google.publicalerts.cap.feed.CapFeedValidatorTest;
+import com.google.publicalerts.cap.jfr.JfrCapMetricsTest;
 import com.google.publicalerts.cap.profile.GoogleProfileTest;
+import com.google.publicalerts.cap.profile.MultiProfileParserTest;
+import com.google.publicalerts.cap.profile.ProfileEngineTest;
 import com.google.publicalerts.cap.profile.au.AustralianProfileTest;
 import com.google.publicalerts.cap.profile.ca.CanadianProfileTest;
 import com.google.publicalerts.cap.profile.us.Ipaws1ProfileTest;
+import com.google.publicalerts.cap.store.AlertLogTest;
 
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -58,11 +66,20 @@ public class AllTests {
     // TODO(shakusa) Automate this, recursively search for test classes
     TestSuite suite = new TestSuite();
 
+    suite.addTestSuite(AlertFilterTest.class);
+    suite.addTestSuite(AlertReferenceIndexTest.class);
+    suite.addTestSuite(AlertViewTest.class);
     suite.addTestSuite(CachedSaxInputSourceTest.class);
     suite.addTestSuite(CapJsonBuilderTest.class);
+    suite.addTestSuite(CapMetricsTest.class);
     suite.addTestSuite(CapXmlParserTest.class);
+    suite.addTestSuite(CompiledSchemaValidatorTest.class);
+    suite.addTestSuite(CoordinateScannerTest.class);
+    suite.addTestSuite(FieldProjectionTest.class);
     suite.addTestSuite(CapXmlBuilderTest.class);
     suite.addTestSuite(CapUtilTest.class);
+    suite.addTestSuite(PolygonViewTest.class);
+    suite.addTestSuite(StringInternerTest.class);
     suite.addTestSuite(CapValidatorTest.class);
     suite.addTestSuite(XmlSignAndValidateTest.class);
     suite.addTestSuite(EndToEndTest.class);
@@ -74,6 +91,16 @@ public class AllTests {
     suite.addTestSuite(CapFeedParserTest.class);
     suite.addTestSuite(CapFeedValidatorTest.class);
 
+    suite.addTestSuite(AlertLogTest.class);
+
+    suite.addTestSuite(JfrCapMetricsTest.class);
+
+    suite.addTestSuite(AsyncCapParserTest.class);
+    suite.addTestSuite(CapPushParserTest.class);
+
+    suite.addTestSuite(BatchValidatorTest.class);
+    suite.addTestSuite(DocumentSplitterTest.class);
+
     suite.addTestSuite(Edxlde10ParserTest.class);
     suite.addTestSuite(ConverterForEdxlde10Test.class);
 
@@ -81,6 +108,8 @@ public class AllTests {
     suite.addTestSuite(CanadianProfileTest.class);
     suite.addTestSuite(GoogleProfileTest.class);
     suite.addTestSuite(Ipaws1ProfileTest.class);
+    suite.addTestSuite(ProfileEngineTest.class);
+    suite.addTestSuite(MultiProfileParserTest.class);
 
     return suite;
   }
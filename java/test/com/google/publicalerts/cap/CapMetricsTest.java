@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap;
+
+import com.google.common.collect.Lists;
+import com.google.publicalerts.cap.CapMetrics.Span;
+import com.google.publicalerts.cap.CapMetrics.Stage;
+import com.google.publicalerts.cap.profile.GoogleProfile;
+import com.google.publicalerts.cap.testing.CapTestUtil;
+import com.google.publicalerts.cap.testing.MockTrustStrategy;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Tests for {@link CapMetrics}.
+ *
+ * @author agent@local (agent)
+ */
+public class CapMetricsTest extends TestCase {
+  private RecordingMetrics metrics;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    metrics = new RecordingMetrics();
+    CapMetrics.set(metrics);
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    CapMetrics.set(CapMetrics.NO_OP);
+    super.tearDown();
+  }
+
+  public void testNoOp() {
+    assertFalse(CapMetrics.NO_OP.isEnabled());
+    Span span = CapMetrics.NO_OP.startSpan(Stage.PARSE);
+    assertSame(span, CapMetrics.NO_OP.startSpan(Stage.SIGN));
+    span.setBytes(10).setVersion(12).setEntryIndex(1).setReasons(Reasons.EMPTY);
+    span.end();
+    assertEquals(-1, span.getBytes());
+    assertEquals(0, span.getVersion());
+    assertEquals(-1, span.getEntryIndex());
+    assertNull(span.getReasons());
+    assertEquals(-1, span.getDurationNanos());
+  }
+
+  public void testSpanEndsOnce() {
+    Span span = metrics.startSpan(Stage.PARSE);
+    span.end();
+    span.end();
+    assertEquals(1, metrics.spans.size());
+    assertTrue(span.getDurationNanos() >= 0);
+  }
+
+  public void testParse() throws Exception {
+    String xml = new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder());
+    new CapXmlParser(true).parseFrom(xml);
+
+    Span parse = metrics.getSpan(Stage.PARSE);
+    assertEquals(12, parse.getVersion());
+    assertEquals(xml.length(), parse.getBytes());
+    assertEquals(0, parse.getErrorCount());
+    assertNotNull(metrics.getSpan(Stage.XMLNS_SNIFF));
+    Span schema = metrics.getSpan(Stage.SCHEMA_PARSE);
+    assertEquals(12, schema.getVersion());
+    Span handler = metrics.getSpan(Stage.HANDLER);
+    assertTrue(handler.getDurationNanos() <= schema.getDurationNanos());
+    assertEquals(12, metrics.getSpan(Stage.SEMANTIC_VALIDATION).getVersion());
+
+    assertEquals(1, metrics.infoCount);
+    assertEquals(1, metrics.areaCount);
+    assertEquals(4, metrics.vertexCount);
+  }
+
+  public void testParseReasons() throws Exception {
+    String xml = new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder()
+        .setRestriction("a restriction"));
+    Reasons.Builder reasons = Reasons.newBuilder();
+    new CapXmlParser(true).parseFrom(xml, reasons);
+
+    Span parse = metrics.getSpan(Stage.PARSE);
+    assertEquals(Lists.newArrayList(reasons.build()),
+        Lists.newArrayList(parse.getReasons()));
+    assertEquals(1, parse.getErrorCount());
+    assertEquals(1, parse.getReasonTypeCounts().count(
+        CapException.ReasonType.RESTRICTION_SCOPE_MISMATCH));
+  }
+
+  public void testProfile() throws Exception {
+    new GoogleProfile().validate(CapTestUtil.getValidAlertBuilder());
+    Span profile = metrics.getSpan(Stage.PROFILE);
+    assertEquals(12, profile.getVersion());
+    assertNotNull(profile.getReasons());
+  }
+
+  public void testSignAndValidate() throws Exception {
+    String xml = new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder());
+    String signed = XmlSigner.newInstanceWithRandomKeyPair().sign(xml);
+    assertNotNull(metrics.getSpan(Stage.SIGN));
+    new XmlSignatureValidator(new MockTrustStrategy()).validate(signed);
+    assertNotNull(metrics.getSpan(Stage.SIGNATURE_VALIDATION));
+  }
+
+  private static class RecordingMetrics extends CapMetrics {
+    final List<Span> spans = Lists.newArrayList();
+    int infoCount = -1;
+    int areaCount = -1;
+    int vertexCount = -1;
+
+    @Override
+    public synchronized void spanEnded(Span span) {
+      spans.add(span);
+    }
+
+    @Override
+    public synchronized void alertParsed(int infoCount, int areaCount, int vertexCount) {
+      this.infoCount = infoCount;
+      this.areaCount = areaCount;
+      this.vertexCount = vertexCount;
+    }
+
+    synchronized Span getSpan(Stage stage) {
+      for (Span span : spans) {
+        if (span.getStage() == stage) {
+          return span;
+        }
+      }
+      fail("No span for " + stage + " in " + spans);
+      return null;
+    }
+  }
+}
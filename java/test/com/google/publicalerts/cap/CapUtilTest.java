@@ -95,6 +95,16 @@ public class CapUtilTest extends TestCase {
     assertNull(CapUtil.parseReferenceIdentifier("foobar", 12));
   }
   
+  public void testParseReferenceSender() {
+    assertEquals("hsas@dhs.gov",
+        CapUtil.parseReferenceSender("43b080713727/hsas@dhs.gov", 10));
+    assertEquals("trinet@caltech.edu",
+        CapUtil.parseReferenceSender(
+            "trinet@caltech.edu,TRI13970876.1,2003-06-11T20:30:00-07:00", 12));
+    assertNull(CapUtil.parseReferenceSender("foobar", 10));
+    assertNull(CapUtil.parseReferenceSender("foobar", 12));
+  }
+
   public void testParseReferenceSent() {
     GregorianCalendar expectedCalendar = new GregorianCalendar(
         SimpleTimeZone.getTimeZone("UTC"));
@@ -80,6 +80,17 @@ public class CapValidatorTest extends TestCase {
     assertReasons(alert, SAME_TEXT_DIFFERENT_LANGUAGE, "/alert[1]/info[2]/instruction[1]");
   }
 
+  public void testReusedValidatorComparesLanguagesWithinAlert() {
+    CapValidator validator = new CapValidator();
+    Alert.Builder alert = CapTestUtil.getValidAlertBuilder();
+    alert.getInfoBuilder(0).setLanguage("en-US");
+    assertFalse(validator.validateAlert(alert).iterator().hasNext());
+
+    // The same text in another language, but in another alert
+    alert.getInfoBuilder(0).setLanguage("fr-CA");
+    assertFalse(validator.validateAlert(alert).iterator().hasNext());
+  }
+
   public void testInfoParseErrors() {
     Info.Builder info = CapTestUtil.getValidInfoBuilder();
     assertNoReasons(info);
@@ -120,6 +131,10 @@ public class CapValidatorTest extends TestCase {
         .build());
     assertReasons(area, INVALID_POLYGON, "/alert[1]/info[1]/area[1]/polygon[1]");
 
+    area.clearPolygon();
+    area.addPolygon(PolygonView.of(new double[] {1, 2, 3, 4, 5, 6, 7, 8}).toPackedPolygon());
+    assertReasons(area, INVALID_POLYGON, "/alert[1]/info[1]/area[1]/polygon[1]");
+
     area.clearPolygon()
         .clearCircle()
         .clearAltitude();
@@ -153,6 +153,17 @@ public class CapXmlBuilderTest extends TestCase {
   }
 
 
+  public void testPackedPolygon() throws Exception {
+    Polygon polygon = PolygonView.of(new double[] {1, 2, 3, 4, 5, 6, 1, 2})
+        .toPackedPolygon();
+    Area area = Area.newBuilder().setAreaDesc("a").addPolygon(polygon).build();
+    Alert alert = Alert.newBuilder().setXmlns(CapValidator.CAP_LATEST_XMLNS)
+        .addInfo(Info.newBuilder().addArea(area).buildPartial())
+        .buildPartial();
+    assertTrue(new CapXmlBuilder().toXml(alert).contains(
+        "<polygon>1.0,2.0 3.0,4.0 5.0,6.0 1.0,2.0</polygon>"));
+  }
+
   public void testArea() throws Exception {
     Area area1 = Area.newBuilder()
         .addPolygon(Polygon.newBuilder()
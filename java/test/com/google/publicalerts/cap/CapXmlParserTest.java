@@ -16,6 +16,7 @@
 
 package com.google.publicalerts.cap;
 
+import com.google.common.collect.Lists;
 import com.google.protobuf.Descriptors;
 import com.google.protobuf.Descriptors.FieldDescriptor;
 import com.google.publicalerts.cap.CapException.ReasonType;
@@ -25,8 +26,13 @@ import com.google.publicalerts.cap.testing.CapTestUtil;
 
 import junit.framework.TestCase;
 
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXParseException;
 
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Tests for {@link CapXmlParser}.
  *
@@ -38,6 +44,9 @@ public class CapXmlParserTest extends TestCase {
       "javax.xml.validation.SchemaFactory";
   private static final String SAX_PARSER_FACTORY =
       "javax.xml.parsers.SAXParserFactory";
+  /** Shared by all the tests, to check nothing carries over between parses. */
+  private static final CapParseContext SHARED_CONTEXT = new CapParseContext();
+
   private String schemaFactory;
   private String saxParserFactory;
 
@@ -109,6 +118,21 @@ public class CapXmlParserTest extends TestCase {
     + "<web>http://www.dhs.gov/dhspublic/display?theme=29</web>\n";
   }
 
+  public void testPreloadSchemas() throws Exception {
+    CapXmlParser.preloadSchemas(false, CapValidator.CAP12_XMLNS);
+    CapXmlParser.preloadSchemas(true);
+    try {
+      CapXmlParser.preloadSchemas(false, "urn:not:cap");
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+
+    String alertStr = getValidAlertPre(CapValidator.CAP12_XMLNS) + "</alert>";
+    assertEquals("43b080713727", new CapXmlParser(true, true).parseFrom(alertStr)
+        .getIdentifier());
+  }
+
   public void testParseAlert() throws Exception {
     String alertStr = getValidAlertPre(CapValidator.CAP_LATEST_XMLNS)
         + "</alert>";
@@ -134,6 +158,22 @@ public class CapXmlParserTest extends TestCase {
     assertEquals("incident2", alert.getIncidents().getValue(1));
   }
 
+  public void testStringInterner() throws Exception {
+    String alertStr = getValidAlertPre(CapValidator.CAP_LATEST_XMLNS)
+        + getValidInfoPre()
+        + "</info>\n"
+        + "</alert>";
+
+    CapXmlParser parser = new CapXmlParser(true);
+    parser.setStringInterner(new StringInterner(64));
+    Info info1 = parser.parseFrom(alertStr).getInfo(0);
+    Info info2 = parser.parseFrom(alertStr).getInfo(0);
+    assertSame(info1.getSenderName(), info2.getSenderName());
+    assertSame(info1.getEvent(), info2.getEvent());
+    assertEquals(info1.getDescription(), info2.getDescription());
+    assertNotSame(info1.getDescription(), info2.getDescription());
+  }
+
   public void testParseInfo() throws Exception {
     String alertStr = getValidAlertPre(CapValidator.CAP_LATEST_XMLNS)
         + getValidInfoPre()
@@ -861,6 +901,31 @@ public class CapXmlParserTest extends TestCase {
     assertNull(CapXmlParser.toPolygon(null));
   }
 
+  public void testToPackedPolygon() {
+    Polygon polygon = CapXmlParser.toPackedPolygon("1.5,2.5 \t -2,-3  3,4 1.5,2.5");
+    assertEquals(0, polygon.getPointCount());
+    assertEquals(CapXmlParser.toPolygon("1.5,2.5 -2,-3 3,4 1.5,2.5"),
+        PolygonView.of(polygon).toPointPolygon());
+    assertNull(CapXmlParser.toPackedPolygon("invalid"));
+    assertNull(CapXmlParser.toPackedPolygon("1,23,4 5,6"));
+    assertNull(CapXmlParser.toPackedPolygon(""));
+    assertNull(CapXmlParser.toPackedPolygon(null));
+  }
+
+  public void testParsePackedPolygons() throws Exception {
+    String alertStr = getPolygonAlert(CapValidator.CAP12_XMLNS, "1,2 3,4 5,6 1,2");
+    CapXmlParser parser = new CapXmlParser(true);
+    parser.setPackPolygons(true);
+    Polygon polygon = parser.parseFrom(alertStr).getInfo(0).getArea(0).getPolygon(0);
+    assertTrue(polygon.hasPackedCoordinates());
+    assertEquals(0, polygon.getPointCount());
+    assertEquals(4, PolygonView.getPointCount(polygon));
+
+    Reasons.Builder reasons = Reasons.newBuilder();
+    parser.parseFrom(getPolygonAlert(CapValidator.CAP12_XMLNS, "1,2 3,4 1,2"), reasons);
+    assertTrue(reasons.build().containsWithLevelOrHigher(Reason.Level.ERROR));
+  }
+
   public void testToPolygonNullIfTooFew() {
     Point point = Point.newBuilder().setLatitude(1.5).setLongitude(2.5).build();
     Point point2 = Point.newBuilder().setLatitude(-2).setLongitude(-3).build();
@@ -903,18 +968,419 @@ public class CapXmlParserTest extends TestCase {
   }
 
   public void testToGroup() {
-    CapXmlHandler handler = new CapXmlHandler();
     assertEquals(Group.newBuilder().addValue("a").addValue("b").build(),
-        handler.toGroup("a b"));
+        CapXmlHandler.toGroup("a b"));
     assertEquals(Group.newBuilder().addValue("a").addValue("b").build(),
-        handler.toGroup("a    b"));
+        CapXmlHandler.toGroup("a    b"));
     assertEquals(Group.newBuilder().addValue("a,b").build(),
-        handler.toGroup("a,b"));
+        CapXmlHandler.toGroup("a,b"));
     assertEquals(Group.newBuilder().addValue("a b").addValue("c").build(),
-        handler.toGroup("\"a b\" c"));
-    assertNull(handler.toGroup("              "));
-    assertNull(handler.toGroup("     \t         "));
-    assertNull(handler.toGroup(""));
+        CapXmlHandler.toGroup("\"a b\" c"));
+    assertNull(CapXmlHandler.toGroup("              "));
+    assertNull(CapXmlHandler.toGroup("     \t         "));
+    assertNull(CapXmlHandler.toGroup(""));
+  }
+
+  public void testParseLimitsPolygonVertices() throws Exception {
+    String alertStr = getPolygonAlert(
+        CapValidator.CAP_LATEST_XMLNS, "1,2 3,4 5,6 1,2");
+    CapXmlParser parser = new CapXmlParser(true);
+    parser.setParseLimits(ParseLimits.newBuilder().setMaxPolygonVertices(4).build());
+    parser.parseFrom(alertStr);
+
+    parser.setParseLimits(ParseLimits.newBuilder().setMaxPolygonVertices(3).build());
+    assertReasons(parser, alertStr, ReasonType.PARSE_LIMIT_EXCEEDED,
+        "/alert[1]/info[1]/area[1]/polygon[1]");
+  }
+
+  public void testParseLimitsInfosAndAreas() throws Exception {
+    String alertStr = getPolygonAlert(
+        CapValidator.CAP_LATEST_XMLNS, "1,2 3,4 5,6 1,2");
+    CapXmlParser parser = new CapXmlParser(true);
+    parser.setParseLimits(ParseLimits.newBuilder().setMaxInfos(0).build());
+    assertReasons(parser, alertStr, ReasonType.PARSE_LIMIT_EXCEEDED, "/alert[1]");
+
+    parser.setParseLimits(ParseLimits.newBuilder().setMaxAreas(0).build());
+    assertReasons(parser, alertStr, ReasonType.PARSE_LIMIT_EXCEEDED,
+        "/alert[1]/info[1]");
+  }
+
+  public void testParseLimitsDepthAndText() throws Exception {
+    String alertStr = getPolygonAlert(
+        CapValidator.CAP_LATEST_XMLNS, "1,2 3,4 5,6 1,2");
+    CapXmlParser parser = new CapXmlParser(true);
+    parser.setParseLimits(ParseLimits.newBuilder().setMaxDepth(2).build());
+    assertReasons(parser, alertStr, ReasonType.PARSE_LIMIT_EXCEEDED,
+        "/alert[1]/info[1]");
+
+    parser.setParseLimits(ParseLimits.newBuilder().setMaxTextLength(5).build());
+    assertReasons(parser, alertStr, ReasonType.PARSE_LIMIT_EXCEEDED,
+        "/alert[1]/identifier[1]");
+  }
+
+  public void testParseLimitsLength() throws Exception {
+    String alertStr = getPolygonAlert(
+        CapValidator.CAP_LATEST_XMLNS, "1,2 3,4 5,6 1,2");
+    CapXmlParser parser = new CapXmlParser(false);
+    parser.setParseLimits(ParseLimits.newBuilder().setMaxLength(100).build());
+    Reasons.Builder reasons = Reasons.newBuilder();
+    Alert alert = parser.parseFrom(new StringReader(alertStr), reasons);
+    assertFalse(alert.hasIdentifier());
+    CapTestUtil.assertReasons(reasons.build(),
+        new Reason("", ReasonType.PARSE_LIMIT_EXCEEDED));
+  }
+
+  public void testParseLimitsPartialAlert() throws Exception {
+    String alertStr = getPolygonAlert(
+        CapValidator.CAP_LATEST_XMLNS, "1,2 3,4 5,6 1,2");
+    CapXmlParser parser = new CapXmlParser(false);
+    parser.setParseLimits(ParseLimits.newBuilder().setMaxInfos(0).build());
+    Reasons.Builder reasons = Reasons.newBuilder();
+    Alert alert = parser.parseFrom(alertStr, reasons);
+    assertEquals("43b080713727", alert.getIdentifier());
+    assertEquals(0, alert.getInfoCount());
+    assertTrue(reasons.build().containsWithLevelOrHigher(Level.ERROR));
+  }
+
+  public void testParseCancelled() throws Exception {
+    String alertStr = getPolygonAlert(
+        CapValidator.CAP_LATEST_XMLNS, "1,2 3,4 5,6 1,2");
+    CapXmlParser parser = new CapXmlParser(true);
+    Thread.currentThread().interrupt();
+    try {
+      parser.parseFrom(alertStr);
+      fail("Expected CapException");
+    } catch (CapException e) {
+      assertEquals(ReasonType.PARSE_CANCELLED,
+          e.getReasons().iterator().next().getType());
+    } finally {
+      assertTrue(Thread.interrupted());
+    }
+  }
+
+  public void testParseDeadline() throws Exception {
+    CapXmlHandler handler = new CapXmlHandler();
+    handler.setParseLimits(ParseLimits.newBuilder().setTimeoutMillis(1).build(),
+        System.nanoTime() - TimeUnit.SECONDS.toNanos(1));
+    try {
+      for (int i = 0; i < 64; i++) {
+        handler.characters(new char[] {'a'}, 0, 1);
+      }
+      fail("Expected ParseAbortedException");
+    } catch (CapXmlParser.ParseAbortedException expected) {
+      assertEquals(ReasonType.PARSE_DEADLINE_EXCEEDED,
+          handler.getReasons().iterator().next().getType());
+    }
+  }
+
+  public void testParseFromStream() throws Exception {
+    CapXmlParser parser = new CapXmlParser(true);
+    for (String xmlns : CapValidator.CAP_XML_NAMESPACES) {
+      String alertStr = getPolygonAlert(xmlns, "1,2 3,4 5,6 1,2");
+      Reasons.Builder expectedReasons = Reasons.newBuilder();
+      Alert expected = parser.parseFrom(alertStr, expectedReasons);
+      Reasons.Builder reasons = Reasons.newBuilder();
+      Alert alert = parser.parseFromStream(new InputSource(
+          new ByteArrayInputStream(alertStr.getBytes("UTF-8"))), reasons);
+      assertEquals(expected, alert);
+      assertEquals(Lists.newArrayList(expectedReasons.build()),
+          Lists.newArrayList(reasons.build()));
+    }
+  }
+
+  public void testParseFromStreamPrefixedNamespace() throws Exception {
+    String alertStr = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+        + "<!-- a comment -->"
+        + "<cap:alert xmlns:cap=\"" + CapValidator.CAP_LATEST_XMLNS + "\">"
+        + "<cap:identifier>43b080713727</cap:identifier>\n"
+        + "<cap:sender>hsas@dhs.gov</cap:sender>\n"
+        + "<cap:sent>2003-04-02T14:39:01-05:00</cap:sent>\n"
+        + "<cap:status>Actual</cap:status>\n"
+        + "<cap:msgType>Alert</cap:msgType>\n"
+        + "<cap:scope>Public</cap:scope>\n"
+        + "</cap:alert>";
+    CapXmlParser parser = new CapXmlParser(true);
+    Reasons.Builder reasons = Reasons.newBuilder();
+    Alert alert = parser.parseFromStream(
+        new InputSource(new StringReader(alertStr)), reasons);
+    assertEquals("43b080713727", alert.getIdentifier());
+    assertFalse(reasons.build().containsWithLevelOrHigher(Level.ERROR));
+  }
+
+  public void testParseFromStreamNotCap() throws Exception {
+    CapXmlParser parser = new CapXmlParser(true);
+    try {
+      parser.parseFromStream(new InputSource(new StringReader(
+          "<?xml version=\"1.0\"?>\n<foo></foo>")), Reasons.newBuilder());
+      fail("Expected NotCapException");
+    } catch (NotCapException expected) {
+      // expected
+    }
+  }
+
+  public void testParseFromStreamLength() throws Exception {
+    String alertStr = getPolygonAlert(
+        CapValidator.CAP_LATEST_XMLNS, "1,2 3,4 5,6 1,2");
+    CapXmlParser parser = new CapXmlParser(false);
+    parser.setParseLimits(ParseLimits.newBuilder().setMaxLength(200).build());
+    Reasons.Builder reasons = Reasons.newBuilder();
+    Alert alert = parser.parseFromStream(new InputSource(
+        new ByteArrayInputStream(alertStr.getBytes("UTF-8"))), reasons);
+    assertEquals(0, alert.getInfoCount());
+    CapTestUtil.assertReasons(reasons.build(),
+        new Reason("", ReasonType.PARSE_LIMIT_EXCEEDED));
+  }
+
+  public void testParseEnvelope() throws Exception {
+    CapXmlParser parser = new CapXmlParser(true);
+    for (String xmlns : CapValidator.CAP_XML_NAMESPACES) {
+      String alertStr = getPolygonAlert(xmlns, "1,2 3,4 5,6 1,2");
+      AlertEnvelope envelope = parser.parseEnvelope(alertStr);
+      Alert alert = parser.parseFrom(alertStr);
+      assertEquals(xmlns, envelope.getXmlns());
+      assertEquals(alert.getIdentifier(), envelope.getIdentifier());
+      assertEquals(alert.getSender(), envelope.getSender());
+      assertEquals(alert.getSent(), envelope.getSent());
+      assertEquals(alert.getStatus(), envelope.getStatus());
+      assertEquals(alert.getMsgType(), envelope.getMsgType());
+      assertEquals(alert.getScope(), envelope.getScope());
+      assertEquals(alert.getReferences(), envelope.getReferences());
+      assertEquals(alert.toBuilder().clearInfo().build(), envelope.toAlert());
+    }
+  }
+
+  public void testParseEnvelopeStopsAtFirstInfo() throws Exception {
+    // Neither invalid nor malformed XML after the top-level fields is read
+    String alertStr = getValidAlertPre(CapValidator.CAP_LATEST_XMLNS)
+        + "<info><category>Invalid</category><unclosed>";
+    AlertEnvelope envelope = new CapXmlParser(true).parseEnvelope(alertStr);
+    assertEquals("43b080713727", envelope.getIdentifier());
+    assertEquals(Alert.Scope.PRIVATE, envelope.getScope());
+    assertEquals(0, envelope.toAlert().getInfoCount());
+  }
+
+  public void testParseEnvelopeMissingFields() throws Exception {
+    String alertStr = "<alert xmlns=\"" + CapValidator.CAP_LATEST_XMLNS + "\">"
+        + "<identifier>43b080713727</identifier>"
+        + "<status>Bogus</status>"
+        + "</alert>";
+    AlertEnvelope envelope = new CapXmlParser(true).parseEnvelope(alertStr);
+    assertTrue(envelope.hasIdentifier());
+    assertFalse(envelope.hasSender());
+    assertFalse(envelope.hasStatus());
+    assertFalse(envelope.hasReferences());
+  }
+
+  public void testParseEnvelopeNotCap() throws Exception {
+    try {
+      new CapXmlParser(true).parseEnvelope("<feed><info/></feed>");
+      fail("Expected NotCapException");
+    } catch (NotCapException expected) {
+      // expected
+    }
+  }
+
+  public void testParseEnvelopeLimits() throws Exception {
+    CapXmlParser parser = new CapXmlParser(true);
+    parser.setParseLimits(ParseLimits.newBuilder().setMaxTextLength(5).build());
+    try {
+      parser.parseEnvelope(getPolygonAlert(
+          CapValidator.CAP_LATEST_XMLNS, "1,2 3,4 5,6 1,2"));
+      fail("Expected CapException");
+    } catch (CapException e) {
+      CapTestUtil.assertCapException(e, new Reason(
+          "/alert[1]/identifier[1]", ReasonType.PARSE_LIMIT_EXCEEDED));
+    }
+  }
+
+  public void testParseFieldProjection() throws Exception {
+    String alertStr = getValidAlertPre(CapValidator.CAP_LATEST_XMLNS)
+        + getValidInfoPre()
+        + "<resource>"
+        + "<resourceDesc>Image file (GIF)</resourceDesc>"
+        + "<mimeType>image/gif</mimeType>"
+        + "<uri>relative</uri>"
+        + "</resource>"
+        + "<area>"
+        + "<areaDesc>U.S. nationwide</areaDesc>"
+        + "<geocode><valueName>G1</valueName><value>v1</value></geocode>"
+        + "<ceiling>6.5</ceiling>"
+        + "</area>"
+        + "</info>"
+        + "</alert>";
+    CapXmlParser parser = new CapXmlParser(true);
+    parser.setFieldProjection(FieldProjection.of("identifier",
+        "info.event", "info.severity", "info.area.geocode", "info.area.ceiling",
+        "info.resource.uri"));
+    Reasons.Builder reasons = Reasons.newBuilder();
+    Alert alert = parser.parseFrom(alertStr, reasons);
+
+    assertEquals(CapValidator.CAP_LATEST_XMLNS, alert.getXmlns());
+    assertEquals("43b080713727", alert.getIdentifier());
+    assertFalse(alert.hasSender());
+    Info info = alert.getInfo(0);
+    assertEquals("Homeland Security Advisory System Update", info.getEvent());
+    assertEquals(Info.Severity.UNKNOWN_SEVERITY, info.getSeverity());
+    assertTrue(info.hasSeverity());
+    assertFalse(info.hasDescription());
+    assertEquals(0, info.getCategoryCount());
+    assertEquals("relative", info.getResource(0).getUri());
+    assertFalse(info.getResource(0).hasMimeType());
+    Area area = info.getArea(0);
+    assertFalse(area.hasAreaDesc());
+    assertEquals("G1", area.getGeocode(0).getValueName());
+    assertEquals("v1", area.getGeocode(0).getValue());
+
+    // The relative uri is invalid only if derefUri was kept, and the
+    // ceiling only if altitude was
+    assertFalse(reasons.build().containsWithLevelOrHigher(Level.ERROR));
+    parser.setFieldProjection(FieldProjection.ALL);
+    CapTestUtil.assertReasons(validate(parser, alertStr),
+        new Reason("/alert[1]/info[1]/resource[1]/uri[1]",
+            ReasonType.RELATIVE_URI_MISSING_DEREF_URI),
+        new Reason("/alert[1]/info[1]/area[1]", ReasonType.INVALID_AREA));
+  }
+
+  public void testParseFieldProjectionSchemaErrors() throws Exception {
+    String alertStr = getValidAlertPre(CapValidator.CAP_LATEST_XMLNS)
+        + getValidInfoPre()
+        + "<area>"
+        + "<areaDesc>U.S. nationwide</areaDesc>"
+        + "<altitude>-1</altitude>"
+        + "</area>"
+        + "</info>"
+        + "</alert>";
+    CapXmlParser parser = new CapXmlParser(true);
+    parser.setFieldProjection(FieldProjection.of("info.event"));
+    // Dropped fields are still checked against the schema
+    assertReasons(parser, alertStr, ReasonType.INVALID_VALUE,
+        "/alert[1]/info[1]/area[1]/altitude[1]");
+  }
+
+  public void testAlertFilterStopsEarly() throws Exception {
+    // Parsing stops at the status, before the malformed XML
+    String alertStr = "<alert xmlns=\"" + CapValidator.CAP_LATEST_XMLNS + "\">"
+        + "<identifier>43b080713727</identifier>"
+        + "<sender>hsas@dhs.gov</sender>"
+        + "<sent>2003-04-02T14:39:01-05:00</sent>"
+        + "<status>Test</status>"
+        + "<msgType>Alert</msgType><unclosed>";
+    CapXmlParser parser = new CapXmlParser(true);
+    parser.setAlertFilter(AlertFilter.newBuilder()
+        .setStatuses(Alert.Status.ACTUAL).build());
+    Reasons.Builder reasons = Reasons.newBuilder();
+    assertNull(parser.parseFrom(alertStr, reasons));
+    assertFalse(reasons.build().iterator().hasNext());
+    assertNull(parser.parseFrom(alertStr));
+    assertNull(parser.parseFromStream(
+        new InputSource(new StringReader(alertStr)), Reasons.newBuilder()));
+
+    parser.setAlertFilter(null);
+    try {
+      parser.parseFrom(alertStr);
+      fail("Expected SAXParseException");
+    } catch (SAXParseException expected) {
+      // expected
+    }
+  }
+
+  public void testAlertFilterInfos() throws Exception {
+    String minorInfo = getValidInfoPre().replace(
+        "<severity>Unknown</severity>", "<severity>Minor</severity>")
+        + "<area><areaDesc>minor</areaDesc><polygon>1,1 1,2 2,2 1,1</polygon></area>"
+        + "</info>";
+    String severeInfo = getValidInfoPre().replace(
+        "<severity>Unknown</severity>", "<severity>Severe</severity>")
+        + "<area><areaDesc>severe</areaDesc><polygon>1,1 1,2 2,2 1,1</polygon></area>"
+        + "</info>";
+    String alertStr = getValidAlertPre(CapValidator.CAP_LATEST_XMLNS)
+        + minorInfo + severeInfo + "</alert>";
+    CapXmlParser parser = new CapXmlParser(true);
+    parser.setAlertFilter(AlertFilter.newBuilder()
+        .setMinSeverity(Info.Severity.SEVERE)
+        .setBoundingBox(0, 0, 1.5, 1.5)
+        .build());
+    Reasons.Builder reasons = Reasons.newBuilder();
+    Alert alert = parser.parseFrom(alertStr, reasons);
+    assertEquals(1, alert.getInfoCount());
+    assertEquals("severe", alert.getInfo(0).getArea(0).getAreaDesc());
+    assertFalse(reasons.build().containsWithLevelOrHigher(Level.ERROR));
+
+    parser.setAlertFilter(AlertFilter.newBuilder()
+        .setMinSeverity(Info.Severity.SEVERE)
+        .setBoundingBox(10, 10, 20, 20)
+        .build());
+    assertNull(parser.parseFrom(alertStr));
+
+    parser.setAlertFilter(AlertFilter.newBuilder()
+        .setMinSeverity(Info.Severity.SEVERE).build());
+    assertNull(parser.parseFrom(
+        getValidAlertPre(CapValidator.CAP_LATEST_XMLNS) + "</alert>"));
+  }
+
+  public void testParseContextReuse() throws Exception {
+    CapXmlParser parser = new CapXmlParser(false);
+    CapXmlParser limitedParser = new CapXmlParser(false);
+    limitedParser.setParseLimits(ParseLimits.newBuilder().setMaxInfos(1).build());
+    String valid = getValidAlertPre(CapValidator.CAP12_XMLNS)
+        + getValidInfoPre() + "</info></alert>";
+    String twoInfos = getValidAlertPre(CapValidator.CAP12_XMLNS)
+        + getValidInfoPre() + "</info>" + getValidInfoPre() + "</info></alert>";
+    String[] alerts = {
+        valid,
+        getValidAlertPre(CapValidator.CAP10_XMLNS) + "</alert>",
+        valid.replace("<identifier>43b080713727", "<identifier>43b0 80713727"),
+        valid.replace("</alert>", "<restriction>r</restriction></alert>"),
+        twoInfos,
+        valid,
+    };
+    CapParseContext context = new CapParseContext();
+    for (String alertStr : alerts) {
+      for (CapXmlParser p : new CapXmlParser[] {parser, limitedParser}) {
+        Reasons.Builder expectedReasons = Reasons.newBuilder();
+        Alert expected = p.parseFrom(alertStr, expectedReasons);
+        Reasons.Builder reasons = Reasons.newBuilder();
+        assertEquals(expected, p.parseFrom(alertStr, reasons, context));
+        assertEquals(Lists.newArrayList(expectedReasons.build()),
+            Lists.newArrayList(reasons.build()));
+      }
+
+      // Failed parses leave the context usable
+      try {
+        parser.parseFrom(getValidAlertPre(CapValidator.CAP12_XMLNS) + "<unclosed>",
+            Reasons.newBuilder(), context);
+        fail("Expected SAXParseException");
+      } catch (SAXParseException expected) {
+        // expected
+      }
+      try {
+        parser.parseFrom("<feed/>", Reasons.newBuilder(), context);
+        fail("Expected NotCapException");
+      } catch (NotCapException expected) {
+        // expected
+      }
+    }
+  }
+
+  public void testParseContextInUse() throws Exception {
+    CapParseContext context = new CapParseContext();
+    context.acquire();
+    try {
+      new CapXmlParser(false).parseFrom(
+          getValidAlertPre(CapValidator.CAP12_XMLNS) + "</alert>",
+          Reasons.newBuilder(), context);
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+    context.release();
+  }
+
+  private static Reasons validate(CapXmlParser parser, String alertStr)
+      throws Exception {
+    Reasons.Builder reasons = Reasons.newBuilder();
+    parser.parseFrom(alertStr, reasons);
+    return reasons.build();
   }
 
   private static void assertReasons(CapXmlParser parser, String alertStr,
@@ -937,6 +1403,36 @@ public class CapXmlParserTest extends TestCase {
     Reasons reasons = reasonsBuilder.build();
     reasons = exceptionMapper.map(reasons);
     CapTestUtil.assertReasons(reasons, expectedReasons);
+
+    // Validate the parseFrom that reuses a context
+    reasonsBuilder = Reasons.newBuilder();
+    parser.parseFrom(alertStr, reasonsBuilder, SHARED_CONTEXT);
+    reasons = exceptionMapper.map(reasonsBuilder.build());
+    CapTestUtil.assertReasons(reasons, expectedReasons);
+
+    // Validate the single-pass parseFromStream
+    reasonsBuilder = Reasons.newBuilder();
+    parser.parseFromStream(
+        new InputSource(new StringReader(alertStr)), reasonsBuilder);
+    reasons = exceptionMapper.map(reasonsBuilder.build());
+    CapTestUtil.assertReasons(reasons, expectedReasons);
+
+    // Validate the compiled schemas, in both passes
+    parser.setCompiledSchemaValidation(true);
+    try {
+      reasonsBuilder = Reasons.newBuilder();
+      parser.parseFrom(alertStr, reasonsBuilder, SHARED_CONTEXT);
+      reasons = exceptionMapper.map(reasonsBuilder.build());
+      CapTestUtil.assertReasons(reasons, expectedReasons);
+
+      reasonsBuilder = Reasons.newBuilder();
+      parser.parseFromStream(
+          new InputSource(new StringReader(alertStr)), reasonsBuilder);
+      reasons = exceptionMapper.map(reasonsBuilder.build());
+      CapTestUtil.assertReasons(reasons, expectedReasons);
+    } finally {
+      parser.setCompiledSchemaValidation(false);
+    }
   }
   
   private static void assertReasons(CapXmlParser parser, String alertStr,
@@ -0,0 +1,360 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multiset;
+import com.google.publicalerts.cap.CapException.ReasonType;
+import com.google.publicalerts.cap.testing.CapTestUtil;
+import com.google.publicalerts.cap.testing.TestResources;
+
+import junit.framework.TestCase;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+/**
+ * Tests for {@link CompiledSchemaValidator}, mostly by checking that
+ * parsing with it gives the same alerts and reasons as parsing with the
+ * Xerces schema validator.
+ *
+ * @author agent@local (agent)
+ */
+public class CompiledSchemaValidatorTest extends TestCase {
+  private static final String[] FILES = {"australia.cap", "canada.cap",
+      "canada_errors.cap", "canada_signed.cap", "earthquake.cap",
+      "earthquake_signed.cap", "invalid.cap", "no_optional_fields.cap",
+      "noaa_errors.cap", "wcatwc-warning.cap", "weather.cap"};
+
+  private final XercesCapExceptionMapper mapper = new XercesCapExceptionMapper();
+  private CapXmlParser xercesParser;
+  private CapXmlParser compiledParser;
+  private final CapParseContext xercesContext = new CapParseContext();
+  private final CapParseContext compiledContext = new CapParseContext();
+  private Transformer transformer;
+
+  public CompiledSchemaValidatorTest(String s) {
+    super(s);
+  }
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    xercesParser = new CapXmlParser(false);
+    compiledParser = new CapXmlParser(false);
+    compiledParser.setCompiledSchemaValidation(true);
+  }
+
+  public void testFiles() throws Exception {
+    for (String file : FILES) {
+      assertSameAsXerces(TestResources.load(file));
+    }
+  }
+
+  public void testVersions() throws Exception {
+    for (String xml : getAlerts()) {
+      assertSameAsXerces(xml);
+    }
+  }
+
+  public void testMutations() throws Exception {
+    // CAP 1.1 differs little from 1.2, and is covered by the other tests
+    List<String> xmls = getAlerts();
+    xmls.remove(1);
+    xmls.add(TestResources.load("australia.cap"));
+    for (String xml : xmls) {
+      Document doc = parseDom(xml);
+      int count = doc.getElementsByTagName("*").getLength();
+      for (int i = 1; i < count; i++) {
+        for (Mutation mutation : Mutation.values()) {
+          Document mutated = (Document) doc.cloneNode(true);
+          Element element = (Element) mutated.getElementsByTagName("*").item(i);
+          if (mutation.apply(element)) {
+            assertSameAsXerces(toXml(mutated));
+          }
+        }
+      }
+    }
+  }
+
+  public void testValues() throws Exception {
+    String[][] values = {
+        {"sent", "2003-04-02T14:39:01-05:00", " 2003-04-02T14:39:01+14:00 ",
+            "2003-04-02T24:00:00-05:00", "2004-02-29T14:39:01-05:00",
+            "2003-02-29T14:39:01-05:00", "0000-04-02T14:39:01-05:00",
+            "2003-04-02T14:39:01-14:30", "2003-04-02T14:39:01,05:00",
+            "2003-04-02T14:39:01Z", "2003-13-02T14:39:01-05:00", "x", ""},
+        {"identifier", "a", "a b", " a", "a,b", "a&amp;b", ""},
+        {"status", "Actual", " Actual", "Draft", "actual", ""},
+        {"references", "a,b,2003-04-02T14:39:01-05:00",
+            " a,b,2003-04-02T14:39:01-05:00  c,d,2003-04-02T14:39:01+05:00 ",
+            "a,b,2003-04-02T14:39:01,05:00", "a,b,c,2003-04-02T14:39:01-05:00",
+            "a,,2003-04-02T14:39:01-05:00", "a,b", " ", ""}};
+    for (String[] tagValues : values) {
+      for (int i = 1; i < tagValues.length; i++) {
+        assertSameAsXerces(CapTestUtil.getValidAlertBuilder().build(),
+            tagValues[0], tagValues[i]);
+      }
+    }
+    String[][] areaValues = {
+        {"circle", "32.9525,-115.5527 0", " 32.9525,-115.5527 10.5 ",
+            "32.9525,-115.5527", "132.9525,-115.5527 0", "a,b c", ""},
+        {"altitude", "0", " 1.5 ", "+1.", "-1", "abc", "+.", ""},
+        {"geocode", "<valueName>a</valueName><value>b</value>",
+            "<value>b</value>", "<valueName>a</valueName>", "x"}};
+    for (String[] tagValues : areaValues) {
+      for (int i = 1; i < tagValues.length; i++) {
+        String xml = new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder())
+            .replace("<areaDesc>", "<" + tagValues[0] + ">" + tagValues[i]
+                + "</" + tagValues[0] + "><areaDesc>");
+        assertSameAsXerces(moveAfterAreaDesc(xml, tagValues[0]));
+      }
+    }
+  }
+
+  public void testInfoValues() throws Exception {
+    String[][] values = {
+        {"language", "", " en ", "en-US-x1", "e1", "toolongtag", "en-"},
+        {"web", "http://example.com/a b", "http://[x", "%zz", "http:", "#a#b",
+            "relative/path", "http://example.com/\u00e9"},
+        {"responseType", "Avoid", "AllClear", "Bogus"}};
+    for (String[] tagValues : values) {
+      for (int i = 1; i < tagValues.length; i++) {
+        String tag = tagValues[0];
+        String xml = new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder());
+        Document doc = parseDom(xml);
+        Element info = (Element) doc.getElementsByTagNameNS("*", "info").item(0);
+        NodeList existing = info.getElementsByTagNameNS("*", tag);
+        Element element;
+        if (existing.getLength() > 0) {
+          element = (Element) existing.item(0);
+        } else {
+          // <language> is first, and <responseType> precedes <urgency>
+          element = doc.createElementNS(info.getNamespaceURI(), tag);
+          info.insertBefore(element, "responseType".equals(tag)
+              ? info.getElementsByTagNameNS("*", "urgency").item(0)
+              : info.getFirstChild());
+        }
+        element.setTextContent(tagValues[i]);
+        assertSameAsXerces(toXml(doc));
+      }
+    }
+  }
+
+  public void testLanguageDefault() throws Exception {
+    String xml = new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder());
+    for (String language : new String[] {"<language/>", "<language></language>"}) {
+      String emptyLanguage = xml.replace("<info>", "<info>" + language);
+      assertEquals("en-US", compiledParser.parseFrom(emptyLanguage)
+          .getInfo(0).getLanguage());
+      assertSameAsXerces(emptyLanguage);
+    }
+  }
+
+  public void testOutOfSequence() throws Exception {
+    String xml = new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder());
+    Reasons.Builder reasons = Reasons.newBuilder();
+    compiledParser.parseFrom(xml.replace("<status>", "<bogus/><status>"), reasons);
+    CapTestUtil.assertReasons(reasons.build(), new Reason(
+        "/alert[1]/bogus[1]", ReasonType.UNSUPPORTED_ELEMENT));
+
+    reasons = Reasons.newBuilder();
+    compiledParser.parseFrom(xml.replace("<status>", "<note>n</note><status>"),
+        reasons);
+    CapTestUtil.assertReasons(reasons.build(), new Reason(
+        "/alert[1]/note[1]", ReasonType.INVALID_SEQUENCE));
+
+    reasons = Reasons.newBuilder();
+    compiledParser.parseFrom(xml.replaceFirst("<sent>[^<]*</sent>", ""),
+        reasons);
+    CapTestUtil.assertReasons(reasons.build(), new Reason(
+        "/alert[1]/status[1]", ReasonType.INVALID_SEQUENCE));
+  }
+
+  public void testStrictIgnoresCompiledSchema() throws Exception {
+    CapXmlParser parser = new CapXmlParser(false, true);
+    parser.setCompiledSchemaValidation(true);
+    String xml = new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder());
+    Reasons.Builder reasons = Reasons.newBuilder();
+    parser.parseFrom(xml.replace("<status>", "<bogus/><status>"), reasons);
+    // Reported by Xerces, so not yet mapped
+    assertEquals(ReasonType.OTHER, reasons.build().iterator().next().getType());
+  }
+
+  /** Changes to a document, each likely to make it invalid. */
+  private enum Mutation {
+    DELETE {
+      @Override
+      boolean apply(Element element) {
+        element.getParentNode().removeChild(element);
+        return true;
+      }
+    },
+    DUPLICATE {
+      @Override
+      boolean apply(Element element) {
+        element.getParentNode().insertBefore(
+            element.cloneNode(true), element.getNextSibling());
+        return true;
+      }
+    },
+    SWAP {
+      @Override
+      boolean apply(Element element) {
+        Node next = element.getNextSibling();
+        while (next != null && next.getNodeType() != Node.ELEMENT_NODE) {
+          next = next.getNextSibling();
+        }
+        if (next == null) {
+          return false;
+        }
+        element.getParentNode().insertBefore(next, element);
+        return true;
+      }
+    },
+    BOGUS_TEXT {
+      @Override
+      boolean apply(Element element) {
+        element.setTextContent("bogus");
+        return true;
+      }
+    },
+    EMPTY_TEXT {
+      @Override
+      boolean apply(Element element) {
+        element.setTextContent("");
+        return true;
+      }
+    },
+    INSERT_UNKNOWN {
+      @Override
+      boolean apply(Element element) {
+        element.getParentNode().insertBefore(element.getOwnerDocument()
+            .createElementNS(element.getNamespaceURI(), "bogus"), element);
+        return true;
+      }
+    },
+    INSERT_TEXT {
+      @Override
+      boolean apply(Element element) {
+        element.getParentNode().insertBefore(
+            element.getOwnerDocument().createTextNode("text"), element);
+        return true;
+      }
+    },
+    ADD_ATTRIBUTE {
+      @Override
+      boolean apply(Element element) {
+        element.setAttribute("bogus", "1");
+        return true;
+      }
+    };
+
+    /**
+     * @return false if the mutation does not apply to the element
+     */
+    abstract boolean apply(Element element);
+  }
+
+  private List<String> getAlerts() {
+    List<String> xmls = Lists.newArrayList();
+    for (String xmlns : new String[] {CapValidator.CAP10_XMLNS,
+        CapValidator.CAP11_XMLNS, CapValidator.CAP12_XMLNS}) {
+      xmls.add(new CapXmlBuilder().toXml(
+          CapTestUtil.getValidAlertBuilder().setXmlns(xmlns)));
+    }
+    return xmls;
+  }
+
+  private void assertSameAsXerces(Alert alert, String tag, String value)
+      throws Exception {
+    Document doc = parseDom(new CapXmlBuilder().toXml(alert));
+    Element element = (Element) doc.getElementsByTagNameNS("*", tag).item(0);
+    if (element == null) {
+      element = doc.createElementNS(doc.getDocumentElement().getNamespaceURI(), tag);
+      Node info = doc.getElementsByTagNameNS("*", "info").item(0);
+      doc.getDocumentElement().insertBefore(element, info);
+    }
+    element.setTextContent(value);
+    assertSameAsXerces(toXml(doc));
+  }
+
+  private void assertSameAsXerces(String xml) throws Exception {
+    Reasons.Builder expectedReasons = Reasons.newBuilder();
+    Alert expected = xercesParser.parseFrom(xml, expectedReasons, xercesContext);
+    Multiset<String> expectedTypes = toTypes(mapper.map(expectedReasons.build()));
+
+    Reasons.Builder actualReasons = Reasons.newBuilder();
+    Alert actual = compiledParser.parseFrom(xml, actualReasons, compiledContext);
+    assertEquals(xml, expected, actual);
+    assertEquals(xml, expectedTypes, toTypes(mapper.map(actualReasons.build())));
+
+    actualReasons = Reasons.newBuilder();
+    actual = compiledParser.parseFromStream(
+        new InputSource(new StringReader(xml)), actualReasons);
+    assertEquals(xml, expected, actual);
+    assertEquals(xml, expectedTypes, toTypes(mapper.map(actualReasons.build())));
+  }
+
+  private static Multiset<String> toTypes(Reasons reasons) {
+    Multiset<String> types = HashMultiset.create();
+    for (Reason reason : reasons) {
+      types.add(reason.getType() + " " + reason.getXPath());
+    }
+    return types;
+  }
+
+  private static String moveAfterAreaDesc(String xml, String tag) {
+    int start = xml.indexOf("<" + tag + ">");
+    int end = xml.indexOf("</areaDesc>") + "</areaDesc>".length();
+    String element = xml.substring(start, xml.indexOf("<areaDesc>"));
+    return xml.substring(0, start) + xml.substring(start + element.length(), end)
+        + element + xml.substring(end);
+  }
+
+  private Document parseDom(String xml) throws Exception {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setNamespaceAware(true);
+    return factory.newDocumentBuilder().parse(
+        new InputSource(new StringReader(xml)));
+  }
+
+  private String toXml(Document doc) throws Exception {
+    if (transformer == null) {
+      transformer = TransformerFactory.newInstance().newTransformer();
+      transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+    }
+    StringWriter writer = new StringWriter();
+    transformer.transform(new DOMSource(doc), new StreamResult(writer));
+    return writer.toString();
+  }
+}
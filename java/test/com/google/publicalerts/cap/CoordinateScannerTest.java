@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests for {@link CoordinateScanner}.
+ *
+ * @author agent@local (agent)
+ */
+public class CoordinateScannerTest extends TestCase {
+
+  public void testScanPolygon() {
+    assertPolygon(new double[] {1.5, 2.5, -2, -3}, "1.5,2.5 -2,-3");
+    assertPolygon(new double[] {1.5, 2.5, -2, -3}, " \n1.5,2.5\t\r -2,-3 \n");
+    assertPolygon(new double[] {1, 2, 3, 4}, "1,2,, 3,4,");
+    assertPolygon(new double[] {1e3, -0.0, 0.001, 1}, "1e3,-0 .001,+1.");
+    assertPolygon(new double[] {Double.NaN, 1}, "NaN,1");
+
+    assertNull(CoordinateScanner.scanPolygon(null));
+    assertNull(CoordinateScanner.scanPolygon(""));
+    assertNull(CoordinateScanner.scanPolygon(" \t "));
+    assertNull(CoordinateScanner.scanPolygon("1,2 3"));
+    assertNull(CoordinateScanner.scanPolygon(",1,2"));
+    assertNull(CoordinateScanner.scanPolygon("1,,2"));
+    assertNull(CoordinateScanner.scanPolygon("1,2,3"));
+    assertNull(CoordinateScanner.scanPolygon("1, 2"));
+    assertNull(CoordinateScanner.scanPolygon("1,2a"));
+    assertNull(CoordinateScanner.scanPolygon("-,2"));
+    assertNull(CoordinateScanner.scanPolygon("1.2.3,4"));
+  }
+
+  public void testScanPolygonGrowsBuffer() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      sb.append(i).append(".25,-").append(i).append(".5 ");
+    }
+    double[] coordinates = CoordinateScanner.scanPolygon(sb);
+    assertEquals(2000, coordinates.length);
+    assertEquals(999.25, coordinates[1998]);
+    assertEquals(-999.5, coordinates[1999]);
+  }
+
+  public void testMatchesDoubleParseDouble() {
+    Random random = new Random(42);
+    String[] values = {
+        "0", "-0", "00012.5000", "0.1", "0.3", "-179.99999999999999",
+        "9007199254740993", "123456789012345678901234567890",
+        "0.00000000000000000000000123", "1.7976931348623157E308",
+        "4.9e-324", "0x1p3", "1d", "2f", "Infinity" };
+    for (String value : values) {
+      assertEquals(value, Double.parseDouble(value), scanValue(value));
+    }
+    for (int i = 0; i < 10000; i++) {
+      String value = String.valueOf((random.nextDouble() - 0.5) * 360);
+      assertEquals(value, Double.parseDouble(value), scanValue(value));
+      value = String.format("%.6f", (random.nextDouble() - 0.5) * 180);
+      assertEquals(value, Double.parseDouble(value), scanValue(value));
+    }
+  }
+
+  public void testScanCircle() {
+    Circle circle = CoordinateScanner.scanCircle(" 1.5,-2 \t 3.125 ");
+    assertEquals(1.5, circle.getPoint().getLatitude());
+    assertEquals(-2.0, circle.getPoint().getLongitude());
+    assertEquals(3.125f, circle.getRadius(), 0);
+
+    assertNull(CoordinateScanner.scanCircle(null));
+    assertNull(CoordinateScanner.scanCircle(""));
+    assertNull(CoordinateScanner.scanCircle("1,2"));
+    assertNull(CoordinateScanner.scanCircle("1,2 3 4"));
+    assertNull(CoordinateScanner.scanCircle("1,2 x"));
+    assertNull(CoordinateScanner.scanCircle("1 2"));
+  }
+
+  private void assertPolygon(double[] expected, String str) {
+    assertEquals(Arrays.toString(expected),
+        Arrays.toString(CoordinateScanner.scanPolygon(str)));
+  }
+
+  private double scanValue(String value) {
+    return CoordinateScanner.scanPolygon(value + ",0")[0];
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link FieldProjection}.
+ *
+ * @author agent@local (agent)
+ */
+public class FieldProjectionTest extends TestCase {
+
+  public FieldProjectionTest(String s) {
+    super(s);
+  }
+
+  public void testAll() {
+    assertTrue(FieldProjection.ALL.includesAll());
+    assertTrue(FieldProjection.ALL.includes("info.area.geocode"));
+  }
+
+  public void testIncludes() {
+    FieldProjection projection =
+        FieldProjection.of("identifier", "info.event", "info.area");
+    assertFalse(projection.includesAll());
+    assertTrue(projection.includes("identifier"));
+    assertFalse(projection.includes("sender"));
+    assertTrue(projection.includes("info"));
+    assertTrue(projection.includes("info.event"));
+    assertFalse(projection.includes("info.headline"));
+    assertTrue(projection.includes("info.area.geocode.value"));
+    assertFalse(projection.includes("info.resource"));
+    assertFalse(projection.includes("no.such.field"));
+  }
+
+  public void testXmlNames() {
+    FieldProjection projection =
+        FieldProjection.of("info.senderName", "info.resource.deref_uri");
+    assertTrue(projection.includes("info.sender_name"));
+    assertTrue(projection.includes("info.resource.derefUri"));
+    assertEquals("FieldProjection[info.sender_name, info.resource.deref_uri]",
+        projection.toString());
+  }
+
+  public void testShorterPathWins() {
+    FieldProjection projection = FieldProjection.of("info.event", "info", "info.area");
+    assertTrue(projection.includes("info.headline"));
+    assertEquals("FieldProjection[info]", projection.toString());
+  }
+
+  public void testGetChild() {
+    FieldProjection projection = FieldProjection.of("info.event");
+    FieldProjection info = projection.getChild(
+        Alert.getDescriptor().findFieldByName("info"));
+    assertNotNull(info);
+    assertNull(projection.getChild(Alert.getDescriptor().findFieldByName("sender")));
+    assertNull(info.getChild(Info.getDescriptor().findFieldByName("headline")));
+    assertTrue(info.getChild(Info.getDescriptor().findFieldByName("event")).includesAll());
+  }
+
+  public void testInvalidPaths() {
+    for (String path : new String[] {"bogus", "info.bogus", "identifier.value", ""}) {
+      try {
+        FieldProjection.of(path);
+        fail("Expected IllegalArgumentException for " + path);
+      } catch (IllegalArgumentException expected) {
+        // expected
+      }
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+/**
+ * Tests for {@link PolygonView}.
+ *
+ * @author agent@local (agent)
+ */
+public class PolygonViewTest extends TestCase {
+
+  private static final double[] COORDINATES = {1.5, 2.5, -2, -3, 3, 4, 1.5, 2.5};
+
+  public void testPointPolygon() {
+    Polygon polygon = PolygonView.of(COORDINATES).toPointPolygon();
+    assertEquals(4, polygon.getPointCount());
+    assertFalse(polygon.hasPackedCoordinates());
+    assertEquals(-3.0, polygon.getPoint(1).getLongitude());
+
+    PolygonView view = PolygonView.of(polygon);
+    assertEquals(4, view.getPointCount());
+    assertTrue(Arrays.equals(COORDINATES, view.getCoordinates()));
+    assertEquals(4, PolygonView.getPointCount(polygon));
+  }
+
+  public void testPackedPolygon() throws Exception {
+    Polygon polygon = PolygonView.of(COORDINATES).toPackedPolygon();
+    assertEquals(0, polygon.getPointCount());
+    assertEquals(COORDINATES.length * 8, polygon.getPackedCoordinates().size());
+
+    PolygonView view = PolygonView.of(polygon);
+    assertTrue(Arrays.equals(COORDINATES, view.getCoordinates()));
+    assertEquals(-2.0, view.getLatitude(1));
+    assertEquals(4.0, view.getLongitude(2));
+    assertEquals(4, PolygonView.getPointCount(polygon));
+
+    // Survives a round trip through the wire format
+    Polygon parsed = Polygon.parseFrom(polygon.toByteArray());
+    assertEquals(polygon, parsed);
+    assertEquals(PolygonView.of(polygon).toPointPolygon(),
+        PolygonView.of(parsed).toPointPolygon());
+  }
+
+  public void testPointEquals() {
+    PolygonView view = PolygonView.of(COORDINATES);
+    assertTrue(view.pointEquals(0, 3));
+    assertFalse(view.pointEquals(0, 1));
+    assertTrue(PolygonView.of(new double[] {0.0, 1, -0.0, 1}).pointEquals(0, 0));
+    assertFalse(PolygonView.of(new double[] {0.0, 1, -0.0, 1}).pointEquals(0, 1));
+  }
+
+  public void testOddCoordinates() {
+    try {
+      PolygonView.of(new double[] {1, 2, 3});
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link StringInterner}.
+ *
+ * @author agent@local (agent)
+ */
+public class StringInternerTest extends TestCase {
+
+  public void testIntern() {
+    StringInterner interner = new StringInterner(16);
+    String a = new String("Department of Homeland Security");
+    String b = new String("Department of Homeland Security");
+    assertNotSame(a, b);
+    assertSame(a, interner.intern(a));
+    assertSame(a, interner.intern(b));
+    assertNull(interner.intern(null));
+  }
+
+  public void testLongStringsNotInterned() {
+    StringInterner interner = new StringInterner(16);
+    String a = Strings.repeat("a", StringInterner.MAX_LENGTH + 1);
+    String b = new String(a);
+    interner.intern(a);
+    assertSame(b, interner.intern(b));
+  }
+
+  public void testBounded() {
+    StringInterner interner = new StringInterner(10);
+    assertEquals(16, interner.getCapacity());
+    for (int i = 0; i < 1000; i++) {
+      String value = "value" + i;
+      assertEquals(value, interner.intern(value));
+    }
+    assertEquals(16, interner.getCapacity());
+  }
+
+  public void testIsInterned() {
+    StringInterner interner = new StringInterner(16);
+    assertTrue(interner.isInterned(
+        Info.getDescriptor().findFieldByName("sender_name")));
+    assertTrue(interner.isInterned(
+        ValuePair.getDescriptor().findFieldByName("value_name")));
+    assertFalse(interner.isInterned(
+        Info.getDescriptor().findFieldByName("description")));
+
+    interner = new StringInterner(16, ImmutableSet.of("description"));
+    assertTrue(interner.isInterned(
+        Info.getDescriptor().findFieldByName("description")));
+    assertFalse(interner.isInterned(
+        Info.getDescriptor().findFieldByName("sender_name")));
+  }
+
+  public void testInvalidCapacity() {
+    try {
+      new StringInterner(0);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+  }
+}
@@ -18,6 +18,8 @@ package com.google.publicalerts.cap;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.publicalerts.cap.CapException.ReasonType;
+
 import junit.framework.TestCase;
 
 /**
@@ -35,4 +37,46 @@ public class XercesCapExceptionMapperTest extends TestCase{
     assertThat(XercesCapExceptionMapper.stripTagNamespace("alert")).isEqualTo("alert");
     assertThat(XercesCapExceptionMapper.stripTagNamespace("cap:alert")).isEqualTo("alert");
   }
+
+  public void testMapInvalidContent() {
+    String expected = "{\"urn:oasis:names:tc:emergency:cap:1.2\":msgType}";
+    assertMapped(ReasonType.DUPLICATE_ELEMENT, "/alert[1]/status[2]",
+        "cvc-complex-type.2.4.a: Invalid content was found starting with "
+        + "element 'cap:status'. One of '" + expected + "' is expected.",
+        "status");
+    assertMapped(ReasonType.INVALID_SEQUENCE, "/alert[1]/note[1]",
+        "cvc-complex-type.2.4.a: Invalid content was found starting with "
+        + "element 'note'. One of '" + expected + "' is expected.",
+        "status");
+    assertMapped(ReasonType.UNSUPPORTED_ELEMENT, "/alert[1]/bogus[1]",
+        "cvc-complex-type.2.4.a: Invalid content was found starting with "
+        + "element 'bogus'. One of '" + expected + "' is expected.",
+        "status");
+    assertMapped(ReasonType.INVALID_SEQUENCE, "/alert[1]/note[1]",
+        "cvc-complex-type.2.4.d: Invalid content was found starting with "
+        + "element 'note'. No child element is expected at this point.",
+        "digest");
+    assertMapped(ReasonType.DUPLICATE_ELEMENT, "/alert[1]/digest[2]",
+        "cvc-complex-type.2.4.d: Invalid content was found starting with "
+        + "element 'digest'. No child element is expected at this point.",
+        "digest");
+  }
+
+  public void testMapDatatype() {
+    assertMapped(ReasonType.INVALID_DATE, "/alert[1]",
+        "cvc-datatype-valid.1.2.1: '2003-02-29T00:00:00-00:00' is not a valid "
+        + "value for 'dateTime'.", "sent");
+    assertMapped(ReasonType.INVALID_VALUE, "/alert[1]",
+        "cvc-datatype-valid.1.2.1: 'abc' is not a valid value for 'integer'.",
+        "size");
+  }
+
+  private void assertMapped(ReasonType type, String xPath, String message,
+      String tag) {
+    Reasons reasons = new XercesCapExceptionMapper().map(Reasons.of(
+        new Reason("/alert[1]", ReasonType.OTHER, message, tag, "")));
+    Reason reason = reasons.iterator().next();
+    assertThat(reason.getType()).isEqualTo(type);
+    assertThat(reason.getXPath()).isEqualTo(xPath);
+  }
 }
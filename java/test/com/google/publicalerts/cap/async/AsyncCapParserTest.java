@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.async;
+
+import com.google.common.collect.Lists;
+import com.google.publicalerts.cap.CapException.ReasonType;
+import com.google.publicalerts.cap.CapXmlBuilder;
+import com.google.publicalerts.cap.NotCapException;
+import com.google.publicalerts.cap.Reason;
+import com.google.publicalerts.cap.XmlSignatureValidator;
+import com.google.publicalerts.cap.XmlSigner;
+import com.google.publicalerts.cap.testing.CapTestUtil;
+import com.google.publicalerts.cap.testing.MockTrustStrategy;
+import com.google.publicalerts.cap.testing.TestResources;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link AsyncCapParser}.
+ *
+ * @author agent@local (agent)
+ */
+public class AsyncCapParserTest extends TestCase {
+  private ExecutorService executor;
+  private AsyncCapParser parser;
+
+  public AsyncCapParserTest(String s) {
+    super(s);
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    executor = Executors.newFixedThreadPool(2);
+    parser = new AsyncCapParser(executor, 4);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    executor.shutdownNow();
+    super.tearDown();
+  }
+
+  public void testParse() throws Exception {
+    String xml = new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder());
+    ParsedAlert parsed = parser.parse(xml).get();
+    assertEquals("43b080713727", parsed.getAlert().getIdentifier());
+    assertFalse(parsed.getReasons().iterator().hasNext());
+    assertNull(parsed.getSignatureResult());
+    assertTrue(parsed.isValid());
+    assertNoneInFlight(parser);
+  }
+
+  public void testParseDeclaredEncoding() throws Exception {
+    String xml = new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder()
+        .setIdentifier("caf\u00e9"));
+    xml = xml.replaceFirst("encoding=\"UTF-8\"", "encoding=\"ISO-8859-1\"");
+    assertTrue(xml.contains("ISO-8859-1"));
+    ParsedAlert parsed = parser.parse(xml).get();
+    assertEquals("caf\u00e9", parsed.getAlert().getIdentifier());
+  }
+
+  public void testParseInvalid() throws Exception {
+    String xml = new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder()
+        .setRestriction("a restriction"));
+    ParsedAlert parsed = parser.parse(xml).get();
+    assertFalse(parsed.isValid());
+    CapTestUtil.assertReasons(parsed.getReasons(),
+        new Reason("/alert[1]/restriction[1]", ReasonType.RESTRICTION_SCOPE_MISMATCH));
+  }
+
+  public void testParseNotCap() throws Exception {
+    try {
+      parser.parse("<feed/>").get();
+      fail("Expected NotCapException");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof NotCapException);
+    }
+    assertNoneInFlight(parser);
+  }
+
+  public void testSignatureValidation() throws Exception {
+    String xml = new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder());
+    String signed = XmlSigner.newInstanceWithRandomKeyPair().sign(xml);
+    parser.setXmlSignatureValidator(new XmlSignatureValidator(
+        new MockTrustStrategy().setAllowUntrustedCredentials(false)));
+
+    ParsedAlert parsed = parser.parse(signed).get();
+    assertFalse(parsed.getSignatureResult().isSignatureValid());
+    assertFalse(parsed.isValid());
+
+    parser.setXmlSignatureValidator(new XmlSignatureValidator(
+        new MockTrustStrategy().setAllowUntrustedCredentials(true)));
+    parsed = parser.parse(signed).get();
+    assertTrue(parsed.getSignatureResult().isSignatureValid());
+    assertTrue(parsed.isValid());
+  }
+
+  public void testBoundedInFlight() throws Exception {
+    final List<Runnable> queued = Lists.newArrayList();
+    AsyncCapParser bounded = new AsyncCapParser(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        queued.add(command);
+      }
+    }, 2);
+    String xml = new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder());
+
+    CompletableFuture<ParsedAlert> first = bounded.tryParse(xml);
+    CompletableFuture<ParsedAlert> second = bounded.tryParse(xml);
+    assertEquals(2, bounded.getInFlight());
+    try {
+      bounded.tryParse(xml).get();
+      fail("Expected RejectedExecutionException");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+
+    queued.get(0).run();
+    assertTrue(first.isDone());
+    assertFalse(second.isDone());
+    assertEquals(1, bounded.getInFlight());
+    CompletableFuture<ParsedAlert> third = bounded.tryParse(xml);
+    assertFalse(third.isCompletedExceptionally());
+
+    queued.get(1).run();
+    queued.get(2).run();
+    assertTrue(second.get().isValid());
+    assertTrue(third.get().isValid());
+    assertNoneInFlight(bounded);
+  }
+
+  public void testExecutorRejects() throws Exception {
+    executor.shutdown();
+    try {
+      parser.parse(new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder())).get();
+      fail("Expected RejectedExecutionException");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+    assertNoneInFlight(parser);
+  }
+
+  public void testParseFeed() throws Exception {
+    List<ParsedAlert> alerts = parser.parseFeed(TestResources.load("weather.atom")).get();
+    assertEquals(1, alerts.size());
+    assertEquals("w-nws.webmaster@noaa.gov", alerts.get(0).getAlert().getSender());
+    assertNoneInFlight(parser);
+  }
+
+  public void testParseFeedBoundedInFlight() throws Exception {
+    final List<Runnable> queued = Lists.newArrayList();
+    AsyncCapParser bounded = new AsyncCapParser(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        queued.add(command);
+      }
+    }, 3);
+    String feed = TestResources.load("weather.atom");
+    String entry = feed.substring(feed.indexOf("<entry>"),
+        feed.indexOf("</entry>") + "</entry>".length());
+    StringBuilder entries = new StringBuilder();
+    for (int i = 0; i < 5; i++) {
+      entries.append(entry.replace("</id>", i + "</id>"));
+    }
+    feed = feed.replace(entry, entries);
+
+    CompletableFuture<List<ParsedAlert>> alerts = bounded.parseFeed(feed);
+    CompletableFuture<ParsedAlert> other = bounded.tryParse(
+        new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder()));
+    assertEquals(2, bounded.getInFlight());
+
+    // The feed takes the one free slot, not one per entry, for a second
+    // lane of entries, and its own lane parses them all before that starts
+    queued.get(0).run();
+    assertEquals(3, queued.size());
+    assertEquals(5, alerts.get().size());
+    assertEquals(2, bounded.getInFlight());
+
+    queued.get(2).run();
+    assertEquals(1, bounded.getInFlight());
+    queued.get(1).run();
+    assertTrue(other.get().isValid());
+    assertNoneInFlight(bounded);
+  }
+
+  public void testParseFeedNoEntries() throws Exception {
+    try {
+      parser.parseFeed(TestResources.load("no_entries.atom")).get();
+      fail("Expected NotCapException");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof NotCapException);
+    }
+    assertNoneInFlight(parser);
+  }
+
+  /**
+   * Permits are released by a completion stage of the returned future, which
+   * may run just after {@code get()} returns.
+   */
+  private static void assertNoneInFlight(AsyncCapParser parser) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (parser.getInFlight() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(0, parser.getInFlight());
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.async;
+
+import com.google.common.base.Charsets;
+import com.google.publicalerts.cap.CapException.ReasonType;
+import com.google.publicalerts.cap.CapXmlBuilder;
+import com.google.publicalerts.cap.CapXmlParser;
+import com.google.publicalerts.cap.NotCapException;
+import com.google.publicalerts.cap.ParseLimits;
+import com.google.publicalerts.cap.Reason;
+import com.google.publicalerts.cap.testing.CapTestUtil;
+
+import junit.framework.TestCase;
+
+import org.xml.sax.SAXParseException;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link CapPushParser}.
+ *
+ * @author agent@local (agent)
+ */
+public class CapPushParserTest extends TestCase {
+  private ExecutorService executor;
+
+  public CapPushParserTest(String s) {
+    super(s);
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    executor.shutdownNow();
+    super.tearDown();
+  }
+
+  public void testParseInChunks() throws Exception {
+    byte[] xml = toBytes(new CapXmlBuilder().toXml(
+        CapTestUtil.getValidAlertBuilder()));
+    CapPushParser parser = newParser();
+    ByteBuffer buffer = ByteBuffer.allocate(100);
+    for (int i = 0; i < xml.length; i += 100) {
+      buffer.clear();
+      buffer.put(xml, i, Math.min(100, xml.length - i));
+      buffer.flip();
+      parser.feed(buffer);
+      assertFalse(buffer.hasRemaining());
+      assertFalse(parser.getResult().isDone());
+    }
+    ParsedAlert parsed = parser.endOfInput().get(10, TimeUnit.SECONDS);
+    assertEquals("43b080713727", parsed.getAlert().getIdentifier());
+    assertTrue(parsed.isValid());
+    assertEquals(0, parser.getBufferedBytes());
+  }
+
+  public void testParseByteAtATime() throws Exception {
+    byte[] xml = toBytes(new CapXmlBuilder().toXml(
+        CapTestUtil.getValidAlertBuilder()));
+    CapPushParser parser = newParser();
+    for (byte b : xml) {
+      parser.feed(ByteBuffer.wrap(new byte[] {b}));
+    }
+    ParsedAlert parsed = parser.endOfInput().get(10, TimeUnit.SECONDS);
+    assertEquals(new CapXmlParser(false).parseFrom(new String(xml, Charsets.UTF_8)),
+        parsed.getAlert());
+  }
+
+  public void testParseInvalid() throws Exception {
+    String xml = new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder()
+        .setRestriction("a restriction"));
+    CapPushParser parser = newParser();
+    parser.feed(ByteBuffer.wrap(toBytes(xml)));
+    ParsedAlert parsed = parser.endOfInput().get(10, TimeUnit.SECONDS);
+    assertFalse(parsed.isValid());
+    CapTestUtil.assertReasons(parsed.getReasons(),
+        new Reason("/alert[1]/restriction[1]", ReasonType.RESTRICTION_SCOPE_MISMATCH));
+  }
+
+  public void testParseNotCap() throws Exception {
+    CapPushParser parser = newParser();
+    parser.feed(ByteBuffer.wrap(toBytes("<feed>")));
+    // Fails as soon as the root element is read, before the end of input
+    assertFailsWith(parser.getResult(), NotCapException.class);
+    parser.feed(ByteBuffer.wrap(toBytes("</feed>")));
+    assertEquals(0, parser.getBufferedBytes());
+    assertFailsWith(parser.endOfInput(), NotCapException.class);
+  }
+
+  public void testParseEmpty() throws Exception {
+    assertFailsWith(newParser().endOfInput(), NotCapException.class);
+  }
+
+  public void testParseTruncated() throws Exception {
+    String xml = new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder());
+    CapPushParser parser = newParser();
+    parser.feed(ByteBuffer.wrap(toBytes(xml.substring(0, xml.length() / 2))));
+    assertFailsWith(parser.endOfInput(), SAXParseException.class);
+  }
+
+  public void testParseTooLong() throws Exception {
+    String xml = new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder());
+    CapXmlParser capParser = new CapXmlParser(false);
+    capParser.setParseLimits(ParseLimits.newBuilder().setMaxLength(100).build());
+    CapPushParser parser = new CapPushParser(capParser, executor);
+    byte[] bytes = toBytes(xml);
+    for (int i = 0; i < bytes.length; i += 10) {
+      parser.feed(ByteBuffer.wrap(bytes, i, Math.min(10, bytes.length - i)));
+    }
+    ParsedAlert parsed = parser.endOfInput().get(10, TimeUnit.SECONDS);
+    CapTestUtil.assertReasons(parsed.getReasons(),
+        new Reason("", ReasonType.PARSE_LIMIT_EXCEEDED));
+  }
+
+  public void testParseStalled() throws Exception {
+    String xml = new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder());
+    CapXmlParser capParser = new CapXmlParser(false);
+    capParser.setParseLimits(ParseLimits.newBuilder().setTimeoutMillis(200).build());
+    CapPushParser parser = new CapPushParser(capParser, executor);
+    // The sender stops mid-body, without ending the input
+    parser.feed(ByteBuffer.wrap(toBytes(xml.substring(0, xml.length() / 2))));
+    ParsedAlert parsed = parser.getResult().get(10, TimeUnit.SECONDS);
+    assertNull(parsed.getAlert());
+    assertFalse(parsed.isValid());
+    CapTestUtil.assertReasons(parsed.getReasons(),
+        new Reason("", ReasonType.PARSE_DEADLINE_EXCEEDED));
+
+    // Chunks fed once the parse has stopped are neither kept nor counted
+    parser.feed(ByteBuffer.wrap(toBytes(xml.substring(xml.length() / 2))));
+    assertEquals(0, parser.getBufferedBytes());
+  }
+
+  public void testParseIdle() throws Exception {
+    String xml = new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder());
+    // With no parse timeout, the idle timeout still bounds each wait
+    CapPushParser parser = new CapPushParser(new CapXmlParser(false), executor, 200);
+    parser.feed(ByteBuffer.wrap(toBytes(xml.substring(0, xml.length() / 2))));
+    ParsedAlert parsed = parser.getResult().get(10, TimeUnit.SECONDS);
+    assertNull(parsed.getAlert());
+    CapTestUtil.assertReasons(parsed.getReasons(),
+        new Reason("", ReasonType.PARSE_DEADLINE_EXCEEDED));
+  }
+
+  public void testCancel() throws Exception {
+    CapPushParser parser = newParser();
+    parser.feed(ByteBuffer.wrap(toBytes(
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>")));
+    parser.cancel();
+    assertFailsWith(parser.getResult(), CancellationException.class);
+    parser.feed(ByteBuffer.wrap(toBytes("<alert>")));
+    assertEquals(0, parser.getBufferedBytes());
+  }
+
+  public void testFeedAfterEndOfInput() throws Exception {
+    CapPushParser parser = newParser();
+    parser.endOfInput();
+    try {
+      parser.feed(ByteBuffer.wrap(toBytes("<alert/>")));
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+  }
+
+  private CapPushParser newParser() {
+    return new CapPushParser(new CapXmlParser(true), executor);
+  }
+
+  private static void assertFailsWith(CompletableFuture<ParsedAlert> result,
+      Class<? extends Exception> expected) throws Exception {
+    try {
+      result.get(10, TimeUnit.SECONDS);
+      fail("Expected " + expected.getSimpleName());
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause().toString(), expected.isInstance(e.getCause()));
+    } catch (CancellationException e) {
+      assertTrue(expected.isInstance(e));
+    }
+  }
+
+  private static byte[] toBytes(String str) {
+    return str.getBytes(Charsets.UTF_8);
+  }
+}
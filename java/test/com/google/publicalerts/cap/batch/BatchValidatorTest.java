@@ -0,0 +1,485 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.batch;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.google.publicalerts.cap.Alert;
+import com.google.publicalerts.cap.CapXmlParser;
+import com.google.publicalerts.cap.ParseLimits;
+import com.google.publicalerts.cap.Reasons;
+import com.google.publicalerts.cap.XercesCapExceptionMapper;
+import com.google.publicalerts.cap.profile.CapProfile;
+import com.google.publicalerts.cap.profile.CapProfiles;
+import com.google.publicalerts.cap.profile.ProfileEngine;
+import com.google.publicalerts.cap.testing.TestResources;
+
+import junit.framework.TestCase;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Tests for {@link BatchValidator}, {@link BatchResultWriter} and
+ * {@link BatchValidatorMain}.
+ *
+ * @author agent@local (agent)
+ */
+public class BatchValidatorTest extends TestCase {
+
+  private File dir;
+  private ForkJoinPool pool;
+
+  public BatchValidatorTest(String s) {
+    super(s);
+  }
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    dir = Files.createTempDir();
+    pool = new ForkJoinPool(4);
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    pool.shutdown();
+    delete(dir);
+    super.tearDown();
+  }
+
+  public void testValidate() throws Exception {
+    write("weather.cap", TestResources.loadBytes("weather.cap"));
+    write("sub/canada.cap", TestResources.loadBytes("canada.cap"));
+    write("feeds/weather.atom", TestResources.loadBytes("weather.atom"));
+    write("feeds/earthquake_index.atom",
+        TestResources.loadBytes("earthquake_index.atom"));
+    write("README", "not xml".getBytes(Charsets.UTF_8));
+
+    List<CapProfile> profiles = CapProfiles.getProfiles();
+    BatchValidator validator = new BatchValidator(profiles);
+    CollectingWriter writer = new CollectingWriter();
+    BatchValidator.Stats stats = validator.validate(
+        ImmutableList.of(dir), writer, pool);
+    List<BatchResult> results = writer.getResults();
+
+    assertEquals(5, stats.getFiles());
+    assertEquals(5, stats.getDocuments());
+    assertEquals(7, stats.getResults());
+    assertEquals(3, stats.getAlerts());
+    assertEquals(7, results.size());
+
+    assertEquals(BatchResult.Kind.OTHER, results.get(0).getKind());
+    assertEquals(path("README"), results.get(0).getSource());
+    assertFalse(results.get(0).isValid());
+
+    assertEquals(BatchResult.Kind.LINK, results.get(1).getKind());
+    assertEquals(0, results.get(1).getEntry());
+    assertNotNull(results.get(1).getLink());
+    assertEquals(BatchResult.Kind.FEED, results.get(2).getKind());
+
+    BatchResult entry = results.get(3);
+    assertEquals(path("feeds/weather.atom"), entry.getSource());
+    assertEquals(BatchResult.Kind.ALERT, entry.getKind());
+    assertEquals(0, entry.getEntry());
+    assertEquals(profiles.size(), entry.getProfileReasons().size());
+    assertEquals(BatchResult.Kind.FEED, results.get(4).getKind());
+    assertEquals(-1, results.get(4).getEntry());
+
+    assertMatchesParser(results.get(5), "sub/canada.cap", "canada.cap");
+    assertMatchesParser(results.get(6), "weather.cap", "weather.cap");
+  }
+
+  public void testArchives() throws Exception {
+    String earthquake = TestResources.load("earthquake.cap");
+    String invalid = TestResources.load("invalid.cap");
+    String weather = TestResources.load("weather.cap");
+    ByteArrayOutputStream gz = new ByteArrayOutputStream();
+    GZIPOutputStream gzip = new GZIPOutputStream(gz);
+    gzip.write((earthquake + "\n" + invalid).getBytes(Charsets.UTF_8));
+    gzip.close();
+    // A second gzip member, as when appending to an archive
+    gzip = new GZIPOutputStream(gz);
+    gzip.write(weather.getBytes(Charsets.UTF_8));
+    gzip.close();
+    File archive = write("alerts.xml.gz", gz.toByteArray());
+
+    ByteArrayOutputStream zipBytes = new ByteArrayOutputStream();
+    ZipOutputStream zip = new ZipOutputStream(zipBytes);
+    zip.putNextEntry(new ZipEntry("a/earthquake.cap"));
+    zip.write(earthquake.getBytes(Charsets.UTF_8));
+    zip.putNextEntry(new ZipEntry("b/weather.cap"));
+    zip.write(weather.getBytes(Charsets.UTF_8));
+    zip.close();
+    File zipFile = write("alerts.zip", zipBytes.toByteArray());
+
+    CollectingWriter writer = new CollectingWriter();
+    BatchValidator.Stats stats =
+        new BatchValidator(ImmutableList.<CapProfile>of()).validate(
+            ImmutableList.of(archive, zipFile), writer, pool);
+    List<BatchResult> results = writer.getResults();
+
+    assertEquals(2, stats.getFiles());
+    assertEquals(5, stats.getDocuments());
+    assertEquals(1, stats.getInvalid());
+    assertEquals(5, results.size());
+    for (int i = 0; i < 3; i++) {
+      assertEquals(archive.getPath(), results.get(i).getSource());
+      assertEquals(i, results.get(i).getDocument());
+    }
+    assertMatchesParser(results.get(0), "alerts.xml.gz", "earthquake.cap");
+    assertFalse(results.get(1).isValid());
+    assertMatchesParser(results.get(2), "alerts.xml.gz", "weather.cap");
+    assertEquals(zipFile.getPath() + "!a/earthquake.cap",
+        results.get(3).getSource());
+    assertEquals(zipFile.getPath() + "!b/weather.cap",
+        results.get(4).getSource());
+  }
+
+  public void testManyFiles() throws Exception {
+    String weather = TestResources.load("weather.cap");
+    byte[] documents = (weather + "\n" + weather + "\n" + weather)
+        .getBytes(Charsets.UTF_8);
+    for (int i = 0; i < 20; i++) {
+      write("alerts" + i + ".cap", documents);
+    }
+
+    // One thread allows only 4 documents in flight across all 20 files
+    ForkJoinPool single = new ForkJoinPool(1);
+    CollectingWriter writer = new CollectingWriter();
+    BatchValidator.Stats stats;
+    try {
+      stats = new BatchValidator(ImmutableList.<CapProfile>of()).validate(
+          ImmutableList.of(dir), writer, single);
+    } finally {
+      single.shutdown();
+    }
+
+    assertEquals(20, stats.getFiles());
+    assertEquals(60, stats.getDocuments());
+    assertEquals(0, stats.getInvalid());
+    assertEquals(60, writer.getResults().size());
+  }
+
+  public void testValidateInput() throws Exception {
+    final Thread caller = Thread.currentThread();
+    final List<Thread> readers = Lists.newArrayList();
+    final byte[] bytes = (TestResources.load("earthquake.cap") + "\n"
+        + TestResources.load("weather.cap")).getBytes(Charsets.UTF_8);
+    BatchValidator.Input input = input(new ByteArrayInputStream(bytes) {
+      @Override
+      public synchronized int read(byte[] b, int off, int len) {
+        readers.add(Thread.currentThread());
+        return super.read(b, off, len);
+      }
+    });
+
+    CollectingWriter writer = new CollectingWriter();
+    BatchValidator.Stats stats = new BatchValidator(
+        ImmutableList.<CapProfile>of()).validate(input, writer, pool);
+    List<BatchResult> results = writer.getResults();
+
+    assertEquals(1, stats.getFiles());
+    assertEquals(2, stats.getDocuments());
+    assertMatchesParser(results.get(0), "input", "earthquake.cap");
+    assertMatchesParser(results.get(1), "input", "weather.cap");
+    // The stream is read on the calling thread, not on the pool
+    assertFalse(readers.isEmpty());
+    for (Thread reader : readers) {
+      assertSame(caller, reader);
+    }
+  }
+
+  public void testInputLimits() throws Exception {
+    String earthquake = TestResources.load("earthquake.cap");
+    byte[] bytes = (earthquake + earthquake + earthquake)
+        .getBytes(Charsets.UTF_8);
+    BatchValidator validator =
+        new BatchValidator(ImmutableList.<CapProfile>of());
+    validator.setInputLimits(2, Long.MAX_VALUE);
+    CollectingWriter writer = new CollectingWriter();
+    BatchValidator.Stats stats = validator.validate(
+        input(new ByteArrayInputStream(bytes)), writer, pool);
+    List<BatchResult> results = writer.getResults();
+
+    assertEquals(2, stats.getDocuments());
+    assertEquals(3, results.size());
+    assertEquals(BatchResult.Kind.OTHER, results.get(2).getKind());
+    assertEquals(2, results.get(2).getDocument());
+    assertTrue(results.get(2).getReasons().iterator().next().getMessage()
+        .contains("limit of 2 documents"));
+  }
+
+  public void testDocumentTooLong() throws Exception {
+    String earthquake = TestResources.load("earthquake.cap").trim();
+    int maxLength = earthquake.length() + 100;
+    StringBuilder big = new StringBuilder("<big>");
+    while (big.length() < 2 * maxLength) {
+      big.append("<x>0123456789</x>");
+    }
+    big.append("</big>");
+    File file = write("alerts.xml",
+        (big + "\n" + earthquake).getBytes(Charsets.UTF_8));
+
+    BatchValidator validator =
+        new BatchValidator(ImmutableList.<CapProfile>of());
+    validator.setParseLimits(
+        ParseLimits.newBuilder().setMaxLength(maxLength).build());
+    CollectingWriter writer = new CollectingWriter();
+    BatchValidator.Stats stats = validator.validate(
+        ImmutableList.of(file), writer, pool);
+    List<BatchResult> results = writer.getResults();
+
+    assertEquals(1, stats.getDocuments());
+    assertEquals(2, results.size());
+    assertEquals(BatchResult.Kind.OTHER, results.get(0).getKind());
+    assertEquals(0, results.get(0).getDocument());
+    assertTrue(results.get(0).getReasons().iterator().next().getMessage()
+        .contains("longer than the limit of " + maxLength));
+    assertEquals(1, results.get(1).getDocument());
+    assertMatchesParser(results.get(1), "alerts.xml", "earthquake.cap");
+  }
+
+  public void testNdjson() throws Exception {
+    BatchResult result = validate("canada_errors.cap");
+    StringWriter out = new StringWriter();
+    BatchResultWriter.ndjson(out).write(result);
+    String line = out.toString();
+    assertTrue(line.endsWith("}\n"));
+    assertEquals(1, Splitter.on('\n').omitEmptyStrings().splitToList(line).size());
+
+    JSONObject json = new JSONObject(line);
+    assertEquals("canada_errors.cap", json.getString("source"));
+    assertEquals("ALERT", json.getString("kind"));
+    assertEquals(result.getIdentifier(), json.getString("identifier"));
+    assertFalse(json.getBoolean("valid"));
+    assertEquals(result.getErrorCount(), json.getInt("errors"));
+    assertFalse(json.has("entry"));
+    JSONObject profile = json.getJSONObject("profiles")
+        .getJSONObject(CapProfiles.getProfiles().get(1).getCode());
+    JSONArray reasons = profile.getJSONArray("reasons");
+    assertEquals(result.getProfileReasons().get(CapProfiles.getProfiles().get(1))
+        .iterator().next().getMessage(),
+        reasons.getJSONObject(0).getString("message"));
+  }
+
+  public void testCsv() throws Exception {
+    BatchResult result = validate("canada_errors.cap");
+    StringWriter out = new StringWriter();
+    BatchResultWriter.csv(out, CapProfiles.getProfiles()).write(result);
+    List<String> lines = Splitter.on('\n').omitEmptyStrings()
+        .splitToList(out.toString());
+    assertEquals(2, lines.size());
+    assertTrue(lines.get(0).startsWith("source,document,entry,kind,"));
+    assertTrue(lines.get(0).endsWith(",types,first_error"));
+    assertTrue(lines.get(1).startsWith("canada_errors.cap,0,,ALERT,"));
+    assertTrue(lines.get(1).contains(",false," + result.getErrorCount() + ","));
+  }
+
+  public void testMain() throws Exception {
+    write("weather.cap", TestResources.loadBytes("weather.cap"));
+    write("earthquake.cap", TestResources.loadBytes("earthquake.cap"));
+    write("weather.atom", TestResources.loadBytes("weather.atom"));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+    int status = BatchValidatorMain.run(new String[] {
+        "--format=csv", "--profiles=google", "--threads=2",
+        dir.getPath() + File.separator + "*.cap"},
+        new PrintStream(out), new PrintStream(err));
+    List<String> lines = Splitter.on('\n').omitEmptyStrings()
+        .splitToList(new String(out.toByteArray(), Charsets.UTF_8));
+    assertEquals(3, lines.size());
+    assertTrue(lines.get(0).contains(",google,"));
+    String summary = new String(err.toByteArray(), Charsets.UTF_8);
+    assertTrue(summary, summary.contains("2 documents"));
+    assertTrue(summary, summary.contains("SCHEMA_PARSE"));
+    assertTrue(summary, summary.contains("PROFILE"));
+    assertEquals(summary.contains(" 0 invalid")
+        ? BatchValidatorMain.EXIT_VALID : BatchValidatorMain.EXIT_INVALID,
+        status);
+  }
+
+  public void testMainUsage() throws Exception {
+    for (String[] args : ImmutableList.of(
+        new String[0],
+        new String[] {"--format=xml", dir.getPath()},
+        new String[] {"--profiles=bogus", dir.getPath()},
+        new String[] {"--threads=0", dir.getPath()},
+        new String[] {dir.getPath() + File.separator + "*.nothing"})) {
+      ByteArrayOutputStream err = new ByteArrayOutputStream();
+      assertEquals(BatchValidatorMain.EXIT_USAGE, BatchValidatorMain.run(
+          args, new PrintStream(new ByteArrayOutputStream()),
+          new PrintStream(err)));
+      assertTrue(new String(err.toByteArray(), Charsets.UTF_8)
+          .contains("Usage"));
+    }
+  }
+
+  public void testExpand() throws Exception {
+    File a = write("2011/a.cap", new byte[0]);
+    File b = write("2012/01/b.cap", new byte[0]);
+    write("2012/01/c.txt", new byte[0]);
+    String base = dir.getPath() + File.separator;
+
+    assertEquals(ImmutableList.of(dir), BatchValidatorMain.expand(dir.getPath()));
+    assertEquals(ImmutableList.of(a), BatchValidatorMain.expand(base + "*/*.cap"));
+    assertEquals(ImmutableList.of(a, b),
+        BatchValidatorMain.expand(base + "**.cap"));
+    assertEquals(ImmutableList.of(b),
+        BatchValidatorMain.expand(base + "2012/*/*.{cap,xml}"));
+  }
+
+  private void assertMatchesParser(
+      BatchResult result, String source, String file) throws Exception {
+    assertEquals(BatchResult.Kind.ALERT, result.getKind());
+    assertTrue(result.getSource().endsWith(source));
+    Reasons.Builder reasons = Reasons.newBuilder();
+    Alert alert = new CapXmlParser(true).parseFrom(
+        TestResources.load(file), reasons);
+    assertEquals(alert.getIdentifier(), result.getIdentifier());
+    assertEquals(alert.getXmlns(), result.getXmlns());
+    assertEquals(Lists.newArrayList(
+        new XercesCapExceptionMapper().map(reasons.build())),
+        Lists.newArrayList(result.getReasons()));
+    Map<CapProfile, Reasons> expected =
+        new ProfileEngine(result.getProfileReasons().keySet()).validate(alert);
+    assertEquals(expected.keySet(), result.getProfileReasons().keySet());
+    for (CapProfile profile : expected.keySet()) {
+      assertEquals(Lists.newArrayList(expected.get(profile)),
+          Lists.newArrayList(result.getProfileReasons().get(profile)));
+    }
+  }
+
+  private static BatchResult validate(String file) throws IOException {
+    List<BatchResult> results = new BatchValidator(CapProfiles.getProfiles())
+        .validate(file, 0, TestResources.loadBytes(file));
+    assertEquals(1, results.size());
+    return results.get(0);
+  }
+
+  /**
+   * @return an input of the given stream, named "input"
+   */
+  private static BatchValidator.Input input(final InputStream stream) {
+    return new BatchValidator.Input() {
+      private boolean read;
+
+      @Override
+      public String next() {
+        if (read) {
+          return null;
+        }
+        read = true;
+        return "input";
+      }
+
+      @Override
+      public InputStream getStream() {
+        return stream;
+      }
+    };
+  }
+
+  private String path(String name) {
+    return new File(dir, name).getPath();
+  }
+
+  private File write(String name, byte[] bytes) throws IOException {
+    File file = new File(dir, name);
+    file.getParentFile().mkdirs();
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(bytes);
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  private static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+
+  /**
+   * Collects results, sorted by source, document and entry so that tests
+   * do not depend on the order in which they complete. Feed results sort
+   * after their entries.
+   */
+  private static class CollectingWriter extends BatchResultWriter {
+    private final List<BatchResult> results = Lists.newArrayList();
+
+    CollectingWriter() {
+      super(new StringWriter());
+    }
+
+    @Override
+    public synchronized void write(BatchResult result) {
+      results.add(result);
+    }
+
+    @Override
+    protected String format(BatchResult result) {
+      return result.toString();
+    }
+
+    synchronized List<BatchResult> getResults() {
+      List<BatchResult> sorted = Lists.newArrayList(results);
+      Collections.sort(sorted, new Comparator<BatchResult>() {
+        @Override
+        public int compare(BatchResult a, BatchResult b) {
+          int c = a.getSource().compareTo(b.getSource());
+          if (c == 0) {
+            c = a.getDocument() - b.getDocument();
+          }
+          if (c == 0) {
+            c = (a.getEntry() < 0 ? Integer.MAX_VALUE : a.getEntry())
+                - (b.getEntry() < 0 ? Integer.MAX_VALUE : b.getEntry());
+          }
+          return c;
+        }
+      });
+      return sorted;
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.batch;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.publicalerts.cap.testing.TestResources;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Tests for {@link DocumentSplitter}.
+ *
+ * @author agent@local (agent)
+ */
+public class DocumentSplitterTest extends TestCase {
+  private static final String TOO_LONG = "(too long)";
+
+  public DocumentSplitterTest(String s) {
+    super(s);
+  }
+
+  public void testSingleDocument() throws Exception {
+    String xml = TestResources.load("weather.cap");
+    assertEquals(ImmutableList.of(xml.trim()), split(xml));
+  }
+
+  public void testConcatenatedDocuments() throws Exception {
+    String a = "<?xml version=\"1.0\"?>\n<!-- a -> b -->\n"
+        + "<a x=\"1>2\" y='</a>'><b/><![CDATA[</a>]]><?pi </a>?></a>";
+    String b = "<!DOCTYPE b [<!ENTITY e \"</b>\">]><b:b xmlns:b=\"urn:b\">"
+        + "<b:c>1 > 0</b:c></b:b>";
+    String c = "<c/>";
+    assertEquals(ImmutableList.of(a, b, c),
+        split(a + "\r\n\n" + b + c + "\n"));
+  }
+
+  public void testLargeDocuments() throws Exception {
+    String alert = TestResources.load("canada.cap").trim();
+    StringBuilder sb = new StringBuilder();
+    List<String> expected = Lists.newArrayList();
+    while (sb.length() < 256 * 1024) {
+      sb.append(alert).append('\n');
+      expected.add(alert);
+    }
+    assertEquals(expected, split(sb.toString()));
+  }
+
+  public void testUnclosedDocument() throws Exception {
+    assertEquals(ImmutableList.of("<a/>", "<b><c>"), split("<a/> <b><c>"));
+    assertEquals(ImmutableList.of("not xml"), split("not xml"));
+  }
+
+  public void testDocumentTooLong() throws Exception {
+    String tooLong = "<a><![CDATA[</a>]]><!-- </a> --><b/></a>";
+    assertEquals(ImmutableList.of("<c/>", TOO_LONG, "<d>12</d>", TOO_LONG),
+        split("<c/>" + tooLong + "\n<d>12</d>\n<e>123</e>", 9));
+    assertEquals(ImmutableList.of(TOO_LONG), split("<a>12345", 5));
+  }
+
+  public void testEmpty() throws Exception {
+    assertEquals(ImmutableList.of(), split(""));
+    assertEquals(ImmutableList.of(), split(" \n\t"));
+  }
+
+  private static List<String> split(String str) throws Exception {
+    return split(str, Long.MAX_VALUE);
+  }
+
+  /**
+   * @return the documents split from the string, with {@link #TOO_LONG}
+   * for each longer than the maximum length
+   */
+  private static List<String> split(String str, long maxLength)
+      throws Exception {
+    InputStream in = new ByteArrayInputStream(str.getBytes(Charsets.UTF_8));
+    DocumentSplitter splitter = new DocumentSplitter(in, maxLength);
+    List<String> docs = Lists.newArrayList();
+    while (true) {
+      byte[] doc;
+      try {
+        doc = splitter.next();
+      } catch (DocumentSplitter.DocumentTooLongException e) {
+        docs.add(TOO_LONG);
+        continue;
+      }
+      if (doc == null) {
+        return docs;
+      }
+      docs.add(new String(doc, Charsets.UTF_8));
+    }
+  }
+}
@@ -19,6 +19,7 @@ package com.google.publicalerts.cap.feed;
 import com.google.common.collect.Lists;
 import com.google.publicalerts.cap.Alert;
 import com.google.publicalerts.cap.CapException;
+import com.google.publicalerts.cap.CapMetrics;
 import com.google.publicalerts.cap.NotCapException;
 import com.google.publicalerts.cap.Reason;
 import com.google.publicalerts.cap.Reason.Level;
@@ -76,6 +77,36 @@ public class CapFeedParserTest extends TestCase {
     assertEquals(7, feed.getEntries().size());
   }
 
+  public void testPreloadSchemas() throws Exception {
+    CapFeedParser.preloadSchemas();
+    String feedStr = TestResources.load("weather.atom");
+    assertEquals(1, parser.parseFeed(feedStr).getEntries().size());
+  }
+
+  public void testMetrics() throws Exception {
+    final List<CapMetrics.Stage> stages = Lists.newArrayList();
+    final List<Integer> entryIndexes = Lists.newArrayList();
+    CapMetrics.set(new CapMetrics() {
+      @Override
+      public synchronized void spanEnded(Span span) {
+        stages.add(span.getStage());
+        if (span.getStage() == Stage.FEED_ENTRY) {
+          entryIndexes.add(span.getEntryIndex());
+        }
+      }
+    });
+    try {
+      SyndFeed feed = parser.parseFeed(TestResources.load("weather.atom"));
+      parser.parseAlerts(feed);
+    } finally {
+      CapMetrics.set(CapMetrics.NO_OP);
+    }
+    assertTrue(stages.contains(CapMetrics.Stage.FEED_PARSE));
+    assertTrue(stages.contains(CapMetrics.Stage.FEED_SCHEMA));
+    assertTrue(stages.contains(CapMetrics.Stage.PARSE));
+    assertEquals(Lists.newArrayList(0), entryIndexes);
+  }
+
   public void testParseMalformedFeed() throws Exception {
     try {
       parser.parseFeed("invalid");
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.jfr;
+
+import com.google.common.collect.Maps;
+import com.google.publicalerts.cap.Alert;
+import com.google.publicalerts.cap.CapMetrics;
+import com.google.publicalerts.cap.CapXmlBuilder;
+import com.google.publicalerts.cap.CapXmlParser;
+import com.google.publicalerts.cap.Reasons;
+import com.google.publicalerts.cap.testing.CapTestUtil;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Tests for {@link JfrCapMetrics}.
+ *
+ * @author agent@local (agent)
+ */
+public class JfrCapMetricsTest extends TestCase {
+
+  public JfrCapMetricsTest(String s) {
+    super(s);
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    CapMetrics.set(CapMetrics.NO_OP);
+    super.tearDown();
+  }
+
+  public void testDisabledWithoutRecording() {
+    JfrCapMetrics metrics = new JfrCapMetrics();
+    assertFalse(metrics.isEnabled());
+    assertSame(CapMetrics.NO_OP.startSpan(CapMetrics.Stage.PARSE),
+        metrics.startSpan(CapMetrics.Stage.PARSE));
+  }
+
+  public void testEvents() throws Exception {
+    CapMetrics.set(new JfrCapMetrics());
+    String xml = new CapXmlBuilder().toXml(CapTestUtil.getValidAlertBuilder()
+        .setRestriction("a restriction").setScope(Alert.Scope.PUBLIC));
+
+    File file = File.createTempFile("cap", ".jfr");
+    Recording recording = new Recording();
+    try {
+      recording.enable(CapEvents.PREFIX + "Parse");
+      recording.enable(CapEvents.PREFIX + "SchemaValidation");
+      recording.enable(CapEvents.PREFIX + "ValidateAlert");
+      recording.start();
+      new CapXmlParser(true).parseFrom(xml, Reasons.newBuilder());
+      recording.stop();
+      recording.dump(file.toPath());
+
+      Map<String, RecordedEvent> events = Maps.newHashMap();
+      for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+        events.put(event.getEventType().getName(), event);
+      }
+      RecordedEvent parse = events.get(CapEvents.PREFIX + "Parse");
+      assertNotNull(events.keySet().toString(), parse);
+      assertEquals(12, parse.getInt("capVersion"));
+      assertEquals(xml.length(), parse.getLong("payloadSize"));
+      assertEquals(-1, parse.getInt("entryIndex"));
+      assertEquals(1, parse.getInt("errorCount"));
+      assertNotNull(events.get(CapEvents.PREFIX + "SchemaValidation"));
+      assertEquals(1, events.get(CapEvents.PREFIX + "ValidateAlert")
+          .getInt("errorCount"));
+      assertFalse(events.containsKey(CapEvents.PREFIX + "Profile"));
+    } finally {
+      recording.close();
+      file.delete();
+    }
+    assertFalse(CapMetrics.get().isEnabled());
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.profile;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.publicalerts.cap.CapException;
+import com.google.publicalerts.cap.CapXmlParser;
+import com.google.publicalerts.cap.Reasons;
+import com.google.publicalerts.cap.profile.ca.CanadianProfile;
+import com.google.publicalerts.cap.profile.us.Ipaws1Profile;
+import com.google.publicalerts.cap.testing.TestResources;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link MultiProfileParser}.
+ *
+ * @author agent@local (agent)
+ */
+public class MultiProfileParserTest extends TestCase {
+
+  private static final String[] FILES = {
+      "canada.cap", "canada_errors.cap", "earthquake.cap", "no_optional_fields.cap",
+      "noaa_errors.cap", "weather.cap" };
+
+  private CanadianProfile canadian;
+  private GoogleProfile google;
+  private MultiProfileParser parser;
+
+  public MultiProfileParserTest(String name) {
+    super(name);
+  }
+
+  @Override
+  public void setUp() {
+    canadian = new CanadianProfile();
+    google = new GoogleProfile();
+    parser = new MultiProfileParser(ImmutableList.of(canadian, google));
+  }
+
+  public void testMatchesParsingThroughEachProfile() throws Exception {
+    for (String file : FILES) {
+      String cap = TestResources.load(file);
+      ProfiledAlert result = parser.parseFrom(cap);
+
+      Reasons.Builder parseReasons = Reasons.newBuilder();
+      assertEquals(file, new CapXmlParser(true).parseFrom(cap, parseReasons),
+          result.getAlert());
+      assertEquals(file, ImmutableMultiset.copyOf(parseReasons.build()),
+          ImmutableMultiset.copyOf(result.getParseReasons()));
+
+      for (AbstractCapProfile profile : ImmutableList.of(canadian, google)) {
+        assertEquals(file, ImmutableMultiset.copyOf(profile.validate(result.getAlert())),
+            ImmutableMultiset.copyOf(result.getReasons(profile)));
+        assertEquals(file + " " + profile, isValid(profile, cap), result.isValid(profile));
+      }
+    }
+  }
+
+  public void testProfileOrder() throws Exception {
+    ProfiledAlert result = parser.parseFrom(TestResources.load("canada.cap"));
+    assertEquals(ImmutableList.of(canadian, google),
+        ImmutableList.copyOf(result.getProfileReasons().keySet()));
+    assertEquals(ImmutableList.of(canadian, google), parser.getProfiles());
+  }
+
+  public void testUnknownProfile() throws Exception {
+    ProfiledAlert result = parser.parseFrom(TestResources.load("canada.cap"));
+    try {
+      result.getReasons(new Ipaws1Profile());
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+  }
+
+  public void testStrictXsdValidation() {
+    assertFalse(parser.isStrictXsdValidation());
+    assertTrue(new MultiProfileParser(ImmutableList.of(
+        new CanadianProfile(true), new GoogleProfile(true))).isStrictXsdValidation());
+    assertTrue(new MultiProfileParser(ImmutableList.of(new Ipaws1Profile(true)), true)
+        .isStrictXsdValidation());
+  }
+
+  public void testMixedStrictXsdValidation() {
+    try {
+      new MultiProfileParser(ImmutableList.of(new CanadianProfile(true), google));
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+    try {
+      new MultiProfileParser(ImmutableList.of(canadian, google), true);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+  }
+
+  private boolean isValid(AbstractCapProfile profile, String cap) throws Exception {
+    try {
+      profile.parseFrom(cap);
+      return true;
+    } catch (CapException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.profile;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.publicalerts.cap.Alert;
+import com.google.publicalerts.cap.AlertOrBuilder;
+import com.google.publicalerts.cap.CapXmlParser;
+import com.google.publicalerts.cap.Info;
+import com.google.publicalerts.cap.Reason;
+import com.google.publicalerts.cap.Reasons;
+import com.google.publicalerts.cap.ValuePair;
+import com.google.publicalerts.cap.profile.au.AustralianProfile;
+import com.google.publicalerts.cap.profile.ca.CanadianProfile;
+import com.google.publicalerts.cap.profile.us.Ipaws1Profile;
+import com.google.publicalerts.cap.testing.CapTestUtil;
+import com.google.publicalerts.cap.testing.TestResources;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for {@link ProfileEngine}.
+ *
+ * @author agent@local (agent)
+ */
+public class ProfileEngineTest extends TestCase {
+
+  private static final String[] FILES = {
+      "australia.cap", "canada.cap", "canada_errors.cap", "earthquake.cap",
+      "no_optional_fields.cap", "noaa_errors.cap", "wcatwc-warning.cap",
+      "weather.cap" };
+
+  public ProfileEngineTest(String name) {
+    super(name);
+  }
+
+  public void testFusedMatchesSeparate() throws Exception {
+    ProfileEngine engine = new ProfileEngine(CapProfiles.getProfiles());
+    CapXmlParser parser = new CapXmlParser(false);
+    for (String file : FILES) {
+      assertFusedMatchesSeparate(engine, parser.parseFrom(TestResources.load(file)));
+    }
+  }
+
+  public void testFusedMatchesSeparateMultipleInfos() {
+    Info.Builder info = CapTestUtil.getValidInfoBuilder();
+    Alert alert = CapTestUtil.getValidAlertBuilder()
+        .clearInfo()
+        .addInfo(info.clone().setLanguage("en-CA"))
+        .addInfo(info.clone().setLanguage("fr-CA").setEvent("other")
+            .clearCategory().addCategory(Info.Category.FIRE))
+        .addInfo(info.clone().setLanguage("en-CA").setEvent("other")
+            .addEventCode(ValuePair.newBuilder().setValueName("SAME").setValue("XYZ")))
+        .build();
+    assertFusedMatchesSeparate(new ProfileEngine(CapProfiles.getProfiles()), alert);
+  }
+
+  public void testResultOrder() {
+    List<CapProfile> profiles = ImmutableList.<CapProfile>of(
+        new GoogleProfile(), new CanadianProfile(), new Ipaws1Profile(),
+        new AustralianProfile());
+    Map<CapProfile, Reasons> result = new ProfileEngine(profiles)
+        .validate(CapTestUtil.getValidAlertBuilder());
+    assertEquals(profiles, ImmutableList.copyOf(result.keySet()));
+  }
+
+  public void testReasonOrder() {
+    Alert alert = CapTestUtil.getValidAlertBuilder()
+        .setSent("2003-04-02T14:39:01-00:00")
+        .clearInfo()
+        .addInfo(CapTestUtil.getValidInfoBuilder().clearDescription())
+        .build();
+    GoogleProfile google = new GoogleProfile();
+    CanadianProfile canada = new CanadianProfile();
+    Map<CapProfile, Reasons> result =
+        new ProfileEngine(ImmutableList.<CapProfile>of(google, canada)).validate(alert);
+
+    List<Reason> reasons = ImmutableList.copyOf(result.get(google));
+    assertEquals(GoogleProfile.ReasonType.DESCRIPTION_IS_REQUIRED, reasons.get(0).getType());
+    assertTrue(reasons.contains(new Reason("/alert[1]/sent[1]",
+        GoogleProfile.ReasonType.SENT_INCLUDES_UTC_TIMEZONE)));
+
+    reasons = ImmutableList.copyOf(result.get(canada));
+    assertEquals("ENGLISH_AND_FRENCH",
+        reasons.get(reasons.size() - 1).getType().toString());
+  }
+
+  public void testProfileWithoutRules() {
+    final Reasons reasons = Reasons.of(new Reason("/alert[1]",
+        GoogleProfile.ReasonType.INFO_IS_REQUIRED));
+    CapProfile custom = new CapProfile() {
+      @Override
+      public String getName() {
+        return "custom";
+      }
+
+      @Override
+      public String getCode() {
+        return "custom";
+      }
+
+      @Override
+      public String getDocumentationUrl() {
+        return "http://example.com";
+      }
+
+      @Override
+      public Reasons validate(AlertOrBuilder alert) {
+        return reasons;
+      }
+    };
+    GoogleProfile google = new GoogleProfile();
+    Alert alert = CapTestUtil.getValidAlertBuilder().build();
+    Map<CapProfile, Reasons> result =
+        new ProfileEngine(ImmutableList.of(google, custom)).validate(alert);
+    assertSame(reasons, result.get(custom));
+    assertEquals(ImmutableMultiset.copyOf(google.validate(alert)),
+        ImmutableMultiset.copyOf(result.get(google)));
+  }
+
+  public void testAbstractProfileWithoutRules() {
+    final Reasons reasons = Reasons.of(new Reason("/alert[1]",
+        GoogleProfile.ReasonType.INFO_IS_REQUIRED));
+    AbstractCapProfile custom = new AbstractCapProfile() {
+      @Override
+      public String getName() {
+        return "none";
+      }
+
+      @Override
+      public String getCode() {
+        return "none";
+      }
+
+      @Override
+      public String getDocumentationUrl() {
+        return "http://example.com";
+      }
+
+      @Override
+      public Reasons validate(AlertOrBuilder alert) {
+        return reasons;
+      }
+    };
+    GoogleProfile google = new GoogleProfile();
+    Map<CapProfile, Reasons> result = new ProfileEngine(ImmutableList.of(custom, google))
+        .validate(CapTestUtil.getValidAlertBuilder());
+    assertSame(reasons, result.get(custom));
+    try {
+      custom.validateWithRules(CapTestUtil.getValidAlertBuilder());
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+  }
+
+  private void assertFusedMatchesSeparate(ProfileEngine engine, AlertOrBuilder alert) {
+    Map<CapProfile, Reasons> fused = engine.validate(alert);
+    for (CapProfile profile : engine.getProfiles()) {
+      assertEquals(profile.getCode(),
+          ImmutableMultiset.copyOf(profile.validate(alert)),
+          ImmutableMultiset.copyOf(fused.get(profile)));
+    }
+  }
+}
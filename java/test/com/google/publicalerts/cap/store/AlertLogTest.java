@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.store;
+
+import com.google.publicalerts.cap.Alert;
+import com.google.publicalerts.cap.CapDateUtil;
+import com.google.publicalerts.cap.testing.CapTestUtil;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+/**
+ * Tests for {@link AlertLog}.
+ *
+ * @author agent@local (agent)
+ */
+public class AlertLogTest extends TestCase {
+
+  private File dir;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    dir = File.createTempFile("alertlog", "");
+    assertTrue(dir.delete());
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    dir.delete();
+    super.tearDown();
+  }
+
+  public void testAppendAndRead() throws Exception {
+    AlertLog alertLog = AlertLog.open(dir);
+    Alert a = alert("a", "2003-04-02T14:39:01-05:00");
+    Alert b = alert("b", "2003-04-03T14:39:01-05:00");
+    long addressA = alertLog.append(a);
+    long addressB = alertLog.append(b);
+
+    assertEquals(a, alertLog.read(addressA));
+    assertEquals(b, alertLog.read(addressB));
+    assertEquals(2, alertLog.size());
+    alertLog.close();
+  }
+
+  public void testFindByIdentifierAndSent() throws Exception {
+    AlertLog alertLog = AlertLog.open(dir);
+    Alert a1 = alert("a", "2003-04-02T14:39:01-05:00");
+    Alert b = alert("b", "2003-04-03T14:39:01-05:00");
+    Alert a2 = alert("a", "2003-04-04T14:39:01-05:00");
+    alertLog.append(a1);
+    alertLog.append(b);
+    alertLog.append(a2);
+
+    List<Alert> found = alertLog.findByIdentifier("a");
+    assertEquals(2, found.size());
+    assertEquals(a1, found.get(0));
+    assertEquals(a2, found.get(1));
+    assertTrue(alertLog.findByIdentifier("c").isEmpty());
+
+    found = alertLog.findBySent(CapDateUtil.toJavaDate("2003-04-03T00:00:00-05:00"),
+        CapDateUtil.toJavaDate("2003-04-04T14:39:01-05:00"));
+    assertEquals(1, found.size());
+    assertEquals(b, found.get(0));
+    alertLog.close();
+  }
+
+  public void testSegmentRollingAndReopen() throws Exception {
+    AlertLog alertLog = AlertLog.open(dir, 1024);
+    for (int i = 0; i < 20; i++) {
+      alertLog.append(alert("id" + i, "2003-04-02T14:39:0" + (i % 3) + "-05:00"));
+    }
+    assertTrue(alertLog.getSegmentCount() > 1);
+    alertLog.close();
+
+    alertLog = AlertLog.open(dir, 1024);
+    assertEquals(20, alertLog.size());
+    List<Alert> alerts = alertLog.readAll();
+    for (int i = 0; i < 20; i++) {
+      assertEquals("id" + i, alerts.get(i).getIdentifier());
+    }
+    alertLog.append(alert("id20", "2003-04-02T14:39:01-05:00"));
+    assertEquals(1, alertLog.findByIdentifier("id20").size());
+    assertEquals("id7", alertLog.findByIdentifier("id7").get(0).getIdentifier());
+
+    // Lookups by sent time span segments and keep the order of appends
+    alerts = alertLog.findBySent(CapDateUtil.toJavaDate("2003-04-02T14:39:01-05:00"),
+        CapDateUtil.toJavaDate("2003-04-02T14:39:03-05:00"));
+    assertEquals(14, alerts.size());
+    assertEquals("id1", alerts.get(0).getIdentifier());
+    assertEquals("id2", alerts.get(1).getIdentifier());
+    assertEquals("id4", alerts.get(2).getIdentifier());
+    assertEquals("id20", alerts.get(13).getIdentifier());
+    alertLog.close();
+  }
+
+  public void testRebuildsLookupFiles() throws Exception {
+    AlertLog alertLog = AlertLog.open(dir, 1024);
+    for (int i = 0; i < 20; i++) {
+      alertLog.append(alert("id" + (i % 5), "2003-04-02T14:39:0" + (9 - i % 10) + "-05:00"));
+    }
+    int segmentCount = alertLog.getSegmentCount();
+    assertTrue(segmentCount > 2);
+    alertLog.close();
+
+    // Lose one lookup file, and truncate another
+    assertTrue(new File(dir, "00000000.lkp").delete());
+    RandomAccessFile raf = new RandomAccessFile(new File(dir, "00000001.lkp"), "rw");
+    raf.setLength(raf.length() - 4);
+    raf.close();
+
+    alertLog = AlertLog.open(dir, 1024);
+    assertTrue(new File(dir, "00000000.lkp").isFile());
+    List<Alert> alerts = alertLog.findByIdentifier("id3");
+    assertEquals(4, alerts.size());
+    for (Alert alert : alerts) {
+      assertEquals("id3", alert.getIdentifier());
+    }
+    alerts = alertLog.findBySent(CapDateUtil.toJavaDate("2003-04-02T14:39:07-05:00"),
+        CapDateUtil.toJavaDate("2003-04-02T14:39:09-05:00"));
+    assertEquals(4, alerts.size());
+    // In the order they were appended, though not sent in that order
+    assertEquals("2003-04-02T14:39:08-05:00", alerts.get(0).getSent());
+    assertEquals("2003-04-02T14:39:07-05:00", alerts.get(1).getSent());
+    assertEquals("2003-04-02T14:39:08-05:00", alerts.get(2).getSent());
+    assertEquals(segmentCount, alertLog.getSegmentCount());
+    alertLog.close();
+  }
+
+  public void testRecoversFromTornWrite() throws Exception {
+    AlertLog alertLog = AlertLog.open(dir);
+    alertLog.append(alert("a", "2003-04-02T14:39:01-05:00"));
+    alertLog.append(alert("b", "2003-04-02T14:39:01-05:00"));
+    alertLog.close();
+
+    // Chop the last record in half, as if the process died mid-write
+    File segment = new File(dir, "00000000.log");
+    RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+    raf.setLength(raf.length() - 10);
+    raf.close();
+
+    alertLog = AlertLog.open(dir);
+    assertEquals(1, alertLog.size());
+    assertEquals("a", alertLog.readAll().get(0).getIdentifier());
+    alertLog.append(alert("c", "2003-04-02T14:39:01-05:00"));
+    assertEquals(1, alertLog.findByIdentifier("c").size());
+    alertLog.close();
+  }
+
+  public void testRecoversMissingIndexEntries() throws Exception {
+    AlertLog alertLog = AlertLog.open(dir);
+    alertLog.append(alert("a", "2003-04-02T14:39:01-05:00"));
+    alertLog.append(alert("b", "2003-04-02T14:39:01-05:00"));
+    alertLog.close();
+
+    // Lose the index entirely, as if it was never flushed
+    RandomAccessFile raf = new RandomAccessFile(new File(dir, "00000000.idx"), "rw");
+    raf.setLength(0);
+    raf.close();
+
+    alertLog = AlertLog.open(dir);
+    assertEquals(2, alertLog.size());
+    assertEquals(1, alertLog.findByIdentifier("b").size());
+    alertLog.close();
+  }
+
+  public void testReadCorruptRecordLength() throws Exception {
+    AlertLog alertLog = AlertLog.open(dir, 1024);
+    long address = alertLog.append(alert("a", "2003-04-02T14:39:01-05:00"));
+    while (alertLog.getSegmentCount() == 1) {
+      alertLog.append(alert("b", "2003-04-02T14:39:01-05:00"));
+    }
+    alertLog.close();
+
+    // Corrupt the length of the first record in the sealed first segment
+    RandomAccessFile raf = new RandomAccessFile(new File(dir, "00000000.log"), "rw");
+    raf.seek((int) address);
+    raf.writeInt(Integer.MAX_VALUE);
+    raf.close();
+
+    alertLog = AlertLog.open(dir, 1024);
+    try {
+      alertLog.read(address);
+      fail("Expected IOException");
+    } catch (IOException expected) {
+      // expected
+    }
+    alertLog.close();
+  }
+
+  public void testClosed() throws Exception {
+    AlertLog alertLog = AlertLog.open(dir);
+    alertLog.close();
+    try {
+      alertLog.append(alert("a", "2003-04-02T14:39:01-05:00"));
+      fail("Expected IOException");
+    } catch (IOException expected) {
+      // expected
+    }
+  }
+
+  private Alert alert(String identifier, String sent) {
+    return CapTestUtil.getValidAlertBuilder()
+        .setIdentifier(identifier)
+        .setSent(sent)
+        .build();
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.validator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.publicalerts.cap.batch.BatchResultWriter;
+import com.google.publicalerts.cap.batch.BatchValidator;
+import com.google.publicalerts.cap.profile.CapProfile;
+import com.google.publicalerts.cap.profile.CapProfiles;
+
+/**
+ * Machine-oriented endpoint to validate many alerts in one request.
+ *
+ * <p>The body of a POST is either a stream of concatenated alerts and
+ * feeds, typically one per line, or a multipart upload of files, each
+ * holding one or more of them. Profiles to validate against are given by
+ * {@code profile} query parameters, since validation starts before the
+ * body has been read. The body is read and split into documents on the
+ * request thread, while the documents are validated concurrently on a pool
+ * shared by all requests, and a line of JSON is streamed back for each
+ * alert as soon as it is validated; see {@link BatchResultWriter#ndjson}.
+ * A request validates at most {@link #MAX_REQUEST_DOCUMENTS} documents and
+ * {@link #MAX_REQUEST_BYTES} bytes of them; past either limit, an error
+ * result is returned and the rest of the body is ignored.
+ *
+ * @author agent@local (agent)
+ */
+public class BatchValidatorServlet extends HttpServlet {
+  private static final long serialVersionUID = 1L;
+
+  private static final Logger log =
+      Logger.getLogger(BatchValidatorServlet.class.getName());
+
+  /** The source name of the results for a request that is not multipart. */
+  static final String REQUEST_SOURCE = "request";
+
+  /** The most documents a request may validate. */
+  static final int MAX_REQUEST_DOCUMENTS = 10000;
+
+  /** The most bytes of documents a request may validate. */
+  static final long MAX_REQUEST_BYTES = 64 * 1024 * 1024;
+
+  private final ServletFileUpload upload;
+  private final ForkJoinPool pool;
+  private final long maxDocuments;
+  private final long maxBytes;
+  private final ConcurrentMap<List<CapProfile>, BatchValidator> validators =
+      Maps.newConcurrentMap();
+
+  public BatchValidatorServlet() {
+    this(new ServletFileUpload(), new ForkJoinPool(Integer.getInteger(
+        ValidatorUtil.BATCH_CONCURRENCY,
+        Runtime.getRuntime().availableProcessors())));
+  }
+
+  /**
+   * @param upload the parser of multipart requests
+   * @param pool the pool to validate the documents of all requests on
+   */
+  public BatchValidatorServlet(ServletFileUpload upload, ForkJoinPool pool) {
+    this(upload, pool, MAX_REQUEST_DOCUMENTS, MAX_REQUEST_BYTES);
+  }
+
+  /**
+   * @param upload the parser of multipart requests
+   * @param pool the pool to validate the documents of all requests on
+   * @param maxDocuments the most documents a request may validate
+   * @param maxBytes the most bytes of documents a request may validate
+   */
+  BatchValidatorServlet(ServletFileUpload upload, ForkJoinPool pool,
+      long maxDocuments, long maxBytes) {
+    this.upload = upload;
+    this.pool = pool;
+    this.maxDocuments = maxDocuments;
+    this.maxBytes = maxBytes;
+  }
+
+  @Override
+  public void doPost(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    String[] codes = req.getParameterValues("profile");
+    BatchValidator validator = getValidator(ValidatorUtil.parseProfiles(
+        codes == null ? null : Joiner.on(',').join(codes)));
+
+    BatchValidator.Input input;
+    if (ServletFileUpload.isMultipartContent(req)) {
+      try {
+        input = new UploadInput(upload.getItemIterator(req));
+      } catch (FileUploadException e) {
+        throw new ServletException(e);
+      }
+    } else {
+      input = new RequestInput(req.getInputStream());
+    }
+
+    // No content length, so results are sent chunked as they are written
+    resp.setCharacterEncoding("UTF-8");
+    resp.setContentType("application/x-ndjson");
+    ValidatorUtil.addNoCachableHeaders(resp);
+    resp.setStatus(HttpServletResponse.SC_OK);
+
+    BatchResultWriter writer = BatchResultWriter.ndjson(resp.getWriter());
+    writer.setAutoFlush(true);
+    BatchValidator.Stats stats = validator.validate(input, writer, pool);
+    writer.flush();
+    log.info("BatchRequest: " + stats);
+  }
+
+  private BatchValidator getValidator(Set<CapProfile> selected) {
+    // Report profiles in a stable order, whatever order they were given in
+    ImmutableList.Builder<CapProfile> builder = ImmutableList.builder();
+    for (CapProfile profile : CapProfiles.getProfiles()) {
+      if (selected.contains(profile)) {
+        builder.add(profile);
+      }
+    }
+    List<CapProfile> profiles = builder.build();
+    BatchValidator validator = validators.get(profiles);
+    if (validator == null) {
+      validator = new BatchValidator(profiles);
+      validator.setInputLimits(maxDocuments, maxBytes);
+      BatchValidator existing = validators.putIfAbsent(profiles, validator);
+      if (existing != null) {
+        validator = existing;
+      }
+    }
+    return validator;
+  }
+
+  /**
+   * The body of a request that is not multipart, as a single stream.
+   */
+  private static class RequestInput implements BatchValidator.Input {
+    private final InputStream stream;
+    private boolean read;
+
+    RequestInput(InputStream stream) {
+      this.stream = stream;
+    }
+
+    @Override
+    public String next() {
+      if (read) {
+        return null;
+      }
+      read = true;
+      return REQUEST_SOURCE;
+    }
+
+    @Override
+    public InputStream getStream() {
+      return stream;
+    }
+  }
+
+  /**
+   * The files of a multipart request, streamed as they are uploaded.
+   * Form fields are ignored.
+   */
+  private static class UploadInput implements BatchValidator.Input {
+    private final FileItemIterator items;
+    private FileItemStream item;
+
+    UploadInput(FileItemIterator items) {
+      this.items = items;
+    }
+
+    @Override
+    public String next() throws IOException {
+      try {
+        while (items.hasNext()) {
+          item = items.next();
+          if (!item.isFormField()) {
+            return item.getName() == null || item.getName().isEmpty()
+                ? item.getFieldName() : item.getName();
+          }
+        }
+      } catch (FileUploadException e) {
+        throw new IOException(e);
+      }
+      return null;
+    }
+
+    @Override
+    public InputStream getStream() throws IOException {
+      return item.openStream();
+    }
+  }
+}
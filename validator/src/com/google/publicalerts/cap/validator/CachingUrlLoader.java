@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.validator;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+import org.apache.xerces.impl.dv.util.Base64;
+
+/**
+ * Loads the content of feed and alert URLs, caching responses in memory.
+ *
+ * <p>A cached response is served without a request while it is fresh
+ * according to its {@code Cache-Control: max-age}. Once stale, it is
+ * revalidated with a conditional GET using its {@code ETag} and
+ * {@code Last-Modified} validators; a {@code 304 Not Modified} response
+ * renews it. Responses with {@code Cache-Control: no-store}, or with neither
+ * a validator nor a {@code max-age}, are not cached. Since the cache is
+ * shared by all users, neither are responses with
+ * {@code Cache-Control: private}.
+ *
+ * <p>The cache is bounded by the approximate size in bytes of the cached
+ * responses, evicting the least recently used first.
+ *
+ * <p>This class is thread-safe.
+ *
+ * @author agent@local (agent)
+ */
+public class CachingUrlLoader {
+  /** Default maximum size of the cache, in bytes. */
+  public static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+  /** Timeout to connect to the host of a URL. */
+  static final int CONNECT_TIMEOUT_MS = 5000;
+
+  /** Timeout waiting for data from the host of a URL. */
+  static final int READ_TIMEOUT_MS = 10000;
+
+  private static final Splitter COMMA_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+
+  private final Cache<String, CachedResponse> cache;
+  private final Ticker ticker;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong revalidations = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * @param maxBytes the maximum approximate size of the cached responses
+   */
+  public CachingUrlLoader(long maxBytes) {
+    this(maxBytes, Ticker.systemTicker());
+  }
+
+  CachingUrlLoader(long maxBytes, Ticker ticker) {
+    Preconditions.checkArgument(maxBytes >= 0, "maxBytes must not be negative");
+    this.ticker = ticker;
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxBytes)
+        .weigher(new Weigher<String, CachedResponse>() {
+          @Override
+          public int weigh(String url, CachedResponse response) {
+            return response.weight(url);
+          }
+        })
+        .build();
+  }
+
+  /**
+   * Loads the content at the given URL, from the cache if possible.
+   *
+   * @param stringUrl the URL to load
+   * @return the content, as a UTF-8 string without byte order mark
+   * @throws IOException on error loading the URL, including error responses
+   */
+  public String load(String stringUrl) throws IOException {
+    CachedResponse cached = cache.getIfPresent(stringUrl);
+    long now = nowMillis();
+    if (cached != null && now < cached.expiresAtMillis) {
+      hits.incrementAndGet();
+      return cached.body;
+    }
+
+    URL url = new URL(stringUrl);
+    URLConnection urlConnection = url.openConnection();
+    urlConnection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+    urlConnection.setReadTimeout(READ_TIMEOUT_MS);
+
+    if (url.getUserInfo() != null) {
+      String encodedUserInfo =
+          new String(Base64.encode(url.getUserInfo().getBytes()));
+      urlConnection.setRequestProperty(
+          "Authorization", "Basic " + encodedUserInfo);
+    }
+
+    if (cached != null) {
+      if (cached.etag != null) {
+        urlConnection.setRequestProperty("If-None-Match", cached.etag);
+      }
+      if (cached.lastModified != null) {
+        urlConnection.setRequestProperty("If-Modified-Since", cached.lastModified);
+      }
+    }
+
+    if (cached != null && urlConnection instanceof HttpURLConnection
+        && ((HttpURLConnection) urlConnection).getResponseCode()
+            == HttpURLConnection.HTTP_NOT_MODIFIED) {
+      revalidations.incrementAndGet();
+      urlConnection.getInputStream().close();
+      cache.put(stringUrl, cached.renew(now, urlConnection));
+      return cached.body;
+    }
+
+    misses.incrementAndGet();
+    // Stripping Unicode Character 65279 (BOM), added by NotePad
+    String body = CharMatcher.anyOf("\uFEFF").removeFrom(
+        ValidatorUtil.readFully(urlConnection.getInputStream()));
+    CachedResponse response = CachedResponse.of(body, now, urlConnection);
+    if (response == null) {
+      cache.invalidate(stringUrl);
+    } else {
+      cache.put(stringUrl, response);
+    }
+    return body;
+  }
+
+  /**
+   * @return the number of loads served from the cache without a request
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * @return the number of loads served from the cache after a
+   * {@code 304 Not Modified} response
+   */
+  public long getRevalidationCount() {
+    return revalidations.get();
+  }
+
+  /**
+   * @return the number of loads that fetched the full response
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * @return the number of responses in the cache
+   */
+  public long size() {
+    return cache.size();
+  }
+
+  private long nowMillis() {
+    return ticker.read() / 1000000L;
+  }
+
+  /**
+   * Returns the {@code max-age} of the given {@code Cache-Control} header
+   * in seconds, 0 if absent, or -1 if the response must not be stored.
+   */
+  static long parseMaxAge(String cacheControl) {
+    if (cacheControl == null) {
+      return 0;
+    }
+    long maxAge = 0;
+    boolean noCache = false;
+    for (String directive : COMMA_SPLITTER.split(cacheControl.toLowerCase())) {
+      if (directive.equals("no-store")
+          || directive.equals("private") || directive.startsWith("private=")) {
+        return -1;
+      } else if (directive.equals("no-cache")) {
+        noCache = true;
+      } else if (directive.startsWith("max-age=")) {
+        try {
+          maxAge = Math.max(0, Long.parseLong(
+              CharMatcher.is('"').trimFrom(directive.substring("max-age=".length()))));
+        } catch (NumberFormatException e) {
+          maxAge = 0;
+        }
+      }
+    }
+    return noCache ? 0 : maxAge;
+  }
+
+  /** A cached response body with its validators. */
+  private static class CachedResponse {
+    final String body;
+    final String etag;
+    final String lastModified;
+    final long expiresAtMillis;
+
+    private CachedResponse(String body, String etag, String lastModified,
+        long expiresAtMillis) {
+      this.body = body;
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.expiresAtMillis = expiresAtMillis;
+    }
+
+    /**
+     * Returns the response to cache for the given connection, or null if it
+     * must not or need not be cached.
+     */
+    static CachedResponse of(String body, long now, URLConnection connection) {
+      long maxAge = parseMaxAge(connection.getHeaderField("Cache-Control"));
+      String etag = connection.getHeaderField("ETag");
+      String lastModified = connection.getHeaderField("Last-Modified");
+      if (maxAge < 0 || (maxAge == 0 && etag == null && lastModified == null)) {
+        return null;
+      }
+      return new CachedResponse(body, etag, lastModified, now + maxAge * 1000);
+    }
+
+    /**
+     * Returns this response with its validators and freshness updated from
+     * a {@code 304 Not Modified} response.
+     */
+    CachedResponse renew(long now, URLConnection connection) {
+      long maxAge = Math.max(0, parseMaxAge(connection.getHeaderField("Cache-Control")));
+      String newEtag = connection.getHeaderField("ETag");
+      String newLastModified = connection.getHeaderField("Last-Modified");
+      return new CachedResponse(body,
+          newEtag == null ? etag : newEtag,
+          newLastModified == null ? lastModified : newLastModified,
+          now + maxAge * 1000);
+    }
+
+    int weight(String url) {
+      long chars = (long) url.length() + body.length()
+          + (etag == null ? 0 : etag.length())
+          + (lastModified == null ? 0 : lastModified.length());
+      return (int) Math.min(Integer.MAX_VALUE, 2 * chars);
+    }
+  }
+}
@@ -19,12 +19,20 @@ package com.google.publicalerts.cap.validator;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.URLConnection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
-import com.google.common.base.CharMatcher;
+import com.google.common.collect.Lists;
 import com.google.publicalerts.cap.Alert;
 import com.google.publicalerts.cap.CapException;
 import com.google.publicalerts.cap.NotCapException;
@@ -35,14 +43,13 @@ import com.google.publicalerts.cap.feed.CapFeedException;
 import com.google.publicalerts.cap.feed.CapFeedParser;
 import com.google.publicalerts.cap.feed.CapFeedValidator;
 import com.google.publicalerts.cap.profile.CapProfile;
+import com.google.publicalerts.cap.profile.ProfileEngine;
 
 import com.sun.syndication.feed.atom.Feed;
 import com.sun.syndication.feed.synd.SyndEntry;
 import com.sun.syndication.feed.synd.SyndFeed;
 import com.sun.syndication.io.FeedException;
 
-import org.apache.xerces.impl.dv.util.Base64;
-
 /**
  * Validates CAP messages and feeds of CAP messages where the actual
  * CAP may or may not have to be loaded via URL.
@@ -55,10 +62,39 @@ public class CapValidator {
 
   private static final int REQUEST_DEADLINE_MS = 20000;
 
+  /** Maximum number of thin-feed links fetched at once, per validation. */
+  static final int MAX_CONCURRENT_FETCHES = 16;
+
+  /**
+   * Caches feeds and alerts loaded by URL, shared by all validators so that
+   * repeated submissions of the same feed are served from the cache.
+   */
+  private static final CachingUrlLoader URL_LOADER =
+      new CachingUrlLoader(CachingUrlLoader.DEFAULT_MAX_BYTES);
+
   private final CapFeedParser capFeedParser;
+  private final ThreadFactory fetchThreadFactory;
+  private final int maxConcurrentFetches;
+  private final long requestDeadlineMs;
 
   public CapValidator() {
+    this(null, MAX_CONCURRENT_FETCHES, REQUEST_DEADLINE_MS);
+  }
+
+  /**
+   * @param fetchThreadFactory the factory for the threads on which to load
+   * and parse the alerts linked from thin feeds, or null to create them for
+   * the current request, so they can call App Engine APIs such as urlfetch
+   * @param maxConcurrentFetches the maximum number of links loaded at once
+   * @param requestDeadlineMs time after the start of a validation after
+   * which links are no longer waited for
+   */
+  CapValidator(ThreadFactory fetchThreadFactory, int maxConcurrentFetches,
+      long requestDeadlineMs) {
     this.capFeedParser = new CapFeedParser(true);
+    this.fetchThreadFactory = fetchThreadFactory;
+    this.maxConcurrentFetches = maxConcurrentFetches;
+    this.requestDeadlineMs = requestDeadlineMs;
   }
 
   /**
@@ -144,6 +180,7 @@ public class CapValidator {
             + "messages");
       }
       
+      List<ThinEntry> thinEntries = Lists.newArrayList();
       for (int i = 0; i < entries.size(); i++) {
 
         SyndEntry entry = entries.get(i);
@@ -167,14 +204,14 @@ public class CapValidator {
             result.addValidationMessageForLink("", Level.ERROR, "", fe.getMessage());
             continue;
           }
-          
-          Alert alert = handleThinEntry(entry, result);
-          checkProfiles(alert, result, profiles, i, capUrl, feed);
-          result.recordTiming(
-              String.valueOf(capUrl) + "load/parse");
+          if (capUrl != null) {
+            thinEntries.add(new ThinEntry(i, capUrl));
+          }
         }
       }
 
+      handleThinEntries(thinEntries, result, profiles, feed);
+
       result.addValidationMessages(new CapFeedValidator().validate(feed));
       result.recordTiming("Feed recommendations");
     }
@@ -200,8 +237,9 @@ public class CapValidator {
     }
     result.addValidAlert(alert);
 
-    for (CapProfile profile: profiles) {
-      Reasons reasons = profile.validate(alert);
+    // Validate against all profiles in a single pass over the alert
+    Map<CapProfile, Reasons> reasonsByProfile = new ProfileEngine(profiles).validate(alert);
+    for (Reasons reasons : reasonsByProfile.values()) {
       if (linkUrl != null) {
         result.addValidationMessageForLink(linkUrl, reasons);
       } else {
@@ -214,60 +252,144 @@ public class CapValidator {
     }
   }
 
-  private Alert handleThinEntry(SyndEntry entry, ValidationResult result) {
-    String capUrl;
+  /**
+   * Loads and parses the alerts linked from thin feed entries concurrently
+   * on threads of the current request, then adds the results in entry order.
+   * Links not loaded by the request deadline are reported as timed out, and
+   * the threads are stopped before returning.
+   */
+  private void handleThinEntries(List<ThinEntry> thinEntries, ValidationResult result,
+      Set<CapProfile> profiles, SyndFeed feed) {
+    if (thinEntries.isEmpty()) {
+      return;
+    }
+    ExecutorService fetchExecutor = Executors.newFixedThreadPool(
+        Math.min(maxConcurrentFetches, thinEntries.size()),
+        fetchThreadFactory == null
+            ? ValidatorUtil.currentRequestThreadFactory() : fetchThreadFactory);
     try {
-      capUrl = capFeedParser.getCapUrl(entry);
-      if (capUrl == null) {
-        // Feed parser already added an error
-        return null;
+      handleThinEntries(thinEntries, result, profiles, feed, fetchExecutor);
+    } finally {
+      fetchExecutor.shutdownNow();
+    }
+  }
+
+  private void handleThinEntries(List<ThinEntry> thinEntries, ValidationResult result,
+      Set<CapProfile> profiles, SyndFeed feed, ExecutorService fetchExecutor) {
+    long deadline = result.getStartTimeMillis() + requestDeadlineMs;
+    List<Future<LinkResult>> futures = Lists.newArrayListWithCapacity(thinEntries.size());
+    for (ThinEntry thinEntry : thinEntries) {
+      futures.add(System.currentTimeMillis() > deadline
+          ? null : fetchExecutor.submit(new FetchLink(thinEntry.capUrl)));
+    }
+
+    boolean interrupted = false;
+    for (int i = 0; i < thinEntries.size(); i++) {
+      ThinEntry thinEntry = thinEntries.get(i);
+      Future<LinkResult> future = futures.get(i);
+      LinkResult linkResult = null;
+      if (future != null && !interrupted) {
+        try {
+          linkResult = future.get(
+              Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+          // Reported below
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          log.warning("Error loading " + thinEntry.capUrl + ": " + e.getCause());
+          linkResult = LinkResult.error(
+              "URL retriever", "Unable to load CAP link: " + thinEntry.capUrl);
+        }
       }
-    } catch (FeedException e) {
-      result.addValidationMessageForLink("", Level.ERROR, "", e.getMessage());
-      return null;
+      if (linkResult == null) {
+        if (future != null) {
+          future.cancel(true);
+        }
+        result.addValidationMessageForLink(thinEntry.capUrl, Level.ERROR, "",
+            "Validate request timed out before loading: " + thinEntry.capUrl);
+        continue;
+      }
+
+      if (linkResult.reasons != null) {
+        result.addValidationMessageForLink(thinEntry.capUrl, linkResult.reasons);
+      } else if (linkResult.message != null) {
+        result.addValidationMessageForLink(
+            thinEntry.capUrl, Level.ERROR, linkResult.source, linkResult.message);
+      }
+      checkProfiles(linkResult.alert, result, profiles, thinEntry.entryIndex,
+          thinEntry.capUrl, feed);
+      result.recordTiming(thinEntry.capUrl + "load/parse");
     }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Loads and parses the alert at a link. Runs on a fetch thread, so
+   * it must not touch the {@link ValidationResult}.
+   */
+  private class FetchLink implements Callable<LinkResult> {
+    private final String capUrl;
 
-    long reqTime = System.currentTimeMillis() - result.getStartTimeMillis();
-    if (reqTime > REQUEST_DEADLINE_MS) {
-      result.addValidationMessageForLink(capUrl, Level.ERROR, "",
-          "Validate request timed out before loading: " + capUrl);
-      return null;
+    FetchLink(String capUrl) {
+      this.capUrl = capUrl;
     }
 
-    String cap;
-    try {
-      cap = loadUrl(capUrl);
-    } catch (IOException e) {
-      result.addValidationMessageForLink(capUrl, Level.ERROR, "URL retriever",
-          "Unable to load CAP link: " + capUrl);
-      return null;
+    @Override
+    public LinkResult call() {
+      String cap;
+      try {
+        cap = loadUrl(capUrl);
+      } catch (IOException e) {
+        return LinkResult.error("URL retriever", "Unable to load CAP link: " + capUrl);
+      }
+
+      try {
+        return new LinkResult(capFeedParser.parseAlert(cap), null, null, null);
+      } catch (CapException e) {
+        return new LinkResult(null, e.getReasons(), null, null);
+      } catch (NotCapException e) {
+        return LinkResult.error("CAP", "Link does not point to a CAP message");
+      }
     }
+  }
 
-    try {
-      return capFeedParser.parseAlert(cap);
-    } catch (CapException e) {
-      result.addValidationMessageForLink(capUrl, e.getReasons());
-      return null;
-    } catch (NotCapException e) {
-      result.addValidationMessageForLink(
-          capUrl, Level.ERROR, "CAP", "Link does not point to a CAP message");
-      return null;
+  /** A feed entry with a link to an alert instead of an embedded alert. */
+  private static class ThinEntry {
+    final int entryIndex;
+    final String capUrl;
+
+    ThinEntry(int entryIndex, String capUrl) {
+      this.entryIndex = entryIndex;
+      this.capUrl = capUrl;
     }
   }
 
-  String loadUrl(String stringUrl) throws IOException {
-    URL url = new URL(stringUrl);
-    URLConnection urlConnection = url.openConnection();
-
-    if (url.getUserInfo() != null) {
-      String encodedUserInfo =
-          new String(Base64.encode(url.getUserInfo().getBytes()));
-        urlConnection.setRequestProperty(
-            "Authorization", "Basic " + encodedUserInfo);
+  /**
+   * The outcome of loading a linked alert: the alert, or the reasons it is
+   * invalid, or an error message.
+   */
+  private static class LinkResult {
+    final Alert alert;
+    final Reasons reasons;
+    final String source;
+    final String message;
+
+    LinkResult(Alert alert, Reasons reasons, String source, String message) {
+      this.alert = alert;
+      this.reasons = reasons;
+      this.source = source;
+      this.message = message;
+    }
+
+    static LinkResult error(String source, String message) {
+      return new LinkResult(null, null, source, message);
     }
+  }
 
-    // Stripping Unicode Character 65279 (BOM), added by NotePad
-    return CharMatcher.anyOf("\uFEFF").removeFrom(
-        ValidatorUtil.readFully(urlConnection.getInputStream()));
+  String loadUrl(String stringUrl) throws IOException {
+    return URL_LOADER.load(stringUrl);
   }
 }
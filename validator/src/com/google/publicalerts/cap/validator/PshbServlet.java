@@ -16,22 +16,33 @@
 
 package com.google.publicalerts.cap.validator;
 
+import com.google.appengine.api.datastore.Blob;
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskOptions;
 import com.google.common.base.Charsets;
 import com.google.common.base.Splitter;
+import com.google.common.io.ByteStreams;
 import com.google.common.io.CharStreams;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.InputStreamReader;
 import java.net.URL;
 import java.net.MalformedURLException;
-import java.util.Arrays;
 import java.util.Properties;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import javax.mail.Message;
 import javax.mail.MessagingException;
@@ -39,38 +50,98 @@ import javax.mail.Session;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
 import javax.servlet.ServletException;
-import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpServletResponseWrapper;
 
 import com.google.publicalerts.cap.profile.CapProfile;
 
 /**
  * Servlet to accept POSTs of new alerts for validation.
  *
+ * <p>Notifications from the hub are answered as soon as they are
+ * authenticated and added to the {@value #QUEUE_NAME} push task queue,
+ * which persists them, retries them on failure, and bounds how many are
+ * validated at once; see queue.xml. The queue posts each back to
+ * {@value #TASK_PATH}, where it is validated and any email sent on the
+ * task's own request thread. Payloads too large for a task are held in a
+ * {@link PayloadStore} until their task runs.
+ *
  * @author shakusa@google.com (Steve Hakusa)
  */
 public class PshbServlet extends HttpServlet {
   private static final long serialVersionUID = 1L;
 
+  /** Seconds after which the hub should redeliver a rejected notification. */
+  private static final String RETRY_AFTER_SECONDS = "60";
+
+  /** The push queue notifications are validated from. */
+  static final String QUEUE_NAME = "pshb";
+
+  /** The path the task queue posts notifications back to. */
+  static final String TASK_PATH = "/pshb/task";
+
+  /**
+   * Set by App Engine on task queue requests, and stripped from all others.
+   */
+  static final String QUEUE_NAME_HEADER = "X-AppEngine-QueueName";
+
+  /** Carries the URL the hub posted to, for links in the email. */
+  static final String REQUEST_URL_HEADER = "X-Pshb-Request-Url";
+
+  /** Carries the id of a payload held in the {@link PayloadStore}. */
+  static final String STORED_PAYLOAD_HEADER = "X-Pshb-Stored-Payload";
+
+  /**
+   * Largest payload, in bytes, sent in the body of a task, within its
+   * 100KB limit on task size. Larger ones are held in the
+   * {@link PayloadStore}.
+   */
+  static final int MAX_TASK_PAYLOAD_BYTES = 90 * 1024;
+
   private static final Logger log =
       Logger.getLogger(PshbServlet.class.getName());
 
   private final PshbAuthenticator authenticator;
   private final CapValidator capValidator;
   private final MailSender mailSender;
+  private final ValidationDashboard dashboard;
+  private final Queue taskQueue;
+  private final PayloadStore payloadStore;
 
   public PshbServlet() {
-    this(new PshbAuthenticator(), new CapValidator(), new MailSender());
+    this(new PshbAuthenticator(), new CapValidator(), new MailSender(),
+        ValidationDashboard.getInstance(), QueueFactory.getQueue(QUEUE_NAME),
+        new DatastorePayloadStore());
   }
 
+  /**
+   * Creates a servlet that answers the hub and then processes each
+   * notification on the thread that posted it, without a task queue.
+   */
   public PshbServlet(PshbAuthenticator authenticator,
       CapValidator capValidator, MailSender mailSender) {
+    this(authenticator, capValidator, mailSender, new ValidationDashboard(),
+        null, null);
+  }
+
+  /**
+   * @param dashboard the dashboard to record validation outcomes in
+   * @param taskQueue the push queue to add notifications from the hub to,
+   * or null to process them on the thread that posted them
+   * @param payloadStore holds payloads too large for a task until the task
+   * runs. Only used with a task queue.
+   */
+  public PshbServlet(PshbAuthenticator authenticator,
+      CapValidator capValidator, MailSender mailSender,
+      ValidationDashboard dashboard, Queue taskQueue,
+      PayloadStore payloadStore) {
     this.authenticator = authenticator;
     this.capValidator = capValidator;
     this.mailSender = mailSender;
+    this.dashboard = dashboard;
+    this.taskQueue = taskQueue;
+    this.payloadStore = payloadStore;
   }
 
   /**
@@ -123,7 +194,13 @@ public class PshbServlet extends HttpServlet {
   }
 
   /**
-   * Handle POSTs from PSHB for new alerts to validate.
+   * Handle POSTs from PSHB for new alerts to validate. The POST is answered
+   * as soon as it is authenticated and added to the task queue. If it cannot
+   * be added, responds 503 so the hub redelivers later. Without a task
+   * queue, the POST is answered and then validated on this thread.
+   *
+   * <p>Also handles the POSTs of those tasks to {@value #TASK_PATH},
+   * validating the notification before responding.
    *
    * See http://pubsubhubbub.googlecode.com/svn/trunk/pubsubhubbub-core-0.3.html#contentdistribution
    */
@@ -132,11 +209,16 @@ public class PshbServlet extends HttpServlet {
       throws ServletException, IOException {
     String input = CharStreams.toString(
         new InputStreamReader(req.getInputStream(), Charsets.UTF_8));
-    String pshbSig = req.getHeader(PshbAuthenticator.SIGNATURE_HEADER);
     String topic = req.getParameter("topic");
     String email = req.getParameter("email");
     String profileStr = req.getParameter("profiles");
 
+    if (TASK_PATH.equals(req.getServletPath())) {
+      processTask(req, resp, topic, email, profileStr, input);
+      return;
+    }
+
+    String pshbSig = req.getHeader(PshbAuthenticator.SIGNATURE_HEADER);
     PshbAuthenticator.AuthResult authResult = authenticator.authenticate(
         input, pshbSig,	System.getProperty(ValidatorUtil.ALERT_HUB_SECRET));
     if (authResult != PshbAuthenticator.AuthResult.OK) {
@@ -144,22 +226,118 @@ public class PshbServlet extends HttpServlet {
 	return;
     }
 
-    // Reply to PSHB so the connection doesn't time out
+    // The PSHB POST is valid, queue the input for validation
+    StringBuffer requestUrl = req.getRequestURL();
+    Notification notification = new Notification(topic, email, profileStr,
+        input, requestUrl == null ? null : requestUrl.toString());
+    if (taskQueue == null) {
+      // Answer the hub before validating, which may take a while
+      resp.setStatus(HttpServletResponse.SC_OK);
+      resp.flushBuffer();
+      process(notification);
+      return;
+    }
+
+    String query = req.getQueryString();
+    TaskOptions task = TaskOptions.Builder
+        .withUrl(query == null ? TASK_PATH : TASK_PATH + "?" + query);
+    if (notification.getRequestUrl() != null) {
+      task.header(REQUEST_URL_HEADER, notification.getRequestUrl());
+    }
+    byte[] payload = input.getBytes(Charsets.UTF_8);
+    String storedId = null;
+    if (payload.length <= MAX_TASK_PAYLOAD_BYTES) {
+      task.payload(payload, "application/xml; charset=UTF-8");
+    } else {
+      try {
+        storedId = payloadStore.put(input);
+      } catch (IllegalArgumentException e) {
+        // Redelivering it would not help
+        log.log(Level.SEVERE, "Dropping notification for " + topic, e);
+        resp.setStatus(HttpServletResponse.SC_OK);
+        return;
+      } catch (RuntimeException e) {
+        log.log(Level.WARNING, "Unable to store notification for " + topic, e);
+        retryLater(resp);
+        return;
+      }
+      task.header(STORED_PAYLOAD_HEADER, storedId);
+    }
+    try {
+      taskQueue.add(task);
+    } catch (RuntimeException e) {
+      log.log(Level.WARNING, "Unable to queue notification for " + topic, e);
+      if (storedId != null) {
+        payloadStore.delete(storedId);
+      }
+      retryLater(resp);
+      return;
+    }
     resp.setStatus(HttpServletResponse.SC_OK);
-    resp.flushBuffer();
-    
-    // The PSHB POST is valid, validate the input
-    Set<CapProfile> profiles = ValidatorUtil.parseProfiles(profileStr);
-    ValidationResult result = capValidator.validate(input, profiles);
+  }
+
+  /**
+   * Validates a notification posted by the task queue. Any error responds
+   * 500, so the task is retried.
+   */
+  private void processTask(HttpServletRequest req, HttpServletResponse resp,
+      String topic, String email, String profileStr, String input) {
+    if (req.getHeader(QUEUE_NAME_HEADER) == null) {
+      // Not from the task queue
+      resp.setStatus(HttpServletResponse.SC_FORBIDDEN);
+      return;
+    }
+    String storedId = req.getHeader(STORED_PAYLOAD_HEADER);
+    if (storedId != null) {
+      input = payloadStore.get(storedId);
+      if (input == null) {
+        log.warning("Notification for " + topic + " already processed");
+        resp.setStatus(HttpServletResponse.SC_OK);
+        return;
+      }
+    }
+    // Authenticated before it was queued
+    process(new Notification(topic, email, profileStr, input,
+        req.getHeader(REQUEST_URL_HEADER)));
+    if (storedId != null) {
+      payloadStore.delete(storedId);
+    }
+    resp.setStatus(HttpServletResponse.SC_OK);
+  }
+
+  private static void retryLater(HttpServletResponse resp) {
+    resp.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+    resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+  }
+
+  /**
+   * @return the dashboard validation outcomes are recorded in
+   */
+  ValidationDashboard getDashboard() {
+    return dashboard;
+  }
+
+  /**
+   * Validates the payload of the given notification, and emails the
+   * subscriber if there are errors.
+   */
+  void process(Notification notification) {
+    Set<CapProfile> profiles =
+        ValidatorUtil.parseProfiles(notification.getProfiles());
+    ValidationResult result =
+        capValidator.validate(notification.getPayload(), profiles);
+    if (notification.getTopic() != null) {
+      dashboard.record(notification.getTopic(), result);
+    }
 
     // If there are errors, send email
     if (result.containsErrors()) {
-      String msg = renderMessage(req, resp, email, topic, profiles, result);
-      sendMail(email, topic, msg, profiles, result);
+      String msg = renderMessage(notification, result);
+      sendMail(notification.getEmail(), notification.getTopic(), msg,
+          profiles, result);
     }
 
     // TODO(shakusa) Optionally send email if there are recommendations
-    // TODO(shakusa) Maintain a dashboard by topic and update that here
   }
 
   private void sendMail(String toAddress, String topic, String msg,
@@ -192,100 +370,144 @@ public class PshbServlet extends HttpServlet {
 
   /**
    * Renders the validation result to a string to be included in the email.
-   * To render, we re-use the same JSP used in the mail validator, but wrap
-   * the HttpServletResponse to redirect and grab the string instead of
-   * writing the output to the stream (since the request comes from
-   * PSHB, we don't bother rendering it to the stream as well).
-   * 
-   * @param req the current request
-   * @param resp the current response
-   * @param email where to send the mail
-   * @param topic the current topic
-   * @param profiles the set of optional profiles to validate against
+   * This may run on the request of another notification, so it renders
+   * with {@link ValidationResultHtml} rather than a JSP.
+   *
+   * @param notification the notification that was validated
    * @param result the valiation result
    * @return the rendered validation result
    */
   private String renderMessage(
-      HttpServletRequest req, HttpServletResponse resp, String email,
-      String topic, Set<CapProfile> profiles, ValidationResult result) {
-
-    // Write the jsp to a string so we can include it in the email
-    ToStringWrapper wrapper = new ToStringWrapper(resp);
-
-    String url = req.getRequestURL().toString();
+      Notification notification, ValidationResult result) {
+    String url = notification.getRequestUrl();
     String unsubscribeUrl = ValidatorUtil.toCallbackUrl(
-         url.replace("/pshb", "/subscribe"), topic, email);
-
-    req.setAttribute("url", url.replace("/pshb", ""));
-    req.setAttribute("unsubscribe", unsubscribeUrl);
-    req.setAttribute("profiles", ValidatorUtil.getProfilesJsp(profiles));
-    req.setAttribute("validationResult", result);
-    req.setAttribute("lines", Arrays.asList(result.getInput().split("\n")));
+         url.replace("/pshb", "/subscribe"), notification.getTopic(),
+         notification.getEmail());
+    return ValidationResultHtml.renderSubscriptionEmail(
+        url.replace("/pshb", ""), unsubscribeUrl, result);
+  }
 
-    try {
-      req.getRequestDispatcher("/subscription_email.jsp")
-	  .include(req, wrapper);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    } catch (ServletException e) {
-      throw new RuntimeException(e);
+  /** A notification from the hub for one subscription. */
+  static class Notification {
+    private final String topic;
+    private final String email;
+    private final String profiles;
+    private final String payload;
+    private final String requestUrl;
+
+    /**
+     * @param topic the topic of the subscription
+     * @param email the email address of the subscriber
+     * @param profiles the comma-separated profiles of the subscription
+     * @param payload the body of the notification
+     * @param requestUrl the URL the notification was posted to
+     */
+    Notification(String topic, String email, String profiles,
+        String payload, String requestUrl) {
+      this.topic = topic;
+      this.email = email;
+      this.profiles = profiles;
+      this.payload = payload;
+      this.requestUrl = requestUrl;
     }
 
-    return wrapper.toString();
-  }
+    String getTopic() {
+      return topic;
+    }
 
-  /** HttpServletResponseWrapper that writes to a ByteArrayOutputStream */
-  private static class ToStringWrapper extends HttpServletResponseWrapper {
-    private final ByteArrayOutputStream baos;
-    private final ToStringOutputStream tsos;
-    private final PrintWriter writer;
-
-    public ToStringWrapper(HttpServletResponse resp) {
-      super(resp);
-      this.baos = new ByteArrayOutputStream();
-      this.tsos = new ToStringOutputStream(baos);
-      this.writer = new PrintWriter(baos, true /* auto-flush */);
+    String getEmail() {
+      return email;
     }
 
-    @Override
-    public PrintWriter getWriter() throws IOException {
-      return writer;
+    String getProfiles() {
+      return profiles;
     }
 
-    @Override
-    public ServletOutputStream getOutputStream() {
-      writer.flush();
-      return tsos;
+    String getPayload() {
+      return payload;
     }
 
-    @Override
-    public String toString() {
-      writer.flush();
-      return baos.toString();
+    String getRequestUrl() {
+      return requestUrl;
     }
   }
 
-  /** ServletOutputStream that writes to a ByteArrayOutputStream */
-  private static class ToStringOutputStream extends ServletOutputStream {
-    private final ByteArrayOutputStream baos;
+  /**
+   * Holds the payloads of notifications too large for a task until their
+   * tasks run.
+   */
+  public interface PayloadStore {
+    /**
+     * @param payload the payload to hold
+     * @return the id to get the payload with
+     * @throws IllegalArgumentException if the payload is too large to hold
+     */
+    String put(String payload);
+
+    /**
+     * @return the payload with the given id, or null if it was deleted
+     */
+    String get(String id);
+
+    /**
+     * Deletes the payload with the given id, if there is one.
+     */
+    void delete(String id);
+  }
 
-    public ToStringOutputStream(ByteArrayOutputStream baos) {
-      this.baos = baos;
-    }
+  /**
+   * Holds payloads in the datastore, compressed, each in an entity of kind
+   * {@value #KIND}.
+   */
+  static class DatastorePayloadStore implements PayloadStore {
+    static final String KIND = "PshbPayload";
+    private static final String PROPERTY = "payload";
+
+    /** Largest compressed payload, within the 1MB limit on entity size. */
+    private static final int MAX_STORED_BYTES = 1000 * 1000;
+
+    private final DatastoreService datastore =
+        DatastoreServiceFactory.getDatastoreService();
 
     @Override
-    public void write(byte[] b, int off, int len) throws IOException {
-      baos.write(b, off, len);
+    public String put(String payload) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try {
+        GZIPOutputStream out = new GZIPOutputStream(bytes);
+        out.write(payload.getBytes(Charsets.UTF_8));
+        out.close();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      if (bytes.size() > MAX_STORED_BYTES) {
+        throw new IllegalArgumentException("Payload of " + bytes.size()
+            + " compressed bytes is larger than " + MAX_STORED_BYTES);
+      }
+      Entity entity = new Entity(KIND);
+      entity.setUnindexedProperty(PROPERTY, new Blob(bytes.toByteArray()));
+      return KeyFactory.keyToString(datastore.put(entity));
     }
 
     @Override
-    public void write(byte[] b) throws IOException {
-      baos.write(b);
+    public String get(String id) {
+      Entity entity;
+      try {
+        entity = datastore.get(KeyFactory.stringToKey(id));
+      } catch (EntityNotFoundException e) {
+        return null;
+      }
+      byte[] bytes = ((Blob) entity.getProperty(PROPERTY)).getBytes();
+      try {
+        return new String(ByteStreams.toByteArray(new GZIPInputStream(
+            new ByteArrayInputStream(bytes))), Charsets.UTF_8);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
     }
 
     @Override
-    public void write(int b) throws IOException {
-      baos.write(b);
+    public void delete(String id) {
+      datastore.delete(KeyFactory.stringToKey(id));
     }
   }
 }
@@ -0,0 +1,456 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.validator;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Multisets;
+import com.google.publicalerts.cap.Reason;
+import com.google.publicalerts.cap.Reason.Level;
+
+/**
+ * In-memory store of recent validation outcomes by PubSubHubbub topic,
+ * for a dashboard of publishers.
+ *
+ * <p>Each topic keeps a ring buffer of its last {@code historySize}
+ * outcomes. An outcome is packed into a single {@code long}: the time in
+ * seconds, the error and warning counts (saturating at 2047), and the most
+ * frequent reason type, so a topic with the default history takes well
+ * under 1KB and 10,000 topics a few MB. Topics beyond {@code maxTopics} are
+ * not recorded.
+ *
+ * <p>Recording is lock-free. Reading a summary scans only the topic's
+ * fixed-size ring, so it takes constant time regardless of how many
+ * outcomes have been recorded. A summary read concurrently with a record
+ * may or may not include it.
+ *
+ * @author agent@local (agent)
+ */
+public class ValidationDashboard {
+  /** Default maximum number of topics recorded. */
+  public static final int DEFAULT_MAX_TOPICS = 10000;
+
+  /** Default number of outcomes kept per topic. */
+  public static final int DEFAULT_HISTORY_SIZE = 32;
+
+  /** Maximum number of reason types listed in a summary. */
+  static final int TOP_REASON_TYPES = 3;
+
+  // Layout of a packed outcome, from the high bits
+  private static final int COUNT_BITS = 11;
+  private static final int REASON_BITS = 10;
+  private static final int MAX_COUNT = (1 << COUNT_BITS) - 1;
+  private static final int MAX_REASON_TYPES = (1 << REASON_BITS) - 1;
+
+  private static final ValidationDashboard INSTANCE = new ValidationDashboard();
+
+  private final int maxTopics;
+  private final int historySize;
+  private final ConcurrentMap<String, TopicHistory> topics =
+      new ConcurrentHashMap<String, TopicHistory>();
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  // Reason types are stored in outcomes by index; 0 means none
+  private final ConcurrentMap<Reason.Type, Integer> reasonTypeIndexes =
+      new ConcurrentHashMap<Reason.Type, Integer>();
+  private final AtomicReferenceArray<Reason.Type> reasonTypes =
+      new AtomicReferenceArray<Reason.Type>(MAX_REASON_TYPES + 1);
+  private final AtomicInteger lastReasonTypeIndex = new AtomicInteger();
+
+  public ValidationDashboard() {
+    this(DEFAULT_MAX_TOPICS, DEFAULT_HISTORY_SIZE);
+  }
+
+  /**
+   * @param maxTopics the maximum number of topics recorded
+   * @param historySize the number of outcomes kept per topic
+   */
+  public ValidationDashboard(int maxTopics, int historySize) {
+    Preconditions.checkArgument(maxTopics > 0, "maxTopics must be positive");
+    Preconditions.checkArgument(historySize > 0, "historySize must be positive");
+    this.maxTopics = maxTopics;
+    this.historySize = historySize;
+  }
+
+  /**
+   * @return the dashboard shared by the servlets of this validator
+   */
+  public static ValidationDashboard getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Records the outcome of validating a notification for the given topic.
+   *
+   * @param topic the topic
+   * @param result the validation result
+   * @return false if the topic was not recorded because there are already
+   * {@code maxTopics} topics
+   */
+  public boolean record(String topic, ValidationResult result) {
+    Reason.Type topReasonType = null;
+    Multiset<Reason.Type> reasonTypeCounts = result.getReasonTypeCounts();
+    if (!reasonTypeCounts.isEmpty()) {
+      topReasonType = Multisets.copyHighestCountFirst(reasonTypeCounts)
+          .iterator().next();
+    }
+    return record(topic, System.currentTimeMillis(),
+        result.getMessageCount(Level.ERROR),
+        result.getMessageCount(Level.WARNING), topReasonType);
+  }
+
+  /**
+   * Records an outcome for the given topic.
+   *
+   * @param topic the topic
+   * @param timeMillis when the validation happened
+   * @param errorCount the number of errors
+   * @param warningCount the number of warnings
+   * @param topReasonType the most frequent reason type, or null if none
+   * @return false if the topic was not recorded because there are already
+   * {@code maxTopics} topics
+   */
+  public boolean record(String topic, long timeMillis, int errorCount,
+      int warningCount, Reason.Type topReasonType) {
+    TopicHistory history = topics.get(topic);
+    if (history == null) {
+      if (topics.size() >= maxTopics) {
+        droppedCount.incrementAndGet();
+        return false;
+      }
+      TopicHistory newHistory = new TopicHistory(historySize);
+      history = topics.putIfAbsent(topic, newHistory);
+      if (history == null) {
+        history = newHistory;
+      }
+    }
+    history.add(pack(timeMillis, errorCount, warningCount,
+        getReasonTypeIndex(topReasonType)), timeMillis, errorCount > 0);
+    return true;
+  }
+
+  /**
+   * @return the topics with recorded outcomes
+   */
+  public Set<String> getTopics() {
+    return Collections.unmodifiableSet(topics.keySet());
+  }
+
+  /**
+   * @return the number of outcomes not recorded because there were already
+   * {@code maxTopics} topics
+   */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /**
+   * @param topic the topic
+   * @return a summary of the outcomes for the topic, or null if none have
+   * been recorded
+   */
+  public TopicSummary getSummary(String topic) {
+    TopicHistory history = topics.get(topic);
+    if (history == null) {
+      return null;
+    }
+    List<Outcome> outcomes = getHistory(history);
+    int windowErrors = 0;
+    int windowWarnings = 0;
+    int windowWithErrors = 0;
+    int[] reasonTypeCounts = new int[outcomes.size()];
+    List<Reason.Type> windowReasonTypes = Lists.newArrayList();
+    for (Outcome outcome : outcomes) {
+      windowErrors += outcome.getErrorCount();
+      windowWarnings += outcome.getWarningCount();
+      if (outcome.getErrorCount() > 0) {
+        windowWithErrors++;
+      }
+      Reason.Type type = outcome.getTopReasonType();
+      if (type != null) {
+        int i = windowReasonTypes.indexOf(type);
+        if (i < 0) {
+          i = windowReasonTypes.size();
+          windowReasonTypes.add(type);
+        }
+        reasonTypeCounts[i]++;
+      }
+    }
+
+    // Selection of the few most frequent; ties go to the most recent
+    List<Reason.Type> topReasonTypes = Lists.newArrayList();
+    for (int n = 0; n < TOP_REASON_TYPES; n++) {
+      int best = -1;
+      for (int i = 0; i < windowReasonTypes.size(); i++) {
+        if (reasonTypeCounts[i] > 0
+            && (best < 0 || reasonTypeCounts[i] > reasonTypeCounts[best])) {
+          best = i;
+        }
+      }
+      if (best < 0) {
+        break;
+      }
+      topReasonTypes.add(windowReasonTypes.get(best));
+      reasonTypeCounts[best] = 0;
+    }
+
+    return new TopicSummary(topic, history.totals.get(TopicHistory.COUNT),
+        history.totals.get(TopicHistory.WITH_ERRORS_COUNT),
+        history.totals.get(TopicHistory.LAST_MILLIS),
+        history.totals.get(TopicHistory.LAST_ERROR_MILLIS),
+        outcomes.size(), windowWithErrors, windowErrors, windowWarnings,
+        ImmutableList.copyOf(topReasonTypes));
+  }
+
+  /**
+   * @param topic the topic
+   * @return the recorded outcomes for the topic, newest first, at most
+   * {@code historySize}
+   */
+  public List<Outcome> getHistory(String topic) {
+    TopicHistory history = topics.get(topic);
+    return history == null
+        ? ImmutableList.<Outcome>of() : getHistory(history);
+  }
+
+  private List<Outcome> getHistory(TopicHistory history) {
+    long next = history.next.get();
+    List<Outcome> outcomes = Lists.newArrayListWithCapacity(historySize);
+    for (long i = next - 1; i >= 0 && i >= next - historySize; i--) {
+      long packed = history.slots.get((int) (i % historySize));
+      if (packed != 0) {
+        outcomes.add(unpack(packed));
+      }
+    }
+    return outcomes;
+  }
+
+  private int getReasonTypeIndex(Reason.Type type) {
+    if (type == null) {
+      return 0;
+    }
+    Integer index = reasonTypeIndexes.get(type);
+    if (index != null) {
+      return index;
+    }
+    int newIndex = lastReasonTypeIndex.incrementAndGet();
+    if (newIndex > MAX_REASON_TYPES) {
+      return 0;
+    }
+    reasonTypes.set(newIndex, type);
+    index = reasonTypeIndexes.putIfAbsent(type, newIndex);
+    return index == null ? newIndex : index;
+  }
+
+  private long pack(long timeMillis, int errorCount, int warningCount,
+      int reasonTypeIndex) {
+    return ((timeMillis / 1000) << (2 * COUNT_BITS + REASON_BITS))
+        | ((long) Math.min(errorCount, MAX_COUNT) << (COUNT_BITS + REASON_BITS))
+        | ((long) Math.min(warningCount, MAX_COUNT) << REASON_BITS)
+        | reasonTypeIndex;
+  }
+
+  private Outcome unpack(long packed) {
+    return new Outcome(
+        (packed >>> (2 * COUNT_BITS + REASON_BITS)) * 1000,
+        (int) (packed >>> (COUNT_BITS + REASON_BITS)) & MAX_COUNT,
+        (int) (packed >>> REASON_BITS) & MAX_COUNT,
+        reasonTypes.get((int) packed & MAX_REASON_TYPES));
+  }
+
+  /** The ring of packed outcomes for a topic, and its running totals. */
+  private static class TopicHistory {
+    static final int COUNT = 0;
+    static final int WITH_ERRORS_COUNT = 1;
+    static final int LAST_MILLIS = 2;
+    static final int LAST_ERROR_MILLIS = 3;
+
+    final AtomicLongArray slots;
+    final AtomicLong next = new AtomicLong();
+    final AtomicLongArray totals = new AtomicLongArray(4);
+
+    TopicHistory(int historySize) {
+      this.slots = new AtomicLongArray(historySize);
+    }
+
+    void add(long packed, long timeMillis, boolean hasErrors) {
+      long i = next.getAndIncrement();
+      slots.set((int) (i % slots.length()), packed);
+      totals.incrementAndGet(COUNT);
+      updateMax(LAST_MILLIS, timeMillis);
+      if (hasErrors) {
+        totals.incrementAndGet(WITH_ERRORS_COUNT);
+        updateMax(LAST_ERROR_MILLIS, timeMillis);
+      }
+    }
+
+    private void updateMax(int i, long value) {
+      long current;
+      while ((current = totals.get(i)) < value) {
+        if (totals.compareAndSet(i, current, value)) {
+          return;
+        }
+      }
+    }
+  }
+
+  /** The outcome of one validation, with its time rounded to seconds. */
+  public static class Outcome {
+    private final long timeMillis;
+    private final int errorCount;
+    private final int warningCount;
+    private final Reason.Type topReasonType;
+
+    Outcome(long timeMillis, int errorCount, int warningCount,
+        Reason.Type topReasonType) {
+      this.timeMillis = timeMillis;
+      this.errorCount = errorCount;
+      this.warningCount = warningCount;
+      this.topReasonType = topReasonType;
+    }
+
+    public long getTimeMillis() {
+      return timeMillis;
+    }
+
+    public int getErrorCount() {
+      return errorCount;
+    }
+
+    public int getWarningCount() {
+      return warningCount;
+    }
+
+    /**
+     * @return the most frequent error or warning type, or null if none
+     */
+    public Reason.Type getTopReasonType() {
+      return topReasonType;
+    }
+  }
+
+  /** A summary of the outcomes recorded for a topic. */
+  public static class TopicSummary {
+    private final String topic;
+    private final long validationCount;
+    private final long validationsWithErrorsCount;
+    private final long lastValidatedMillis;
+    private final long lastErrorMillis;
+    private final int windowSize;
+    private final int windowWithErrorsCount;
+    private final int windowErrorCount;
+    private final int windowWarningCount;
+    private final List<Reason.Type> topReasonTypes;
+
+    TopicSummary(String topic, long validationCount,
+        long validationsWithErrorsCount, long lastValidatedMillis,
+        long lastErrorMillis, int windowSize, int windowWithErrorsCount,
+        int windowErrorCount, int windowWarningCount,
+        List<Reason.Type> topReasonTypes) {
+      this.topic = topic;
+      this.validationCount = validationCount;
+      this.validationsWithErrorsCount = validationsWithErrorsCount;
+      this.lastValidatedMillis = lastValidatedMillis;
+      this.lastErrorMillis = lastErrorMillis;
+      this.windowSize = windowSize;
+      this.windowWithErrorsCount = windowWithErrorsCount;
+      this.windowErrorCount = windowErrorCount;
+      this.windowWarningCount = windowWarningCount;
+      this.topReasonTypes = topReasonTypes;
+    }
+
+    public String getTopic() {
+      return topic;
+    }
+
+    /**
+     * @return the number of validations ever recorded for the topic
+     */
+    public long getValidationCount() {
+      return validationCount;
+    }
+
+    /**
+     * @return the number of validations ever recorded with errors
+     */
+    public long getValidationsWithErrorsCount() {
+      return validationsWithErrorsCount;
+    }
+
+    /**
+     * @return the time of the last validation
+     */
+    public long getLastValidatedMillis() {
+      return lastValidatedMillis;
+    }
+
+    /**
+     * @return the time of the last validation with errors, or 0 if none
+     */
+    public long getLastErrorMillis() {
+      return lastErrorMillis;
+    }
+
+    /**
+     * @return the number of recent outcomes the window values cover
+     */
+    public int getWindowSize() {
+      return windowSize;
+    }
+
+    /**
+     * @return the number of recent validations with errors
+     */
+    public int getWindowWithErrorsCount() {
+      return windowWithErrorsCount;
+    }
+
+    /**
+     * @return the number of errors in recent validations
+     */
+    public int getWindowErrorCount() {
+      return windowErrorCount;
+    }
+
+    /**
+     * @return the number of warnings in recent validations
+     */
+    public int getWindowWarningCount() {
+      return windowWarningCount;
+    }
+
+    /**
+     * @return the reason types most often the top reason type of recent
+     * validations, most frequent first, then most recent first
+     */
+    public List<Reason.Type> getTopReasonTypes() {
+      return topReasonTypes;
+    }
+  }
+}
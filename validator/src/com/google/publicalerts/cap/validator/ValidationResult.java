@@ -19,8 +19,10 @@ package com.google.publicalerts.cap.validator;
 import java.util.List;
 import java.util.Set;
 
+import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
 import com.google.common.collect.TreeMultimap;
 import com.google.publicalerts.cap.Alert;
@@ -42,6 +44,7 @@ public class ValidationResult {
   private final String xml;
   private final Set<ValidationMessage> validationMessages;
   private final List<Alert> validAlerts;
+  private final Multiset<Reason.Type> reasonTypes;
   private final Timing timing;
 
   private LineOffsetParser.LineOffsets lineOffsets;
@@ -55,6 +58,7 @@ public class ValidationResult {
     this.xml = xml;
     this.validationMessages = Sets.newLinkedHashSet();
     this.validAlerts = Lists.newArrayList();
+    this.reasonTypes = HashMultiset.create();
     this.timing = new Timing();
   }
 
@@ -90,6 +94,7 @@ public class ValidationResult {
       int lineOffset = getLineOffsets().getXPathLineNumber(reason.getXPath());
       addValidationMessage(lineOffset, reason.getLevel(),
           reason.getSource(), reason.getMessage());
+      addReasonType(reason);
     }
   }
   
@@ -129,6 +134,7 @@ public class ValidationResult {
     for (Reason reason : new XercesCapExceptionMapper().map(reasons)) {
       addValidationMessageForLink(
           linkUrl, reason.getLevel(), reason.getSource(), reason.getMessage());
+      addReasonType(reason);
     }
   }
   
@@ -147,6 +153,12 @@ public class ValidationResult {
     addValidationMessage(lineNum, level, source, message);
   }
   
+  private void addReasonType(Reason reason) {
+    if (reason.getLevel() == Level.ERROR || reason.getLevel() == Level.WARNING) {
+      reasonTypes.add(reason.getType());
+    }
+  }
+
   /**
    * Logs the current elapsed time for the request, adding the given label
    * @param label the label for the current status of the request
@@ -183,6 +195,29 @@ public class ValidationResult {
     return map;
   }
 
+  /**
+   * @return the number of times each type of reason at level
+   * {@link Level#ERROR} or {@link Level#WARNING} was added via
+   * {@link #addValidationMessages(Reasons)} or
+   * {@link #addValidationMessageForLink(String, Reasons)}
+   */
+  public Multiset<Reason.Type> getReasonTypeCounts() {
+    return reasonTypes;
+  }
+
+  /**
+   * @return the number of validation messages at the given level
+   */
+  public int getMessageCount(Level level) {
+    int count = 0;
+    for (ValidationMessage validationMessage : validationMessages) {
+      if (validationMessage.getLevel().equals(level)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
   public boolean containsErrors() {
     for (ValidationMessage validationMessage : validationMessages) {
       if (validationMessage.getLevel().equals(Level.ERROR)) {
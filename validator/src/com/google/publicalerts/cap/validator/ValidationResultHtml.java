@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.validator;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.collect.Multimap;
+import com.google.publicalerts.cap.Reason.Level;
+
+/**
+ * Renders validation messages and the validated document as HTML, for
+ * {@code validation_result.jsp} and for subscription emails. Since the HTML
+ * is used in email, styles must remain inline.
+ *
+ * <p>Rendering does not need a servlet request, so emails can be rendered
+ * after the request that triggered them has completed.
+ *
+ * @author agent@local (agent)
+ */
+public class ValidationResultHtml {
+
+  /**
+   * Renders the validation messages of the given result, then the lines of
+   * the document annotated with the messages for each line.
+   *
+   * @param result the validation result
+   * @param lines the lines of the validated document, or null to omit it
+   * @return the HTML
+   */
+  public static String render(ValidationResult result, List<String> lines) {
+    StringBuilder sb = new StringBuilder();
+    Multimap<Integer, ValidationMessage> validationMessages =
+        result.getByLineValidationMessages();
+
+    if (!validationMessages.isEmpty()) {
+      sb.append("<h4>Validation messages</h4>\n");
+      sb.append("<table style=\"border-spacing:0; width:800px; padding-left:1em;\">\n");
+      for (ValidationMessage message : validationMessages.values()) {
+        appendMessageRow(sb, message, "<pre style=\"margin:0px; padding:0px; "
+            + "white-space: pre-wrap;\"><a href=\"#l" + message.getLineNumber()
+            + "\" style=\"color:black;\">" + message.getLineNumber() + "</a></pre>");
+      }
+      sb.append("</table>\n");
+    }
+
+    if (lines != null) {
+      sb.append("<h4>File</h4>\n");
+      sb.append("<table style=\"border-spacing:0; width:800px; padding-left:1em;\">\n");
+      for (int i = 0; i < lines.size(); i++) {
+        int lineNumber = i + 1;
+        Level level = validationMessages.containsKey(lineNumber)
+            ? validationMessages.get(lineNumber).iterator().next().getLevel()
+            : null;
+        sb.append("  <tr>\n");
+        sb.append("    <td style=\"padding:0.3em; width:3em; text-align:right; "
+            + "vertical-align:top; background-color:")
+            .append(level == null ? "#e0e0e0" : getColorForLevel(level, true))
+            .append(";\">\n");
+        sb.append("      <a name=\"l").append(lineNumber).append("\"/>\n");
+        sb.append("      <pre style=\"margin:0px; padding:0px; white-space: pre-wrap;\">")
+            .append(lineNumber).append("</pre>\n");
+        sb.append("    </td>\n");
+        sb.append("    <td style=\"padding:0.3em; background-color:")
+            .append(level == null ? "#eeeeee" : getColorForLevel(level, false))
+            .append(";\">\n");
+        sb.append("      <pre style=\"margin:0px; padding:0px; white-space: pre-wrap;\">")
+            .append(StringUtil.htmlEscape(lines.get(i))).append("</pre>\n");
+        sb.append("    </td>\n");
+        sb.append("  </tr>\n");
+        for (ValidationMessage message : validationMessages.get(lineNumber)) {
+          appendMessageRow(sb, message, "");
+        }
+      }
+      sb.append("</table>\n");
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Renders the email sent to a subscriber whose feed has errors.
+   *
+   * @param url the URL of the validator
+   * @param unsubscribeUrl the URL to unsubscribe from these emails
+   * @param result the validation result
+   * @return the HTML
+   */
+  public static String renderSubscriptionEmail(
+      String url, String unsubscribeUrl, ValidationResult result) {
+    return "<p><a href=\"" + StringUtil.htmlEscape(url)
+        + "\">http://cap-validator.appspot.com</a> found problems with CAP "
+        + "alerts you published recently.\n\n"
+        + "<p>You can <a href=\"" + StringUtil.htmlEscape(unsubscribeUrl)
+        + "\">unsubscribe</a> from these notifications at any time.\n\n"
+        + render(result, Arrays.asList(result.getInput().split("\n")));
+  }
+
+  private static void appendMessageRow(
+      StringBuilder sb, ValidationMessage message, String lineCell) {
+    sb.append("  <tr>\n");
+    sb.append("    <td style=\"padding:0.3em; width:3em; text-align:right; "
+        + "vertical-align:top; background-color:")
+        .append(getColorForLevel(message.getLevel(), true)).append(";\">")
+        .append(lineCell).append("</td>\n");
+    sb.append("    <td style=\"padding:0.3em; background-color:")
+        .append(getColorForLevel(message.getLevel(), false)).append(";\">\n");
+    sb.append("      <p style=\"font-size:14px; margin:0;\">\n");
+    sb.append("        <strong>").append(message.getLevel()).append("</strong> | <em>")
+        .append(message.getSource()).append("</em><br>")
+        .append(message.getEscapedMessage()).append("\n");
+    sb.append("      </p>\n");
+    sb.append("    </td>\n");
+    sb.append("  </tr>\n");
+  }
+
+  static String getColorForLevel(Level level, boolean dark) {
+    if (dark) {
+      switch (level) {
+        case INFO:
+          return "#4db6ac";
+        case RECOMMENDATION:
+          return "#91a7ff";
+        case WARNING:
+          return "#ffb74d";
+        default:
+          return "#f36c60";
+      }
+    } else {
+      switch (level) {
+        case INFO:
+          return "#80cbc4";
+        case RECOMMENDATION:
+          return "#afbfff";
+        case WARNING:
+          return "#ffcc80";
+        default:
+          return "#f69988";
+      }
+    }
+  }
+
+  private ValidationResultHtml() {}
+}
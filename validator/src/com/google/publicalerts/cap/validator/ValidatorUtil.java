@@ -25,9 +25,13 @@ import java.net.URLEncoder;
 import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import javax.servlet.http.HttpServletResponse;
 
+import com.google.appengine.api.ThreadManager;
+import com.google.apphosting.api.ApiProxy;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
@@ -47,6 +51,7 @@ public class ValidatorUtil {
   public static final String GOOGLE_ANALYTICS_ID = "google_analytics_id";
   public static final String ALERT_HUB_SECRET = "alert_hub_secret";
   public static final String ALERT_HUB_URL = "alert_hub_url";
+  public static final String BATCH_CONCURRENCY = "batch_concurrency";
 
   private static final Charset UTF8 = Charset.forName("UTF-8");
 
@@ -86,6 +91,20 @@ public class ValidatorUtil {
     return profiles;
   }
 
+  /**
+   * Returns a factory for threads tied to the current request. On App Engine,
+   * only such threads can call APIs such as urlfetch and mail, and they must
+   * finish before the request does. Off App Engine, such as in tests, returns
+   * the default thread factory.
+   *
+   * @return the thread factory
+   */
+  public static ThreadFactory currentRequestThreadFactory() {
+    return ApiProxy.getCurrentEnvironment() == null
+        ? Executors.defaultThreadFactory()
+        : ThreadManager.currentRequestThreadFactory();
+  }
+
   /**
    * Adds headers to the given response to mark it as not cacheable.
    *
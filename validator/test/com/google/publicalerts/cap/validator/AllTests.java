@@ -49,6 +49,8 @@ public class AllTests {
     // TODO(shakusa) Automate this, recursively search for test classes
     TestSuite suite = new TestSuite();
 
+    suite.addTestSuite(BatchValidatorServletTest.class);
+    suite.addTestSuite(CachingUrlLoaderTest.class);
     suite.addTestSuite(CapValidatorServletTest.class);
     suite.addTestSuite(CapValidatorTest.class);
     suite.addTestSuite(LineOffsetParserTest.class);
@@ -56,6 +58,7 @@ public class AllTests {
     suite.addTestSuite(PshbAuthenticatorTest.class);
     suite.addTestSuite(PshbServletTest.class);
     suite.addTestSuite(SubscribeServletTest.class);
+    suite.addTestSuite(ValidationDashboardTest.class);
     suite.addTestSuite(ValidatorUtilTest.class);
 
     return suite;
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.validator;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.publicalerts.cap.testing.TestResources;
+
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Tests for {@link BatchValidatorServlet}.
+ *
+ * @author agent@local (agent)
+ */
+public class BatchValidatorServletTest extends TestCase {
+  private static final String BOUNDARY = "AaB03x";
+
+  private ForkJoinPool pool;
+  private BatchValidatorServlet servlet;
+
+  private HttpServletRequest req;
+  private HttpServletResponse resp;
+  private StringWriter out;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    pool = new ForkJoinPool(2);
+    servlet = new BatchValidatorServlet(new ServletFileUpload(), pool);
+
+    req = mock(HttpServletRequest.class);
+    resp = mock(HttpServletResponse.class);
+    out = new StringWriter();
+    when(req.getMethod()).thenReturn("POST");
+    when(resp.getWriter()).thenReturn(new PrintWriter(out));
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    pool.shutdown();
+    super.tearDown();
+  }
+
+  public void testStream() throws Exception {
+    String canada = TestResources.load("canada.cap").trim();
+    String invalid = TestResources.load("earthquake.cap").trim()
+        .replace("<status>Actual</status>", "<status>Nope</status>");
+    setBody("application/xml", canada + "\n" + invalid + "\n");
+    when(req.getParameterValues("profile"))
+        .thenReturn(new String[] {"profile:CAP-CP:1.0"});
+
+    servlet.doPost(req, resp);
+
+    verify(resp).setStatus(HttpServletResponse.SC_OK);
+    verify(resp).setContentType("application/x-ndjson");
+    Map<Integer, JSONObject> results = parseByDocument();
+    assertEquals(2, results.size());
+    JSONObject first = results.get(0);
+    assertEquals(BatchValidatorServlet.REQUEST_SOURCE,
+        first.getString("source"));
+    assertEquals("ALERT", first.getString("kind"));
+    assertTrue(first.getBoolean("valid"));
+    assertTrue(first.getJSONObject("profiles").has("profile:CAP-CP:1.0"));
+    assertFalse(results.get(1).getBoolean("valid"));
+  }
+
+  public void testMultipart() throws Exception {
+    String body = part("inputfile1", "a.cap", TestResources.load("weather.cap"))
+        + part("inputfile2", "b.xml", TestResources.load("earthquake.cap")
+            + TestResources.load("canada.cap"))
+        + "--" + BOUNDARY + "--\r\n";
+    setBody("multipart/form-data; boundary=" + BOUNDARY, body);
+
+    servlet.doPost(req, resp);
+
+    List<String> sources = Lists.newArrayList();
+    for (String line : lines()) {
+      JSONObject result = new JSONObject(line);
+      sources.add(result.getString("source") + ":"
+          + result.getInt("document"));
+      assertTrue(line, result.getBoolean("valid"));
+    }
+    Collections.sort(sources);
+    assertEquals(Lists.newArrayList("a.cap:0", "b.xml:0", "b.xml:1"),
+        sources);
+  }
+
+  public void testRequestDocumentsLimit() throws Exception {
+    servlet = new BatchValidatorServlet(new ServletFileUpload(), pool, 2,
+        BatchValidatorServlet.MAX_REQUEST_BYTES);
+    String canada = TestResources.load("canada.cap").trim();
+    setBody("application/xml", canada + "\n" + canada + "\n" + canada + "\n");
+
+    servlet.doPost(req, resp);
+
+    Map<Integer, JSONObject> results = parseByDocument();
+    assertEquals(3, results.size());
+    assertTrue(results.get(0).getBoolean("valid"));
+    assertTrue(results.get(1).getBoolean("valid"));
+    assertEquals("OTHER", results.get(2).getString("kind"));
+    assertFalse(results.get(2).getBoolean("valid"));
+  }
+
+  public void testRequestBytesLimit() throws Exception {
+    String canada = TestResources.load("canada.cap").trim();
+    int length = canada.getBytes(Charsets.UTF_8).length;
+    servlet = new BatchValidatorServlet(new ServletFileUpload(), pool,
+        BatchValidatorServlet.MAX_REQUEST_DOCUMENTS, length + length / 2);
+    setBody("application/xml", canada + "\n" + canada + "\n" + canada + "\n");
+
+    servlet.doPost(req, resp);
+
+    Map<Integer, JSONObject> results = parseByDocument();
+    assertEquals(2, results.size());
+    assertTrue(results.get(0).getBoolean("valid"));
+    assertEquals("OTHER", results.get(1).getString("kind"));
+  }
+
+  public void testEmpty() throws Exception {
+    setBody("application/xml", "");
+    servlet.doPost(req, resp);
+    verify(resp).setStatus(HttpServletResponse.SC_OK);
+    assertTrue(lines().isEmpty());
+  }
+
+  private void setBody(String contentType, String body) throws Exception {
+    byte[] bytes = body.getBytes(Charsets.UTF_8);
+    when(req.getContentType()).thenReturn(contentType);
+    when(req.getContentLength()).thenReturn(bytes.length);
+    when(req.getInputStream()).thenReturn(
+        new PshbServletTest.FakeServletInputStream(
+            new ByteArrayInputStream(bytes)));
+  }
+
+  private static String part(String field, String filename, String content) {
+    return "--" + BOUNDARY + "\r\n"
+        + "Content-Disposition: form-data; name=\"" + field
+        + "\"; filename=\"" + filename + "\"\r\n"
+        + "Content-Type: application/xml\r\n\r\n"
+        + content + "\r\n";
+  }
+
+  private List<String> lines() {
+    List<String> lines = Lists.newArrayList();
+    for (String line : out.toString().split("\n")) {
+      if (!line.isEmpty()) {
+        lines.add(line);
+      }
+    }
+    return lines;
+  }
+
+  private Map<Integer, JSONObject> parseByDocument() throws Exception {
+    Map<Integer, JSONObject> results = Maps.newHashMap();
+    for (String line : lines()) {
+      JSONObject result = new JSONObject(line);
+      results.put(result.getInt("document"), result);
+    }
+    return results;
+  }
+}
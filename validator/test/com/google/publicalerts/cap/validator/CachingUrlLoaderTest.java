@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.validator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests for {@link CachingUrlLoader}, against a local HTTP server.
+ *
+ * @author agent@local (agent)
+ */
+public class CachingUrlLoaderTest extends TestCase {
+  private HttpServer server;
+  private FakeTicker ticker;
+  private CachingUrlLoader loader;
+
+  /** Response headers by path; every response has body "body of path". */
+  private final Map<String, Map<String, String>> headers = Maps.newHashMap();
+  private final List<String> requests = Lists.newArrayList();
+
+  public CachingUrlLoaderTest(String s) {
+    super(s);
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        String ifModifiedSince =
+            exchange.getRequestHeaders().getFirst("If-Modified-Since");
+        synchronized (requests) {
+          requests.add(path + " " + ifNoneMatch + " " + ifModifiedSince);
+        }
+        Map<String, String> responseHeaders = headers.get(path);
+        for (Map.Entry<String, String> header : responseHeaders.entrySet()) {
+          exchange.getResponseHeaders().add(header.getKey(), header.getValue());
+        }
+        if ((ifNoneMatch != null
+                && ifNoneMatch.equals(responseHeaders.get("ETag")))
+            || (ifModifiedSince != null
+                && ifModifiedSince.equals(responseHeaders.get("Last-Modified")))) {
+          exchange.sendResponseHeaders(304, -1);
+        } else {
+          byte[] body = ("\uFEFFbody of " + path).getBytes(Charsets.UTF_8);
+          exchange.sendResponseHeaders(200, body.length);
+          OutputStream out = exchange.getResponseBody();
+          out.write(body);
+          out.close();
+        }
+        exchange.close();
+      }
+    });
+    server.start();
+    ticker = new FakeTicker();
+    loader = new CachingUrlLoader(CachingUrlLoader.DEFAULT_MAX_BYTES, ticker);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    server.stop(0);
+    super.tearDown();
+  }
+
+  public void testMaxAge() throws Exception {
+    respond("/fresh", "Cache-Control", "public, max-age=60");
+
+    assertEquals("body of /fresh", loader.load(url("/fresh")));
+    ticker.advance(59, TimeUnit.SECONDS);
+    assertEquals("body of /fresh", loader.load(url("/fresh")));
+    assertEquals(1, requests.size());
+    assertEquals(1, loader.getHitCount());
+    assertEquals(1, loader.getMissCount());
+
+    // Stale and no validator, so fetched again
+    ticker.advance(1, TimeUnit.SECONDS);
+    assertEquals("body of /fresh", loader.load(url("/fresh")));
+    assertEquals(2, requests.size());
+    assertEquals("/fresh null null", requests.get(1));
+    assertEquals(2, loader.getMissCount());
+  }
+
+  public void testETagRevalidation() throws Exception {
+    respond("/etag", "ETag", "\"v1\"");
+
+    assertEquals("body of /etag", loader.load(url("/etag")));
+    assertEquals("body of /etag", loader.load(url("/etag")));
+    assertEquals(2, requests.size());
+    assertEquals("/etag \"v1\" null", requests.get(1));
+    assertEquals(1, loader.getRevalidationCount());
+    assertEquals(1, loader.getMissCount());
+
+    // Changed on the server, so the new body is fetched
+    respond("/etag", "ETag", "\"v2\"");
+    assertEquals("body of /etag", loader.load(url("/etag")));
+    assertEquals(2, loader.getMissCount());
+    loader.load(url("/etag"));
+    assertEquals("/etag \"v2\" null", requests.get(3));
+    assertEquals(2, loader.getRevalidationCount());
+  }
+
+  public void testLastModifiedRevalidation() throws Exception {
+    String lastModified = "Tue, 15 Nov 1994 12:45:26 GMT";
+    respond("/lm", "Last-Modified", lastModified, "Cache-Control", "max-age=10");
+
+    loader.load(url("/lm"));
+    loader.load(url("/lm"));
+    assertEquals(1, requests.size());
+
+    ticker.advance(10, TimeUnit.SECONDS);
+    assertEquals("body of /lm", loader.load(url("/lm")));
+    assertEquals("/lm null " + lastModified, requests.get(1));
+    assertEquals(1, loader.getRevalidationCount());
+
+    // The 304 renewed the max-age
+    loader.load(url("/lm"));
+    assertEquals(2, requests.size());
+    assertEquals(2, loader.getHitCount());
+  }
+
+  public void testNoStore() throws Exception {
+    respond("/nostore", "Cache-Control", "no-store", "ETag", "\"v1\"");
+    loader.load(url("/nostore"));
+    loader.load(url("/nostore"));
+    assertEquals("/nostore null null", requests.get(1));
+    assertEquals(0, loader.size());
+  }
+
+  public void testPrivateNotCached() throws Exception {
+    respond("/private", "Cache-Control", "private, max-age=300", "ETag", "\"v1\"");
+    loader.load(url("/private"));
+    loader.load(url("/private"));
+    assertEquals("/private null null", requests.get(1));
+    assertEquals(0, loader.size());
+  }
+
+  public void testNoValidatorNotCached() throws Exception {
+    respond("/plain");
+    loader.load(url("/plain"));
+    assertEquals(0, loader.size());
+  }
+
+  public void testEvictsBySize() throws Exception {
+    loader = new CachingUrlLoader(4096, ticker);
+    for (int i = 0; i < 100; i++) {
+      respond("/" + i, "ETag", "\"" + i + "\"");
+      loader.load(url("/" + i));
+    }
+    assertTrue(loader.size() > 0);
+    assertTrue(loader.size() < 100);
+
+    // The most recent is still cached
+    loader.load(url("/99"));
+    assertEquals(1, loader.getRevalidationCount());
+  }
+
+  public void testParseMaxAge() {
+    assertEquals(0, CachingUrlLoader.parseMaxAge(null));
+    assertEquals(0, CachingUrlLoader.parseMaxAge("public"));
+    assertEquals(300, CachingUrlLoader.parseMaxAge("public, max-age=300"));
+    assertEquals(300, CachingUrlLoader.parseMaxAge("Max-Age=\"300\""));
+    assertEquals(0, CachingUrlLoader.parseMaxAge("max-age=300, no-cache"));
+    assertEquals(0, CachingUrlLoader.parseMaxAge("max-age=abc"));
+    assertEquals(-1, CachingUrlLoader.parseMaxAge("max-age=300, no-store"));
+    assertEquals(-1, CachingUrlLoader.parseMaxAge("private, max-age=300"));
+    assertEquals(-1, CachingUrlLoader.parseMaxAge("max-age=300, Private=\"Set-Cookie\""));
+  }
+
+  private void respond(String path, String... keyValues) {
+    Map<String, String> map = Maps.newHashMap();
+    for (int i = 0; i < keyValues.length; i += 2) {
+      map.put(keyValues[i], keyValues[i + 1]);
+    }
+    headers.put(path, map);
+  }
+
+  private String url(String path) {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+  }
+
+  private static class FakeTicker extends Ticker {
+    private long nanos = TimeUnit.DAYS.toNanos(1);
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    void advance(long time, TimeUnit unit) {
+      nanos += unit.toNanos(time);
+    }
+  }
+}
@@ -19,6 +19,8 @@ package com.google.publicalerts.cap.validator;
 import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.TestCase;
 
@@ -158,6 +160,52 @@ public class CapValidatorTest extends TestCase {
         ImmutableListMultimap.of(10, Level.ERROR));
   }
 
+  public void testThinAtomFeedLoadsLinksConcurrently() throws Exception {
+    ConcurrentTestCapValidator validator = new ConcurrentTestCapValidator(4, 20000);
+    ValidationResult result = validator.validate(thinFeed(8), NO_PROFILES);
+
+    assertTrue(result.getByLineValidationMessages().toString(),
+        result.getByLineValidationMessages().isEmpty());
+    assertEquals(8, result.getValidAlerts().size());
+    assertTrue(validator.maxConcurrent.get() > 1);
+    assertTrue(validator.maxConcurrent.get() <= 4);
+  }
+
+  public void testThinAtomFeedDeadline() throws Exception {
+    ConcurrentTestCapValidator validator = new ConcurrentTestCapValidator(4, 500);
+    validator.hangingUrl = "http://example.com/cap/2";
+    ValidationResult result = validator.validate(thinFeed(3), NO_PROFILES);
+
+    assertEquals(2, result.getValidAlerts().size());
+    assertEquals(1, result.getByLineValidationMessages().size());
+    ValidationMessage message =
+        result.getByLineValidationMessages().values().iterator().next();
+    assertEquals(Level.ERROR, message.getLevel());
+    assertTrue(message.getEscapedMessage().contains("timed out"));
+
+    // The hanging fetch is interrupted rather than left running
+    long stop = System.currentTimeMillis() + 5000;
+    while (validator.concurrent.get() > 0 && System.currentTimeMillis() < stop) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, validator.concurrent.get());
+  }
+
+  private static String thinFeed(int entries) throws IOException {
+    String feed = TestResources.load("earthquake_index.atom");
+    int start = feed.indexOf("<entry>");
+    int end = feed.indexOf("</entry>") + "</entry>".length();
+    StringBuilder sb = new StringBuilder(feed.substring(0, start));
+    for (int i = 1; i <= entries; i++) {
+      sb.append(feed.substring(start, end)
+          .replace("2010apcd</id>", "2010apcd" + i + "</id>")
+          .replace("http://earthquake.usgs.gov/earthquakes/catalogs/cap/us2010apcd",
+              "http://example.com/cap/" + i))
+          .append('\n');
+    }
+    return sb.append(feed.substring(end)).toString();
+  }
+
   public void testFatAtomFeed() throws Exception {
     String cap = TestResources.load("amber.atom");
     ValidationResult result = validator.validate(cap, NO_PROFILES);
@@ -244,6 +292,33 @@ public class CapValidatorTest extends TestCase {
     assertEquals(expected.size(), actualMap.size());
   }
   
+  private static class ConcurrentTestCapValidator extends CapValidator {
+    final AtomicInteger concurrent = new AtomicInteger();
+    final AtomicInteger maxConcurrent = new AtomicInteger();
+    volatile String hangingUrl;
+
+    public ConcurrentTestCapValidator(int maxConcurrentFetches, long deadlineMs) {
+      super(Executors.defaultThreadFactory(), maxConcurrentFetches, deadlineMs);
+    }
+
+    @Override
+    String loadUrl(String capUrl) throws IOException {
+      int current = concurrent.incrementAndGet();
+      try {
+        int max;
+        do {
+          max = maxConcurrent.get();
+        } while (current > max && !maxConcurrent.compareAndSet(max, current));
+        Thread.sleep(capUrl.equals(hangingUrl) ? 60000 : 100);
+        return TestResources.load("earthquake.cap");
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      } finally {
+        concurrent.decrementAndGet();
+      }
+    }
+  }
+
   private static class TestCapValidator extends CapValidator {
     private static final long serialVersionUID = 1L;
 
@@ -19,28 +19,35 @@ package com.google.publicalerts.cap.validator;
 import static org.mockito.Matchers.anySetOf;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.appengine.api.taskqueue.TransientFailureException;
+import com.google.common.collect.Maps;
 import com.google.publicalerts.cap.testing.TestResources;
 import com.google.publicalerts.cap.Reason.Level;
 import com.google.publicalerts.cap.profile.CapProfile;
 
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 
 import java.io.InputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.Map;
 
 import junit.framework.TestCase;
 
 import javax.mail.Message;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
-import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -134,12 +141,14 @@ public class PshbServletTest extends TestCase {
 
     when(req.getRequestURL())
         .thenReturn(new StringBuffer("http://localhost/pshb"));
-    RequestDispatcher dispatcher = mock(RequestDispatcher.class);
-    when(req.getRequestDispatcher(any(String.class))).thenReturn(dispatcher);
- 
+
     servlet.doPost(req, resp);
 
-    verify(resp).setStatus(HttpServletResponse.SC_OK);
+    // The hub is answered before the notification is validated
+    InOrder inOrder = inOrder(resp, capValidator);
+    inOrder.verify(resp).setStatus(HttpServletResponse.SC_OK);
+    inOrder.verify(resp).flushBuffer();
+    inOrder.verify(capValidator).validate(eq(cap), anySetOf(CapProfile.class));
 
     ArgumentCaptor<MimeMessage> messageCaptor =
         ArgumentCaptor.forClass(MimeMessage.class);
@@ -149,6 +158,11 @@ public class PshbServletTest extends TestCase {
     assertEquals(new InternetAddress("test@example.com"),
         message.getRecipients(Message.RecipientType.TO)[0]);
     assertTrue(message.getSubject().contains("http://topic.com/feed"));
+
+    ValidationDashboard.TopicSummary summary =
+        servlet.getDashboard().getSummary("http://topic.com/feed");
+    assertEquals(1, summary.getValidationCount());
+    assertEquals(1, summary.getWindowErrorCount());
   }
 
   public void testPshbPost_noErrorsSendsNoMail() throws Exception {
@@ -193,6 +207,230 @@ public class PshbServletTest extends TestCase {
     verify(mailSender, never()).sendMail(any(Message.class));
   }
 
+  public void testPshbPost_addsTask() throws Exception {
+    Queue taskQueue = mock(Queue.class);
+    servlet = new PshbServlet(auth, capValidator, mailSender,
+        new ValidationDashboard(), taskQueue, new FakePayloadStore());
+    String cap = TestResources.load("earthquake.cap");
+    when(auth.authenticate(eq(cap), any(String.class), any(String.class)))
+        .thenReturn(PshbAuthenticator.AuthResult.OK);
+    HttpServletRequest post = newPost(cap, "http://topic.com/feed");
+    when(post.getQueryString()).thenReturn("topic=t&email=e");
+
+    servlet.doPost(post, resp);
+
+    verify(resp).setStatus(HttpServletResponse.SC_OK);
+    ArgumentCaptor<TaskOptions> taskCaptor =
+        ArgumentCaptor.forClass(TaskOptions.class);
+    verify(taskQueue).add(taskCaptor.capture());
+    TaskOptions task = taskCaptor.getValue();
+    assertEquals(PshbServlet.TASK_PATH + "?topic=t&email=e", task.getUrl());
+    assertEquals(cap, new String(task.getPayload(), "UTF-8"));
+    assertEquals("http://localhost/pshb", task.getHeaders()
+        .get(PshbServlet.REQUEST_URL_HEADER).get(0));
+    assertNull(task.getHeaders().get(PshbServlet.STORED_PAYLOAD_HEADER));
+    verify(capValidator, never())
+        .validate(eq(cap), anySetOf(CapProfile.class));
+  }
+
+  public void testPshbPost_storesLargePayload() throws Exception {
+    Queue taskQueue = mock(Queue.class);
+    FakePayloadStore store = new FakePayloadStore();
+    servlet = new PshbServlet(auth, capValidator, mailSender,
+        new ValidationDashboard(), taskQueue, store);
+    String cap = largeAlert();
+    when(auth.authenticate(eq(cap), any(String.class), any(String.class)))
+        .thenReturn(PshbAuthenticator.AuthResult.OK);
+
+    servlet.doPost(newPost(cap, "http://topic.com/feed"), resp);
+
+    verify(resp).setStatus(HttpServletResponse.SC_OK);
+    ArgumentCaptor<TaskOptions> taskCaptor =
+        ArgumentCaptor.forClass(TaskOptions.class);
+    verify(taskQueue).add(taskCaptor.capture());
+    TaskOptions task = taskCaptor.getValue();
+    assertNull(task.getPayload());
+    String id = task.getHeaders().get(PshbServlet.STORED_PAYLOAD_HEADER).get(0);
+    assertEquals(cap, store.get(id));
+    // Not validated on the hub's request
+    verify(capValidator, never())
+        .validate(eq(cap), anySetOf(CapProfile.class));
+  }
+
+  public void testPshbPost_payloadTooLargeToStore() throws Exception {
+    Queue taskQueue = mock(Queue.class);
+    PshbServlet.PayloadStore store = mock(PshbServlet.PayloadStore.class);
+    when(store.put(any(String.class)))
+        .thenThrow(new IllegalArgumentException("too large"));
+    servlet = new PshbServlet(auth, capValidator, mailSender,
+        new ValidationDashboard(), taskQueue, store);
+    String cap = largeAlert();
+    when(auth.authenticate(eq(cap), any(String.class), any(String.class)))
+        .thenReturn(PshbAuthenticator.AuthResult.OK);
+
+    servlet.doPost(newPost(cap, "http://topic.com/feed"), resp);
+
+    // Dropped, as redelivering it would not help
+    verify(resp).setStatus(HttpServletResponse.SC_OK);
+    verify(taskQueue, never()).add(any(TaskOptions.class));
+    verify(capValidator, never())
+        .validate(eq(cap), anySetOf(CapProfile.class));
+  }
+
+  public void testPshbPost_taskQueueUnavailable() throws Exception {
+    Queue taskQueue = mock(Queue.class);
+    when(taskQueue.add(any(TaskOptions.class)))
+        .thenThrow(new TransientFailureException("unavailable"));
+    FakePayloadStore store = new FakePayloadStore();
+    servlet = new PshbServlet(auth, capValidator, mailSender,
+        new ValidationDashboard(), taskQueue, store);
+    String cap = largeAlert();
+    when(auth.authenticate(eq(cap), any(String.class), any(String.class)))
+        .thenReturn(PshbAuthenticator.AuthResult.OK);
+
+    servlet.doPost(newPost(cap, "http://topic.com/feed"), resp);
+
+    verify(resp).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    verify(resp).setHeader(eq("Retry-After"), any(String.class));
+    assertTrue(store.payloads.isEmpty());
+  }
+
+  public void testPshbPost_queueHeaderNeedsAuthentication() throws Exception {
+    String cap = TestResources.load("earthquake.cap");
+    when(auth.authenticate(eq(cap), any(String.class), any(String.class)))
+        .thenReturn(PshbAuthenticator.AuthResult.NO_MATCH);
+    HttpServletRequest post = newPost(cap, "http://topic.com/feed");
+    when(post.getHeader(PshbServlet.QUEUE_NAME_HEADER))
+        .thenReturn(PshbServlet.QUEUE_NAME);
+
+    servlet.doPost(post, resp);
+
+    verify(resp).setStatus(HttpServletResponse.SC_OK);
+    verify(capValidator, never())
+        .validate(eq(cap), anySetOf(CapProfile.class));
+  }
+
+  public void testTaskPost() throws Exception {
+    Queue taskQueue = mock(Queue.class);
+    servlet = new PshbServlet(auth, capValidator, mailSender,
+        new ValidationDashboard(), taskQueue, new FakePayloadStore());
+    String cap = TestResources.load("earthquake.cap");
+    expectErrors(cap);
+
+    servlet.doPost(newTask(cap), resp);
+
+    verify(resp).setStatus(HttpServletResponse.SC_OK);
+    // Authenticated before it was queued
+    verify(auth, never()).authenticate(
+        any(String.class), any(String.class), any(String.class));
+    verify(taskQueue, never()).add(any(TaskOptions.class));
+    verify(mailSender).sendMail(any(MimeMessage.class));
+    assertEquals(1, servlet.getDashboard()
+        .getSummary("http://topic.com/feed").getValidationCount());
+  }
+
+  public void testTaskPost_storedPayload() throws Exception {
+    FakePayloadStore store = new FakePayloadStore();
+    servlet = new PshbServlet(auth, capValidator, mailSender,
+        new ValidationDashboard(), mock(Queue.class), store);
+    String cap = largeAlert();
+    expectErrors(cap);
+    String id = store.put(cap);
+    HttpServletRequest task = newTask("");
+    when(task.getHeader(PshbServlet.STORED_PAYLOAD_HEADER)).thenReturn(id);
+
+    servlet.doPost(task, resp);
+
+    verify(resp).setStatus(HttpServletResponse.SC_OK);
+    verify(mailSender).sendMail(any(MimeMessage.class));
+    assertTrue(store.payloads.isEmpty());
+
+    // A retry after the payload was deleted does nothing
+    HttpServletResponse retryResp = mock(HttpServletResponse.class);
+    servlet.doPost(task, retryResp);
+    verify(retryResp).setStatus(HttpServletResponse.SC_OK);
+    verify(capValidator, times(1))
+        .validate(eq(cap), anySetOf(CapProfile.class));
+  }
+
+  public void testTaskPost_notFromQueue() throws Exception {
+    String cap = TestResources.load("earthquake.cap");
+    HttpServletRequest task = newPost(cap, "http://topic.com/feed");
+    when(task.getServletPath()).thenReturn(PshbServlet.TASK_PATH);
+
+    servlet.doPost(task, resp);
+
+    verify(resp).setStatus(HttpServletResponse.SC_FORBIDDEN);
+    verify(capValidator, never())
+        .validate(eq(cap), anySetOf(CapProfile.class));
+  }
+
+  private void expectErrors(String cap) {
+    ValidationResult result = new ValidationResult(cap);
+    result.addValidationMessage(3, Level.ERROR, "Validator", "Error");
+    when(capValidator.validate(eq(cap), anySetOf(CapProfile.class)))
+        .thenReturn(result);
+  }
+
+  /**
+   * @return an alert too large to send in a task
+   */
+  private static String largeAlert() throws IOException {
+    String cap = TestResources.load("earthquake.cap");
+    StringBuilder padding = new StringBuilder();
+    while (cap.length() + padding.length()
+        <= PshbServlet.MAX_TASK_PAYLOAD_BYTES) {
+      padding.append("<!-- padding -->\n");
+    }
+    return cap + padding;
+  }
+
+  private HttpServletRequest newTask(String body) throws IOException {
+    HttpServletRequest task = newPost(body, "http://topic.com/feed");
+    when(task.getServletPath()).thenReturn(PshbServlet.TASK_PATH);
+    when(task.getHeader(PshbServlet.QUEUE_NAME_HEADER))
+        .thenReturn(PshbServlet.QUEUE_NAME);
+    when(task.getHeader(PshbServlet.REQUEST_URL_HEADER))
+        .thenReturn("http://localhost/pshb");
+    return task;
+  }
+
+  private HttpServletRequest newPost(String body, String topic)
+      throws IOException {
+    HttpServletRequest post = mock(HttpServletRequest.class);
+    when(post.getInputStream()).thenReturn(new FakeServletInputStream(
+        new ByteArrayInputStream(body.getBytes("UTF-8"))));
+    when(post.getParameter("topic")).thenReturn(topic);
+    when(post.getParameter("email")).thenReturn("test@example.com");
+    when(post.getServletPath()).thenReturn("/pshb");
+    when(post.getRequestURL())
+        .thenReturn(new StringBuffer("http://localhost/pshb"));
+    return post;
+  }
+
+  /** Holds payloads in memory. */
+  private static class FakePayloadStore implements PshbServlet.PayloadStore {
+    private final Map<String, String> payloads = Maps.newHashMap();
+    private int nextId;
+
+    @Override
+    public String put(String payload) {
+      String id = String.valueOf(nextId++);
+      payloads.put(id, payload);
+      return id;
+    }
+
+    @Override
+    public String get(String id) {
+      return payloads.get(id);
+    }
+
+    @Override
+    public void delete(String id) {
+      payloads.remove(id);
+    }
+  }
+
   static class FakeServletInputStream extends ServletInputStream {
     private final InputStream source;
 
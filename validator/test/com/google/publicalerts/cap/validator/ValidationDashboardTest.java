@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2026 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.publicalerts.cap.validator;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.publicalerts.cap.CapException.ReasonType;
+import com.google.publicalerts.cap.Reason;
+import com.google.publicalerts.cap.Reasons;
+import com.google.publicalerts.cap.validator.ValidationDashboard.Outcome;
+import com.google.publicalerts.cap.validator.ValidationDashboard.TopicSummary;
+
+/**
+ * Tests for {@link ValidationDashboard}.
+ *
+ * @author agent@local (agent)
+ */
+public class ValidationDashboardTest extends TestCase {
+  private static final String TOPIC = "http://example.com/feed";
+  private static final long NOW = 1330000000000L;
+
+  public ValidationDashboardTest(String s) {
+    super(s);
+  }
+
+  public void testNoOutcomes() {
+    ValidationDashboard dashboard = new ValidationDashboard();
+    assertNull(dashboard.getSummary(TOPIC));
+    assertTrue(dashboard.getHistory(TOPIC).isEmpty());
+    assertTrue(dashboard.getTopics().isEmpty());
+  }
+
+  public void testRecord() {
+    ValidationDashboard dashboard = new ValidationDashboard(10, 4);
+    dashboard.record(TOPIC, NOW, 0, 1, ReasonType.INVALID_DATE);
+    dashboard.record(TOPIC, NOW + 1000, 2, 0, ReasonType.INVALID_AREA);
+    dashboard.record(TOPIC, NOW + 2000, 0, 0, null);
+
+    List<Outcome> history = dashboard.getHistory(TOPIC);
+    assertEquals(3, history.size());
+    assertEquals(NOW + 2000, history.get(0).getTimeMillis());
+    assertNull(history.get(0).getTopReasonType());
+    assertEquals(2, history.get(1).getErrorCount());
+    assertEquals(0, history.get(1).getWarningCount());
+    assertEquals(ReasonType.INVALID_AREA, history.get(1).getTopReasonType());
+
+    TopicSummary summary = dashboard.getSummary(TOPIC);
+    assertEquals(TOPIC, summary.getTopic());
+    assertEquals(3, summary.getValidationCount());
+    assertEquals(1, summary.getValidationsWithErrorsCount());
+    assertEquals(NOW + 2000, summary.getLastValidatedMillis());
+    assertEquals(NOW + 1000, summary.getLastErrorMillis());
+    assertEquals(3, summary.getWindowSize());
+    assertEquals(1, summary.getWindowWithErrorsCount());
+    assertEquals(2, summary.getWindowErrorCount());
+    assertEquals(1, summary.getWindowWarningCount());
+    // Ties go to the most recent
+    assertEquals(ImmutableList.of(ReasonType.INVALID_AREA, ReasonType.INVALID_DATE),
+        summary.getTopReasonTypes());
+  }
+
+  public void testRingKeepsNewest() {
+    ValidationDashboard dashboard = new ValidationDashboard(10, 4);
+    for (int i = 0; i < 10; i++) {
+      dashboard.record(TOPIC, NOW + i * 1000, i, 0,
+          i < 7 ? ReasonType.INVALID_AREA : ReasonType.INVALID_DATE);
+    }
+    List<Outcome> history = dashboard.getHistory(TOPIC);
+    assertEquals(4, history.size());
+    assertEquals(9, history.get(0).getErrorCount());
+    assertEquals(6, history.get(3).getErrorCount());
+
+    TopicSummary summary = dashboard.getSummary(TOPIC);
+    assertEquals(10, summary.getValidationCount());
+    assertEquals(9, summary.getValidationsWithErrorsCount());
+    assertEquals(4, summary.getWindowSize());
+    assertEquals(6 + 7 + 8 + 9, summary.getWindowErrorCount());
+    assertEquals(ImmutableList.of(ReasonType.INVALID_DATE, ReasonType.INVALID_AREA),
+        summary.getTopReasonTypes());
+  }
+
+  public void testCountsSaturate() {
+    ValidationDashboard dashboard = new ValidationDashboard(10, 4);
+    dashboard.record(TOPIC, NOW, 100000, 5000, null);
+    Outcome outcome = dashboard.getHistory(TOPIC).get(0);
+    assertEquals(2047, outcome.getErrorCount());
+    assertEquals(2047, outcome.getWarningCount());
+    assertEquals(NOW, outcome.getTimeMillis());
+  }
+
+  public void testMaxTopics() {
+    ValidationDashboard dashboard = new ValidationDashboard(2, 4);
+    assertTrue(dashboard.record("a", NOW, 0, 0, null));
+    assertTrue(dashboard.record("b", NOW, 0, 0, null));
+    assertFalse(dashboard.record("c", NOW, 0, 0, null));
+    assertTrue(dashboard.record("a", NOW, 0, 0, null));
+    assertEquals(2, dashboard.getTopics().size());
+    assertEquals(1, dashboard.getDroppedCount());
+  }
+
+  public void testRecordValidationResult() {
+    ValidationResult result = new ValidationResult("<alert/>");
+    result.addValidationMessages(Reasons.of(
+        new Reason("/alert[1]", ReasonType.INVALID_SENDER),
+        new Reason("/alert[1]/info[1]/area[1]", ReasonType.INVALID_AREA),
+        new Reason("/alert[1]/info[1]/area[2]", ReasonType.INVALID_AREA)));
+
+    ValidationDashboard dashboard = new ValidationDashboard();
+    dashboard.record(TOPIC, result);
+    Outcome outcome = dashboard.getHistory(TOPIC).get(0);
+    assertEquals(result.getMessageCount(Reason.Level.ERROR),
+        outcome.getErrorCount());
+    assertEquals(ReasonType.INVALID_AREA, outcome.getTopReasonType());
+  }
+
+  public void testConcurrentRecords() throws Exception {
+    final ValidationDashboard dashboard = new ValidationDashboard(10, 8);
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = Lists.newArrayList();
+    for (int t = 0; t < 4; t++) {
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          for (int i = 0; i < 1000; i++) {
+            dashboard.record(TOPIC, NOW + i, 1, 0, ReasonType.INVALID_AREA);
+          }
+        }
+      };
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    TopicSummary summary = dashboard.getSummary(TOPIC);
+    assertEquals(4000, summary.getValidationCount());
+    assertEquals(4000, summary.getValidationsWithErrorsCount());
+    assertEquals(8, summary.getWindowSize());
+    assertEquals(8, summary.getWindowErrorCount());
+  }
+}